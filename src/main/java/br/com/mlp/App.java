@@ -1,37 +1,74 @@
 package br.com.mlp;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.*;
 import java.util.List;
 
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.*;
 
 import br.com.mlp.compiler.parser.MlpLexer;
 import br.com.mlp.compiler.parser.MlpParser;
 import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.FlatAst;
+import br.com.mlp.compiler.ast.FlatAstBuilder;
 import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.codegen.BinaryTacSink;
+import br.com.mlp.compiler.codegen.CBackend;
 import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.codegen.CountingTacSink;
+import br.com.mlp.compiler.codegen.PrintingTacSink;
 import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.codegen.TacSink;
+import br.com.mlp.compiler.opt.AlgebraicSimplifier;
+import br.com.mlp.compiler.opt.DeadStoreElimination;
+import br.com.mlp.compiler.opt.LoopUnroller;
+import br.com.mlp.compiler.opt.StrengthReduction;
+import br.com.mlp.compiler.semantics.FusedPass;
+import br.com.mlp.compiler.semantics.SymbolTable;
 import br.com.mlp.diagnostics.*;
 import br.com.mlp.lex.*;
+import br.com.mlp.pipeline.PipelinedFrontEnd;
+import br.com.mlp.runtime.*;
 
 public class App {
     public static void main(String[] args) throws Exception {
         if (args.length == 0) {
-            System.out.println("Uso: mvn exec:java -Dexec.args=\"programas/teste1.mlp\"");
+            System.out.println(CompilerOptions.USAGE);
             return;
         }
 
-        String caminho = args[0];
+        CompilerOptions opts;
+        try {
+            opts = CompilerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("[ERRO] " + e.getMessage());
+            System.out.println(CompilerOptions.USAGE);
+            return;
+        }
+
+        String caminho = opts.getSourcePath();
         String codigo = Files.readString(Path.of(caminho));
 
-        ErrorReporter reporter = new ErrorReporter();
+        ErrorReporter reporter = new ErrorReporter(opts.getMaxErrors(), opts.isUniqueErrors(),
+                opts.isImmediateErrors() ? d -> System.out.println(d) : null);
 
         // ---------------- Fase A: Tokenização (léxico) ----------------
         System.out.println("== Léxico ==");
-        CharStream inputA = CharStreams.fromString(codigo);
-        TokenScanner scanner = new TokenScanner(reporter);
-        List<TokenInfo> tokenList = scanner.scan(inputA);
+        IdentTable idents = new IdentTable();
+        List<TokenInfo> tokenList;
+        PipelinedFrontEnd.Result piped = null;
+        if (opts.isPipelined() && !opts.isFlatAst() && !opts.isReuseSubexpressions()
+                && !opts.isExactInitialization()) {
+            // léxico, sintático, AST e semântica + TAC em threads; os
+            // diagnósticos chegam todos aqui, na ordem das fases
+            piped = new PipelinedFrontEnd(reporter, idents).compile(CharStreams.fromString(codigo));
+            tokenList = piped.tokens();
+        } else {
+            tokenList = new TokenScanner(reporter, idents).scan(CharStreams.fromString(codigo));
+        }
 
         for (TokenInfo ti : tokenList) {
             System.out.printf("Linha %d, Col %d -> %-12s '%s'%s%n",
@@ -47,33 +84,63 @@ public class App {
 
         // ---------------- Fase B: Sintático (parser) ----------------
         System.out.println("\n== Sintático ==");
-        CharStream inputB = CharStreams.fromString(codigo);
-        MlpLexer lexer = new MlpLexer(inputB);
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        MlpParser parser = new MlpParser(tokens);
+        MlpParser.ProgramaContext tree = null;
+        if (piped == null && !reporter.limitReached()) {
+            MlpLexer lexer = new MlpLexer(CharStreams.fromString(codigo));
+            lexer.setTokenFactory(IdentToken.factory(idents));
+            MlpParser parser = new MlpParser(new CommonTokenStream(lexer));
 
-        parser.removeErrorListeners();
-        parser.addErrorListener(new MlpSyntaxErrorListener(reporter));
+            parser.removeErrorListeners();
+            parser.addErrorListener(new MlpSyntaxErrorListener(reporter));
 
-        ParseTree tree = parser.programa();
+            try {
+                tree = parser.programa();
+            } catch (ParseCancellationException e) {
+                // limite de erros: a árvore parcial não é usada
+            }
+        }
 
         ProgramNode ast = null;
+        FlatAst flat = null;
 
-        if (reporter.hasErrorsOfType(ErrorType.SINTATICO)) {
+        if (reporter.limitReached()) {
+            System.out.println("[AVISO] Limite de " + reporter.limit() + " erro(s) atingido. AST não será construída.");
+        } else if (reporter.hasErrorsOfType(ErrorType.SINTATICO)) {
             System.out.println("[AVISO] Foram encontrados erros sintáticos. AST não será construída.");
         } else {
             // ---------------- Fase C: AST (se sintaxe ok) ----------------
             System.out.println("\n== AST ==");
-            AstBuilder builder = new AstBuilder();
-            ast = (ProgramNode) builder.visit(tree);
-            System.out.println(ast);
+            if (piped != null) {
+                ast = piped.program();
+                System.out.println(ast);
+            } else if (opts.isFlatAst()) {
+                flat = new FlatAstBuilder(idents).build(tree);
+                System.out.println(flat);
+            } else {
+                AstBuilder builder = new AstBuilder(idents);
+                ast = (ProgramNode) builder.visit(tree);
+                System.out.println(ast);
+            }
         }
 
         // ---------------- Fase D: Semântica ----------------
-        if (ast != null) {
+        SymbolTable symtab = null;
+        FusedPass.Result fused = null;
+        if (ast != null || flat != null) {
             System.out.println("\n== Semântica ==");
-            var sema = new br.com.mlp.compiler.semantics.SemanticAnalyzer(reporter, tokenList);
-            var symtab = sema.analyze(ast);
+            if (piped != null) {
+                fused = piped.semantics();
+                symtab = fused.symbols();
+            } else if (opts.isSinglePass() && ast != null && !opts.isReuseSubexpressions()
+                    && !opts.isExactInitialization() && !opts.isTypedTac()) {
+                // semântica + TAC no mesmo percurso
+                fused = new FusedPass(reporter, tokenList).run(ast);
+                symtab = fused.symbols();
+            } else {
+                var sema = new br.com.mlp.compiler.semantics.SemanticAnalyzer(reporter, tokenList,
+                        opts.isExactInitialization());
+                symtab = flat != null ? sema.analyze(flat) : sema.analyze(ast);
+            }
       
             System.out.println("Tabela de Símbolos:");
             for (var e : symtab.all()) {
@@ -86,20 +153,193 @@ public class App {
             for (Diagnostic d : reporter.all()) {
                 System.out.println(d.toString());
             }
+            if (opts.isImmediateErrors()) {
+                System.out.println(reporter.total() + " erro(s), mostrados acima à medida que foram encontrados.");
+            }
+            if (reporter.suppressed() > 0) {
+                System.out.println("[AVISO] " + reporter.suppressed()
+                        + " diagnóstico(s) omitido(s) (repetidos ou além do limite de erros).");
+            }
+            if (reporter.limitReached()) {
+                System.out.println("[AVISO] Compilação interrompida ao atingir " + reporter.limit() + " erro(s).");
+            }
             return;
         } else {
             System.out.println("\nSem erros léxicos/sintáticos/semânticos nesta fase.");
         }
 
         // ---------------- Fase E: Geração de Código Intermediário (TAC) ----------------
-        if (ast != null) {
+        if (ast != null || flat != null) {
             System.out.println("\n== Código Intermediário (TAC) ==");
-            CodeGenerator codeGen = new CodeGenerator();
-            List<TacInstruction> tac = codeGen.generate(ast);
+            CountingTacSink counter = new CountingTacSink();
+            try (OutputStream binary = opts.getBinaryTac() != null
+                    ? Files.newOutputStream(Path.of(opts.getBinaryTac())) : null) {
+                TacSink out = binary != null
+                        ? TacSink.tee(new BinaryTacSink(binary), counter)
+                        : new PrintingTacSink(System.out);
+                // sem otimização, backend C nem execução, o TAC vai direto do
+                // gerador para a saída, comando a comando, sem ficar em memória
+                boolean wholeProgram = (fused != null && !opts.isTypedTac()) || opts.isPartialEval()
+                        || opts.isUnroll() || opts.isStrengthReduction() || opts.isSimplify()
+                        || opts.isDeadStoreElimination() || opts.getCOutput() != null || opts.isExecute();
+                if (!wholeProgram) {
+                    CodeGenerator codeGen = new CodeGenerator(opts.isReuseSubexpressions());
+                    if (opts.isTypedTac()) {
+                        if (flat != null) codeGen.generateTyped(flat, symtab, out);
+                        else codeGen.generateTyped(ast, symtab, out);
+                    } else if (flat != null) {
+                        codeGen.generate(flat, out);
+                    } else {
+                        codeGen.generate(ast, out);
+                    }
+                    finishTac(out, counter, opts);
+                    return;
+                }
+
+                List<TacInstruction> tac;
+                if (fused != null && !opts.isTypedTac()) {
+                    tac = fused.tac();
+                } else {
+                    CodeGenerator codeGen = new CodeGenerator(opts.isReuseSubexpressions());
+                    if (opts.isTypedTac()) {
+                        // o passe fundido (--pipeline) só gera TAC sem tipos
+                        tac = flat != null ? codeGen.generateTyped(flat, symtab) : codeGen.generateTyped(ast, symtab);
+                    } else {
+                        tac = flat != null ? codeGen.generate(flat) : codeGen.generate(ast);
+                    }
+                }
+
+                if (opts.isPartialEval()) {
+                    PartialEvaluator.Result pe = new PartialEvaluator(opts.getPartialEvalSteps(),
+                            opts.getPartialEvalMillis()).evaluate(tac, symtab);
+                    if (pe.folded()) {
+                        System.out.println("Avaliação parcial: programa executado na compilação ("
+                                + pe.steps() + " instruções); TAC substituído pelos valores finais.");
+                        tac = pe.tac();
+                    } else {
+                        System.out.println("[AVISO] Avaliação parcial abandonada: " + pe.reason()
+                                + ". TAC normal mantido.");
+                    }
+                }
+
+                if (opts.isUnroll()) {
+                    LoopUnroller.Result ur = new LoopUnroller(symtab, opts.getUnrollFactor()).run(tac);
+                    System.out.println("Desenrolamento de laços: " + ur.fullyUnrolled() + " por completo, "
+                            + ur.partiallyUnrolled() + " parcialmente.");
+                    if (opts.isVerbose()) {
+                        for (String d : ur.decisions()) {
+                            System.out.println("  - " + d);
+                        }
+                    }
+                    tac = ur.tac();
+                }
+
+                if (opts.isStrengthReduction()) {
+                    StrengthReduction.Result sr;
+                    try {
+                        sr = new StrengthReduction(symtab, opts.getObservedVariables()).run(tac);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("[ERRO] " + e.getMessage());
+                        return;
+                    }
+                    System.out.println("Redução de força: " + sr.reducedMultiplications() + " multiplicação(ões) por "
+                            + "variável de indução, " + sr.replacedTests() + " teste(s) de saída reescrito(s).");
+                    tac = sr.tac();
+                }
+
+                if (opts.isSimplify()) {
+                    AlgebraicSimplifier.Result as = new AlgebraicSimplifier(symtab).run(tac);
+                    System.out.println("Simplificação algébrica: " + as.identities() + " identidade(s) ou dobra(s), "
+                            + as.reassociations() + " reassociação(ões), " + as.shifts()
+                            + " operação(ões) por potência de 2 em deslocamento/máscara, " + as.magicDivisions()
+                            + " divisão(ões) por constante em multiplicação alta.");
+                    tac = as.tac();
+                }
+
+                if (opts.isDeadStoreElimination()) {
+                    DeadStoreElimination.Result dse;
+                    try {
+                        dse = new DeadStoreElimination(symtab, opts.getObservedVariables()).run(tac);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("[ERRO] " + e.getMessage());
+                        return;
+                    }
+                    System.out.println("Eliminação de atribuições mortas: " + dse.removedStores() + " STORE(s), "
+                            + dse.removedInstructions() + " instrução(ões) removida(s).");
+                    tac = dse.tac();
+                }
+
+                for (TacInstruction instr : tac) {
+                    out.accept(instr);
+                }
+                finishTac(out, counter, opts);
 
-            for (TacInstruction instr : tac) {
-                System.out.println(instr);
+                // ---------------- Backend C (opcional) ----------------
+                if (opts.getCOutput() != null) {
+                    emitC(tac, symtab, opts);
+                }
+
+                // ---------------- Fase F: Execução (opcional) ----------------
+                if (opts.isExecute()) {
+                    execute(tac, symtab, opts);
+                }
+            }
+        }
+    }
+
+    /** Fecha a saída do TAC; no modo binário, informa quanto foi gravado. */
+    private static void finishTac(TacSink out, CountingTacSink counter, CompilerOptions opts) {
+        out.finish();
+        if (opts.getBinaryTac() != null) {
+            System.out.println("TAC gravado em " + opts.getBinaryTac() + ": " + counter.total() + " instrução(ões).");
+        }
+    }
+
+    private static void emitC(List<TacInstruction> tac, SymbolTable symtab, CompilerOptions opts) throws Exception {
+        System.out.println("\n== Backend C ==");
+        Path cFile = Path.of(opts.getCOutput());
+        Files.writeString(cFile, new CBackend().generate(tac, symtab, opts.getObservedVariables()));
+        System.out.println("Código C gerado em " + cFile);
+
+        if (opts.isCompileC()) {
+            String name = cFile.getFileName().toString();
+            String exeName = name.endsWith(".c") ? name.substring(0, name.length() - 2) : name + ".out";
+            Path exe = cFile.resolveSibling(exeName);
+            try {
+                CBackend.compile(cFile, exe);
+                System.out.println("Executável gerado em " + exe);
+            } catch (IOException e) {
+                System.out.println("[ERRO] " + e.getMessage());
             }
         }
     }
+
+    private static void execute(List<TacInstruction> tac, SymbolTable symtab, CompilerOptions opts) {
+        System.out.println("\n== Execução ==");
+        TieredRuntime runtime = new TieredRuntime(opts.getJitThreshold(), opts.isJitEnabled());
+        TacProgram program = TacProgram.decode(tac, symtab);
+        Frame frame = program.newFrame();
+
+        ExecutionStats stats;
+        try {
+            stats = runtime.execute(program, frame);
+        } catch (MlpRuntimeException e) {
+            System.out.println("[ERRO DE EXECUÇÃO] " + e.getMessage());
+            return;
+        }
+
+        // com --observar, as demais variáveis podem ter perdido os seus STOREs
+        List<String> observed = opts.getObservedVariables();
+        System.out.println(observed != null ? "Valores finais (variáveis observadas):" : "Valores finais:");
+        for (var v : frame.values().entrySet()) {
+            if (symtab.lookup(v.getKey()).temporaria) continue;
+            if (observed != null && !observed.contains(v.getKey())) continue;
+            System.out.println("  - " + v.getKey() + " = " + v.getValue());
+        }
+
+        if (opts.isStats()) {
+            System.out.println("\n== Estatísticas de Execução ==");
+            System.out.println(stats);
+        }
+    }
 }
@@ -0,0 +1,43 @@
+package br.com.mlp;
+
+import java.util.List;
+
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.semantics.SymbolTable;
+import br.com.mlp.diagnostics.Diagnostic;
+import br.com.mlp.diagnostics.ErrorType;
+import br.com.mlp.lex.TokenInfo;
+
+/**
+ * Resultado de uma compilação pela API ({@link MlpCompiler} /
+ * {@link CompilerSession}). As listas são cópias imutáveis; os campos que
+ * uma fase não produziu são null:
+ *
+ *  - program: null se houve erro sintático;
+ *  - symbols: null se não houve AST;
+ *  - tac:     null se houve qualquer diagnóstico (como no App).
+ *
+ * A AST e a Tabela de Símbolos não são copiadas: depois de devolvidas
+ * ninguém mais as altera, e podem ser lidas de qualquer thread.
+ */
+public record CompilationResult(List<TokenInfo> tokens,
+                                ProgramNode program,
+                                SymbolTable symbols,
+                                List<Diagnostic> diagnostics,
+                                List<TacInstruction> tac) {
+
+    public CompilationResult {
+        tokens = List.copyOf(tokens);
+        diagnostics = List.copyOf(diagnostics);
+        tac = tac != null ? List.copyOf(tac) : null;
+    }
+
+    public boolean hasErrors() {
+        return !diagnostics.isEmpty();
+    }
+
+    public boolean hasErrorsOfType(ErrorType type) {
+        return diagnostics.stream().anyMatch(d -> d.getType() == type);
+    }
+}
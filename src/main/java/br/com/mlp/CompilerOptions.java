@@ -0,0 +1,224 @@
+package br.com.mlp;
+
+import java.util.List;
+
+import br.com.mlp.compiler.opt.LoopUnroller;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.runtime.PartialEvaluator;
+import br.com.mlp.runtime.TieredRuntime;
+
+/**
+ * Opções de linha de comando do compilador:
+ *
+ *   arquivo.mlp           caminho do programa (obrigatório)
+ *   --executar            executa o TAC gerado e mostra os valores finais
+ *   --estatisticas        mostra as estatísticas da execução (com --executar)
+ *   --jit-limite=N        back-edges antes de compilar um laço (padrão 1000)
+ *   --sem-jit             executa só no interpretador, sem compilar laços
+ *   --gerar-c[=saida.c]   traduz o TAC para C99 (padrão: arquivo.mlp -> arquivo.c)
+ *   --compilar-c          gera o C e compila com o cc do sistema (executável sem o .c)
+ *   --ast-plana           usa a AST em vetores (FlatAst) na análise e na geração de TAC
+ *   --reusar-subexpr      subexpressões repetidas numa mesma atribuição/comparação
+ *                         são calculadas uma vez só no TAC
+ *   --passe-unico         análise semântica e geração de TAC num só percurso da AST
+ *   --pipeline            léxico, parser e semântica + TAC em threads separadas
+ *                         (com --ast-plana, --reusar-subexpr ou
+ *                         --inicializacao-exata, as fases rodam em sequência)
+ *   --avaliacao-parcial[=N]
+ *                         executa o programa na compilação (até N instruções,
+ *                         padrão 10000000) e troca o TAC pelos valores finais
+ *   --avaliacao-tempo=MS  tempo máximo da avaliação parcial (padrão 1000 ms)
+ *   --inicializacao-exata COD.207 pelo fluxo de controle (atribuição em todos
+ *                         os caminhos até o uso); não combina com --ast-plana
+ *   --eliminar-mortas     remove do TAC as atribuições a variáveis mortas e as
+ *                         instruções que só calculavam o valor delas
+ *   --observar=a,b        só essas variáveis contam como saída do programa
+ *                         e aparecem nos valores finais (implica
+ *                         --eliminar-mortas; padrão: todas)
+ *   --reduzir-forca       troca multiplicações por variáveis de indução dos
+ *                         laços por somas; se o contador morre, o teste de saída
+ *                         passa a usar a variável auxiliar
+ *   --simplificar         simplificação algébrica da aritmética inteira do TAC:
+ *                         identidades, reassociação de constantes, potências
+ *                         de 2 em deslocamentos e divisão por constante em
+ *                         multiplicação alta
+ *   --desenrolar[=F]      desenrola laços com número de voltas conhecido: por
+ *                         completo se forem poucas, senão F cópias do corpo
+ *                         por volta (padrão 4)
+ *   --verboso             mostra a decisão das otimizações para cada laço
+ *   --tac-tipado          TAC com opcodes por tipo (IADD, RDIV, IJLT, ...),
+ *                         conversão explícita (I2R) e RESTO nativo (IMOD/RMOD)
+ *   --tac-binario=arq     grava o TAC em formato binário no arquivo em vez de
+ *                         listá-lo na saída
+ *   --max-erros=N         interrompe léxico, sintático e semântica ao chegar
+ *                         a N erros
+ *   --erros-unicos        o mesmo erro para a mesma variável sai uma vez só
+ *   --erros-imediatos     mostra cada erro assim que é encontrado, sem
+ *                         guardá-los para a lista consolidada
+ */
+public class CompilerOptions {
+
+    public static final String USAGE =
+            "Uso: mvn exec:java -Dexec.args=\"programas/teste1.mlp [--executar] [--estatisticas]"
+            + " [--jit-limite=N] [--sem-jit] [--gerar-c[=saida.c]] [--compilar-c] [--ast-plana]"
+            + " [--reusar-subexpr] [--passe-unico] [--pipeline] [--avaliacao-parcial[=N]]"
+            + " [--avaliacao-tempo=MS] [--inicializacao-exata] [--eliminar-mortas] [--observar=a,b]"
+            + " [--reduzir-forca] [--simplificar] [--desenrolar[=F]] [--verboso] [--tac-tipado]"
+            + " [--tac-binario=arq] [--max-erros=N] [--erros-unicos] [--erros-imediatos]\"";
+
+    private String sourcePath;
+    private boolean execute;
+    private boolean stats;
+    private int jitThreshold = TieredRuntime.DEFAULT_THRESHOLD;
+    private boolean jitEnabled = true;
+    private String cOutput;
+    private boolean compileC;
+    private boolean flatAst;
+    private boolean reuseSubexpressions;
+    private boolean singlePass;
+    private boolean pipelined;
+    private boolean partialEval;
+    private long partialEvalSteps = PartialEvaluator.DEFAULT_MAX_STEPS;
+    private long partialEvalMillis = PartialEvaluator.DEFAULT_MAX_MILLIS;
+    private boolean exactInitialization;
+    private boolean deadStoreElimination;
+    private boolean strengthReduction;
+    private boolean simplify;
+    private boolean unroll;
+    private int unrollFactor = LoopUnroller.DEFAULT_FACTOR;
+    private boolean verbose;
+    private boolean typedTac;
+    private String binaryTac;
+    private int maxErrors = ErrorReporter.UNLIMITED;
+    private boolean uniqueErrors;
+    private boolean immediateErrors;
+    private List<String> observed;
+
+    public static CompilerOptions parse(String[] args) {
+        CompilerOptions o = new CompilerOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                if (o.sourcePath != null) {
+                    throw new IllegalArgumentException("mais de um arquivo informado: " + arg);
+                }
+                o.sourcePath = arg;
+                continue;
+            }
+
+            String name = arg;
+            String value = null;
+            int eq = arg.indexOf('=');
+            if (eq >= 0) {
+                name = arg.substring(0, eq);
+                value = arg.substring(eq + 1);
+            }
+
+            switch (name) {
+                case "--executar" -> o.execute = true;
+                case "--estatisticas" -> o.stats = true;
+                case "--sem-jit" -> o.jitEnabled = false;
+                case "--jit-limite" -> o.jitThreshold = positiveInt(name, value);
+                case "--gerar-c" -> o.cOutput = value != null ? value : "";
+                case "--compilar-c" -> o.compileC = true;
+                case "--ast-plana" -> o.flatAst = true;
+                case "--reusar-subexpr" -> o.reuseSubexpressions = true;
+                case "--passe-unico" -> o.singlePass = true;
+                case "--pipeline" -> o.pipelined = true;
+                case "--avaliacao-parcial" -> {
+                    o.partialEval = true;
+                    if (value != null) o.partialEvalSteps = positiveInt(name, value);
+                }
+                case "--avaliacao-tempo" -> o.partialEvalMillis = positiveInt(name, value);
+                case "--inicializacao-exata" -> o.exactInitialization = true;
+                case "--eliminar-mortas" -> o.deadStoreElimination = true;
+                case "--reduzir-forca" -> o.strengthReduction = true;
+                case "--simplificar" -> o.simplify = true;
+                case "--desenrolar" -> {
+                    o.unroll = true;
+                    if (value != null) o.unrollFactor = positiveInt(name, value);
+                    if (o.unrollFactor < 2) {
+                        throw new IllegalArgumentException(name + " espera um fator de pelo menos 2");
+                    }
+                }
+                case "--verboso" -> o.verbose = true;
+                case "--tac-tipado" -> o.typedTac = true;
+                case "--tac-binario" -> {
+                    if (value == null || value.isBlank()) {
+                        throw new IllegalArgumentException(name + " espera um arquivo (ex: " + name + "=saida.tac)");
+                    }
+                    o.binaryTac = value;
+                }
+                case "--max-erros" -> o.maxErrors = positiveInt(name, value);
+                case "--erros-unicos" -> o.uniqueErrors = true;
+                case "--erros-imediatos" -> o.immediateErrors = true;
+                case "--observar" -> {
+                    if (value == null || value.isBlank()) {
+                        throw new IllegalArgumentException(name + " espera nomes de variáveis (ex: " + name + "=a,b)");
+                    }
+                    o.deadStoreElimination = true;
+                    o.observed = List.of(value.split("\\s*,\\s*"));
+                }
+                default -> throw new IllegalArgumentException("opção desconhecida: " + arg);
+            }
+        }
+        if (o.sourcePath == null) {
+            throw new IllegalArgumentException("nenhum arquivo .mlp informado");
+        }
+        if (o.exactInitialization && o.flatAst) {
+            // a InitializationAnalysis só percorre a AST em objetos
+            throw new IllegalArgumentException("--inicializacao-exata não pode ser usada com --ast-plana");
+        }
+        if (o.compileC && o.cOutput == null) {
+            o.cOutput = "";
+        }
+        if (o.cOutput != null && o.cOutput.isEmpty()) {
+            String base = o.sourcePath.endsWith(".mlp")
+                    ? o.sourcePath.substring(0, o.sourcePath.length() - 4)
+                    : o.sourcePath;
+            o.cOutput = base + ".c";
+        }
+        return o;
+    }
+
+    private static int positiveInt(String name, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) return n;
+        } catch (NumberFormatException | NullPointerException e) {
+            // cai na mensagem abaixo
+        }
+        throw new IllegalArgumentException(name + " espera um inteiro positivo (ex: " + name + "=100)");
+    }
+
+    public String getSourcePath() { return sourcePath; }
+    public boolean isExecute() { return execute; }
+    public boolean isStats() { return stats; }
+    public int getJitThreshold() { return jitThreshold; }
+    public boolean isJitEnabled() { return jitEnabled; }
+    /** Caminho do arquivo C a gerar, ou null se a tradução para C não foi pedida. */
+    public String getCOutput() { return cOutput; }
+    public boolean isCompileC() { return compileC; }
+    public boolean isFlatAst() { return flatAst; }
+    public boolean isReuseSubexpressions() { return reuseSubexpressions; }
+    public boolean isSinglePass() { return singlePass; }
+    public boolean isPipelined() { return pipelined; }
+    public boolean isPartialEval() { return partialEval; }
+    public long getPartialEvalSteps() { return partialEvalSteps; }
+    public long getPartialEvalMillis() { return partialEvalMillis; }
+    public boolean isExactInitialization() { return exactInitialization; }
+    public boolean isDeadStoreElimination() { return deadStoreElimination; }
+    public boolean isStrengthReduction() { return strengthReduction; }
+    public boolean isSimplify() { return simplify; }
+    public boolean isUnroll() { return unroll; }
+    public int getUnrollFactor() { return unrollFactor; }
+    public boolean isVerbose() { return verbose; }
+    public boolean isTypedTac() { return typedTac; }
+    /** Arquivo do TAC binário, ou null (TAC listado na saída). */
+    public String getBinaryTac() { return binaryTac; }
+    /** Limite de erros, ou {@link ErrorReporter#UNLIMITED}. */
+    public int getMaxErrors() { return maxErrors; }
+    public boolean isUniqueErrors() { return uniqueErrors; }
+    public boolean isImmediateErrors() { return immediateErrors; }
+    /** Variáveis observadas na eliminação de atribuições mortas, ou null (todas). */
+    public List<String> getObservedVariables() { return observed; }
+}
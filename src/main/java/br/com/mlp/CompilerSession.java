@@ -0,0 +1,101 @@
+package br.com.mlp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.SemanticAnalyzer;
+import br.com.mlp.compiler.semantics.SymbolTable;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.diagnostics.ErrorType;
+import br.com.mlp.diagnostics.MlpSyntaxErrorListener;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.IdentToken;
+import br.com.mlp.lex.TokenInfo;
+import br.com.mlp.lex.TokenScanner;
+
+/**
+ * Compila programas MLP com as mesmas fases do {@link App} (léxico,
+ * sintático, AST, semântica e TAC), sem escrever nada na saída.
+ *
+ * Uma sessão guarda lexer, parser e gerador de código e os reaproveita de
+ * uma compilação para a outra; nenhum estado de uma compilação passa para a
+ * seguinte (tabelas, diagnósticos e numeração de registradores e rótulos
+ * recomeçam). Não é thread-safe: para uso concorrente, uma sessão por
+ * thread ou o {@link MlpCompiler}.
+ */
+public final class CompilerSession {
+
+    private final MlpLexer lexer = new MlpLexer(CharStreams.fromString(""));
+    private final MlpParser parser = new MlpParser(null);
+    private final CodeGenerator codeGen;
+
+    public CompilerSession() {
+        this(false);
+    }
+
+    /** @param reuseSubexpressions mesmo efeito de {@code --reusar-subexpr} */
+    public CompilerSession(boolean reuseSubexpressions) {
+        this.codeGen = new CodeGenerator(reuseSubexpressions);
+        lexer.removeErrorListeners();
+        parser.removeErrorListeners();
+    }
+
+    public CompilationResult compile(CharStream input) {
+        ErrorReporter reporter = new ErrorReporter();
+        IdentTable idents = new IdentTable();
+
+        // léxico: o lexer roda uma vez; os tokens alimentam a lista e o parser
+        TokenScanner scanner = new TokenScanner(reporter, idents);
+        List<TokenInfo> tokens = new ArrayList<>();
+        List<Token> stream = new ArrayList<>();
+        lexer.setInputStream(input);
+        lexer.setTokenFactory(IdentToken.factory(idents));
+        Token t;
+        do {
+            t = lexer.nextToken();
+            stream.add(t);
+            if (t.getType() != Token.EOF) tokens.add(scanner.record(t));
+        } while (t.getType() != Token.EOF);
+
+        // sintático
+        MlpSyntaxErrorListener syntaxErrors = new MlpSyntaxErrorListener(reporter);
+        parser.setTokenStream(new CommonTokenStream(new ListTokenSource(stream)));
+        parser.addErrorListener(syntaxErrors);
+        MlpParser.ProgramaContext tree;
+        try {
+            tree = parser.programa();
+        } finally {
+            parser.removeErrorListener(syntaxErrors);
+        }
+
+        ProgramNode program = null;
+        SymbolTable symbols = null;
+        List<TacInstruction> tac = null;
+
+        if (!reporter.hasErrorsOfType(ErrorType.SINTATICO)) {
+            program = (ProgramNode) new AstBuilder(idents).visit(tree);
+            symbols = new SemanticAnalyzer(reporter, tokens).analyze(program);
+            if (!reporter.hasAnyError()) {
+                tac = codeGen.generate(program);
+            }
+        }
+
+        // solta a entrada e a parse tree antes de a sessão voltar ao pool
+        lexer.setInputStream(CharStreams.fromString(""));
+        parser.setTokenStream(null);
+
+        return new CompilationResult(tokens, program, symbols, reporter.all(), tac);
+    }
+}
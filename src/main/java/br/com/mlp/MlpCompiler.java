@@ -0,0 +1,81 @@
+package br.com.mlp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+
+/**
+ * API embutível do compilador MLP: recebe o fonte (String, arquivo ou
+ * ByteBuffer em UTF-8) e devolve um {@link CompilationResult} imutável com
+ * tokens, AST, símbolos, diagnósticos e TAC. Nada é escrito na saída.
+ *
+ * Thread-safe: cada chamada usa uma {@link CompilerSession} só dela. Com
+ * pool, as sessões (lexer, parser e gerador de código) são reaproveitadas
+ * entre chamadas em vez de criadas a cada uma; sem pool, cada chamada cria
+ * a sua.
+ *
+ * <pre>
+ *   MlpCompiler compiler = MlpCompiler.pooled(8);
+ *   CompilationResult r = compiler.compile("$ inteiro a; a = 1; $.");
+ *   if (!r.hasErrors()) r.tac().forEach(System.out::println);
+ * </pre>
+ */
+public final class MlpCompiler {
+
+    private final BlockingQueue<CompilerSession> pool; // null: sem pool
+    private final boolean reuseSubexpressions;
+
+    private MlpCompiler(int poolSize, boolean reuseSubexpressions) {
+        this.pool = poolSize > 0 ? new ArrayBlockingQueue<>(poolSize) : null;
+        this.reuseSubexpressions = reuseSubexpressions;
+    }
+
+    /** Sem pool: uma sessão nova por chamada. */
+    public MlpCompiler() {
+        this(0, false);
+    }
+
+    /** Guarda até {@code maxIdle} sessões livres para as próximas chamadas. */
+    public static MlpCompiler pooled(int maxIdle) {
+        if (maxIdle <= 0) throw new IllegalArgumentException("tamanho do pool deve ser positivo");
+        return new MlpCompiler(maxIdle, false);
+    }
+
+    /** Igual ao construtor/pool, com {@code --reusar-subexpr} ligado. */
+    public static MlpCompiler reusingSubexpressions(int maxIdle) {
+        return new MlpCompiler(Math.max(maxIdle, 0), true);
+    }
+
+    public CompilationResult compile(String source) {
+        return compile(CharStreams.fromString(source));
+    }
+
+    public CompilationResult compile(Path file) throws IOException {
+        return compile(CharStreams.fromPath(file, StandardCharsets.UTF_8));
+    }
+
+    /** Lê o conteúdo restante do buffer sem alterar a posição dele. */
+    public CompilationResult compile(ByteBuffer utf8) {
+        return compile(StandardCharsets.UTF_8.decode(utf8.duplicate()).toString());
+    }
+
+    public CompilationResult compile(CharStream input) {
+        CompilerSession session = pool != null ? pool.poll() : null;
+        if (session == null) {
+            session = new CompilerSession(reuseSubexpressions);
+        }
+        try {
+            return session.compile(input);
+        } finally {
+            if (pool != null) {
+                pool.offer(session); // pool cheio: a sessão é descartada
+            }
+        }
+    }
+}
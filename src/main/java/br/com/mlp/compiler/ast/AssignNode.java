@@ -4,13 +4,15 @@ package br.com.mlp.compiler.ast;
  * Representa uma atribuição, ex:
  *   a = b + 1;
  */
-public class AssignNode extends CommandNode {
+public final class AssignNode extends CommandNode {
 
   private final String varName;
+  private final int varId;
   private final ExpressionNode expression;
 
-  public AssignNode(String varName, ExpressionNode expression) {
+  public AssignNode(String varName, int varId, ExpressionNode expression) {
       this.varName = varName;
+      this.varId = varId;
       this.expression = expression;
   }
 
@@ -18,6 +20,11 @@ public class AssignNode extends CommandNode {
       return varName;
   }
 
+  /** ID do identificador na IdentTable do programa. */
+  public int getVarId() {
+      return varId;
+  }
+
   public ExpressionNode getExpression() {
       return expression;
   }
@@ -1,18 +1,51 @@
 package br.com.mlp.compiler.ast;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
 import br.com.mlp.compiler.parser.MlpBaseVisitor;
 import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.IdentToken;
 
 /**
  * Visitor que percorre a parse tree do ANTLR e constrói a AST.
+ * Os nós guardam o ID do identificador na {@link IdentTable}, o mesmo que
+ * o lexer já atribuiu ao token (ver {@link IdentToken}).
+ * Expressões passam pela {@link ExpressionFactory}: subárvores iguais são
+ * o mesmo objeto.
  */
 public class AstBuilder extends MlpBaseVisitor<AstNode> {
 
+    private final IdentTable idents;
+    private final ExpressionFactory exprs = new ExpressionFactory();
+
+    public AstBuilder() {
+        this(new IdentTable());
+    }
+
+    /** Usa a mesma tabela do {@link br.com.mlp.lex.TokenScanner}, para IDs iguais. */
+    public AstBuilder(IdentTable idents) {
+        this.idents = idents;
+    }
+
+    /** Constantes numéricas do programa construído. */
+    public ConstantPool getConstants() {
+        return exprs.getConstants();
+    }
+
+    private int id(TerminalNode ident) {
+        return IdentToken.idOf(ident.getSymbol(), idents);
+    }
+
+    private VarRefNode varRef(TerminalNode ident) {
+        return exprs.var(ident.getText(), id(ident));
+    }
+
     // --------- programa ---------
 
     @Override
@@ -30,13 +63,18 @@ public class AstBuilder extends MlpBaseVisitor<AstNode> {
             }
         }
 
-        return new ProgramNode(decls, cmds);
+        return new ProgramNode(decls, cmds, idents);
     }
 
     // --------- tipo / listaIdent ---------
 
     @Override
     public AstNode visitTipo(MlpParser.TipoContext ctx) {
+        return declaration(ctx, idents);
+    }
+
+    /** Também usada pelo {@link FlatAstBuilder}, que guarda as declarações como DeclNode. */
+    static DeclNode declaration(MlpParser.TipoContext ctx, IdentTable idents) {
         Type type;
         if (ctx.INTEIRO() != null) {
             type = Type.INTEIRO;
@@ -46,12 +84,15 @@ public class AstBuilder extends MlpBaseVisitor<AstNode> {
             type = Type.CARACTER;
         }
 
+        List<TerminalNode> identTokens = ctx.listaIdent().IDENT();
         List<String> names = new ArrayList<>();
-        for (TerminalNode identToken : ctx.listaIdent().IDENT()) {
+        int[] ids = new int[identTokens.size()];
+        for (TerminalNode identToken : identTokens) {
+            ids[names.size()] = IdentToken.idOf(identToken.getSymbol(), idents);
             names.add(identToken.getText());
         }
 
-        return new DeclNode(type, names);
+        return new DeclNode(type, names, ids);
     }
 
     // --------- comando / comandoSimples ---------
@@ -78,47 +119,53 @@ public class AstBuilder extends MlpBaseVisitor<AstNode> {
     @Override
     public AstNode visitAtribuicao(MlpParser.AtribuicaoContext ctx) {
 
-        String varName = ctx.IDENT(0).getText();
+        // listas obtidas uma vez: cada ctx.expressao()/operador()/IDENT()
+        // percorre todos os filhos, o que seria quadrático em cadeias longas
+        List<MlpParser.ExpressaoContext> expressoes = ctx.expressao();
+        List<MlpParser.OperadorContext> operadores = ctx.operador();
+        List<TerminalNode> identsCtx = ctx.IDENT();
+
+        String varName = identsCtx.get(0).getText();
 
         int expressaoIndex = 0;
         int identIndex = 1;
         ExpressionNode expr;
         
-        if (!ctx.expressao().isEmpty() && ctx.expressao().size() > ctx.operador().size()) {
-            expr = (ExpressionNode) visit(ctx.expressao(0));
+        if (!expressoes.isEmpty() && expressoes.size() > operadores.size()) {
+            expr = (ExpressionNode) visit(expressoes.get(0));
             expressaoIndex = 1;
-        } else if (ctx.IDENT().size() > 1) {
-            expr = new VarRefNode(ctx.IDENT(1).getText());
+        } else if (identsCtx.size() > 1) {
+            expr = varRef(identsCtx.get(1));
             identIndex = 2;
         } else {
             expr = null;
         }
 
-        for (int i = 0; i < ctx.operador().size(); i++) {
-            String op = ctx.operador(i).getText();
+        for (int i = 0; i < operadores.size(); i++) {
+            String op = operadores.get(i).getText();
             
             ExpressionNode right;
-            if (expressaoIndex < ctx.expressao().size()) {
-                right = (ExpressionNode) visit(ctx.expressao(expressaoIndex));
+            if (expressaoIndex < expressoes.size()) {
+                right = (ExpressionNode) visit(expressoes.get(expressaoIndex));
                 expressaoIndex++;
-            } else if (identIndex < ctx.IDENT().size()) {
-                right = new VarRefNode(ctx.IDENT(identIndex).getText());
+            } else if (identIndex < identsCtx.size()) {
+                right = varRef(identsCtx.get(identIndex));
                 identIndex++;
             } else {
                 break;
             }
             
-            expr = new BinaryExprNode(expr, op, right);
+            expr = exprs.binary(expr, op, right);
         }
 
-        return new AssignNode(varName, expr);
+        return new AssignNode(varName, id(identsCtx.get(0)), expr);
     }
 
     // --------- condicional (se) ---------
 
     @Override
     public AstNode visitCondicional(MlpParser.CondicionalContext ctx) {
-        ConditionNode cond = (ConditionNode) visit(ctx.condicao());
+        BoolExprNode cond = (BoolExprNode) visit(ctx.condicao());
 
         CommandNode thenCmd = (CommandNode) visit(ctx.comandoSimples(0));
         CommandNode elseCmd = null;
@@ -134,7 +181,7 @@ public class AstBuilder extends MlpBaseVisitor<AstNode> {
 
     @Override
     public AstNode visitIterativo(MlpParser.IterativoContext ctx) {
-        ConditionNode cond = (ConditionNode) visit(ctx.condicao());
+        BoolExprNode cond = (BoolExprNode) visit(ctx.condicao());
         CommandNode body = (CommandNode) visit(ctx.comandoSimples());
         return new WhileNode(cond, body);
     }
@@ -143,23 +190,59 @@ public class AstBuilder extends MlpBaseVisitor<AstNode> {
 
     @Override
     public AstNode visitCondicao(MlpParser.CondicaoContext ctx) {
-        MlpParser.CompSimplesContext cctx = ctx.compSimples(0);
-        return visit(cctx);
+        // Operadores E / OR na ordem em que aparecem (um entre cada compSimples)
+        List<String> ops = new ArrayList<>();
+        for (ParseTree child : ctx.children) {
+            if (child instanceof TerminalNode t
+                    && (t.getSymbol().getType() == MlpParser.E || t.getSymbol().getType() == MlpParser.OR)) {
+                ops.add(t.getText());
+            }
+        }
+
+        BoolExprNode chain = buildLogicalChain(ctx.compSimples(), ops);
+
+        // Forma "(x NOT (...))": o identificador antes do NOT não tem efeito
+        // na avaliação, apenas a cadeia entre parênteses é negada.
+        if (ctx.NOT() != null) {
+            return new NotNode(chain);
+        }
+        return chain;
+    }
+
+    /**
+     * Monta a árvore de uma cadeia "c1 op c2 op c3 ..." dando a E precedência
+     * sobre OR (como em "a E b OR c" == "(a E b) OR c"). Ambos associam à esquerda.
+     */
+    private BoolExprNode buildLogicalChain(List<MlpParser.CompSimplesContext> comps, List<String> ops) {
+        BoolExprNode orAcc = null;
+        BoolExprNode andAcc = (BoolExprNode) visit(comps.get(0));
+
+        for (int i = 0; i < ops.size() && i + 1 < comps.size(); i++) {
+            BoolExprNode next = (BoolExprNode) visit(comps.get(i + 1));
+            if (ops.get(i).equals("E")) {
+                andAcc = new LogicalExprNode(andAcc, "E", next);
+            } else {
+                orAcc = (orAcc == null) ? andAcc : new LogicalExprNode(orAcc, "OR", andAcc);
+                andAcc = next;
+            }
+        }
+
+        return (orAcc == null) ? andAcc : new LogicalExprNode(orAcc, "OR", andAcc);
     }
 
     @Override
     public AstNode visitCompSimples(MlpParser.CompSimplesContext ctx) {
         TerminalNode firstIdent = ctx.IDENT(0);
-        ExpressionNode left = new VarRefNode(firstIdent.getText());
+        ExpressionNode left = varRef(firstIdent);
 
         String op = ctx.logico().getText();
 
         ExpressionNode right;
         if (ctx.NUM() != null) {
-            right = new NumLiteralNode(ctx.NUM().getText());
+            right = exprs.num(ctx.NUM().getText());
         } else {
             TerminalNode secondIdent = ctx.IDENT(1);
-            right = new VarRefNode(secondIdent.getText());
+            right = varRef(secondIdent);
         }
 
         return new ConditionNode(left, op, right);
@@ -167,30 +250,55 @@ public class AstBuilder extends MlpBaseVisitor<AstNode> {
 
     // --------- expressao / numero ---------
 
+    /**
+     * Expressões parentizadas são montadas em pós-ordem com pilha explícita
+     * (valor 1 = filhos já empilhados), sem recursão por nível de parênteses.
+     */
     @Override
-    public AstNode visitExpressao(MlpParser.ExpressaoContext ctx) {
-        // Caso 1: número
-        if (ctx.numero() != null) {
-            return visit(ctx.numero());
-        }
+    public AstNode visitExpressao(MlpParser.ExpressaoContext root) {
+        // folhas (o caso comum) não precisam da pilha
+        if (root.numero() != null) return visit(root.numero());
+        if (root.IDENT() != null) return varRef(root.IDENT());
+
+        NodeStack<MlpParser.ExpressaoContext> stack = new NodeStack<>();
+        ExpressionNode[] built = new ExpressionNode[8];
+        int nBuilt = 0;
+
+        stack.push(root, 0);
+        while (!stack.isEmpty()) {
+            boolean expanded = stack.topValue() != 0;
+            MlpParser.ExpressaoContext ctx = stack.pop();
+            ExpressionNode e;
+
+            if (ctx.numero() != null) {
+                // Caso 1: número
+                e = (ExpressionNode) visit(ctx.numero());
+            } else if (ctx.IDENT() != null) {
+                // Caso 2: identificador
+                e = varRef(ctx.IDENT());
+            } else if (ctx.expressao().size() == 2 && ctx.operador() != null) {
+                // Caso 3: parênteses com operador binário
+                if (!expanded) {
+                    stack.push(ctx, 1);
+                    stack.push(ctx.expressao(1), 0);
+                    stack.push(ctx.expressao(0), 0);
+                    continue;
+                }
+                ExpressionNode right = built[--nBuilt];
+                ExpressionNode left = built[--nBuilt];
+                e = exprs.binary(left, ctx.operador().getText(), right);
+            } else {
+                e = null;
+            }
 
-        // Caso 2: identificador
-        if (ctx.IDENT() != null) {
-            return new VarRefNode(ctx.IDENT().getText());
+            if (nBuilt == built.length) built = Arrays.copyOf(built, nBuilt * 2);
+            built[nBuilt++] = e;
         }
-        
-        // Caso 3: parênteses com operador binário
-        if (ctx.expressao().size() == 2 && ctx.operador() != null) {
-            ExpressionNode left = (ExpressionNode) visit(ctx.expressao(0));
-            String op = ctx.operador().getText();
-            ExpressionNode right = (ExpressionNode) visit(ctx.expressao(1));
-            return new BinaryExprNode(left, op, right);
-        }
-        return null;
+        return built[0];
     }
 
     @Override
     public AstNode visitNumero(MlpParser.NumeroContext ctx) {
-        return new NumLiteralNode(ctx.NUM().getText());
+        return exprs.num(ctx.NUM().getText());
     }
 }
@@ -2,9 +2,10 @@ package br.com.mlp.compiler.ast;
 
 /**
  * Nó base da AST.
- * Todas as outras classes de nó implementam esta interface.
+ * Todas as outras classes de nó implementam esta interface. A hierarquia é
+ * selada: quem percorre a AST pode tratar todos os casos sem um "default"
+ * genérico.
  */
-
-public interface AstNode {
-  
+public sealed interface AstNode
+        permits ProgramNode, DeclNode, CommandNode, ExpressionNode, BoolExprNode {
 }
@@ -0,0 +1,42 @@
+package br.com.mlp.compiler.ast;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Texto de nós binários (BinOp/Logic) sem recursão: cadeias longas como
+ * "a = b + c + d + ..." viram árvores muito profundas à esquerda, e um
+ * toString recursivo estouraria a pilha.
+ */
+final class AstText {
+
+    private AstText() {
+    }
+
+    static String render(AstNode root) {
+        StringBuilder sb = new StringBuilder();
+        Deque<Object> work = new ArrayDeque<>();
+        work.push(root);
+
+        while (!work.isEmpty()) {
+            Object o = work.pop();
+            if (o instanceof BinaryExprNode b) {
+                open(sb, work, "BinOp(", b.getLeft(), b.getOp(), b.getRight());
+            } else if (o instanceof LogicalExprNode l) {
+                open(sb, work, "Logic(", l.getLeft(), l.getOp(), l.getRight());
+            } else {
+                sb.append(o); // texto pendente ou toString do próprio nó
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void open(StringBuilder sb, Deque<Object> work, String head,
+                             Object left, String op, Object right) {
+        sb.append(head);
+        work.push(")");
+        work.push(right != null ? right : "null");
+        work.push(" " + op + " ");
+        work.push(left != null ? left : "null");
+    }
+}
@@ -5,7 +5,7 @@ package br.com.mlp.compiler.ast;
  *  (a + 1)
  *  (x * (y / 2))
  */
-public class BinaryExprNode extends ExpressionNode {
+public final class BinaryExprNode extends ExpressionNode {
 
     private final ExpressionNode left;
     private final String op; // "+", "*", "/", "RESTO"
@@ -31,6 +31,6 @@ public class BinaryExprNode extends ExpressionNode {
 
     @Override
     public String toString() {
-        return "BinOp(" + left + " " + op + " " + right + ")";
+        return AstText.render(this);
     }
 }
@@ -0,0 +1,11 @@
+package br.com.mlp.compiler.ast;
+
+/**
+ * Nó base para condições booleanas usadas em se/enquanto:
+ *  - comparações simples (ConditionNode)
+ *  - combinações com E / OR (LogicalExprNode)
+ *  - negação com NOT (NotNode)
+ */
+public abstract sealed class BoolExprNode implements AstNode
+        permits ConditionNode, LogicalExprNode, NotNode {
+}
@@ -6,5 +6,6 @@ package br.com.mlp.compiler.ast;
  *  - condicionais (se)
  *  - laços (enquanto)
  */
-public abstract class CommandNode implements AstNode {
+public abstract sealed class CommandNode implements AstNode
+        permits AssignNode, IfNode, WhileNode {
 }
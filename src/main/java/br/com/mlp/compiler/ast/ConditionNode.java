@@ -5,7 +5,7 @@ package br.com.mlp.compiler.ast;
  *   a > 10
  *   x == y
  */
-public class ConditionNode implements AstNode {
+public final class ConditionNode extends BoolExprNode {
 
     private final ExpressionNode left;
     private final String op;     // ">", "<", "==", "<=", ">=", "!="
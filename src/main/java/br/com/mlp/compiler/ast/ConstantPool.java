@@ -0,0 +1,113 @@
+package br.com.mlp.compiler.ast;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool de constantes numéricas de uma compilação. Cada literal distinto do
+ * fonte é convertido uma vez só, na internação: o valor tipado e se ele
+ * estoura (COD.206) ficam na {@link Constant}, que os nós da AST, o TAC e
+ * os executores usam no lugar do texto.
+ *
+ * A conversão usa long/double e só recorre a BigInteger/BigDecimal quando o
+ * literal é grande demais para decidir o estouro por eles (mais de 18
+ * dígitos, ou um real que arredonda para Double.MAX_VALUE ou infinito).
+ */
+public final class ConstantPool {
+
+    private static final BigInteger MIN_INTEGER = BigInteger.valueOf(Integer.MIN_VALUE);
+    private static final BigInteger MAX_INTEGER = BigInteger.valueOf(Integer.MAX_VALUE);
+    private static final BigDecimal MAX_REAL = BigDecimal.valueOf(Double.MAX_VALUE);
+
+    /** Literal já convertido. Imutável. */
+    public static final class Constant {
+        /** Posição no pool, ou -1 para constantes criadas fora dele. */
+        public final int index;
+        /** Texto como veio no fonte (ou como aparece no TAC). */
+        public final String text;
+        public final boolean real;
+        /** Fora do intervalo do tipo (inteiro de 32 bits ou double). */
+        public final boolean overflow;
+        /** Valor de um inteiro sem estouro (0 nos demais). */
+        public final int intValue;
+        /** Valor como double, também para inteiros (avaliação de constantes). */
+        public final double realValue;
+
+        private Constant(int index, String text, boolean real, boolean overflow, int intValue, double realValue) {
+            this.index = index;
+            this.text = text;
+            this.real = real;
+            this.overflow = overflow;
+            this.intValue = intValue;
+            this.realValue = realValue;
+        }
+
+        /** Integer ou Double, conforme o tipo. */
+        public Number value() {
+            return real ? (Number) realValue : (Number) intValue;
+        }
+
+        /** Constante fora do pool para um valor calculado (ex: avaliação parcial). */
+        public static Constant of(Number value) {
+            if (value instanceof Integer i) {
+                return new Constant(-1, i.toString(), false, false, i, i);
+            }
+            double d = value.doubleValue();
+            return new Constant(-1, Double.toString(d), true, !Double.isFinite(d), 0, d);
+        }
+
+        /** Constante fora do pool a partir do texto (TAC montado à mão). */
+        public static Constant parse(String text) {
+            return ConstantPool.parse(-1, text);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private final Map<String, Constant> byText = new HashMap<>();
+    private final List<Constant> constants = new ArrayList<>();
+
+    /** A constante do literal, convertida na primeira vez que aparece. */
+    public Constant intern(String text) {
+        Constant c = byText.get(text);
+        if (c == null) {
+            c = parse(constants.size(), text);
+            byText.put(text, c);
+            constants.add(c);
+        }
+        return c;
+    }
+
+    public Constant get(int index) {
+        return constants.get(index);
+    }
+
+    public int size() {
+        return constants.size();
+    }
+
+    private static Constant parse(int index, String text) {
+        if (text.indexOf('.') >= 0) {
+            double d = Double.parseDouble(text);
+            // abaixo de MAX_VALUE o literal com certeza cabe; senão, conta exata
+            boolean overflow = !(Math.abs(d) < Double.MAX_VALUE)
+                    && new BigDecimal(text).abs().compareTo(MAX_REAL) > 0;
+            return new Constant(index, text, true, overflow, 0, d);
+        }
+        if (text.length() <= 18) {
+            long v = Long.parseLong(text);
+            boolean overflow = v < Integer.MIN_VALUE || v > Integer.MAX_VALUE;
+            return new Constant(index, text, false, overflow, overflow ? 0 : (int) v, v);
+        }
+        BigInteger big = new BigInteger(text);
+        boolean overflow = big.compareTo(MIN_INTEGER) < 0 || big.compareTo(MAX_INTEGER) > 0;
+        return new Constant(index, text, false, overflow, overflow ? 0 : big.intValue(), big.doubleValue());
+    }
+}
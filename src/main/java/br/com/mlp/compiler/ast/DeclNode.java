@@ -6,14 +6,16 @@ import java.util.List;
  * Representa uma declaração de variáveis, ex:
  *   inteiro a, b;
  */
-public class DeclNode implements AstNode {
+public final class DeclNode implements AstNode {
 
     private final Type type;
     private final List<String> varNames;
+    private final int[] varIds;
 
-    public DeclNode(Type type, List<String> varNames) {
+    public DeclNode(Type type, List<String> varNames, int[] varIds) {
         this.type = type;
         this.varNames = varNames;
+        this.varIds = varIds;
     }
 
     public Type getType() {
@@ -24,6 +26,11 @@ public class DeclNode implements AstNode {
         return varNames;
     }
 
+    /** IDs dos identificadores, na mesma ordem de {@link #getVarNames()}. */
+    public int[] getVarIds() {
+        return varIds;
+    }
+
     @Override
     public String toString() {
         return "Decl(" + type + " " + String.join(", ", varNames) + ")";
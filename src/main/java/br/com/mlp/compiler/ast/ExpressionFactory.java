@@ -0,0 +1,72 @@
+package br.com.mlp.compiler.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fábrica de expressões com hash-consing: expressões estruturalmente iguais
+ * são o mesmo objeto. Como os filhos já passaram pela fábrica, igualdade
+ * estrutural se reduz a comparar os filhos por identidade, sem descer na árvore.
+ *
+ * Os nós são imutáveis, então compartilhá-los é seguro; quem percorre a AST
+ * pode memorizar resultados por nó (ver {@link ExpressionNode}). Literais
+ * são internados no {@link ConstantPool}: um nó por constante do pool.
+ */
+public final class ExpressionFactory {
+
+    private record BinaryKey(ExpressionNode left, String op, ExpressionNode right) { }
+
+    private final ConstantPool constants;
+    private final List<NumLiteralNode> literals = new ArrayList<>(); // indexado pela posição no pool
+    private final List<VarRefNode> vars = new ArrayList<>(); // indexado pelo ID do identificador
+    private final Map<BinaryKey, BinaryExprNode> binaries = new HashMap<>();
+    private int varCount;
+    private int literalCount;
+
+    public ExpressionFactory() {
+        this(new ConstantPool());
+    }
+
+    public ExpressionFactory(ConstantPool constants) {
+        this.constants = constants;
+    }
+
+    public NumLiteralNode num(String value) {
+        ConstantPool.Constant c = constants.intern(value);
+        while (literals.size() <= c.index) literals.add(null);
+        NumLiteralNode n = literals.get(c.index);
+        if (n == null) {
+            n = new NumLiteralNode(c);
+            literals.set(c.index, n);
+            literalCount++;
+        }
+        return n;
+    }
+
+    public ConstantPool getConstants() {
+        return constants;
+    }
+
+    public VarRefNode var(String name, int id) {
+        while (vars.size() <= id) vars.add(null);
+        VarRefNode v = vars.get(id);
+        if (v == null) {
+            v = new VarRefNode(name, id);
+            vars.set(id, v);
+            varCount++;
+        }
+        return v;
+    }
+
+    public BinaryExprNode binary(ExpressionNode left, String op, ExpressionNode right) {
+        return binaries.computeIfAbsent(new BinaryKey(left, op, right),
+                k -> new BinaryExprNode(k.left(), k.op(), k.right()));
+    }
+
+    /** Quantidade de nós distintos criados (para medir o compartilhamento). */
+    public int distinctNodes() {
+        return literalCount + binaries.size() + varCount;
+    }
+}
@@ -2,6 +2,41 @@ package br.com.mlp.compiler.ast;
 
 /**
  * Nó base para expressões numéricas.
+ *
+ * Como expressões iguais podem ser o mesmo objeto (ver {@link ExpressionFactory}),
+ * o nó guarda resultados já calculados sobre ele:
+ *  - o valor constante, que só depende da estrutura da expressão;
+ *  - o tipo, válido apenas para a análise que o registrou ({@code owner}).
  */
-public abstract class ExpressionNode implements AstNode {
-}
\ No newline at end of file
+public abstract sealed class ExpressionNode implements AstNode
+        permits NumLiteralNode, VarRefNode, BinaryExprNode {
+
+    private boolean constantKnown;
+    private Double constant; // null = não constante
+    private Object typeOwner;
+    private Type cachedType;
+
+    public boolean hasCachedConstant() {
+        return constantKnown;
+    }
+
+    /** Valor constante memorizado (null se a expressão não é constante). */
+    public Double cachedConstant() {
+        return constant;
+    }
+
+    public void cacheConstant(Double value) {
+        constant = value;
+        constantKnown = true;
+    }
+
+    /** Tipo registrado por {@code owner}, ou null. */
+    public Type cachedType(Object owner) {
+        return typeOwner == owner ? cachedType : null;
+    }
+
+    public void cacheType(Object owner, Type type) {
+        typeOwner = owner;
+        cachedType = type;
+    }
+}
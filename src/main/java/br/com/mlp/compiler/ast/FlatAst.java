@@ -0,0 +1,247 @@
+package br.com.mlp.compiler.ast;
+
+import java.util.Arrays;
+import java.util.List;
+
+import br.com.mlp.lex.IdentTable;
+
+/**
+ * AST "plana" (struct-of-arrays): cada nó é um índice inteiro e seus campos
+ * ficam em vetores primitivos paralelos, sem um objeto Java por nó.
+ *
+ * Campos por nó:
+ *  - kind:    tipo do nó (ASSIGN, IF, WHILE, COMPARE, AND, OR, NOT, BINARY, VAR, NUM)
+ *  - child1:  expressão do ASSIGN, condição do IF/WHILE, esquerda das binárias, operando do NOT
+ *  - child2:  then do IF, corpo do WHILE, direita das binárias
+ *  - op:      índice em {@link #ARITH_OPS} (BINARY) ou {@link #COMPARE_OPS} (COMPARE)
+ *  - payload: ID do identificador (VAR, ASSIGN), índice no pool de literais (NUM),
+ *             senão do IF (-1 sem senão)
+ *
+ * Nomes ficam na {@link IdentTable} e literais no {@link ConstantPool}
+ * (sem repetição, já convertidos). Os comandos de topo são uma lista de índices; as declarações,
+ * poucas, continuam como {@link DeclNode}.
+ *
+ * Construída pelo {@link FlatAstBuilder}; percorrida pelos métodos
+ * {@code analyze(FlatAst)} do analisador semântico e {@code generate(FlatAst)}
+ * do gerador de código.
+ */
+public final class FlatAst {
+
+    public static final byte ASSIGN = 0;
+    public static final byte IF = 1;
+    public static final byte WHILE = 2;
+    public static final byte COMPARE = 3;
+    public static final byte AND = 4;
+    public static final byte OR = 5;
+    public static final byte NOT = 6;
+    public static final byte BINARY = 7;
+    public static final byte VAR = 8;
+    public static final byte NUM = 9;
+
+    public static final String[] ARITH_OPS = {"+", "-", "*", "/", "RESTO"};
+    public static final String[] COMPARE_OPS = {">", "<", "==", "<=", ">=", "!="};
+
+    public static final int NONE = -1;
+
+    private byte[] kind = new byte[64];
+    private int[] child1 = new int[64];
+    private int[] child2 = new int[64];
+    private byte[] op = new byte[64];
+    private int[] payload = new int[64];
+    private int size;
+
+    private final IdentTable idents;
+    private final ConstantPool constants = new ConstantPool();
+
+    private List<DeclNode> declarations = List.of();
+    private int[] commands = new int[0];
+
+    public FlatAst(IdentTable idents) {
+        this.idents = idents;
+    }
+
+    /* ------------ Construção ------------ */
+
+    int add(byte k, int c1, int c2, int o, int p) {
+        if (size == kind.length) {
+            int cap = size * 2;
+            kind = Arrays.copyOf(kind, cap);
+            child1 = Arrays.copyOf(child1, cap);
+            child2 = Arrays.copyOf(child2, cap);
+            op = Arrays.copyOf(op, cap);
+            payload = Arrays.copyOf(payload, cap);
+        }
+        kind[size] = k;
+        child1[size] = c1;
+        child2[size] = c2;
+        op[size] = (byte) o;
+        payload[size] = p;
+        return size++;
+    }
+
+    int addLiteral(String text) {
+        return constants.intern(text).index;
+    }
+
+    void setProgram(List<DeclNode> declarations, int[] commands) {
+        this.declarations = declarations;
+        this.commands = commands;
+    }
+
+    /* ------------ Leitura ------------ */
+
+    public int size() {
+        return size;
+    }
+
+    public byte kind(int n) {
+        return kind[n];
+    }
+
+    public int child1(int n) {
+        return child1[n];
+    }
+
+    public int child2(int n) {
+        return child2[n];
+    }
+
+    /** Índice do operador (ver {@link #ARITH_OPS} / {@link #COMPARE_OPS}). */
+    public int opIndex(int n) {
+        return op[n];
+    }
+
+    /** Texto do operador de um BINARY ou COMPARE. */
+    public String op(int n) {
+        return kind[n] == COMPARE ? COMPARE_OPS[op[n]] : ARITH_OPS[op[n]];
+    }
+
+    public int payload(int n) {
+        return payload[n];
+    }
+
+    /** Senão de um IF, ou {@link #NONE}. */
+    public int elseOf(int n) {
+        return payload[n];
+    }
+
+    /** ID do identificador de um VAR ou ASSIGN. */
+    public int identId(int n) {
+        return payload[n];
+    }
+
+    /** Nome da variável de um VAR ou ASSIGN. */
+    public String name(int n) {
+        return idents.name(payload[n]);
+    }
+
+    /** Texto de um literal NUM, como veio no fonte. */
+    public String literal(int n) {
+        return constants.get(payload[n]).text;
+    }
+
+    /** Constante de um literal NUM. */
+    public ConstantPool.Constant constant(int n) {
+        return constants.get(payload[n]);
+    }
+
+    public ConstantPool getConstants() {
+        return constants;
+    }
+
+    public boolean isLogical(int n) {
+        return kind[n] == AND || kind[n] == OR;
+    }
+
+    public IdentTable getIdents() {
+        return idents;
+    }
+
+    public List<DeclNode> getDeclarations() {
+        return declarations;
+    }
+
+    /** Comandos de topo, em ordem. */
+    public int[] getCommands() {
+        return commands;
+    }
+
+    static int arithIndex(String op) {
+        return indexOf(ARITH_OPS, op);
+    }
+
+    static int compareIndex(String op) {
+        return indexOf(COMPARE_OPS, op);
+    }
+
+    private static int indexOf(String[] ops, String op) {
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i].equals(op)) return i;
+        }
+        throw new IllegalArgumentException("operador desconhecido: " + op);
+    }
+
+    /* ------------ Impressão (mesmo formato de ProgramNode) ------------ */
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Program(\n  Decls:\n");
+        for (DeclNode d : declarations) {
+            sb.append("    ").append(d).append("\n");
+        }
+        sb.append("  Commands:\n");
+        for (int c : commands) {
+            sb.append("    ");
+            render(c, sb);
+            sb.append("\n");
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    private void render(int n, StringBuilder sb) {
+        if (n == NONE) {
+            sb.append("null");
+            return;
+        }
+        switch (kind[n]) {
+            case ASSIGN -> {
+                sb.append("Assign(").append(name(n)).append(" = ");
+                render(child1[n], sb);
+                sb.append(")");
+            }
+            case IF -> {
+                sb.append("If(");
+                render(child1[n], sb);
+                sb.append(", then=");
+                render(child2[n], sb);
+                if (payload[n] != NONE) {
+                    sb.append(", else=");
+                    render(payload[n], sb);
+                }
+                sb.append(")");
+            }
+            case WHILE -> {
+                sb.append("While(");
+                render(child1[n], sb);
+                sb.append(", body=");
+                render(child2[n], sb);
+                sb.append(")");
+            }
+            case NOT -> {
+                sb.append("Not(");
+                render(child1[n], sb);
+                sb.append(")");
+            }
+            case VAR -> sb.append("Var(").append(name(n)).append(")");
+            case NUM -> sb.append("Num(").append(literal(n)).append(")");
+            default -> {
+                sb.append(kind[n] == COMPARE ? "Cond(" : kind[n] == BINARY ? "BinOp(" : "Logic(");
+                render(child1[n], sb);
+                sb.append(" ").append(kind[n] == AND ? "E" : kind[n] == OR ? "OR" : op(n)).append(" ");
+                render(child2[n], sb);
+                sb.append(")");
+            }
+        }
+    }
+}
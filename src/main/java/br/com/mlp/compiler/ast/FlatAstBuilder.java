@@ -0,0 +1,205 @@
+package br.com.mlp.compiler.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import br.com.mlp.compiler.parser.MlpBaseVisitor;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.IdentToken;
+
+/**
+ * Constrói a {@link FlatAst} direto da parse tree, com as mesmas regras do
+ * {@link AstBuilder} (E antes de OR, forma NOT, cadeias de atribuição à
+ * esquerda). Cada visita devolve o índice do nó criado ({@link FlatAst#NONE}
+ * quando não há nó).
+ */
+public class FlatAstBuilder extends MlpBaseVisitor<Integer> {
+
+    private final IdentTable idents;
+    private FlatAst ast;
+
+    public FlatAstBuilder() {
+        this(new IdentTable());
+    }
+
+    public FlatAstBuilder(IdentTable idents) {
+        this.idents = idents;
+    }
+
+    public FlatAst build(MlpParser.ProgramaContext ctx) {
+        ast = new FlatAst(idents);
+        visitPrograma(ctx);
+        return ast;
+    }
+
+    private int id(TerminalNode ident) {
+        return IdentToken.idOf(ident.getSymbol(), idents);
+    }
+
+    private int varRef(TerminalNode ident) {
+        return ast.add(FlatAst.VAR, FlatAst.NONE, FlatAst.NONE, 0, id(ident));
+    }
+
+    private int node(ParseTree t) {
+        Integer n = visit(t);
+        return n != null ? n : FlatAst.NONE;
+    }
+
+    // --------- programa ---------
+
+    @Override
+    public Integer visitPrograma(MlpParser.ProgramaContext ctx) {
+        List<DeclNode> decls = new ArrayList<>();
+        for (MlpParser.TipoContext tctx : ctx.tipo()) {
+            decls.add(AstBuilder.declaration(tctx, idents));
+        }
+
+        int[] cmds = new int[ctx.comando().size()];
+        int count = 0;
+        for (MlpParser.ComandoContext cctx : ctx.comando()) {
+            int cmd = node(cctx.comandoSimples());
+            if (cmd != FlatAst.NONE) {
+                cmds[count++] = cmd;
+            }
+        }
+
+        ast.setProgram(decls, count == cmds.length ? cmds : Arrays.copyOf(cmds, count));
+        return FlatAst.NONE;
+    }
+
+    // --------- comandos ---------
+
+    @Override
+    public Integer visitComandoSimples(MlpParser.ComandoSimplesContext ctx) {
+        if (ctx.condicional() != null) {
+            return visit(ctx.condicional());
+        } else if (ctx.iterativo() != null) {
+            return visit(ctx.iterativo());
+        } else if (ctx.atribuicao() != null) {
+            return visit(ctx.atribuicao());
+        }
+        return FlatAst.NONE;
+    }
+
+    @Override
+    public Integer visitAtribuicao(MlpParser.AtribuicaoContext ctx) {
+        List<MlpParser.ExpressaoContext> expressoes = ctx.expressao();
+        List<MlpParser.OperadorContext> operadores = ctx.operador();
+        List<TerminalNode> identsCtx = ctx.IDENT();
+
+        int varId = id(identsCtx.get(0));
+
+        int expressaoIndex = 0;
+        int identIndex = 1;
+        int expr;
+
+        if (!expressoes.isEmpty() && expressoes.size() > operadores.size()) {
+            expr = node(expressoes.get(0));
+            expressaoIndex = 1;
+        } else if (identsCtx.size() > 1) {
+            expr = varRef(identsCtx.get(1));
+            identIndex = 2;
+        } else {
+            expr = FlatAst.NONE;
+        }
+
+        for (int i = 0; i < operadores.size(); i++) {
+            int op = FlatAst.arithIndex(operadores.get(i).getText());
+
+            int right;
+            if (expressaoIndex < expressoes.size()) {
+                right = node(expressoes.get(expressaoIndex));
+                expressaoIndex++;
+            } else if (identIndex < identsCtx.size()) {
+                right = varRef(identsCtx.get(identIndex));
+                identIndex++;
+            } else {
+                break;
+            }
+
+            expr = ast.add(FlatAst.BINARY, expr, right, op, 0);
+        }
+
+        return ast.add(FlatAst.ASSIGN, expr, FlatAst.NONE, 0, varId);
+    }
+
+    @Override
+    public Integer visitCondicional(MlpParser.CondicionalContext ctx) {
+        int cond = node(ctx.condicao());
+        int thenCmd = node(ctx.comandoSimples(0));
+        int elseCmd = ctx.SENAO() != null ? node(ctx.comandoSimples(1)) : FlatAst.NONE;
+        return ast.add(FlatAst.IF, cond, thenCmd, 0, elseCmd);
+    }
+
+    @Override
+    public Integer visitIterativo(MlpParser.IterativoContext ctx) {
+        int cond = node(ctx.condicao());
+        int body = node(ctx.comandoSimples());
+        return ast.add(FlatAst.WHILE, cond, body, 0, 0);
+    }
+
+    // --------- condições ---------
+
+    @Override
+    public Integer visitCondicao(MlpParser.CondicaoContext ctx) {
+        List<MlpParser.CompSimplesContext> comps = ctx.compSimples();
+        int orAcc = FlatAst.NONE;
+        int andAcc = node(comps.get(0));
+        int next = 1;
+
+        for (ParseTree child : ctx.children) {
+            if (!(child instanceof TerminalNode t)) continue;
+            int type = t.getSymbol().getType();
+            if (type != MlpParser.E && type != MlpParser.OR) continue;
+            if (next >= comps.size()) break;
+
+            int right = node(comps.get(next++));
+            if (type == MlpParser.E) {
+                andAcc = ast.add(FlatAst.AND, andAcc, right, 0, 0);
+            } else {
+                orAcc = (orAcc == FlatAst.NONE) ? andAcc : ast.add(FlatAst.OR, orAcc, andAcc, 0, 0);
+                andAcc = right;
+            }
+        }
+
+        int chain = (orAcc == FlatAst.NONE) ? andAcc : ast.add(FlatAst.OR, orAcc, andAcc, 0, 0);
+        if (ctx.NOT() != null) {
+            return ast.add(FlatAst.NOT, chain, FlatAst.NONE, 0, 0);
+        }
+        return chain;
+    }
+
+    @Override
+    public Integer visitCompSimples(MlpParser.CompSimplesContext ctx) {
+        int left = varRef(ctx.IDENT(0));
+        int op = FlatAst.compareIndex(ctx.logico().getText());
+        int right = ctx.NUM() != null
+                ? ast.add(FlatAst.NUM, FlatAst.NONE, FlatAst.NONE, 0, ast.addLiteral(ctx.NUM().getText()))
+                : varRef(ctx.IDENT(1));
+        return ast.add(FlatAst.COMPARE, left, right, op, 0);
+    }
+
+    // --------- expressões ---------
+
+    @Override
+    public Integer visitExpressao(MlpParser.ExpressaoContext ctx) {
+        if (ctx.numero() != null) {
+            return ast.add(FlatAst.NUM, FlatAst.NONE, FlatAst.NONE, 0, ast.addLiteral(ctx.numero().NUM().getText()));
+        }
+        if (ctx.IDENT() != null) {
+            return varRef(ctx.IDENT());
+        }
+        if (ctx.expressao().size() == 2 && ctx.operador() != null) {
+            int left = node(ctx.expressao(0));
+            int op = FlatAst.arithIndex(ctx.operador().getText());
+            int right = node(ctx.expressao(1));
+            return ast.add(FlatAst.BINARY, left, right, op, 0);
+        }
+        return FlatAst.NONE;
+    }
+}
@@ -5,19 +5,19 @@ package br.com.mlp.compiler.ast;
  *   se (condicao) entao cmd;
  *   se (condicao) entao cmd senao cmd;
  */
-public class IfNode extends CommandNode {
+public final class IfNode extends CommandNode {
 
-  private final ConditionNode condition;
+  private final BoolExprNode condition;
   private final CommandNode thenCommand;
   private final CommandNode elseCommand;
 
-  public IfNode(ConditionNode condition, CommandNode thenCommand, CommandNode elseCommand) {
+  public IfNode(BoolExprNode condition, CommandNode thenCommand, CommandNode elseCommand) {
       this.condition = condition;
       this.thenCommand = thenCommand;
       this.elseCommand = elseCommand;
   }
 
-  public ConditionNode getCondition() {
+  public BoolExprNode getCondition() {
       return condition;
   }
 
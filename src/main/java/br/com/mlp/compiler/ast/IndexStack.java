@@ -0,0 +1,37 @@
+package br.com.mlp.compiler.ast;
+
+import java.util.Arrays;
+
+/**
+ * {@link NodeStack} para a {@link FlatAst}: o nó é o índice inteiro, então
+ * as duas colunas são vetores de int e empilhar não cria objeto algum.
+ * Aceita {@link FlatAst#NONE}.
+ */
+public final class IndexStack {
+
+    private int[] nodes = new int[16];
+    private int[] values = new int[16];
+    private int size;
+
+    public void push(int node, int value) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        nodes[size] = node;
+        values[size] = value;
+        size++;
+    }
+
+    public int pop() {
+        return nodes[--size];
+    }
+
+    public int topValue() {
+        return values[size - 1];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
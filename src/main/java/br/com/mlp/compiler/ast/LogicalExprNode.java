@@ -0,0 +1,40 @@
+package br.com.mlp.compiler.ast;
+
+/**
+ * Combinação lógica de duas condições, ex:
+ *   (a > 1) E (b < 2)
+ *   (x == 0) OR (y != 0)
+ */
+public final class LogicalExprNode extends BoolExprNode {
+
+    private final BoolExprNode left;
+    private final String op; // "E", "OR"
+    private final BoolExprNode right;
+
+    public LogicalExprNode(BoolExprNode left, String op, BoolExprNode right) {
+        this.left = left;
+        this.op = op;
+        this.right = right;
+    }
+
+    public BoolExprNode getLeft() {
+        return left;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public BoolExprNode getRight() {
+        return right;
+    }
+
+    public boolean isAnd() {
+        return "E".equals(op);
+    }
+
+    @Override
+    public String toString() {
+        return AstText.render(this);
+    }
+}
@@ -0,0 +1,49 @@
+package br.com.mlp.compiler.ast;
+
+import java.util.Arrays;
+
+/**
+ * Pilha de nós com um inteiro associado a cada entrada (profundidade,
+ * estado da visita, ...), usada pelas travessias iterativas da AST.
+ * Guarda tudo em dois vetores, sem objeto por entrada, e aceita null.
+ */
+public final class NodeStack<T> {
+
+    private Object[] nodes = new Object[16];
+    private int[] values = new int[16];
+    private int size;
+
+    public void push(T node, int value) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        nodes[size] = node;
+        values[size] = value;
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        return (T) nodes[size - 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T pop() {
+        T node = (T) nodes[--size];
+        nodes[size] = null;
+        return node;
+    }
+
+    public int topValue() {
+        return values[size - 1];
+    }
+
+    public void setTopValue(int value) {
+        values[size - 1] = value;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
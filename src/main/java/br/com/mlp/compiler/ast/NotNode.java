@@ -0,0 +1,23 @@
+package br.com.mlp.compiler.ast;
+
+/**
+ * Negação de uma condição, ex:
+ *   (x NOT (a > 1 E b < 2))
+ */
+public final class NotNode extends BoolExprNode {
+
+    private final BoolExprNode operand;
+
+    public NotNode(BoolExprNode operand) {
+        this.operand = operand;
+    }
+
+    public BoolExprNode getOperand() {
+        return operand;
+    }
+
+    @Override
+    public String toString() {
+        return "Not(" + operand + ")";
+    }
+}
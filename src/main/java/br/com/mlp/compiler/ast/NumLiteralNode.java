@@ -1,23 +1,28 @@
 package br.com.mlp.compiler.ast;
 
 /**
- * Número literal (inteiro ou real).
- * Por enquanto guardamos como String.
+ * Número literal (inteiro ou real). O valor já vem convertido do
+ * {@link ConstantPool} da compilação.
  */
-public class NumLiteralNode extends ExpressionNode {
+public final class NumLiteralNode extends ExpressionNode {
 
-    private final String value;
+    private final ConstantPool.Constant constant;
 
-    public NumLiteralNode(String value) {
-        this.value = value;
+    public NumLiteralNode(ConstantPool.Constant constant) {
+        this.constant = constant;
     }
 
+    public ConstantPool.Constant getConstant() {
+        return constant;
+    }
+
+    /** Texto do literal, como veio no fonte. */
     public String getValue() {
-        return value;
+        return constant.text;
     }
 
     @Override
     public String toString() {
-        return "Num(" + value + ")";
+        return "Num(" + constant.text + ")";
     }
 }
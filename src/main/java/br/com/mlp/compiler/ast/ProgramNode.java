@@ -2,17 +2,21 @@ package br.com.mlp.compiler.ast;
 
 import java.util.List;
 
+import br.com.mlp.lex.IdentTable;
+
 /**
  * Nó raiz da AST: representa todo o programa MLP.
  */
-public class ProgramNode implements AstNode {
+public final class ProgramNode implements AstNode {
 
     private final List<DeclNode> declarations;
     private final List<CommandNode> commands;
+    private final IdentTable idents;
 
-    public ProgramNode(List<DeclNode> declarations, List<CommandNode> commands) {
+    public ProgramNode(List<DeclNode> declarations, List<CommandNode> commands, IdentTable idents) {
         this.declarations = declarations;
         this.commands = commands;
+        this.idents = idents;
     }
 
     public List<DeclNode> getDeclarations() {
@@ -23,6 +27,11 @@ public class ProgramNode implements AstNode {
         return commands;
     }
 
+    /** Identificadores internados do programa (IDs usados nos nós). */
+    public IdentTable getIdents() {
+        return idents;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("Program(\n  Decls:\n");
@@ -3,18 +3,25 @@ package br.com.mlp.compiler.ast;
 /**
  * Referência a uma variável em uma expressão.
  */
-public class VarRefNode extends ExpressionNode {
+public final class VarRefNode extends ExpressionNode {
 
     private final String name;
+    private final int id;
 
-    public VarRefNode(String name) {
+    public VarRefNode(String name, int id) {
         this.name = name;
+        this.id = id;
     }
 
     public String getName() {
         return name;
     }
 
+    /** ID do identificador na IdentTable do programa. */
+    public int getId() {
+        return id;
+    }
+
     @Override
     public String toString() {
         return "Var(" + name + ")";
@@ -4,17 +4,17 @@ package br.com.mlp.compiler.ast;
  * Representa um comando iterativo:
  *   enquanto (condicao) comando;
  */
-public class WhileNode extends CommandNode {
+public final class WhileNode extends CommandNode {
 
-  private final ConditionNode condition;
+  private final BoolExprNode condition;
   private final CommandNode body;
 
-  public WhileNode(ConditionNode condition, CommandNode body) {
+  public WhileNode(BoolExprNode condition, CommandNode body) {
       this.condition = condition;
       this.body = body;
   }
 
-  public ConditionNode getCondition() {
+  public BoolExprNode getCondition() {
       return condition;
   }
 
@@ -0,0 +1,104 @@
+package br.com.mlp.compiler.codegen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TAC em formato binário.
+ *
+ *   cabeçalho: "MLPT" (int), versão (byte), número de opcodes (short) e o
+ *              nome de cada um, na ordem dos índices usados abaixo;
+ *   instrução: índice do opcode (byte), ID da variável (int, só em LOAD
+ *              e STORE), número de argumentos (byte) e os argumentos (UTF);
+ *   fim:       0xFF.
+ *
+ * Os nomes no cabeçalho deixam o arquivo legível mesmo que opcodes novos
+ * mudem a ordem do enum. As constantes vão como texto, no argumento, e são
+ * convertidas de novo na leitura.
+ */
+public final class BinaryTacSink implements TacSink {
+
+    private static final int MAGIC = 0x4D4C5054; // "MLPT"
+    private static final int VERSION = 1;
+    private static final int END = 0xFF;
+
+    private final DataOutputStream out;
+
+    /** Grava o cabeçalho; o stream é fechado por quem o abriu. */
+    public BinaryTacSink(OutputStream stream) {
+        this.out = new DataOutputStream(new BufferedOutputStream(stream));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            Opcode[] ops = Opcode.values();
+            out.writeShort(ops.length);
+            for (Opcode op : ops) out.writeUTF(op.name());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(TacInstruction instr) {
+        try {
+            Opcode op = instr.getOpcode();
+            out.writeByte(op.ordinal());
+            if (hasVar(op)) out.writeInt(instr.getVarId());
+            String[] args = instr.getArgs();
+            out.writeByte(args.length);
+            for (String a : args) out.writeUTF(a);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void finish() {
+        try {
+            out.writeByte(END);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Lê um TAC gravado por esta classe. */
+    public static List<TacInstruction> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC) throw new IOException("não é um arquivo de TAC binário");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("versão de TAC binário não suportada: " + version);
+        Opcode[] table = new Opcode[in.readUnsignedShort()];
+        for (int i = 0; i < table.length; i++) {
+            String name = in.readUTF();
+            try {
+                table[i] = Opcode.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("opcode desconhecido: " + name);
+            }
+        }
+
+        List<TacInstruction> code = new ArrayList<>();
+        for (int index = in.readUnsignedByte(); index != END; index = in.readUnsignedByte()) {
+            if (index >= table.length) throw new IOException("índice de opcode inválido: " + index);
+            Opcode op = table[index];
+            int varId = hasVar(op) ? in.readInt() : -1;
+            String[] args = new String[in.readUnsignedByte()];
+            for (int i = 0; i < args.length; i++) args[i] = in.readUTF();
+            code.add(varId >= 0 ? new TacInstruction(op, varId, args) : new TacInstruction(op, args));
+        }
+        return code;
+    }
+
+    private static boolean hasVar(Opcode op) {
+        return op == Opcode.LOAD || op == Opcode.STORE;
+    }
+}
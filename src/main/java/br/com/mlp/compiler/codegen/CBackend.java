@@ -0,0 +1,299 @@
+package br.com.mlp.compiler.codegen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Traduz o TAC para um programa C99 portável que, ao final, imprime o valor
+ * de cada variável declarada ("nome = valor", uma por linha).
+ *
+ * Mapeamento:
+ *  - inteiro/caracter -> int32_t, real -> double;
+ *  - variáveis viram v_nome, registradores viram iN (inteiro) ou dN (real);
+ *  - LABEL/JMP/saltos condicionais viram rótulos e goto.
+ *
+ * A aritmética inteira segue a mesma semântica dos executores em Java
+ * (e dos limites do COD.206 no ConstantPool): 32 bits em complemento
+ * de dois, com overflow dando a volta em vez de comportamento indefinido, e
+ * divisão por zero encerrando o programa com erro. Real lido como inteiro
+ * satura como o (int) de Java (NaN vira 0), em vez do cast do C, que é
+ * indefinido fora do intervalo de int32_t.
+ */
+public class CBackend {
+
+    private final StringBuilder out = new StringBuilder();
+    private boolean[] regReal;
+
+    public String generate(List<TacInstruction> tac, SymbolTable symbols) {
+        return generate(tac, symbols, null);
+    }
+
+    /**
+     * @param observed variáveis impressas no fim (as de --observar, cujos
+     *                 STOREs foram mantidos); null = todas as declaradas
+     */
+    public String generate(List<TacInstruction> tac, SymbolTable symbols, Collection<String> observed) {
+        out.setLength(0);
+
+        // Tipo de cada registrador, deduzido em ordem (como em TacProgram)
+        int maxReg = 0;
+        for (TacInstruction ti : tac) {
+            for (String arg : ti.getArgs()) {
+                if (isRegister(arg)) maxReg = Math.max(maxReg, reg(arg));
+            }
+        }
+        regReal = new boolean[maxReg + 1];
+
+        List<String> body = new ArrayList<>();
+        Set<String> declared = new LinkedHashSet<>();
+        for (TacInstruction ti : tac) {
+            body.add(translate(ti, symbols, declared));
+        }
+
+        line("/* Gerado pelo compilador MLP a partir do TAC */");
+        line("#include <math.h>");
+        line("#include <stdint.h>");
+        line("#include <inttypes.h>");
+        line("#include <stdio.h>");
+        line("#include <stdlib.h>");
+        line("");
+        line("static int32_t mlp_wrap(int64_t v) { return (int32_t) (uint32_t) (uint64_t) v; }");
+        line("static int32_t mlp_d2i(double d) {"); // o (int) de Java: satura, e NaN dá 0
+        line("    if (d != d) return 0;");
+        line("    if (d >= 2147483647.0) return INT32_MAX;");
+        line("    if (d <= -2147483648.0) return INT32_MIN;");
+        line("    return (int32_t) d;");
+        line("}");
+        line("static int32_t mlp_add(int32_t a, int32_t b) { return mlp_wrap((int64_t) a + b); }");
+        line("static int32_t mlp_sub(int32_t a, int32_t b) { return mlp_wrap((int64_t) a - b); }");
+        line("static int32_t mlp_mul(int32_t a, int32_t b) { return mlp_wrap((int64_t) a * b); }");
+        line("static int32_t mlp_div(int32_t a, int32_t b) {");
+        line("    if (b == 0) { fprintf(stderr, \"erro de execução: divisão inteira por zero\\n\"); exit(2); }");
+        line("    if (a == INT32_MIN && b == -1) return INT32_MIN;");
+        line("    return a / b;");
+        line("}");
+        line("static int32_t mlp_mod(int32_t a, int32_t b) {");
+        line("    if (b == 0) { fprintf(stderr, \"erro de execução: divisão inteira por zero (RESTO)\\n\"); exit(2); }");
+        line("    if (a == INT32_MIN && b == -1) return 0;");
+        line("    return a % b;");
+        line("}");
+        line("static int32_t mlp_shl(int32_t a, int32_t s) { return (int32_t) ((uint32_t) a << (s & 31)); }");
+        line("static int32_t mlp_shr(int32_t a, int32_t s) { return a < 0 ? ~(~a >> (s & 31)) : a >> (s & 31); }");
+        line("static int32_t mlp_mulh(int32_t a, int32_t b) {");
+        line("    int64_t p = (int64_t) a * b;");
+        line("    return (int32_t) (p < 0 ? ~(~p >> 32) : p >> 32);");
+        line("}");
+        line("");
+        line("int main(void) {");
+        for (SymbolTable.Entry e : symbols.all()) {
+            line("    " + cType(e.type) + " v_" + e.name + " = 0;");
+        }
+        for (String reg : declared) {
+            line("    " + (reg.startsWith("d") ? "double " : "int32_t ") + reg + " = 0;");
+        }
+        line("");
+        for (String stmt : body) {
+            line(stmt);
+        }
+        line("");
+        for (SymbolTable.Entry e : symbols.all()) {
+            if (e.temporaria || observed != null && !observed.contains(e.name)) continue;
+            if (e.type == Type.REAL) {
+                line("    printf(\"" + e.name + " = %.17g\\n\", v_" + e.name + ");");
+            } else {
+                line("    printf(\"" + e.name + " = %\" PRId32 \"\\n\", v_" + e.name + ");");
+            }
+        }
+        line("    return 0;");
+        line("}");
+        return out.toString();
+    }
+
+    /**
+     * Compila o fonte C com o compilador do sistema ($CC, ou "cc" se não
+     * definido) e devolve o caminho do executável.
+     */
+    public static Path compile(Path cSource, Path executable) throws IOException, InterruptedException {
+        String cc = System.getenv().getOrDefault("CC", "cc");
+        Process p = new ProcessBuilder(cc, "-std=c99", "-O2", "-o", executable.toString(), cSource.toString(), "-lm")
+                .redirectErrorStream(true)
+                .start();
+        String log = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (!p.waitFor(120, TimeUnit.SECONDS)) {
+            p.destroyForcibly();
+            throw new IOException(cc + " não terminou em 120 s");
+        }
+        if (p.exitValue() != 0) {
+            throw new IOException(cc + " falhou (código " + p.exitValue() + "):\n" + log);
+        }
+        return executable;
+    }
+
+    /* ------------ Tradução de instruções ------------ */
+
+    private String translate(TacInstruction ti, SymbolTable symbols, Set<String> declared) {
+        String[] a = ti.getArgs();
+        return switch (ti.getOpcode()) {
+            case LABEL -> a[0] + ": ;";
+            case JMP -> "    goto " + a[0] + ";";
+            case LOAD -> {
+                boolean real = varType(symbols, ti.getVarId(), a[1]) == Type.REAL;
+                yield "    " + def(a[0], real, declared) + " = v_" + a[1] + ";";
+            }
+            case LOADI -> {
+                boolean real = ti.getConstant().real;
+                yield "    " + def(a[0], real, declared) + " = " + literal(a[1], real) + ";";
+            }
+            case STORE -> {
+                boolean real = varType(symbols, ti.getVarId(), a[0]) == Type.REAL;
+                yield "    v_" + a[0] + " = " + operand(a[1], real) + ";";
+            }
+            case ADD, SUB, MUL, DIV -> {
+                boolean real = regReal[reg(a[1])] || regReal[reg(a[2])];
+                String expr = arith(ti.getOpcode(), real, operand(a[1], real), operand(a[2], real));
+                yield "    " + def(a[0], real, declared) + " = " + expr + ";";
+            }
+            case ADDI, SUBI -> {
+                boolean real = regReal[reg(a[0])] || ti.getConstant().real;
+                Opcode op = ti.getOpcode() == Opcode.ADDI ? Opcode.ADD : Opcode.SUB;
+                String expr = arith(op, real, operand(a[0], real), literal(a[1], real));
+                yield "    " + def(a[0], real, declared) + " = " + expr + ";";
+            }
+            case CMPGT, CMPLT, CMPGE, CMPLE, CMPEQ, CMPNE -> {
+                boolean real = regReal[reg(a[0])] || regReal[reg(a[1])];
+                String cond = operand(a[0], real) + " " + relation(ti.getOpcode()) + " " + operand(a[1], real);
+                yield "    " + def(a[0], false, declared) + " = (" + cond + ") ? 1 : 0;";
+            }
+            case JMPFALSE, JMPTRUE -> {
+                String r = operand(a[0], regReal[reg(a[0])]);
+                String test = ti.getOpcode() == Opcode.JMPTRUE ? r + " != 0" : r + " == 0";
+                yield "    if (" + test + ") goto " + a[1] + ";";
+            }
+            case JGT, JLT, JGE, JLE, JEQ, JNE -> {
+                boolean real = regReal[reg(a[0])] || regReal[reg(a[1])];
+                yield "    if (" + operand(a[0], real) + " " + relation(ti.getOpcode()) + " "
+                        + operand(a[1], real) + ") goto " + a[2] + ";";
+            }
+            case JGTI, JLTI, JGEI, JLEI, JEQI, JNEI -> {
+                boolean real = regReal[reg(a[0])] || ti.getConstant().real;
+                yield "    if (" + operand(a[0], real) + " " + relation(ti.getOpcode()) + " "
+                        + literal(a[1], real) + ") goto " + a[2] + ";";
+            }
+            // TAC tipado: o tipo vem do opcode
+            case IADD, ISUB, IMUL, IDIV, IMOD, RADD, RSUB, RMUL, RDIV, RMOD, SHL, SHR, AND, MULH -> {
+                boolean real = isRealOp(ti.getOpcode());
+                String expr = arith(ti.getOpcode(), real, operand(a[1], real), operand(a[2], real));
+                yield "    " + def(a[0], real, declared) + " = " + expr + ";";
+            }
+            case I2R -> "    " + def(a[0], true, declared) + " = " + operand(a[1], true) + ";";
+            case IJGT, IJLT, IJGE, IJLE, IJEQ, IJNE, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> {
+                boolean real = isRealOp(ti.getOpcode());
+                yield "    if (" + operand(a[0], real) + " " + relation(ti.getOpcode()) + " "
+                        + operand(a[1], real) + ") goto " + a[2] + ";";
+            }
+        };
+    }
+
+    private String def(String register, boolean real, Set<String> declared) {
+        int r = reg(register);
+        regReal[r] = real;
+        String name = (real ? "d" : "i") + r;
+        declared.add(name);
+        return name;
+    }
+
+    /** Lê um registrador no tipo pedido, convertendo int32_t -> double se preciso. */
+    private String operand(String register, boolean wantReal) {
+        int r = reg(register);
+        if (regReal[r]) {
+            return wantReal ? "d" + r : "mlp_d2i(d" + r + ")";
+        }
+        return wantReal ? "(double) i" + r : "i" + r;
+    }
+
+    private static String arith(Opcode op, boolean real, String x, String y) {
+        if (real) {
+            String sym = switch (op) {
+                case SUB, RSUB -> "-";
+                case MUL, RMUL -> "*";
+                case DIV, RDIV -> "/";
+                case RMOD -> null;
+                default -> "+";
+            };
+            return sym != null ? x + " " + sym + " " + y : "fmod(" + x + ", " + y + ")";
+        }
+        String fn = switch (op) {
+            case SUB, ISUB -> "mlp_sub";
+            case MUL, IMUL -> "mlp_mul";
+            case DIV, IDIV -> "mlp_div";
+            case IMOD -> "mlp_mod";
+            case SHL -> "mlp_shl";
+            case SHR -> "mlp_shr";
+            case MULH -> "mlp_mulh";
+            case AND -> null;
+            default -> "mlp_add";
+        };
+        return fn != null ? fn + "(" + x + ", " + y + ")" : x + " & " + y;
+    }
+
+    private static String relation(Opcode op) {
+        return switch (op) {
+            case CMPGT, JGT, JGTI, IJGT, RJGT -> ">";
+            case CMPLT, JLT, JLTI, IJLT, RJLT -> "<";
+            case CMPGE, JGE, JGEI, IJGE, RJGE -> ">=";
+            case CMPLE, JLE, JLEI, IJLE, RJLE -> "<=";
+            case CMPNE, JNE, JNEI, IJNE, RJNE -> "!=";
+            default -> "==";
+        };
+    }
+
+    private static boolean isRealOp(Opcode op) {
+        return switch (op) {
+            case RADD, RSUB, RMUL, RDIV, RMOD, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> true;
+            default -> false;
+        };
+    }
+
+    private static String literal(String text, boolean real) {
+        if (real) {
+            // "5" ou ".5" como double: garante ponto e dígito antes dele
+            String t = text.startsWith(".") ? "0" + text : text;
+            return t.contains(".") ? t : t + ".0";
+        }
+        return "INT32_C(" + text + ")";
+    }
+
+    private static Type varType(SymbolTable symbols, int id, String name) {
+        SymbolTable.Entry e = id >= 0 ? symbols.lookup(id) : symbols.lookup(name);
+        if (e == null) {
+            throw new IllegalArgumentException("variável não declarada no TAC: " + name);
+        }
+        return e.type;
+    }
+
+    private static String cType(Type t) {
+        return t == Type.REAL ? "double" : "int32_t";
+    }
+
+    private static boolean isRegister(String arg) {
+        return arg.length() > 1 && arg.charAt(0) == 'R' && Character.isDigit(arg.charAt(1));
+    }
+
+    private static int reg(String arg) {
+        return Integer.parseInt(arg.substring(1));
+    }
+
+    private void line(String s) {
+        out.append(s).append('\n');
+    }
+}
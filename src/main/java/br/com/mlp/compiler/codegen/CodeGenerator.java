@@ -1,9 +1,13 @@
 package br.com.mlp.compiler.codegen;
 
 import br.com.mlp.compiler.ast.*;
+import br.com.mlp.compiler.semantics.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Gera código intermediário em forma de TAC (Three-Address Code)
@@ -12,170 +16,442 @@ import java.util.List;
  * Convenções:
  *  - Registradores são nomeados como R1, R2, R3, ...
  *  - Rótulos são nomeados como L1, L2, L3, ...
- *  - Variáveis são usadas diretamente pelo seu nome (STORE a, R1).
+ *  - Variáveis são usadas diretamente pelo seu nome (STORE a, R1); a
+ *    instrução também carrega o ID do identificador.
+ *
+ * Cada {@code generate} recomeça a numeração, então a mesma instância pode
+ * ser reaproveitada (mas não usada por duas threads ao mesmo tempo).
+ *
+ * As variantes com {@link TacSink} entregam cada instrução assim que ela é
+ * emitida, comando por comando; as que devolvem lista usam um
+ * {@link CollectingTacSink}.
  */
 public class CodeGenerator {
 
-    private int nextReg = 1;
-    private int nextLabel = 1;
+    private final TacBuilder tac = new TacBuilder();
 
-    private final List<TacInstruction> instructions = new ArrayList<>();
+    // Registradores já calculados na expressão corrente (só com reuseShared).
+    // Nós iguais são o mesmo objeto (hash-consing no AstBuilder), e dentro de
+    // uma atribuição ou comparação não há STORE nem rótulo: o valor não muda.
+    private final boolean reuseShared;
+    private final Map<ExpressionNode, String> available = new IdentityHashMap<>();
 
-    public List<TacInstruction> generate(ProgramNode program) {
-        instructions.clear();
+    // pilhas das travessias iterativas (reaproveitadas entre comandos)
+    private final WorkStack work = new WorkStack();
+    private final NodeStack<ExpressionNode> exprStack = new NodeStack<>();
+    private final IndexStack flatStack = new IndexStack();
+    private String[] exprRegs = new String[16];
 
-        for (CommandNode cmd : program.getCommands()) {
-            genCommand(cmd);
-        }
+    public CodeGenerator() {
+        this(false);
+    }
 
-        return new ArrayList<>(instructions);
+    /**
+     * @param reuseShared reaproveita o registrador de uma subexpressão repetida
+     *                    na mesma atribuição/comparação em vez de recalculá-la
+     */
+    public CodeGenerator(boolean reuseShared) {
+        this.reuseShared = reuseShared;
     }
 
-    /* ------------ Helpers de registradores e rótulos ------------ */
+    public List<TacInstruction> generate(ProgramNode program) {
+        CollectingTacSink out = new CollectingTacSink();
+        generate(program, out);
+        return out.instructions();
+    }
 
-    private String newReg() {
-        return "R" + (nextReg++);
+    /** Gera o mesmo TAC a partir da AST plana. */
+    public List<TacInstruction> generate(FlatAst ast) {
+        CollectingTacSink out = new CollectingTacSink();
+        generate(ast, out);
+        return out.instructions();
     }
 
-    private String newLabel() {
-        return "L" + (nextLabel++);
+    public void generate(ProgramNode program, TacSink sink) {
+        tac.reset();
+        for (DeclNode d : program.getDeclarations()) tac.declare(d);
+        tac.setSink(sink);
+        try {
+            for (CommandNode cmd : program.getCommands()) {
+                genCommand(cmd);
+            }
+        } finally {
+            tac.setSink(null);
+        }
     }
 
-    private void emit(Opcode op, String... args) {
-        instructions.add(new TacInstruction(op, args));
+    public void generate(FlatAst ast, TacSink sink) {
+        tac.reset();
+        for (DeclNode d : ast.getDeclarations()) tac.declare(d);
+        tac.setSink(sink);
+        try {
+            for (int cmd : ast.getCommands()) {
+                genCommand(ast, cmd);
+            }
+        } finally {
+            tac.setSink(null);
+        }
     }
 
-    /* ------------ Geração de comandos ------------ */
+    /**
+     * TAC tipado (IADD, RDIV, I2R, IMOD, ...): os tipos das variáveis vêm da
+     * tabela de símbolos da análise semântica.
+     */
+    public List<TacInstruction> generateTyped(ProgramNode program, SymbolTable symbols) {
+        CollectingTacSink out = new CollectingTacSink();
+        generateTyped(program, symbols, out);
+        return out.instructions();
+    }
 
-    private void genCommand(CommandNode cmd) {
-        if (cmd instanceof AssignNode assign) {
-            genAssign(assign);
-        } else if (cmd instanceof IfNode ifNode) {
-            genIf(ifNode);
-        } else if (cmd instanceof WhileNode whileNode) {
-            genWhile(whileNode);
-        } else {
+    public List<TacInstruction> generateTyped(FlatAst ast, SymbolTable symbols) {
+        CollectingTacSink out = new CollectingTacSink();
+        generateTyped(ast, symbols, out);
+        return out.instructions();
+    }
+
+    public void generateTyped(ProgramNode program, SymbolTable symbols, TacSink sink) {
+        tac.setTypes(symbols);
+        try {
+            generate(program, sink);
+        } finally {
+            tac.setTypes(null);
         }
     }
 
-    private void genAssign(AssignNode node) {
-        String varName = node.getVarName();
+    public void generateTyped(FlatAst ast, SymbolTable symbols, TacSink sink) {
+        tac.setTypes(symbols);
+        try {
+            generate(ast, sink);
+        } finally {
+            tac.setTypes(null);
+        }
+    }
 
-        String regValue = genExpr(node.getExpression());
+    /* ------------ Helpers de registradores e rótulos ------------ */
 
-        emit(Opcode.STORE, varName, regValue);
+    private String newLabel() {
+        return tac.newLabel();
     }
 
-    private void genIf(IfNode node) {
-        String labelElse = newLabel();
-        String labelEnd = newLabel();
+    private void emit(Opcode op, String... args) {
+        tac.emit(op, args);
+    }
+
+    /* ------------ Geração de comandos ------------ */
 
-        // Gera condição: se falsa, pula para labelElse
-        String condReg = genCond(node.getCondition());
-        emit(Opcode.JMPFALSE, condReg, labelElse);
+    // Tarefas pendentes da travessia iterativa de comandos e condições
+    private static final byte CMD = 0;
+    private static final byte BRANCH = 1;
+    private static final byte JUMP = 2;
+    private static final byte LABEL = 3;
+
+    /**
+     * Pilha de tarefas: no lugar da recursão genIf -> genCommand -> ..., cada
+     * passo empilha o que falta fazer em ordem inversa. A ordem das instruções
+     * e da numeração de rótulos é a mesma da versão recursiva.
+     */
+    private static final class WorkStack {
+        byte[] kind = new byte[16];
+        Object[] node = new Object[16];
+        int[] index = new int[16]; // nó da AST plana
+        String[] label = new String[16];
+        boolean[] flag = new boolean[16];
+        int size;
+
+        void push(byte k, Object n, String l, boolean f) {
+            push(k, n, FlatAst.NONE, l, f);
+        }
 
-        // then
-        genCommand(node.getThenCommand());
-        emit(Opcode.JMP, labelEnd);
+        void push(byte k, int n, String l, boolean f) {
+            push(k, null, n, l, f);
+        }
 
-        // else (se existir)
-        emit(Opcode.LABEL, labelElse);
-        if (node.getElseCommand() != null) {
-            genCommand(node.getElseCommand());
+        private void push(byte k, Object n, int i, String l, boolean f) {
+            if (size == kind.length) {
+                kind = Arrays.copyOf(kind, size * 2);
+                node = Arrays.copyOf(node, size * 2);
+                index = Arrays.copyOf(index, size * 2);
+                label = Arrays.copyOf(label, size * 2);
+                flag = Arrays.copyOf(flag, size * 2);
+            }
+            kind[size] = k;
+            node[size] = n;
+            index[size] = i;
+            label[size] = l;
+            flag[size] = f;
+            size++;
         }
+    }
 
-        // fim do if
-        emit(Opcode.LABEL, labelEnd);
+    private void genCommand(CommandNode cmd) {
+        work.push(CMD, cmd, null, false);
+        runWork();
     }
 
-    private void genWhile(WhileNode node) {
-        String labelStart = newLabel();
-        String labelEnd = newLabel();
+    private void runWork() {
+        WorkStack w = work;
+        while (w.size > 0) {
+            int top = --w.size;
+            byte kind = w.kind[top];
+            Object node = w.node[top];
+            String label = w.label[top];
+            boolean flag = w.flag[top];
+            w.node[top] = null;
+
+            switch (kind) {
+                case CMD -> {
+                    if (node instanceof AssignNode assign) {
+                        genAssign(assign);
+                    } else if (node instanceof IfNode ifNode) {
+                        String labelElse = newLabel();
+                        String labelEnd = newLabel();
+                        // condição (se falsa, pula para labelElse); then; JMP fim; else; fim
+                        w.push(LABEL, null, labelEnd, false);
+                        if (ifNode.getElseCommand() != null) {
+                            w.push(CMD, ifNode.getElseCommand(), null, false);
+                        }
+                        w.push(LABEL, null, labelElse, false);
+                        w.push(JUMP, null, labelEnd, false);
+                        w.push(CMD, ifNode.getThenCommand(), null, false);
+                        w.push(BRANCH, ifNode.getCondition(), labelElse, false);
+                    } else if (node instanceof WhileNode whileNode) {
+                        String labelStart = newLabel();
+                        String labelEnd = newLabel();
+                        emit(Opcode.LABEL, labelStart);
+                        w.push(LABEL, null, labelEnd, false);
+                        w.push(JUMP, null, labelStart, false);
+                        w.push(CMD, whileNode.getBody(), null, false);
+                        w.push(BRANCH, whileNode.getCondition(), labelEnd, false);
+                    }
+                }
+                case BRANCH -> genBranchStep((BoolExprNode) node, label, flag);
+                case JUMP -> emit(Opcode.JMP, label);
+                default -> emit(Opcode.LABEL, label);
+            }
+        }
+    }
 
-        emit(Opcode.LABEL, labelStart);
+    private void genAssign(AssignNode node) {
+        String varName = node.getVarName();
 
-        String condReg = genCond(node.getCondition());
-        emit(Opcode.JMPFALSE, condReg, labelEnd);
+        available.clear();
+        String regValue = genExpr(node.getExpression());
 
-        genCommand(node.getBody());
+        tac.store(node.getVarId(), varName, regValue);
+    }
 
-        emit(Opcode.JMP, labelStart);
-        emit(Opcode.LABEL, labelEnd);
+    /* ------------ Geração de condição (curto-circuito) ------------ */
+
+    /**
+     * Um passo de genBranch: desvia para {@code target} quando a condição
+     * tiver o valor {@code jumpIf}, e segue em frente caso contrário. E/OR são
+     * avaliados em curto-circuito, ou seja, a comparação da direita só é
+     * executada se a da esquerda não decidir o resultado. Os lados de E/OR
+     * viram tarefas na pilha (cadeias longas não aprofundam a pilha Java).
+     */
+    private void genBranchStep(BoolExprNode cond, String target, boolean jumpIf) {
+        if (cond instanceof NotNode not) {
+            work.push(BRANCH, not.getOperand(), target, !jumpIf);
+        } else if (cond instanceof LogicalExprNode logic) {
+            // E saltando quando falso / OR saltando quando verdadeiro:
+            // qualquer um dos lados já decide o salto.
+            if (logic.isAnd() != jumpIf) {
+                work.push(BRANCH, logic.getRight(), target, jumpIf);
+                work.push(BRANCH, logic.getLeft(), target, jumpIf);
+            } else {
+                // Caso contrário, o lado esquerdo pode decidir pelo "não salta"
+                String labelSkip = newLabel();
+                work.push(LABEL, null, labelSkip, false);
+                work.push(BRANCH, logic.getRight(), target, jumpIf);
+                work.push(BRANCH, logic.getLeft(), labelSkip, !jumpIf);
+            }
+        } else if (cond instanceof ConditionNode cmp) {
+            genCompareBranch(cmp, target, jumpIf);
+        }
     }
 
     /* ------------ Geração de condição (comparações) ------------ */
 
-    private String genCond(ConditionNode cond) {
-        ExpressionNode left = cond.getLeft();
-        ExpressionNode right = cond.getRight();
-        String op = cond.getOp(); // ">", "<", "==", "!=", ">=", "<="
-
-        String r1 = genExpr(left);
-        String r2 = genExpr(right);
-
-        switch (op) {
-            case ">" -> emit(Opcode.CMPGT, r1, r2);
-            case "<" -> emit(Opcode.CMPLT, r1, r2);
-            case ">=" -> emit(Opcode.CMPGE, r1, r2);
-            case "<=" -> emit(Opcode.CMPLE, r1, r2);
-            case "==" -> emit(Opcode.CMPEQ, r1, r2);
-            case "!=" -> emit(Opcode.CMPNE, r1, r2);
-            default -> {
-                emit(Opcode.CMPEQ, r1, r2);
-            }
+    /**
+     * Emite uma comparação fundida com o salto (JLT, JGEI, ...). Quando o
+     * salto é no caso falso, a comparação de inteiros é invertida (ex:
+     * "a < b" falso vira JGE; com reais, ver {@link TacBuilder#branchIf}).
+     * Se o lado direito é um literal, usa a variante imediata e dispensa o
+     * LOADI.
+     */
+    private void genCompareBranch(ConditionNode cond, String target, boolean jumpIf) {
+        available.clear();
+        String r1 = genExpr(cond.getLeft());
+
+        if (cond.getRight() instanceof NumLiteralNode num) {
+            tac.branchImmediateIf(jumpIf, cond.getOp(), r1, num.getConstant(), target);
+        } else {
+            String r2 = genExpr(cond.getRight());
+            tac.branchIf(jumpIf, cond.getOp(), r1, r2, target);
         }
-
-        return r1;
     }
 
     /* ------------ Geração de expressões aritméticas ------------ */
 
-    private String genExpr(ExpressionNode expr) {
-        if (expr instanceof NumLiteralNode num) {
-            String r = newReg();
-            emit(Opcode.LOADI, r, num.getValue()); // "10", "1.0", etc.
-            return r;
+    /**
+     * Pós-ordem com pilha explícita: o BinaryExprNode é visitado uma vez para
+     * empilhar os filhos e outra para combinar os registradores deles, na
+     * mesma ordem de numeração da versão recursiva.
+     */
+    private String genExpr(ExpressionNode root) {
+        NodeStack<ExpressionNode> stack = exprStack;
+        String[] regs = exprRegs;
+        int nRegs = 0;
+
+        stack.push(root, 0);
+        while (!stack.isEmpty()) {
+            boolean expanded = stack.topValue() != 0;
+            ExpressionNode expr = stack.pop();
+            String r;
+
+            if (!expanded && reuseShared && (r = available.get(expr)) != null) {
+                // já calculada nesta expressão
+            } else if (expr instanceof BinaryExprNode bin && !expanded) {
+                stack.push(bin, 1);
+                stack.push(bin.getRight(), 0);
+                stack.push(bin.getLeft(), 0);
+                continue;
+            } else if (expr instanceof BinaryExprNode bin) {
+                String rRight = regs[--nRegs];
+                String rLeft = regs[--nRegs];
+                r = tac.arith(bin.getOp(), rLeft, rRight);
+                if (reuseShared) available.put(expr, r);
+            } else {
+                r = genLeaf(expr);
+                if (reuseShared && expr != null) available.put(expr, r);
+            }
+
+            if (nRegs == regs.length) exprRegs = regs = Arrays.copyOf(regs, nRegs * 2);
+            regs[nRegs++] = r;
         }
+        return regs[0];
+    }
 
+    private String genLeaf(ExpressionNode expr) {
+        if (expr instanceof NumLiteralNode num) {
+            return tac.loadConst(num.getConstant());
+        }
         if (expr instanceof VarRefNode var) {
-            String r = newReg();
-            emit(Opcode.LOAD, r, var.getName());
-            return r;
+            return tac.load(var.getId(), var.getName());
         }
+        return tac.loadConst("0");
+    }
 
-        if (expr instanceof BinaryExprNode bin) {
-            String rLeft = genExpr(bin.getLeft());
-            String rRight = genExpr(bin.getRight());
-            String rDest = newReg();
-
-            String op = bin.getOp(); // "+", "-", "*", "/", "RESTO"
-
-            switch (op) {
-                case "+" -> emit(Opcode.ADD, rDest, rLeft, rRight);
-                case "-" -> emit(Opcode.SUB, rDest, rLeft, rRight);
-                case "*" -> emit(Opcode.MUL, rDest, rLeft, rRight);
-                case "/" -> emit(Opcode.DIV, rDest, rLeft, rRight);
-                case "RESTO" -> {
-                    // Implementar resto usando DIV/MUL/SUB
-                    // q = left / right
-                    String rQ = newReg();
-                    emit(Opcode.DIV, rQ, rLeft, rRight);
-
-                    String rQY = newReg();
-                    emit(Opcode.MUL, rQY, rQ, rRight);
+    /* ------------ AST plana ------------ */
+
+    // mesmas tarefas e mesma ordem de runWork, com índices no lugar dos nós
+    private void genCommand(FlatAst ast, int cmd) {
+        WorkStack w = work;
+        w.push(CMD, cmd, null, false);
+        while (w.size > 0) {
+            int top = --w.size;
+            byte kind = w.kind[top];
+            int node = w.index[top];
+            String label = w.label[top];
+            boolean flag = w.flag[top];
+
+            switch (kind) {
+                case CMD -> {
+                    if (node == FlatAst.NONE) continue;
+                    switch (ast.kind(node)) {
+                        case FlatAst.ASSIGN -> {
+                            String regValue = genExpr(ast, ast.child1(node));
+                            tac.store(ast.identId(node), ast.name(node), regValue);
+                        }
+                        case FlatAst.IF -> {
+                            String labelElse = newLabel();
+                            String labelEnd = newLabel();
+                            w.push(LABEL, null, labelEnd, false);
+                            w.push(CMD, ast.elseOf(node), null, false);
+                            w.push(LABEL, null, labelElse, false);
+                            w.push(JUMP, null, labelEnd, false);
+                            w.push(CMD, ast.child2(node), null, false);
+                            w.push(BRANCH, ast.child1(node), labelElse, false);
+                        }
+                        case FlatAst.WHILE -> {
+                            String labelStart = newLabel();
+                            String labelEnd = newLabel();
+                            emit(Opcode.LABEL, labelStart);
+                            w.push(LABEL, null, labelEnd, false);
+                            w.push(JUMP, null, labelStart, false);
+                            w.push(CMD, ast.child2(node), null, false);
+                            w.push(BRANCH, ast.child1(node), labelEnd, false);
+                        }
+                        default -> { }
+                    }
+                }
+                case BRANCH -> genBranchStep(ast, node, label, flag);
+                case JUMP -> emit(Opcode.JMP, label);
+                default -> emit(Opcode.LABEL, label);
+            }
+        }
+    }
 
-                    emit(Opcode.SUB, rDest, rLeft, rQY);
+    private void genBranchStep(FlatAst ast, int cond, String target, boolean jumpIf) {
+        switch (ast.kind(cond)) {
+            case FlatAst.NOT -> work.push(BRANCH, ast.child1(cond), target, !jumpIf);
+            case FlatAst.AND, FlatAst.OR -> {
+                if ((ast.kind(cond) == FlatAst.AND) != jumpIf) {
+                    work.push(BRANCH, ast.child2(cond), target, jumpIf);
+                    work.push(BRANCH, ast.child1(cond), target, jumpIf);
+                } else {
+                    String labelSkip = newLabel();
+                    work.push(LABEL, null, labelSkip, false);
+                    work.push(BRANCH, ast.child2(cond), target, jumpIf);
+                    work.push(BRANCH, ast.child1(cond), labelSkip, !jumpIf);
                 }
-                default -> {
-                    emit(Opcode.ADD, rDest, rLeft, rRight);
+            }
+            case FlatAst.COMPARE -> {
+                String r1 = genExpr(ast, ast.child1(cond));
+                int right = ast.child2(cond);
+                if (ast.kind(right) == FlatAst.NUM) {
+                    tac.branchImmediateIf(jumpIf, ast.op(cond), r1, ast.constant(right), target);
+                } else {
+                    String r2 = genExpr(ast, right);
+                    tac.branchIf(jumpIf, ast.op(cond), r1, r2, target);
                 }
             }
-
-            return rDest;
+            default -> { }
         }
+    }
 
-        String r = newReg();
-        emit(Opcode.LOADI, r, "0");
-        return r;
+    // pós-ordem como em genExpr(ExpressionNode); valor 1 = filhos já empilhados
+    private String genExpr(FlatAst ast, int root) {
+        IndexStack stack = flatStack;
+        String[] regs = exprRegs;
+        int nRegs = 0;
+
+        stack.push(root, 0);
+        while (!stack.isEmpty()) {
+            boolean expanded = stack.topValue() != 0;
+            int expr = stack.pop();
+            String r;
+
+            switch (expr == FlatAst.NONE ? -1 : ast.kind(expr)) {
+                case FlatAst.NUM -> r = tac.loadConst(ast.constant(expr));
+                case FlatAst.VAR -> r = tac.load(ast.identId(expr), ast.name(expr));
+                case FlatAst.BINARY -> {
+                    if (!expanded) {
+                        stack.push(expr, 1);
+                        stack.push(ast.child2(expr), 0);
+                        stack.push(ast.child1(expr), 0);
+                        continue;
+                    }
+                    String rRight = regs[--nRegs];
+                    String rLeft = regs[--nRegs];
+                    r = tac.arith(ast.op(expr), rLeft, rRight);
+                }
+                default -> r = tac.loadConst("0");
+            }
+
+            if (nRegs == regs.length) exprRegs = regs = Arrays.copyOf(regs, nRegs * 2);
+            regs[nRegs++] = r;
+        }
+        return regs[0];
     }
 }
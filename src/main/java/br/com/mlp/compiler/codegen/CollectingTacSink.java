@@ -0,0 +1,20 @@
+package br.com.mlp.compiler.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Guarda as instruções numa lista, para quem precisa do programa inteiro (otimizações, execução). */
+public final class CollectingTacSink implements TacSink {
+
+    private final List<TacInstruction> instructions = new ArrayList<>();
+
+    @Override
+    public void accept(TacInstruction instr) {
+        instructions.add(instr);
+    }
+
+    /** A própria lista (não é copiada). */
+    public List<TacInstruction> instructions() {
+        return instructions;
+    }
+}
@@ -0,0 +1,22 @@
+package br.com.mlp.compiler.codegen;
+
+/** Só conta as instruções, no total e por opcode. */
+public final class CountingTacSink implements TacSink {
+
+    private final long[] byOpcode = new long[Opcode.values().length];
+    private long total;
+
+    @Override
+    public void accept(TacInstruction instr) {
+        byOpcode[instr.getOpcode().ordinal()]++;
+        total++;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public long count(Opcode op) {
+        return byOpcode[op.ordinal()];
+    }
+}
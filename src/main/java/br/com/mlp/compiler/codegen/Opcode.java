@@ -14,6 +14,12 @@ public enum Opcode {
     MUL,       // MUL Rdest, R1, R2  - Rdest = R1 * R2
     DIV,       // DIV Rdest, R1, R2  - Rdest = R1 / R2
 
+    // Bits e multiplicação alta (só inteiros; vêm da simplificação algébrica)
+    SHL,       // SHL Rdest, R1, R2  - Rdest = R1 << R2 (só os 5 bits baixos de R2)
+    SHR,       // SHR Rdest, R1, R2  - deslocamento aritmético (repete o bit de sinal)
+    AND,       // AND Rdest, R1, R2  - e bit a bit
+    MULH,      // MULH Rdest, R1, R2 - 32 bits altos do produto de 64 bits R1 * R2
+
     // Comparações
     CMPGT,     // >    (R1 > R2)
     CMPLT,     // <    (R1 < R2)
@@ -27,6 +33,47 @@ public enum Opcode {
     JMPFALSE,  // JMPFALSE R, L  - salta para L se R == 0 (falso)
     JMPTRUE,   // JMPTRUE R, L   - salta para L se R != 0 (verdadeiro)
 
+    // Comparação + salto (fundidos, sem registrador de resultado)
+    JGT,       // JGT R1, R2, L  - salta para L se R1 > R2
+    JLT,       // JLT R1, R2, L  - salta para L se R1 < R2
+    JGE,       // JGE R1, R2, L  - salta para L se R1 >= R2
+    JLE,       // JLE R1, R2, L  - salta para L se R1 <= R2
+    JEQ,       // JEQ R1, R2, L  - salta para L se R1 == R2
+    JNE,       // JNE R1, R2, L  - salta para L se R1 != R2
+    JGTI,      // JGTI R, const, L - salta para L se R > const
+    JLTI,      // JLTI R, const, L - salta para L se R < const
+    JGEI,      // JGEI R, const, L - salta para L se R >= const
+    JLEI,      // JLEI R, const, L - salta para L se R <= const
+    JEQI,      // JEQI R, const, L - salta para L se R == const
+    JNEI,      // JNEI R, const, L - salta para L se R != const
+
+    // TAC tipado (--tac-tipado): o opcode já diz o tipo dos operandos,
+    // que são do mesmo tipo (a conversão de inteiro para real é explícita)
+    IADD,      // IADD Rdest, R1, R2 - soma inteira (32 bits, dá a volta)
+    ISUB,      // ISUB Rdest, R1, R2
+    IMUL,      // IMUL Rdest, R1, R2
+    IDIV,      // IDIV Rdest, R1, R2 - divisão inteira truncada (erro se R2 == 0)
+    IMOD,      // IMOD Rdest, R1, R2 - RESTO inteiro, com o sinal de R1 (erro se R2 == 0)
+    RADD,      // RADD Rdest, R1, R2 - soma real (double)
+    RSUB,      // RSUB Rdest, R1, R2
+    RMUL,      // RMUL Rdest, R1, R2
+    RDIV,      // RDIV Rdest, R1, R2
+    RMOD,      // RMOD Rdest, R1, R2 - RESTO real (como o % de Java)
+    I2R,       // I2R Rdest, R        - converte inteiro para real
+    IJGT,      // IJGT R1, R2, L  - JGT com os dois operandos inteiros
+    IJLT,      // IJLT R1, R2, L
+    IJGE,      // IJGE R1, R2, L
+    IJLE,      // IJLE R1, R2, L
+    IJEQ,      // IJEQ R1, R2, L
+    IJNE,      // IJNE R1, R2, L
+    RJGT,      // RJGT R1, R2, L  - JGT com os dois operandos reais
+    RJLT,      // RJLT R1, R2, L
+    RJGE,      // RJGE R1, R2, L
+    RJLE,      // RJLE R1, R2, L
+    RJEQ,      // RJEQ R1, R2, L
+    RJNE,      // RJNE R1, R2, L
+    // (no TAC tipado, JxxI só aparece com registrador e constante inteiros)
+
     // Rótulo
     LABEL      // LABEL L        - define rótulo L
 }
@@ -0,0 +1,23 @@
+package br.com.mlp.compiler.codegen;
+
+import java.io.PrintStream;
+
+/** Listagem em texto: uma instrução por linha, como no {@link TacInstruction#toString}. */
+public final class PrintingTacSink implements TacSink {
+
+    private final PrintStream out;
+
+    public PrintingTacSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void accept(TacInstruction instr) {
+        out.println(instr);
+    }
+
+    @Override
+    public void finish() {
+        out.flush();
+    }
+}
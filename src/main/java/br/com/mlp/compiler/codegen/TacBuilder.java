@@ -0,0 +1,320 @@
+package br.com.mlp.compiler.codegen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import br.com.mlp.compiler.ast.ConstantPool;
+import br.com.mlp.compiler.ast.DeclNode;
+import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Emissão de TAC: numeração de registradores (R1, R2, ...) e rótulos
+ * (L1, L2, ...) e tradução de operadores MLP para opcodes. Usado pelo
+ * {@link CodeGenerator} e pelo passe único do analisador semântico, para
+ * que os dois gerem exatamente o mesmo código.
+ *
+ * Com uma tabela de símbolos ({@link #setTypes}) o TAC sai tipado: o tipo
+ * de cada registrador é conhecido na emissão (LOAD pelo tipo da variável,
+ * LOADI pelo do literal, operações reais se algum operando for real, a
+ * mesma regra da análise semântica), então cada operação usa o opcode do
+ * seu tipo (IADD, RDIV, IJLT, ...), o operando inteiro de uma operação real
+ * passa por I2R e RESTO vira IMOD/RMOD em vez de DIV/MUL/SUB.
+ *
+ * Sem a tabela, o tipo dos registradores vem das declarações
+ * ({@link #declare}) e só muda o que não tem opcode genérico: RESTO real
+ * vira RMOD (DIV/MUL/SUB daria 0.0 com reais) e a comparação real saltando
+ * no caso falso não é invertida (ver {@link #branchIf}).
+ *
+ * As instruções vão para a lista interna ({@link #instructions}) ou, com
+ * {@link #setSink}, direto para um {@link TacSink}, sem ficar em memória.
+ */
+public final class TacBuilder {
+
+    private int nextReg = 1;
+    private int nextLabel = 1;
+
+    private final List<TacInstruction> instructions = new ArrayList<>();
+    private TacSink sink;                       // null: lista interna
+
+    private SymbolTable types;                  // null: TAC sem tipos
+    private boolean[] realVars = new boolean[16]; // ID -> declarada real (TAC sem tipos)
+    private boolean[] regReal = new boolean[16];
+
+    public String newReg() {
+        return "R" + (nextReg++);
+    }
+
+    public String newLabel() {
+        return "L" + (nextLabel++);
+    }
+
+    public void emit(Opcode op, String... args) {
+        add(new TacInstruction(op, args));
+    }
+
+    public void add(TacInstruction instr) {
+        if (sink != null) sink.accept(instr);
+        else instructions.add(instr);
+    }
+
+    /** Passa a entregar as instruções ao destino (null volta para a lista interna). */
+    public void setSink(TacSink sink) {
+        this.sink = sink;
+    }
+
+    /** Instruções emitidas até agora (a lista interna). */
+    public List<TacInstruction> instructions() {
+        return instructions;
+    }
+
+    /** Descarta as instruções emitidas (a numeração continua de onde parou). */
+    public void clear() {
+        instructions.clear();
+    }
+
+    /** Liga o TAC tipado, com os tipos das variáveis da tabela (null desliga). */
+    public void setTypes(SymbolTable symbols) {
+        this.types = symbols;
+    }
+
+    /** Tipo das variáveis de uma declaração, para o TAC sem tipos. */
+    public void declare(DeclNode d) {
+        for (int id : d.getVarIds()) {
+            if (id >= realVars.length) realVars = Arrays.copyOf(realVars, Math.max(id + 1, realVars.length * 2));
+            realVars[id] = d.getType() == Type.REAL;
+        }
+    }
+
+    /** Descarta as instruções e as declarações e recomeça a numeração em R1 e L1. */
+    public void reset() {
+        instructions.clear();
+        Arrays.fill(realVars, false);
+        nextReg = 1;
+        nextLabel = 1;
+    }
+
+    /* ------------ Expressões ------------ */
+
+    public String loadConst(ConstantPool.Constant value) {
+        String r = newReg();
+        add(new TacInstruction(Opcode.LOADI, value, r, value.text)); // "10", "1.0", etc.
+        setReal(r, value.real);
+        return r;
+    }
+
+    public String loadConst(String value) {
+        return loadConst(ConstantPool.Constant.parse(value));
+    }
+
+    public String load(int varId, String name) {
+        String r = newReg();
+        add(new TacInstruction(Opcode.LOAD, varId, r, name));
+        setReal(r, realVar(varId));
+        return r;
+    }
+
+    public void store(int varId, String name, String reg) {
+        if (types != null && realVar(varId)) reg = toReal(reg); // real = inteiro
+        add(new TacInstruction(Opcode.STORE, varId, name, reg));
+    }
+
+    /** Operação aritmética MLP ("+", "-", "*", "/", "RESTO") em um registrador novo. */
+    public String arith(String op, String rLeft, String rRight) {
+        if (types != null) return typedArith(op, rLeft, rRight);
+        boolean real = isReal(rLeft) || isReal(rRight);
+        if (real && op.equals("RESTO")) {
+            rLeft = toReal(rLeft);
+            rRight = toReal(rRight);
+            String rDest = newReg();
+            emit(Opcode.RMOD, rDest, rLeft, rRight);
+            setReal(rDest, true);
+            return rDest;
+        }
+        String rDest = newReg();
+        switch (op) {
+            case "+" -> emit(Opcode.ADD, rDest, rLeft, rRight);
+            case "-" -> emit(Opcode.SUB, rDest, rLeft, rRight);
+            case "*" -> emit(Opcode.MUL, rDest, rLeft, rRight);
+            case "/" -> emit(Opcode.DIV, rDest, rLeft, rRight);
+            case "RESTO" -> {
+                // Resto inteiro usando DIV/MUL/SUB
+                // q = left / right
+                String rQ = newReg();
+                emit(Opcode.DIV, rQ, rLeft, rRight);
+
+                String rQY = newReg();
+                emit(Opcode.MUL, rQY, rQ, rRight);
+
+                emit(Opcode.SUB, rDest, rLeft, rQY);
+            }
+            default -> {
+                emit(Opcode.ADD, rDest, rLeft, rRight);
+            }
+        }
+        setReal(rDest, real);
+        return rDest;
+    }
+
+    private String typedArith(String op, String rLeft, String rRight) {
+        boolean real = isReal(rLeft) || isReal(rRight);
+        if (real) {
+            rLeft = toReal(rLeft);
+            rRight = toReal(rRight);
+        }
+        String rDest = newReg();
+        Opcode code = switch (op) {
+            case "-" -> real ? Opcode.RSUB : Opcode.ISUB;
+            case "*" -> real ? Opcode.RMUL : Opcode.IMUL;
+            case "/" -> real ? Opcode.RDIV : Opcode.IDIV;
+            case "RESTO" -> real ? Opcode.RMOD : Opcode.IMOD;
+            default -> real ? Opcode.RADD : Opcode.IADD;
+        };
+        emit(code, rDest, rLeft, rRight);
+        setReal(rDest, real);
+        return rDest;
+    }
+
+    /** O próprio registrador se já for real, senão um novo com I2R. */
+    private String toReal(String reg) {
+        if (isReal(reg)) return reg;
+        String r = newReg();
+        emit(Opcode.I2R, r, reg);
+        setReal(r, true);
+        return r;
+    }
+
+    private boolean realVar(int varId) {
+        if (types == null) return varId < realVars.length && realVars[varId];
+        SymbolTable.Entry e = types.lookup(varId);
+        return e != null && e.type == Type.REAL;
+    }
+
+    private boolean isReal(String reg) {
+        int n = Integer.parseInt(reg.substring(1));
+        return n < regReal.length && regReal[n];
+    }
+
+    private void setReal(String reg, boolean real) {
+        int n = Integer.parseInt(reg.substring(1));
+        if (n >= regReal.length) regReal = Arrays.copyOf(regReal, Math.max(n + 1, regReal.length * 2));
+        regReal[n] = real;
+    }
+
+    /* ------------ Comparações ------------ */
+
+    /**
+     * Salto para {@code target} se "r1 op r2" tiver o valor {@code jumpIf}.
+     * No caso falso a relação é invertida ("a < b" falso vira JGE), o que só
+     * vale sem NaN: com NaN toda comparação é falsa. Se algum operando é real,
+     * &lt; &gt; &lt;= &gt;= mantêm a relação e saltam sobre um JMP
+     * ("JLT r1, r2, Ls; JMP target; LABEL Ls"); == e != podem ser invertidos.
+     */
+    public void branchIf(boolean jumpIf, String op, String r1, String r2, String target) {
+        if (jumpIf) {
+            branch(op, r1, r2, target);
+        } else if (ordered(op) && (isReal(r1) || isReal(r2))) {
+            String skip = newLabel();
+            branch(op, r1, r2, skip);
+            emit(Opcode.JMP, target);
+            emit(Opcode.LABEL, skip);
+        } else {
+            branch(negateComparison(op), r1, r2, target);
+        }
+    }
+
+    /** {@link #branchIf} com literal à direita (JLTI, JGEI, ...). */
+    public void branchImmediateIf(boolean jumpIf, String op, String r1, ConstantPool.Constant constant,
+                                  String target) {
+        if (jumpIf) {
+            branchImmediate(op, r1, constant, target);
+        } else if (ordered(op) && (isReal(r1) || constant.real)) {
+            String skip = newLabel();
+            branchImmediate(op, r1, constant, skip);
+            emit(Opcode.JMP, target);
+            emit(Opcode.LABEL, skip);
+        } else {
+            branchImmediate(negateComparison(op), r1, constant, target);
+        }
+    }
+
+    private static boolean ordered(String op) {
+        return !op.equals("==") && !op.equals("!=");
+    }
+
+    /** Salto para {@code target} se "r1 op r2" (JLT, JGE, ...). */
+    public void branch(String op, String r1, String r2, String target) {
+        if (types != null) {
+            boolean real = isReal(r1) || isReal(r2);
+            if (real) {
+                r1 = toReal(r1);
+                r2 = toReal(r2);
+            }
+            emit(typedBranchOpcode(op, real), r1, r2, target);
+            return;
+        }
+        emit(branchOpcode(op), r1, r2, target);
+    }
+
+    /** Salto para {@code target} se "r1 op constante" (JLTI, JGEI, ...), sem LOADI. */
+    public void branchImmediate(String op, String r1, ConstantPool.Constant constant, String target) {
+        if (types != null && (isReal(r1) || constant.real)) {
+            // o imediato é só inteiro: a constante vai para um registrador, já real
+            r1 = toReal(r1);
+            String rk = loadConst(constant.real ? constant : ConstantPool.Constant.of((double) constant.intValue));
+            emit(typedBranchOpcode(op, true), r1, rk, target);
+            return;
+        }
+        add(new TacInstruction(immediateBranchOpcode(op), constant, r1, constant.text, target));
+    }
+
+    public void branchImmediate(String op, String r1, String constant, String target) {
+        branchImmediate(op, r1, ConstantPool.Constant.parse(constant), target);
+    }
+
+    // relação complementar ("a < b" falso vira "a >= b"); só sem NaN
+    private static String negateComparison(String op) {
+        return switch (op) {
+            case ">" -> "<=";
+            case "<" -> ">=";
+            case ">=" -> "<";
+            case "<=" -> ">";
+            case "!=" -> "==";
+            default -> "!=";
+        };
+    }
+
+    private static Opcode branchOpcode(String op) {
+        return switch (op) {
+            case ">" -> Opcode.JGT;
+            case "<" -> Opcode.JLT;
+            case ">=" -> Opcode.JGE;
+            case "<=" -> Opcode.JLE;
+            case "!=" -> Opcode.JNE;
+            default -> Opcode.JEQ;
+        };
+    }
+
+    private static Opcode typedBranchOpcode(String op, boolean real) {
+        return switch (op) {
+            case ">" -> real ? Opcode.RJGT : Opcode.IJGT;
+            case "<" -> real ? Opcode.RJLT : Opcode.IJLT;
+            case ">=" -> real ? Opcode.RJGE : Opcode.IJGE;
+            case "<=" -> real ? Opcode.RJLE : Opcode.IJLE;
+            case "!=" -> real ? Opcode.RJNE : Opcode.IJNE;
+            default -> real ? Opcode.RJEQ : Opcode.IJEQ;
+        };
+    }
+
+    private static Opcode immediateBranchOpcode(String op) {
+        return switch (op) {
+            case ">" -> Opcode.JGTI;
+            case "<" -> Opcode.JLTI;
+            case ">=" -> Opcode.JGEI;
+            case "<=" -> Opcode.JLEI;
+            case "!=" -> Opcode.JNEI;
+            default -> Opcode.JEQI;
+        };
+    }
+}
@@ -1,14 +1,39 @@
 package br.com.mlp.compiler.codegen;
 
+import br.com.mlp.compiler.ast.ConstantPool;
+
 public class TacInstruction {
     private final Opcode opcode;
     private final String[] args;
+    private final int varId;
+    private final ConstantPool.Constant constant;
 
     public TacInstruction(Opcode opcode, String... args) {
+        this(opcode, -1, null, args);
+    }
+
+    /** Instrução com operando de variável (LOAD/STORE) já resolvido para o ID. */
+    public TacInstruction(Opcode opcode, int varId, String... args) {
+        this(opcode, varId, null, args);
+    }
+
+    /** Instrução com operando constante (LOADI, ADDI/SUBI, JxxI) já convertido. */
+    public TacInstruction(Opcode opcode, ConstantPool.Constant constant, String... args) {
+        this(opcode, -1, constant, args);
+    }
+
+    private TacInstruction(Opcode opcode, int varId, ConstantPool.Constant constant, String[] args) {
         this.opcode = opcode;
+        this.varId = varId;
+        this.constant = constant;
         this.args = args;
     }
 
+    /** Mesma instrução com outros argumentos (mantém ID de variável e constante). */
+    public TacInstruction withArgs(String... args) {
+        return new TacInstruction(opcode, varId, constant, args);
+    }
+
     public Opcode getOpcode() {
         return opcode;
     }
@@ -17,6 +42,24 @@ public class TacInstruction {
         return args;
     }
 
+    /** ID (IdentTable) da variável operando de LOAD/STORE, ou -1. */
+    public int getVarId() {
+        return varId;
+    }
+
+    /**
+     * Constante do operando imediato. Instruções montadas só com texto (TAC
+     * escrito à mão, testes) têm o literal convertido aqui.
+     */
+    public ConstantPool.Constant getConstant() {
+        if (constant != null) return constant;
+        String literal = switch (opcode) {
+            case LOADI, ADDI, SUBI, JGTI, JLTI, JGEI, JLEI, JEQI, JNEI -> args[1];
+            default -> null;
+        };
+        return literal != null ? ConstantPool.Constant.parse(literal) : null;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(opcode.name());
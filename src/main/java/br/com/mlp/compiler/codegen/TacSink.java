@@ -0,0 +1,37 @@
+package br.com.mlp.compiler.codegen;
+
+/**
+ * Destino das instruções de TAC à medida que são geradas. O
+ * {@link CodeGenerator} entrega cada instrução assim que a emite, então um
+ * destino que escreve direto (na saída, num arquivo) não precisa do
+ * programa inteiro em memória.
+ *
+ * Implementações: {@link PrintingTacSink} (listagem em texto),
+ * {@link BinaryTacSink} (arquivo binário), {@link CountingTacSink} (só
+ * conta) e {@link CollectingTacSink} (lista, para as otimizações).
+ */
+public interface TacSink {
+
+    void accept(TacInstruction instr);
+
+    /** Fim do TAC: grava o que ainda estiver em buffer. */
+    default void finish() {
+    }
+
+    /** Entrega cada instrução aos dois destinos, nesta ordem. */
+    static TacSink tee(TacSink first, TacSink second) {
+        return new TacSink() {
+            @Override
+            public void accept(TacInstruction instr) {
+                first.accept(instr);
+                second.accept(instr);
+            }
+
+            @Override
+            public void finish() {
+                first.finish();
+                second.finish();
+            }
+        };
+    }
+}
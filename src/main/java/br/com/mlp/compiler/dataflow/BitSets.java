@@ -0,0 +1,85 @@
+package br.com.mlp.compiler.dataflow;
+
+import java.util.Arrays;
+
+/**
+ * Conjuntos de bits em long[] (64 elementos por palavra), usados pelas
+ * análises de fluxo de dados. Todos os vetores de uma análise têm o mesmo
+ * tamanho, então as operações andam palavra a palavra, sem alocar.
+ */
+public final class BitSets {
+
+    private BitSets() {
+    }
+
+    public static long[] create(int bits) {
+        return new long[(bits + 63) >>> 6];
+    }
+
+    /** Conjunto com os bits 0..bits-1 ligados. */
+    public static long[] full(int bits) {
+        long[] s = create(bits);
+        Arrays.fill(s, -1L);
+        int rest = bits & 63;
+        if (rest != 0) s[s.length - 1] = (1L << rest) - 1;
+        return s;
+    }
+
+    public static boolean get(long[] s, int bit) {
+        return (s[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public static void set(long[] s, int bit) {
+        s[bit >>> 6] |= 1L << bit;
+    }
+
+    public static void clear(long[] s, int bit) {
+        s[bit >>> 6] &= ~(1L << bit);
+    }
+
+    public static void copy(long[] dst, long[] src) {
+        System.arraycopy(src, 0, dst, 0, dst.length);
+    }
+
+    public static void or(long[] dst, long[] src) {
+        for (int i = 0; i < dst.length; i++) dst[i] |= src[i];
+    }
+
+    public static void and(long[] dst, long[] src) {
+        for (int i = 0; i < dst.length; i++) dst[i] &= src[i];
+    }
+
+    /**
+     * dst = gen ∪ (in − kill); devolve true se dst mudou.
+     * É a função de transferência de toda análise gen/kill.
+     */
+    public static boolean transfer(long[] dst, long[] gen, long[] in, long[] kill) {
+        boolean changed = false;
+        for (int i = 0; i < dst.length; i++) {
+            long v = gen[i] | (in[i] & ~kill[i]);
+            if (v != dst[i]) {
+                dst[i] = v;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public static int cardinality(long[] s) {
+        int n = 0;
+        for (long w : s) n += Long.bitCount(w);
+        return n;
+    }
+
+    /** Próximo bit ligado a partir de from, ou -1. */
+    public static int next(long[] s, int from) {
+        int w = from >>> 6;
+        if (w >= s.length) return -1;
+        long word = s[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == s.length) return -1;
+            word = s[w];
+        }
+    }
+}
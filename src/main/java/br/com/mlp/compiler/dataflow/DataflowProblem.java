@@ -0,0 +1,147 @@
+package br.com.mlp.compiler.dataflow;
+
+/**
+ * Análise de fluxo de dados gen/kill sobre um {@link FlowGraph}, com um bit
+ * por fato (variável, definição, ...). Cada bloco tem gen e kill, e
+ *
+ *   para frente: in[b] = ⊓ out[p] (predecessores),  out[b] = gen ∪ (in − kill)
+ *   para trás:   out[b] = ⊓ in[s] (sucessores),    in[b]  = gen ∪ (out − kill)
+ *
+ * onde ⊓ é união ("em algum caminho") ou interseção ("em todos os
+ * caminhos"). Exemplos: inicialização definida (para frente, interseção),
+ * definições que alcançam (para frente, união), variáveis vivas (para trás,
+ * união).
+ *
+ * O {@link #solve()} usa lista de trabalho começando na pós-ordem reversa
+ * (ou na pós-ordem, para trás): em grafos vindos de código estruturado
+ * cada bloco é revisitado poucas vezes e o custo fica linear na prática.
+ */
+public final class DataflowProblem {
+
+    public enum Direction { FORWARD, BACKWARD }
+
+    public enum Meet { UNION, INTERSECTION }
+
+    /** in/out de cada bloco; visits é quantas vezes algum bloco foi processado. */
+    public record Solution(long[][] in, long[][] out, int visits) {
+    }
+
+    private final FlowGraph graph;
+    private final int bits;
+    private final Direction direction;
+    private final Meet meet;
+    private final long[][] gen;
+    private final long[][] kill;
+    private long[] boundary;
+
+    public DataflowProblem(FlowGraph graph, int bits, Direction direction, Meet meet) {
+        this.graph = graph;
+        this.bits = bits;
+        this.direction = direction;
+        this.meet = meet;
+        this.gen = new long[graph.size()][];
+        this.kill = new long[graph.size()][];
+        for (int b = 0; b < graph.size(); b++) {
+            gen[b] = BitSets.create(bits);
+            kill[b] = BitSets.create(bits);
+        }
+        this.boundary = BitSets.create(bits);
+    }
+
+    /** Conjunto gen do bloco (o próprio vetor, para ser preenchido). */
+    public long[] gen(int block) {
+        return gen[block];
+    }
+
+    /** Conjunto kill do bloco (o próprio vetor, para ser preenchido). */
+    public long[] kill(int block) {
+        return kill[block];
+    }
+
+    /**
+     * Valor na fronteira: in da entrada (para frente) ou out dos blocos sem
+     * sucessor (para trás). Padrão: vazio.
+     */
+    public void setBoundary(long[] value) {
+        this.boundary = value.clone();
+    }
+
+    public Solution solve() {
+        int n = graph.size();
+        boolean forward = direction == Direction.FORWARD;
+        long[][] in = new long[n][];
+        long[][] out = new long[n][];
+        for (int b = 0; b < n; b++) {
+            in[b] = meet == Meet.INTERSECTION ? BitSets.full(bits) : BitSets.create(bits);
+            out[b] = meet == Meet.INTERSECTION ? BitSets.full(bits) : BitSets.create(bits);
+        }
+
+        // ordem inicial: pós-ordem reversa (para frente) ou pós-ordem (para
+        // trás), e depois os blocos inalcançáveis
+        int[] rpo = graph.reversePostorder();
+        int[] queue = new int[n + 1];
+        boolean[] queued = new boolean[n];
+        int head = 0;
+        int count = 0;
+        for (int i = 0; i < rpo.length; i++) {
+            int b = forward ? rpo[i] : rpo[rpo.length - 1 - i];
+            queue[count++] = b;
+            queued[b] = true;
+        }
+        for (int b = 0; b < n; b++) {
+            if (!queued[b]) {
+                queue[count++] = b;
+                queued[b] = true;
+            }
+        }
+
+        long[] top = meet == Meet.INTERSECTION ? BitSets.full(bits) : BitSets.create(bits);
+        long[] merged = BitSets.create(bits);
+        int visits = 0;
+        while (count > 0) {
+            int b = queue[head];
+            head = (head + 1) % queue.length;
+            count--;
+            queued[b] = false;
+            visits++;
+
+            if (forward) {
+                meetInto(merged, top, b, out, true);
+                BitSets.copy(in[b], merged);
+                if (BitSets.transfer(out[b], gen[b], in[b], kill[b])) {
+                    for (int i = 0; i < graph.successorCount(b); i++) {
+                        count = enqueue(queue, queued, head, count, graph.successor(b, i));
+                    }
+                }
+            } else {
+                meetInto(merged, top, b, in, false);
+                BitSets.copy(out[b], merged);
+                if (BitSets.transfer(in[b], gen[b], out[b], kill[b])) {
+                    for (int i = 0; i < graph.predecessorCount(b); i++) {
+                        count = enqueue(queue, queued, head, count, graph.predecessor(b, i));
+                    }
+                }
+            }
+        }
+        return new Solution(in, out, visits);
+    }
+
+    // junta os valores dos vizinhos (predecessores ou sucessores) em dst
+    private void meetInto(long[] dst, long[] top, int b, long[][] values, boolean preds) {
+        int degree = preds ? graph.predecessorCount(b) : graph.successorCount(b);
+        boolean atBoundary = preds ? b == 0 : degree == 0;
+        BitSets.copy(dst, atBoundary ? boundary : top);
+        for (int i = 0; i < degree; i++) {
+            long[] v = values[preds ? graph.predecessor(b, i) : graph.successor(b, i)];
+            if (meet == Meet.INTERSECTION) BitSets.and(dst, v);
+            else BitSets.or(dst, v);
+        }
+    }
+
+    private static int enqueue(int[] queue, boolean[] queued, int head, int count, int b) {
+        if (queued[b]) return count;
+        queued[b] = true;
+        queue[(head + count) % queue.length] = b;
+        return count + 1;
+    }
+}
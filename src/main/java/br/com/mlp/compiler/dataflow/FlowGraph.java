@@ -0,0 +1,92 @@
+package br.com.mlp.compiler.dataflow;
+
+import java.util.Arrays;
+
+/**
+ * Grafo de fluxo de controle: blocos básicos numerados 0..size()-1 e
+ * arestas entre eles. O bloco 0 é a entrada. Quem constrói o grafo
+ * (a partir da AST ou do TAC) guarda o conteúdo de cada bloco; aqui só
+ * ficam as arestas, em vetores de int.
+ */
+public final class FlowGraph {
+
+    private int[][] succ = new int[16][];
+    private int[][] pred = new int[16][];
+    private int[] succCount = new int[16];
+    private int[] predCount = new int[16];
+    private int size;
+
+    public int newBlock() {
+        if (size == succ.length) {
+            int n = size * 2;
+            succ = Arrays.copyOf(succ, n);
+            pred = Arrays.copyOf(pred, n);
+            succCount = Arrays.copyOf(succCount, n);
+            predCount = Arrays.copyOf(predCount, n);
+        }
+        succ[size] = new int[2];
+        pred[size] = new int[2];
+        return size++;
+    }
+
+    public void edge(int from, int to) {
+        succ[from] = append(succ[from], succCount[from]++, to);
+        pred[to] = append(pred[to], predCount[to]++, from);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int successorCount(int block) {
+        return succCount[block];
+    }
+
+    public int successor(int block, int i) {
+        return succ[block][i];
+    }
+
+    public int predecessorCount(int block) {
+        return predCount[block];
+    }
+
+    public int predecessor(int block, int i) {
+        return pred[block][i];
+    }
+
+    /**
+     * Blocos alcançáveis a partir da entrada em pós-ordem reversa (cada
+     * bloco antes dos seus sucessores, exceto em back-edges). Iterativo.
+     */
+    public int[] reversePostorder() {
+        int[] order = new int[size];
+        int n = size;
+        boolean[] seen = new boolean[size];
+        int[] stack = new int[size];
+        int[] next = new int[size]; // próximo sucessor a visitar de cada bloco na pilha
+        int top = 0;
+        if (size == 0) return order;
+        stack[top++] = 0;
+        seen[0] = true;
+        while (top > 0) {
+            int b = stack[top - 1];
+            if (next[b] < succCount[b]) {
+                int s = succ[b][next[b]++];
+                if (!seen[s]) {
+                    seen[s] = true;
+                    stack[top++] = s;
+                }
+            } else {
+                top--;
+                order[--n] = b;
+            }
+        }
+        return Arrays.copyOfRange(order, n, size);
+    }
+
+    private static int[] append(int[] a, int at, int v) {
+        if (at == a.length) a = Arrays.copyOf(a, at * 2);
+        a[at] = v;
+        return a;
+    }
+}
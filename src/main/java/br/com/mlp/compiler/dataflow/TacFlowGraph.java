@@ -0,0 +1,104 @@
+package br.com.mlp.compiler.dataflow;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+
+/**
+ * Blocos básicos de uma lista de TAC. Um bloco começa na primeira
+ * instrução, em cada LABEL e logo depois de cada salto; termina antes do
+ * próximo início. As arestas seguem os saltos (o destino é o bloco do
+ * LABEL) e a passagem direta para o bloco seguinte quando o último
+ * comando não é um JMP. O bloco 0 começa no pc 0.
+ */
+public final class TacFlowGraph {
+
+    private final FlowGraph graph;
+    private final int[] start; // primeiro pc de cada bloco; start[size] = tac.size()
+
+    private TacFlowGraph(FlowGraph graph, int[] start) {
+        this.graph = graph;
+        this.start = start;
+    }
+
+    public static TacFlowGraph build(List<TacInstruction> tac) {
+        int n = tac.size();
+        boolean[] leader = new boolean[n + 1];
+        leader[0] = true;
+        Map<String, Integer> labelPc = new HashMap<>();
+        for (int pc = 0; pc < n; pc++) {
+            TacInstruction ti = tac.get(pc);
+            if (ti.getOpcode() == Opcode.LABEL) {
+                leader[pc] = true;
+                labelPc.put(ti.getArgs()[0], pc);
+            } else if (isJump(ti.getOpcode())) {
+                leader[pc + 1] = true;
+            }
+        }
+
+        FlowGraph graph = new FlowGraph();
+        int[] blockOf = new int[n];
+        int count = 0;
+        for (int pc = 0; pc < n; pc++) {
+            if (leader[pc]) count++;
+            blockOf[pc] = count - 1;
+        }
+        count = Math.max(count, 1); // TAC vazio: um bloco vazio
+        int[] start = new int[count + 1];
+        for (int pc = 0, b = 0; pc < n; pc++) {
+            if (leader[pc]) start[b++] = pc;
+        }
+        start[count] = n;
+        for (int b = 0; b < count; b++) {
+            graph.newBlock();
+        }
+
+        for (int b = 0; b < count; b++) {
+            if (start[b + 1] == start[b]) continue; // TAC vazio
+            TacInstruction last = tac.get(start[b + 1] - 1);
+            Opcode op = last.getOpcode();
+            if (isJump(op)) {
+                String[] args = last.getArgs();
+                Integer target = labelPc.get(args[args.length - 1]);
+                if (target == null) {
+                    throw new IllegalArgumentException("rótulo inexistente: " + args[args.length - 1]);
+                }
+                graph.edge(b, blockOf[target]);
+            }
+            if (op != Opcode.JMP && b + 1 < count) {
+                graph.edge(b, b + 1);
+            }
+        }
+        return new TacFlowGraph(graph, start);
+    }
+
+    public FlowGraph graph() {
+        return graph;
+    }
+
+    public int blockCount() {
+        return graph.size();
+    }
+
+    /** Primeiro pc do bloco. */
+    public int start(int block) {
+        return start[block];
+    }
+
+    /** pc logo depois do último do bloco. */
+    public int end(int block) {
+        return start[block + 1];
+    }
+
+    public static boolean isJump(Opcode op) {
+        return switch (op) {
+            case JMP, JMPFALSE, JMPTRUE, JGT, JLT, JGE, JLE, JEQ, JNE,
+                 JGTI, JLTI, JGEI, JLEI, JEQI, JNEI,
+                 IJGT, IJLT, IJGE, IJLE, IJEQ, IJNE, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> true;
+            default -> false;
+        };
+    }
+}
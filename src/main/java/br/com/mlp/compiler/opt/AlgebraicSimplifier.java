@@ -0,0 +1,506 @@
+package br.com.mlp.compiler.opt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.mlp.compiler.ast.ConstantPool;
+import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.dataflow.TacFlowGraph;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Simplificação algébrica da aritmética inteira do TAC.
+ *
+ *  - identidades e elementos absorventes: x + 0, x - 0, x * 1 e x / 1
+ *    viram o próprio x; x * 0, x - x e x RESTO 1 viram 0; operações entre
+ *    duas constantes são dobradas;
+ *  - reassociação: (x + c1) + c2 vira x + (c1 + c2) e (x * c1) * c2 vira
+ *    x * (c1 * c2) (a aritmética inteira dá a volta em 32 bits, então a
+ *    ordem não muda o resultado);
+ *  - multiplicação por 2^k vira SHL; divisão e RESTO por 2^k viram SHR e
+ *    AND, somando antes 2^k - 1 aos dividendos negativos para que a divisão
+ *    continue truncada em direção a zero;
+ *  - divisão e RESTO pelas demais constantes viram multiplicação alta
+ *    (MULH) pelo número mágico do divisor e um deslocamento (Warren,
+ *    Hacker's Delight, cap. 10).
+ *
+ * No TAC sem tipos RESTO chega como DIV/MUL/SUB; a sequência inteira é
+ * reconhecida e trocada de uma vez. Os reais ficam como estão: x + 0 muda
+ * o sinal de -0.0 e x - x não é 0 para infinito. O tipo de cada
+ * registrador é deduzido em ordem, como em TacProgram. Divisão por uma
+ * constante zero também fica: continua sendo erro de execução.
+ *
+ * Os padrões só olham para dentro do bloco básico e para registradores
+ * definidos uma vez (ADDI/SUBI redefinem o registrador). Quando o
+ * resultado é um operando, o registrador de destino passa a ser outro nome
+ * para ele; um LOAD repetido da mesma variável no bloco, sem STORE no
+ * meio, também reaproveita o registrador, para que x - x seja reconhecido.
+ * As definições que ficam sem uso saem no final.
+ */
+public final class AlgebraicSimplifier {
+
+    public record Result(List<TacInstruction> tac, int identities, int reassociations, int shifts,
+                         int magicDivisions) {
+    }
+
+    /** Registrador que vale base + k (ou base * k). */
+    private record Affine(String base, int k) {
+    }
+
+    /** Multiplicador e deslocamento da divisão por uma constante. */
+    record Magic(int multiplier, int shift) {
+    }
+
+    private final SymbolTable symbols;
+
+    private List<TacInstruction> code;
+    private int nextReg;
+    private final Map<String, Integer> defs = new HashMap<>();
+    private final Map<String, Integer> uses = new HashMap<>();
+    private final Map<String, String> alias = new HashMap<>();
+    private final Set<String> real = new HashSet<>();
+
+    // fatos do bloco atual
+    private final Map<String, Integer> consts = new HashMap<>();
+    private final Map<Integer, String> regOfConst = new HashMap<>();
+    private final Map<String, Affine> sums = new HashMap<>();
+    private final Map<String, Affine> products = new HashMap<>();
+    private final Map<String, String> loaded = new HashMap<>();
+
+    private int identities;
+    private int reassociations;
+    private int shifts;
+    private int magicDivisions;
+
+    public AlgebraicSimplifier(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    public Result run(List<TacInstruction> tac) {
+        code = new ArrayList<>(tac.size());
+        nextReg = Loops.nextRegister(tac);
+        defs.clear();
+        uses.clear();
+        alias.clear();
+        real.clear();
+        clearBlock();
+        identities = reassociations = shifts = magicDivisions = 0;
+
+        for (TacInstruction ti : tac) {
+            String[] a = ti.getArgs();
+            boolean def = definesRegister(ti.getOpcode());
+            if (def) defs.merge(a[0], 1, Integer::sum);
+            for (int i = def ? 1 : 0; i < a.length; i++) {
+                if (Loops.reg(a[i]) >= 0) uses.merge(a[i], 1, Integer::sum);
+            }
+        }
+
+        for (int pc = 0; pc < tac.size(); pc++) {
+            TacInstruction ti = rename(tac.get(pc));
+            Opcode op = ti.getOpcode();
+            String[] a = ti.getArgs();
+            if (op == Opcode.LABEL || TacFlowGraph.isJump(op)) {
+                clearBlock();
+                code.add(ti);
+                continue;
+            }
+            switch (op) {
+                case LOAD -> load(ti);
+                case LOADI -> {
+                    ConstantPool.Constant c = ti.getConstant();
+                    if (c.real) real.add(a[0]);
+                    if (!c.real && !c.overflow && single(a[0])) constant(a[0], c.intValue);
+                    code.add(ti);
+                }
+                case STORE -> {
+                    loaded.remove(a[0]);
+                    code.add(ti);
+                }
+                case ADD, SUB, MUL, DIV -> {
+                    if (real.contains(a[1]) || real.contains(a[2])) {
+                        real.add(a[0]);
+                        code.add(ti);
+                    } else {
+                        pc += integer(ti, tac, pc);
+                    }
+                }
+                case IADD, ISUB, IMUL, IDIV, IMOD -> pc += integer(ti, tac, pc);
+                case ADDI, SUBI -> {
+                    if (real.contains(a[0]) || ti.getConstant().real) real.add(a[0]);
+                    code.add(ti);
+                }
+                case RADD, RSUB, RMUL, RDIV, RMOD, I2R -> {
+                    real.add(a[0]);
+                    code.add(ti);
+                }
+                default -> code.add(ti);
+            }
+        }
+        removeDeadDefs();
+        return new Result(List.copyOf(code), identities, reassociations, shifts, magicDivisions);
+    }
+
+    /* ------------ Instruções ------------ */
+
+    private void load(TacInstruction ti) {
+        String r = ti.getArgs()[0];
+        String var = ti.getArgs()[1];
+        SymbolTable.Entry e = ti.getVarId() >= 0 ? symbols.lookup(ti.getVarId()) : symbols.lookup(var);
+        if (e != null && e.type == Type.REAL) real.add(r);
+        if (single(r)) {
+            String previous = loaded.get(var);
+            if (previous != null) {
+                alias.put(r, previous);
+                return;
+            }
+            loaded.put(var, r);
+        }
+        code.add(ti);
+    }
+
+    /**
+     * Operação inteira de três endereços; devolve quantas instruções
+     * seguintes foram consumidas junto (as do RESTO sem tipos).
+     */
+    private int integer(TacInstruction ti, List<TacInstruction> tac, int pc) {
+        Opcode op = ti.getOpcode();
+        Opcode kind = Loops.generic(op);
+        boolean typed = op != kind || op == Opcode.IMOD;
+        String[] a = ti.getArgs();
+        String d = a[0];
+        String x = a[1];
+        String y = a[2];
+        if (!single(d)) {
+            code.add(ti);
+            return 0;
+        }
+        Integer kx = consts.get(x);
+        Integer ky = consts.get(y);
+
+        if (kx != null && ky != null && (ky != 0 || (kind != Opcode.DIV && kind != Opcode.IMOD))) {
+            int v = switch (kind) {
+                case ADD -> kx + ky;
+                case SUB -> kx - ky;
+                case MUL -> kx * ky;
+                case DIV -> kx / ky;
+                default -> kx % ky;
+            };
+            load(d, v);
+            identities++;
+            return 0;
+        }
+        if (kind == Opcode.DIV && !typed && ky != null && ky != 0 && ky != Integer.MIN_VALUE) {
+            String remainder = remainderOf(tac, pc, d, x, y);
+            if (remainder != null) {
+                remainder(typed, remainder, x, ky);
+                return 2;
+            }
+        }
+        switch (kind) {
+            case ADD, SUB -> sum(ti, typed, kind, d, x, y, kx, ky);
+            case MUL -> product(ti, typed, d, x, y, kx, ky);
+            case DIV -> {
+                if (ky == null || ky == 0 || ky == Integer.MIN_VALUE) {
+                    code.add(ti);
+                } else {
+                    quotient(typed, d, x, ky);
+                }
+            }
+            default -> {
+                if (ky == null || ky == 0 || ky == Integer.MIN_VALUE) {
+                    code.add(ti);
+                } else {
+                    remainder(typed, d, x, ky);
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void sum(TacInstruction ti, boolean typed, Opcode kind, String d, String x, String y,
+                     Integer kx, Integer ky) {
+        Affine f;
+        if (ky != null) {
+            f = new Affine(x, kind == Opcode.SUB ? -ky : ky);
+        } else if (kind == Opcode.ADD && kx != null) {
+            f = new Affine(y, kx);
+        } else if (kind == Opcode.SUB && x.equals(y)) {
+            load(d, 0);
+            identities++;
+            return;
+        } else {
+            code.add(ti);
+            return;
+        }
+        Affine inner = sums.get(f.base());
+        if (inner != null) f = new Affine(inner.base(), inner.k() + f.k());
+        sums.put(d, f);
+        if (f.k() == 0) {
+            alias.put(d, f.base());
+            if (inner != null) reassociations++;
+            else identities++;
+        } else if (inner != null) {
+            code.add(new TacInstruction(typed ? Opcode.IADD : Opcode.ADD, d, f.base(), constReg(f.k())));
+            reassociations++;
+        } else {
+            code.add(ti);
+        }
+    }
+
+    private void product(TacInstruction ti, boolean typed, String d, String x, String y, Integer kx, Integer ky) {
+        if (ky == null && kx != null) {
+            x = y;
+            ky = kx;
+        }
+        if (ky == null) {
+            code.add(ti);
+            return;
+        }
+        Affine inner = products.get(x);
+        if (inner != null) {
+            x = inner.base();
+            ky = inner.k() * ky;
+            reassociations++;
+        }
+        products.put(d, new Affine(x, ky));
+        int k = ky;
+        if (k == 0) {
+            load(d, 0);
+            identities++;
+        } else if (k == 1) {
+            alias.put(d, x);
+            identities++;
+        } else if (k == -1) {
+            code.add(new TacInstruction(typed ? Opcode.ISUB : Opcode.SUB, d, constReg(0), x));
+            identities++;
+        } else if (k > 0 && Integer.bitCount(k) == 1) {
+            code.add(new TacInstruction(Opcode.SHL, d, x, constReg(Integer.numberOfTrailingZeros(k))));
+            shifts++;
+        } else if (inner != null) {
+            code.add(new TacInstruction(typed ? Opcode.IMUL : Opcode.MUL, d, x, constReg(k)));
+        } else {
+            code.add(ti);
+        }
+    }
+
+    /** d = x / k, com k constante diferente de 0 e de Integer.MIN_VALUE. */
+    private void quotient(boolean typed, String d, String x, int k) {
+        Opcode sub = typed ? Opcode.ISUB : Opcode.SUB;
+        if (k == 1) {
+            alias.put(d, x);
+            identities++;
+        } else if (k == -1) {
+            code.add(new TacInstruction(sub, d, constReg(0), x)); // MIN / -1 dá a volta como a negação
+            identities++;
+        } else if (k > 0 && Integer.bitCount(k) == 1) {
+            // (x + (x < 0 ? k - 1 : 0)) >> log2(k)
+            String biased = emit(typed ? Opcode.IADD : Opcode.ADD, x, bias(x, k));
+            code.add(new TacInstruction(Opcode.SHR, d, biased, constReg(Integer.numberOfTrailingZeros(k))));
+            shifts++;
+        } else {
+            magicQuotient(typed, d, x, k);
+            magicDivisions++;
+        }
+    }
+
+    /** d = x RESTO k, com k constante diferente de 0 e de Integer.MIN_VALUE (o resto tem o sinal de x). */
+    private void remainder(boolean typed, String d, String x, int k) {
+        Opcode sub = typed ? Opcode.ISUB : Opcode.SUB;
+        int m = Math.abs(k);
+        if (m == 1) {
+            load(d, 0);
+            identities++;
+        } else if (Integer.bitCount(m) == 1) {
+            // ((x + b) & (m - 1)) - b, com b = x < 0 ? m - 1 : 0
+            String b = bias(x, m);
+            String biased = emit(typed ? Opcode.IADD : Opcode.ADD, x, b);
+            String low = emit(Opcode.AND, biased, constReg(m - 1));
+            code.add(new TacInstruction(sub, d, low, b));
+            shifts++;
+        } else {
+            String q = newReg();
+            magicQuotient(typed, q, x, k);
+            String qk = emit(typed ? Opcode.IMUL : Opcode.MUL, q, constReg(k));
+            code.add(new TacInstruction(sub, d, x, qk));
+            magicDivisions++;
+        }
+    }
+
+    /** m - 1 se x for negativo, senão 0 (m potência de 2). */
+    private String bias(String x, int m) {
+        String sign = emit(Opcode.SHR, x, constReg(31));
+        return emit(Opcode.AND, sign, constReg(m - 1));
+    }
+
+    /** q = x / k pela multiplicação alta (|k| >= 2, k não é potência de 2 positiva). */
+    private void magicQuotient(boolean typed, String q, String x, int k) {
+        Magic m = magic(k);
+        String t = emit(Opcode.MULH, x, constReg(m.multiplier()));
+        if (k > 0 && m.multiplier() < 0) {
+            t = emit(typed ? Opcode.IADD : Opcode.ADD, t, x);
+        } else if (k < 0 && m.multiplier() > 0) {
+            t = emit(typed ? Opcode.ISUB : Opcode.SUB, t, x);
+        }
+        if (m.shift() > 0) t = emit(Opcode.SHR, t, constReg(m.shift()));
+        // quociente negativo: soma 1 (t - (t >> 31))
+        String sign = emit(Opcode.SHR, t, constReg(31));
+        code.add(new TacInstruction(typed ? Opcode.ISUB : Opcode.SUB, q, t, sign));
+    }
+
+    /**
+     * Número mágico da divisão com sinal por d (|d| >= 2): x / d é
+     * (MULH(x, M) [+ x ou - x]) >> s, mais 1 se negativo.
+     */
+    static Magic magic(int d) {
+        final long two31 = 0x80000000L;
+        long ad = Math.abs((long) d);
+        long t = two31 + (d >>> 31);
+        long anc = t - 1 - t % ad;
+        int p = 31;
+        long q1 = two31 / anc;
+        long r1 = two31 - q1 * anc;
+        long q2 = two31 / ad;
+        long r2 = two31 - q2 * ad;
+        long delta;
+        do {
+            p++;
+            q1 *= 2;
+            r1 *= 2;
+            if (r1 >= anc) {
+                q1++;
+                r1 -= anc;
+            }
+            q2 *= 2;
+            r2 *= 2;
+            if (r2 >= ad) {
+                q2++;
+                r2 -= ad;
+            }
+            delta = ad - r2;
+        } while (q1 < delta || (q1 == delta && r1 == 0));
+        int multiplier = (int) (q2 + 1);
+        return new Magic(d < 0 ? -multiplier : multiplier, p - 32);
+    }
+
+    /**
+     * Registrador do SUB que fecha o RESTO sem tipos começando no DIV em pc
+     * (DIV q, x, y; MUL p, q, y; SUB r, x, p), ou null.
+     */
+    private String remainderOf(List<TacInstruction> tac, int pc, String q, String x, String y) {
+        if (pc + 2 >= tac.size() || uses.getOrDefault(q, 0) != 1) return null;
+        TacInstruction mul = rename(tac.get(pc + 1));
+        TacInstruction sub = rename(tac.get(pc + 2));
+        if (mul.getOpcode() != Opcode.MUL || sub.getOpcode() != Opcode.SUB) return null;
+        String[] m = mul.getArgs();
+        String[] s = sub.getArgs();
+        boolean product = (m[1].equals(q) && m[2].equals(y)) || (m[1].equals(y) && m[2].equals(q));
+        if (!product || uses.getOrDefault(m[0], 0) != 1 || !single(m[0]) || !single(s[0])
+                || !s[1].equals(x) || !s[2].equals(m[0])) {
+            return null;
+        }
+        return s[0];
+    }
+
+    /* ------------ Registradores ------------ */
+
+    /** LOADI d, v, e d passa a ser constante no bloco. */
+    private void load(String d, int v) {
+        code.add(new TacInstruction(Opcode.LOADI, ConstantPool.Constant.of(v), d, Integer.toString(v)));
+        constant(d, v);
+    }
+
+    private void constant(String reg, int v) {
+        consts.put(reg, v);
+        regOfConst.putIfAbsent(v, reg);
+    }
+
+    /** Registrador com a constante v no bloco (um LOADI novo se ainda não houver). */
+    private String constReg(int v) {
+        String r = regOfConst.get(v);
+        if (r != null) return r;
+        r = newReg();
+        load(r, v);
+        return r;
+    }
+
+    /** op em um registrador novo. */
+    private String emit(Opcode op, String b, String c) {
+        String r = newReg();
+        code.add(new TacInstruction(op, r, b, c));
+        return r;
+    }
+
+    private String newReg() {
+        String r = "R" + nextReg++;
+        defs.put(r, 1);
+        return r;
+    }
+
+    private boolean single(String reg) {
+        return defs.getOrDefault(reg, 0) == 1;
+    }
+
+    private TacInstruction rename(TacInstruction ti) {
+        String[] a = ti.getArgs();
+        String[] renamed = null;
+        for (int i = 0; i < a.length; i++) {
+            String to = alias.get(a[i]);
+            if (to != null) {
+                if (renamed == null) renamed = a.clone();
+                renamed[i] = to;
+            }
+        }
+        return renamed != null ? ti.withArgs(renamed) : ti;
+    }
+
+    private void clearBlock() {
+        consts.clear();
+        regOfConst.clear();
+        sums.clear();
+        products.clear();
+        loaded.clear();
+    }
+
+    private static boolean definesRegister(Opcode op) {
+        return switch (op) {
+            case STORE, LABEL, JMP, JMPFALSE, JMPTRUE, JGT, JLT, JGE, JLE, JEQ, JNE,
+                 JGTI, JLTI, JGEI, JLEI, JEQI, JNEI,
+                 IJGT, IJLT, IJGE, IJLE, IJEQ, IJNE, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> false;
+            default -> true;
+        };
+    }
+
+    /** Tira as definições sem efeito colateral cujo registrador ficou sem uso. */
+    private void removeDeadDefs() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Map<String, Integer> count = new HashMap<>();
+            for (TacInstruction ti : code) {
+                String[] a = ti.getArgs();
+                for (int i = definesRegister(ti.getOpcode()) ? 1 : 0; i < a.length; i++) {
+                    if (Loops.reg(a[i]) >= 0) count.merge(a[i], 1, Integer::sum);
+                }
+            }
+            for (int pc = code.size() - 1; pc >= 0; pc--) {
+                TacInstruction ti = code.get(pc);
+                switch (ti.getOpcode()) {
+                    case LOAD, LOADI, ADD, SUB, MUL, IADD, ISUB, IMUL, SHL, SHR, AND, MULH -> {
+                        String r = ti.getArgs()[0];
+                        if (single(r) && !count.containsKey(r)) {
+                            code.remove(pc);
+                            changed = true;
+                        }
+                    }
+                    default -> { }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package br.com.mlp.compiler.opt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.dataflow.BitSets;
+import br.com.mlp.compiler.dataflow.DataflowProblem;
+import br.com.mlp.compiler.dataflow.TacFlowGraph;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Eliminação de atribuições mortas no TAC.
+ *
+ * Variáveis vivas são calculadas por uma análise para trás (união) sobre
+ * os blocos básicos ({@link TacFlowGraph}): um bloco usa as variáveis que
+ * carrega (LOAD) antes de atribuir e mata as que atribui (STORE). Na saída
+ * do programa estão vivas as variáveis observadas: todas as declaradas
+ * (menos as temporárias das otimizações), ou só as escolhidas.
+ *
+ * Cada bloco é então percorrido de trás para frente: um STORE numa
+ * variável que não está viva sai, e com ele a cadeia de instruções que
+ * só calculava o valor guardado (registrador sem uso depois da definição).
+ * Remover um LOAD pode matar atribuições anteriores, então o processo se
+ * repete até não remover mais nada.
+ *
+ * Ficam sempre: saltos e rótulos, DIV, IDIV e IMOD (a divisão inteira por
+ * zero é um erro de execução que precisa continuar acontecendo) e os
+ * registradores usados fora do bloco em que foram definidos.
+ */
+public final class DeadStoreElimination {
+
+    public record Result(List<TacInstruction> tac, int removedStores, int removedInstructions) {
+    }
+
+    private final Map<String, Integer> bitOf = new HashMap<>();
+    private final long[] observed;
+
+    /** @param observed variáveis cujo valor final interessa; null = todas as declaradas */
+    public DeadStoreElimination(SymbolTable symbols, Collection<String> observed) {
+        for (SymbolTable.Entry e : symbols.all()) {
+            bitOf.put(e.name, bitOf.size());
+        }
+        this.observed = BitSets.create(bitOf.size());
+        if (observed == null) {
+            for (SymbolTable.Entry e : symbols.all()) {
+                if (!e.temporaria) BitSets.set(this.observed, bitOf.get(e.name));
+            }
+        } else {
+            for (String name : observed) {
+                Integer bit = bitOf.get(name);
+                if (bit == null) {
+                    throw new IllegalArgumentException("variável observada não declarada: " + name);
+                }
+                BitSets.set(this.observed, bit);
+            }
+        }
+    }
+
+    public Result run(List<TacInstruction> tac) {
+        List<TacInstruction> current = tac;
+        int stores = 0;
+        int total = 0;
+        while (true) {
+            boolean[] removed = new boolean[current.size()];
+            stores += pass(current, removed);
+            int count = 0;
+            for (boolean r : removed) if (r) count++;
+            if (count == 0) break;
+            total += count;
+            List<TacInstruction> next = new ArrayList<>(current.size() - count);
+            for (int pc = 0; pc < current.size(); pc++) {
+                if (!removed[pc]) next.add(current.get(pc));
+            }
+            current = next;
+        }
+        return new Result(current, stores, total);
+    }
+
+    /** Marca as instruções mortas; devolve quantos STOREs saíram. */
+    private int pass(List<TacInstruction> tac, boolean[] removed) {
+        TacFlowGraph cfg = TacFlowGraph.build(tac);
+        int blocks = cfg.blockCount();
+        int vars = bitOf.size();
+
+        // registradores vistos em mais de um bloco ficam sempre vivos
+        Map<Integer, Integer> regBlock = new HashMap<>();
+        int maxReg = 0;
+        for (int b = 0; b < blocks; b++) {
+            for (int pc = cfg.start(b); pc < cfg.end(b); pc++) {
+                for (String arg : tac.get(pc).getArgs()) {
+                    int r = reg(arg);
+                    if (r < 0) continue;
+                    maxReg = Math.max(maxReg, r);
+                    Integer seen = regBlock.putIfAbsent(r, b);
+                    if (seen != null && seen != b) regBlock.put(r, -1);
+                }
+            }
+        }
+        long[] global = BitSets.create(maxReg + 1);
+        regBlock.forEach((r, b) -> {
+            if (b < 0) BitSets.set(global, r);
+        });
+
+        // variáveis vivas
+        DataflowProblem live = new DataflowProblem(cfg.graph(), vars,
+                DataflowProblem.Direction.BACKWARD, DataflowProblem.Meet.UNION);
+        live.setBoundary(observed);
+        for (int b = 0; b < blocks; b++) {
+            long[] use = live.gen(b);
+            long[] def = live.kill(b);
+            for (int pc = cfg.start(b); pc < cfg.end(b); pc++) {
+                TacInstruction ti = tac.get(pc);
+                switch (ti.getOpcode()) {
+                    case LOAD -> {
+                        int v = var(ti.getArgs()[1]);
+                        if (v >= 0 && !BitSets.get(def, v)) BitSets.set(use, v);
+                    }
+                    case STORE -> {
+                        int v = var(ti.getArgs()[0]);
+                        if (v >= 0) BitSets.set(def, v);
+                    }
+                    default -> { }
+                }
+            }
+        }
+        DataflowProblem.Solution s = live.solve();
+
+        // remoção, bloco a bloco, de trás para frente
+        int stores = 0;
+        long[] liveRegs = BitSets.create(maxReg + 1);
+        for (int b = 0; b < blocks; b++) {
+            long[] liveVars = s.out()[b].clone();
+            Arrays.fill(liveRegs, 0L);
+            BitSets.or(liveRegs, global);
+            for (int pc = cfg.end(b) - 1; pc >= cfg.start(b); pc--) {
+                TacInstruction ti = tac.get(pc);
+                String[] a = ti.getArgs();
+                switch (ti.getOpcode()) {
+                    case STORE -> {
+                        int v = var(a[0]);
+                        if (v >= 0 && !BitSets.get(liveVars, v)) {
+                            removed[pc] = true;
+                            stores++;
+                        } else {
+                            if (v >= 0) BitSets.clear(liveVars, v);
+                            use(liveRegs, a[1]);
+                        }
+                    }
+                    case LOAD -> {
+                        if (!defines(liveRegs, global, a[0])) {
+                            removed[pc] = true;
+                        } else {
+                            int v = var(a[1]);
+                            if (v >= 0) BitSets.set(liveVars, v);
+                        }
+                    }
+                    case LOADI -> removed[pc] = !defines(liveRegs, global, a[0]);
+                    case ADD, SUB, MUL, IADD, ISUB, IMUL, RADD, RSUB, RMUL, RDIV, RMOD, SHL, SHR, AND, MULH -> {
+                        if (!defines(liveRegs, global, a[0])) {
+                            removed[pc] = true;
+                        } else {
+                            use(liveRegs, a[1]);
+                            use(liveRegs, a[2]);
+                        }
+                    }
+                    case I2R -> {
+                        if (!defines(liveRegs, global, a[0])) {
+                            removed[pc] = true;
+                        } else {
+                            use(liveRegs, a[1]);
+                        }
+                    }
+                    case ADDI, SUBI -> {
+                        if (!defines(liveRegs, global, a[0])) {
+                            removed[pc] = true;
+                        } else {
+                            use(liveRegs, a[0]);
+                        }
+                    }
+                    case CMPGT, CMPLT, CMPGE, CMPLE, CMPEQ, CMPNE -> {
+                        if (!defines(liveRegs, global, a[0])) {
+                            removed[pc] = true;
+                        } else {
+                            use(liveRegs, a[0]);
+                            use(liveRegs, a[1]);
+                        }
+                    }
+                    case DIV, IDIV, IMOD -> {
+                        defines(liveRegs, global, a[0]);
+                        use(liveRegs, a[1]);
+                        use(liveRegs, a[2]);
+                    }
+                    default -> {
+                        // saltos e rótulos ficam, e tudo o que leem está vivo
+                        for (String arg : a) use(liveRegs, arg);
+                    }
+                }
+            }
+        }
+        return stores;
+    }
+
+    /**
+     * Definição do registrador: devolve se o valor é usado depois e o tira
+     * do conjunto de vivos (a partir daqui, para trás, é outro valor).
+     */
+    private static boolean defines(long[] liveRegs, long[] global, String arg) {
+        int r = reg(arg);
+        if (r < 0 || BitSets.get(global, r)) return true;
+        boolean used = BitSets.get(liveRegs, r);
+        BitSets.clear(liveRegs, r);
+        return used;
+    }
+
+    private static void use(long[] liveRegs, String arg) {
+        int r = reg(arg);
+        if (r >= 0) BitSets.set(liveRegs, r);
+    }
+
+    private int var(String name) {
+        Integer bit = bitOf.get(name);
+        return bit != null ? bit : -1;
+    }
+
+    private static int reg(String arg) {
+        if (arg.length() < 2 || arg.charAt(0) != 'R') return -1;
+        for (int i = 1; i < arg.length(); i++) {
+            if (!Character.isDigit(arg.charAt(i))) return -1;
+        }
+        return Integer.parseInt(arg.substring(1));
+    }
+}
@@ -0,0 +1,345 @@
+package br.com.mlp.compiler.opt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.dataflow.TacFlowGraph;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Desenrolamento de laços com número de voltas conhecido na compilação.
+ *
+ * O laço precisa ter a forma que o CodeGenerator gera para um enquanto de
+ * comparação simples: LABEL, teste v op L saltando para o rótulo logo
+ * depois do JMP de volta, e corpo sem desvios. v é inteira, recebe uma
+ * constante logo antes do laço e é atualizada uma vez no corpo com
+ * v = v + k; L é uma constante ou uma variável que só recebe essa
+ * constante (no início do programa, antes de qualquer desvio, ou 0).
+ *
+ * Com poucas voltas o laço some: o corpo é repetido N vezes, sem teste nem
+ * salto. Com mais voltas o corpo é repetido F vezes dentro do laço (o teste
+ * continua o mesmo, já que as voltas que sobram são sempre múltiplas de F)
+ * e as N mod F voltas restantes vão antes do cabeçalho. O crescimento do
+ * código por laço é limitado por {@link #MAX_GROWTH} instruções; F diminui
+ * até caber.
+ *
+ * Cada cópia do corpo ganha registradores novos. Os laços são tratados de
+ * dentro para fora: um laço interno desenrolado por completo pode deixar o
+ * externo sem desvios no corpo.
+ */
+public final class LoopUnroller {
+
+    public static final int DEFAULT_FACTOR = 4;
+    /** Até quantas voltas o laço é desenrolado por completo. */
+    public static final int MAX_FULL_TRIPS = 16;
+    /** Instruções de corpo que um laço pode ganhar. */
+    public static final int MAX_GROWTH = 256;
+
+    /** decisions: uma linha por laço, na ordem do programa. */
+    public record Result(List<TacInstruction> tac, int fullyUnrolled, int partiallyUnrolled, List<String> decisions) {
+    }
+
+    private final SymbolTable symbols;
+    private final int factor;
+
+    private List<TacInstruction> code;
+    private int nextReg;
+    private int full;
+    private int partial;
+
+    public LoopUnroller(SymbolTable symbols, int factor) {
+        if (factor < 2) {
+            throw new IllegalArgumentException("fator de desenrolamento deve ser pelo menos 2");
+        }
+        this.symbols = symbols;
+        this.factor = factor;
+    }
+
+    public Result run(List<TacInstruction> tac) {
+        code = new ArrayList<>(tac);
+        nextReg = Loops.nextRegister(code);
+        full = 0;
+        partial = 0;
+
+        List<String> headers = new ArrayList<>();
+        for (int pc = 0; pc < code.size(); pc++) {
+            if (code.get(pc).getOpcode() == Opcode.LABEL && Loops.backEdge(code, pc) >= 0) {
+                headers.add(code.get(pc).getArgs()[0]);
+            }
+        }
+        List<String> decisions = new ArrayList<>();
+        for (int i = headers.size() - 1; i >= 0; i--) {
+            String label = headers.get(i);
+            decisions.add("laço " + label + ": " + unroll(labelPc(label)));
+        }
+        Collections.reverse(decisions);
+        return new Result(List.copyOf(code), full, partial, List.copyOf(decisions));
+    }
+
+    /** Desenrola o laço do cabeçalho em header, se der; devolve a decisão. */
+    private String unroll(int header) {
+        int back = Loops.backEdge(code, header);
+        if (!Loops.singleEntry(code, header, back)) return "mantido (há saltos para dentro do laço)";
+
+        // cabeçalho: LABEL; até dois LOAD/LOADI; um salto para a saída
+        int test = header + 1;
+        while (test < back && (code.get(test).getOpcode() == Opcode.LOAD
+                || code.get(test).getOpcode() == Opcode.LOADI)) {
+            test++;
+        }
+        TacInstruction jump = code.get(test);
+        if (test > header + 3 || !TacFlowGraph.isJump(jump.getOpcode()) || jump.getOpcode() == Opcode.JMP) {
+            return "mantido (condição composta)";
+        }
+        if (back + 1 >= code.size() || code.get(back + 1).getOpcode() != Opcode.LABEL
+                || !code.get(back + 1).getArgs()[0].equals(Loops.target(jump))) {
+            return "mantido (condição composta)";
+        }
+        for (int pc = test + 1; pc < back; pc++) {
+            Opcode op = code.get(pc).getOpcode();
+            if (op == Opcode.LABEL || TacFlowGraph.isJump(op)) return "mantido (corpo com desvios)";
+        }
+
+        Bound bound = bound(jump, test);
+        if (bound == null) return "mantido (condição não compara variável e constante)";
+        String v = bound.variable();
+
+        int update = -1;
+        for (int pc = test + 1; pc < back; pc++) {
+            TacInstruction ti = code.get(pc);
+            if (ti.getOpcode() != Opcode.STORE) continue;
+            if (ti.getArgs()[0].equals(bound.limitVariable())) return "mantido (limite muda no laço)";
+            if (!ti.getArgs()[0].equals(v)) continue;
+            if (update >= 0) return "mantido (" + v + " muda mais de uma vez por volta)";
+            update = pc;
+        }
+        SymbolTable.Entry e = symbols.lookup(v);
+        Integer delta = update >= 0 ? Loops.increment(code, v, update) : null;
+        if (e == null || e.type != Type.INTEIRO || delta == null) {
+            return "mantido (" + v + " não é variável de indução)";
+        }
+        Long start = Loops.initialValue(code, v, header);
+        if (start == null) return "mantido (valor inicial de " + v + " desconhecido)";
+        Long trips = trips(bound.continueOp(), start, bound.limit(), delta);
+        if (trips == null) return "mantido (número de voltas desconhecido)";
+
+        List<TacInstruction> body = new ArrayList<>(code.subList(test + 1, back));
+        if (!selfContained(body)) return "mantido (registrador vivo entre voltas)";
+        int size = Math.max(body.size(), 1);
+        int n = (int) (long) trips;
+
+        if (n <= MAX_FULL_TRIPS && (long) n * size <= MAX_GROWTH) {
+            List<TacInstruction> out = copies(body, n);
+            code.subList(header, back + 1).clear();
+            code.addAll(header, out);
+            removeIfUnused(header + out.size());
+            full++;
+            return "desenrolado por completo (" + n + " volta(s))";
+        }
+        int f = factor;
+        while (f >= 2 && (long) (f + n % f) * size > MAX_GROWTH) f--;
+        if (f < 2 || n < f) return "mantido (corpo grande demais: " + body.size() + " instruções)";
+
+        int rest = n % f;
+        List<TacInstruction> unrolled = copies(body, f);
+        code.subList(test + 1, back).clear();
+        code.addAll(test + 1, unrolled);
+        code.addAll(header, copies(body, rest));
+        partial++;
+        return "desenrolado por " + f + " (" + n + " voltas, " + rest + " antes do laço)";
+    }
+
+    /* ------------ Condição ------------ */
+
+    /** Teste de permanência v op limite; limitVariable é null se o limite é literal. */
+    private record Bound(String variable, Opcode continueOp, long limit, String limitVariable) {
+    }
+
+    private Bound bound(TacInstruction jump, int test) {
+        String[] a = jump.getArgs();
+        Opcode exitOp = Loops.generic(jump.getOpcode());
+        TacInstruction left = Loops.def(code, test, a[0]);
+        if (left == null || left.getOpcode() != Opcode.LOAD) {
+            // (L op v): só a forma com dois registradores
+            if (a.length != 3 || left == null) return null;
+            TacInstruction right = Loops.def(code, test, a[1]);
+            if (right == null || right.getOpcode() != Opcode.LOAD) return null;
+            Long k = Loops.intConst(left) != null ? Long.valueOf(Loops.intConst(left)) : null;
+            if (k == null) return null;
+            return new Bound(right.getArgs()[1], negate(Loops.mirror(exitOp)), k, null);
+        }
+        String v = left.getArgs()[1];
+        if (isImmediate(exitOp) && Loops.immediate(jump) != null) {
+            return new Bound(v, negate(exitOp), Loops.immediate(jump), null);
+        }
+        TacInstruction right = Loops.def(code, test, a[1]);
+        if (right == null) return null;
+        if (Loops.intConst(right) != null) {
+            return new Bound(v, negate(exitOp), Loops.intConst(right), null);
+        }
+        if (right.getOpcode() != Opcode.LOAD) return null;
+        String limitVar = right.getArgs()[1];
+        Long known = constantValue(limitVar);
+        if (known != null) return new Bound(v, negate(exitOp), known, limitVar);
+        // talvez o contador esteja à direita e o limite à esquerda
+        Long leftKnown = constantValue(v);
+        if (leftKnown != null) return new Bound(limitVar, negate(Loops.mirror(exitOp)), leftKnown, v);
+        return null;
+    }
+
+    /**
+     * Valor de uma variável que só recebe uma mesma constante, se ela vale
+     * em qualquer ponto: ou a constante é 0 (o valor inicial) ou a única
+     * atribuição vem antes de qualquer rótulo ou salto do programa.
+     */
+    private Long constantValue(String var) {
+        Integer value = null;
+        boolean straight = true;
+        boolean first = true;
+        boolean early = false;
+        for (int pc = 0; pc < code.size(); pc++) {
+            TacInstruction ti = code.get(pc);
+            Opcode op = ti.getOpcode();
+            if (op == Opcode.LABEL || TacFlowGraph.isJump(op)) straight = false;
+            if (op != Opcode.STORE || !ti.getArgs()[0].equals(var)) continue;
+            TacInstruction k = Loops.def(code, pc, ti.getArgs()[1]);
+            Integer c = k != null ? Loops.intConst(k) : null;
+            if (c == null || (value != null && !value.equals(c))) return null;
+            if (first) early = straight;
+            first = false;
+            value = c;
+        }
+        if (value == null) return 0L;
+        return value == 0 || early ? Long.valueOf(value) : null;
+    }
+
+    /**
+     * Voltas de "enquanto (v op limite) v = v + k" a partir de start, ou null
+     * se o laço não termina sem estouro.
+     */
+    static Long trips(Opcode continueOp, long start, long limit, long k) {
+        long n;
+        switch (continueOp) {
+            case JLT, JLTI -> {
+                if (start >= limit) return 0L;
+                if (k <= 0) return null;
+                n = (limit - start + k - 1) / k;
+            }
+            case JLE, JLEI -> {
+                if (start > limit) return 0L;
+                if (k <= 0) return null;
+                n = (limit - start) / k + 1;
+            }
+            case JGT, JGTI -> {
+                if (start <= limit) return 0L;
+                if (k >= 0) return null;
+                n = (start - limit - k - 1) / -k;
+            }
+            case JGE, JGEI -> {
+                if (start < limit) return 0L;
+                if (k >= 0) return null;
+                n = (start - limit) / -k + 1;
+            }
+            case JNE, JNEI -> {
+                if (start == limit) return 0L;
+                if (k == 0 || (limit - start) % k != 0 || (limit - start) / k < 0) return null;
+                n = (limit - start) / k;
+            }
+            case JEQ, JEQI -> {
+                if (start != limit) return 0L;
+                if (k == 0) return null;
+                n = 1;
+            }
+            default -> {
+                return null;
+            }
+        }
+        return Loops.fits(start + n * k) && n <= Integer.MAX_VALUE ? n : null;
+    }
+
+    private static boolean isImmediate(Opcode op) {
+        return switch (op) {
+            case JGTI, JLTI, JGEI, JLEI, JEQI, JNEI -> true;
+            default -> false;
+        };
+    }
+
+    /** Condição oposta do salto (o salto é a saída; o laço continua na oposta). */
+    private static Opcode negate(Opcode op) {
+        return switch (op) {
+            case JGT -> Opcode.JLE;
+            case JLE -> Opcode.JGT;
+            case JLT -> Opcode.JGE;
+            case JGE -> Opcode.JLT;
+            case JEQ -> Opcode.JNE;
+            case JNE -> Opcode.JEQ;
+            case JGTI -> Opcode.JLEI;
+            case JLEI -> Opcode.JGTI;
+            case JLTI -> Opcode.JGEI;
+            case JGEI -> Opcode.JLTI;
+            case JEQI -> Opcode.JNEI;
+            case JNEI -> Opcode.JEQI;
+            default -> op;
+        };
+    }
+
+    /* ------------ Cópias ------------ */
+
+    /** Todo registrador do corpo é definido nele antes do primeiro uso. */
+    private static boolean selfContained(List<TacInstruction> body) {
+        Set<String> defined = new HashSet<>();
+        for (TacInstruction ti : body) {
+            String[] a = ti.getArgs();
+            boolean pureDef = switch (ti.getOpcode()) {
+                case LOAD, LOADI, ADD, SUB, MUL, DIV, IADD, ISUB, IMUL, IDIV, IMOD,
+                     RADD, RSUB, RMUL, RDIV, RMOD, I2R, SHL, SHR, AND, MULH -> true;
+                default -> false;
+            };
+            for (int i = pureDef ? 1 : 0; i < a.length; i++) {
+                if (Loops.reg(a[i]) >= 0 && !defined.contains(a[i])) return false;
+            }
+            if (pureDef) defined.add(a[0]);
+        }
+        return true;
+    }
+
+    private List<TacInstruction> copies(List<TacInstruction> body, int times) {
+        List<TacInstruction> out = new ArrayList<>(body.size() * times);
+        for (int t = 0; t < times; t++) {
+            Map<String, String> rename = new HashMap<>();
+            for (TacInstruction ti : body) {
+                String[] a = ti.getArgs().clone();
+                for (int i = 0; i < a.length; i++) {
+                    if (Loops.reg(a[i]) >= 0) a[i] = rename.computeIfAbsent(a[i], r -> "R" + nextReg++);
+                }
+                out.add(ti.withArgs(a));
+            }
+        }
+        return out;
+    }
+
+    private void removeIfUnused(int labelPc) {
+        if (labelPc >= code.size() || code.get(labelPc).getOpcode() != Opcode.LABEL) return;
+        String label = code.get(labelPc).getArgs()[0];
+        for (TacInstruction ti : code) {
+            if (TacFlowGraph.isJump(ti.getOpcode()) && Loops.target(ti).equals(label)) return;
+        }
+        code.remove(labelPc);
+    }
+
+    private int labelPc(String label) {
+        for (int pc = 0; pc < code.size(); pc++) {
+            TacInstruction ti = code.get(pc);
+            if (ti.getOpcode() == Opcode.LABEL && ti.getArgs()[0].equals(label)) return pc;
+        }
+        throw new IllegalStateException("rótulo sumiu: " + label);
+    }
+}
@@ -0,0 +1,178 @@
+package br.com.mlp.compiler.opt;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import br.com.mlp.compiler.ast.ConstantPool;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.dataflow.TacFlowGraph;
+
+/**
+ * Consultas sobre laços do TAC usadas pelas otimizações de laço. Um laço é
+ * a região entre o LABEL do cabeçalho e o último JMP de volta a ele.
+ */
+final class Loops {
+
+    private Loops() {
+    }
+
+    /** pc do último JMP de volta ao rótulo do cabeçalho, ou -1. */
+    static int backEdge(List<TacInstruction> code, int header) {
+        String label = code.get(header).getArgs()[0];
+        for (int pc = code.size() - 1; pc > header; pc--) {
+            TacInstruction ti = code.get(pc);
+            if (ti.getOpcode() == Opcode.JMP && ti.getArgs()[0].equals(label)) return pc;
+        }
+        return -1;
+    }
+
+    /** Nenhum salto de fora da região cai dentro dela (nem no cabeçalho). */
+    static boolean singleEntry(List<TacInstruction> code, int header, int back) {
+        Set<String> inside = new HashSet<>();
+        for (int pc = header; pc <= back; pc++) {
+            if (code.get(pc).getOpcode() == Opcode.LABEL) inside.add(code.get(pc).getArgs()[0]);
+        }
+        for (int pc = 0; pc < code.size(); pc++) {
+            if (pc > header && pc <= back) continue;
+            TacInstruction ti = code.get(pc);
+            if (TacFlowGraph.isJump(ti.getOpcode()) && inside.contains(target(ti))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Rótulo de destino de um salto. */
+    static String target(TacInstruction jump) {
+        String[] a = jump.getArgs();
+        return a[a.length - 1];
+    }
+
+    /** Definição de reg mais próxima antes de pc, no mesmo bloco básico, ou null. */
+    static TacInstruction def(List<TacInstruction> code, int pc, String reg) {
+        for (int p = pc - 1; p >= 0; p--) {
+            TacInstruction ti = code.get(p);
+            Opcode op = ti.getOpcode();
+            if (op == Opcode.LABEL || TacFlowGraph.isJump(op)) return null;
+            if (op != Opcode.STORE && ti.getArgs()[0].equals(reg)) return ti;
+        }
+        return null;
+    }
+
+    static boolean storedBetween(List<TacInstruction> code, String v, int from, int to) {
+        for (int pc = from + 1; pc < to; pc++) {
+            TacInstruction ti = code.get(pc);
+            if (ti.getOpcode() == Opcode.STORE && ti.getArgs()[0].equals(v)) return true;
+        }
+        return false;
+    }
+
+    /** delta se o STORE em pc é v = v + delta (ou v - k), senão null. */
+    static Integer increment(List<TacInstruction> code, String v, int pc) {
+        TacInstruction op = def(code, pc, code.get(pc).getArgs()[1]);
+        Opcode kind = op != null ? generic(op.getOpcode()) : null;
+        if (kind != Opcode.ADD && kind != Opcode.SUB) return null;
+        int opPc = code.indexOf(op);
+        TacInstruction left = def(code, opPc, op.getArgs()[1]);
+        TacInstruction right = def(code, opPc, op.getArgs()[2]);
+        if (left == null || right == null) return null;
+        if (kind == Opcode.ADD && isLoadOf(right, v) && intConst(left) != null) {
+            TacInstruction swap = left;
+            left = right;
+            right = swap;
+        }
+        if (!isLoadOf(left, v) || intConst(right) == null || storedBetween(code, v, code.indexOf(left), pc)) {
+            return null;
+        }
+        int k = intConst(right);
+        return kind == Opcode.ADD ? k : -k;
+    }
+
+    /** Constante atribuída a v no mesmo bloco, logo antes do cabeçalho, ou null. */
+    static Long initialValue(List<TacInstruction> code, String v, int header) {
+        for (int pc = header - 1; pc >= 0; pc--) {
+            TacInstruction ti = code.get(pc);
+            if (ti.getOpcode() == Opcode.LABEL || TacFlowGraph.isJump(ti.getOpcode())) return null;
+            if (ti.getOpcode() == Opcode.STORE && ti.getArgs()[0].equals(v)) {
+                TacInstruction k = def(code, pc, ti.getArgs()[1]);
+                Integer value = k != null ? intConst(k) : null;
+                return value != null ? Long.valueOf(value) : null;
+            }
+        }
+        return null;
+    }
+
+    static boolean isLoadOf(TacInstruction ti, String v) {
+        return ti.getOpcode() == Opcode.LOAD && ti.getArgs()[1].equals(v);
+    }
+
+    /** Valor do LOADI de uma constante inteira, senão null. */
+    static Integer intConst(TacInstruction ti) {
+        return ti.getOpcode() == Opcode.LOADI ? immediate(ti) : null;
+    }
+
+    /** Operando imediato inteiro (LOADI, ADDI/SUBI, JxxI), ou null se real ou ausente. */
+    static Integer immediate(TacInstruction ti) {
+        ConstantPool.Constant c = ti.getConstant();
+        return c == null || c.real || c.overflow ? null : c.intValue;
+    }
+
+    /**
+     * Opcode sem tipo equivalente a um inteiro do TAC tipado (IADD -> ADD,
+     * IJLT -> JLT), para que os padrões valham nos dois; os demais voltam
+     * como estão.
+     */
+    static Opcode generic(Opcode op) {
+        return switch (op) {
+            case IADD -> Opcode.ADD;
+            case ISUB -> Opcode.SUB;
+            case IMUL -> Opcode.MUL;
+            case IDIV -> Opcode.DIV;
+            case IJGT -> Opcode.JGT;
+            case IJLT -> Opcode.JLT;
+            case IJGE -> Opcode.JGE;
+            case IJLE -> Opcode.JLE;
+            case IJEQ -> Opcode.JEQ;
+            case IJNE -> Opcode.JNE;
+            default -> op;
+        };
+    }
+
+    /** Salto com os operandos trocados: a op b == b mirror(op) a. */
+    static Opcode mirror(Opcode op) {
+        return switch (op) {
+            case JGT -> Opcode.JLT;
+            case JLT -> Opcode.JGT;
+            case JGE -> Opcode.JLE;
+            case JLE -> Opcode.JGE;
+            case JGTI -> Opcode.JLTI;
+            case JLTI -> Opcode.JGTI;
+            case JGEI -> Opcode.JLEI;
+            case JLEI -> Opcode.JGEI;
+            default -> op;
+        };
+    }
+
+    static boolean fits(long x) {
+        return x >= Integer.MIN_VALUE && x <= Integer.MAX_VALUE;
+    }
+
+    /** Maior número de registrador usado no TAC + 1. */
+    static int nextRegister(List<TacInstruction> code) {
+        int next = 1;
+        for (TacInstruction ti : code) {
+            for (String arg : ti.getArgs()) next = Math.max(next, reg(arg) + 1);
+        }
+        return next;
+    }
+
+    static int reg(String arg) {
+        if (arg.length() < 2 || arg.charAt(0) != 'R') return -1;
+        for (int i = 1; i < arg.length(); i++) {
+            if (!Character.isDigit(arg.charAt(i))) return -1;
+        }
+        return Integer.parseInt(arg.substring(1));
+    }
+}
@@ -0,0 +1,312 @@
+package br.com.mlp.compiler.opt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.mlp.compiler.ast.ConstantPool;
+import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Variáveis de indução e redução de força nos laços do TAC.
+ *
+ * Um laço é a região entre o LABEL do cabeçalho e o JMP de volta a ele,
+ * desde que só se entre nela pelo cabeçalho. Uma variável inteira é de
+ * indução básica no laço se toda atribuição a ela dentro da região é da
+ * forma v = v + k ou v = v - k, com k constante.
+ *
+ * Cada multiplicação v * c (c constante) dentro do laço passa a ler uma
+ * variável temporária t = v * c: t é calculada uma vez antes do cabeçalho
+ * e recebe t = t + k * c logo depois de cada atribuição a v. A aritmética
+ * inteira dá a volta em 32 bits, então t continua igual a v * c mesmo com
+ * estouro.
+ *
+ * Se depois disso v só é lida pelo teste de saída e pela própria
+ * atualização, e ninguém a lê fora do laço nem a observa (ver
+ * {@link DeadStoreElimination}), o teste v op K vira t op K * c e a
+ * atualização de v sai. Isso exige saber o valor inicial de v (uma
+ * constante atribuída logo antes do laço) e que nenhum dos valores
+ * envolvidos estoure ao multiplicar por c.
+ *
+ * RESTO e divisões pela variável de indução não são afins nela e ficam
+ * como estão.
+ */
+public final class StrengthReduction {
+
+    public record Result(List<TacInstruction> tac, int reducedMultiplications, int replacedTests) {
+    }
+
+    /** Atribuição v = v + delta dentro do laço. */
+    private record Update(int storePc, int delta) {
+    }
+
+    private final SymbolTable symbols;
+    private final Set<String> observed; // null = todas as variáveis do programa
+
+    private List<TacInstruction> code;
+    private int nextReg;
+    private int multiplications;
+    private Opcode mul = Opcode.MUL;
+    private int tests;
+
+    /** @param observed variáveis cujo valor final interessa; null = todas as declaradas */
+    public StrengthReduction(SymbolTable symbols, Collection<String> observed) {
+        this.symbols = symbols;
+        this.observed = observed != null ? new HashSet<>(observed) : null;
+        if (observed != null) {
+            for (String name : observed) {
+                if (symbols.lookup(name) == null) {
+                    throw new IllegalArgumentException("variável observada não declarada: " + name);
+                }
+            }
+        }
+    }
+
+    public Result run(List<TacInstruction> tac) {
+        code = new ArrayList<>(tac);
+        nextReg = Loops.nextRegister(code);
+        multiplications = 0;
+        tests = 0;
+
+        // laços externos antes dos internos; o cabeçalho anda quando o
+        // pré-cabeçalho é inserido, e o rótulo já visto não é refeito
+        Set<String> done = new HashSet<>();
+        for (int pc = 0; pc < code.size(); pc++) {
+            TacInstruction ti = code.get(pc);
+            if (ti.getOpcode() != Opcode.LABEL || !done.add(ti.getArgs()[0])) continue;
+            int back = Loops.backEdge(code, pc);
+            if (back >= 0 && Loops.singleEntry(code, pc, back)) {
+                reduce(pc, back);
+            }
+        }
+        return new Result(List.copyOf(code), multiplications, tests);
+    }
+
+    /* ------------ Laço ------------ */
+
+    private void reduce(int header, int back) {
+        Map<String, List<Update>> ivs = inductionVariables(header, back);
+        if (ivs.isEmpty()) return;
+
+        // multiplicações v * c -> LOAD t (uma temporária por par v, c)
+        Map<String, Map<Integer, SymbolTable.Entry>> temps = new LinkedHashMap<>();
+        for (int pc = header; pc <= back; pc++) {
+            TacInstruction ti = code.get(pc);
+            if (Loops.generic(ti.getOpcode()) != Opcode.MUL) continue;
+            mul = ti.getOpcode(); // IMUL no TAC tipado
+            String[] a = ti.getArgs();
+            for (int side = 1; side <= 2; side++) {
+                TacInstruction load = Loops.def(code, pc, a[side]);
+                TacInstruction k = Loops.def(code, pc, a[3 - side]);
+                if (load == null || k == null || load.getOpcode() != Opcode.LOAD
+                        || !ivs.containsKey(load.getArgs()[1]) || Loops.intConst(k) == null
+                        || Loops.storedBetween(code, load.getArgs()[1], code.indexOf(load), pc)) {
+                    continue;
+                }
+                String v = load.getArgs()[1];
+                int c = Loops.intConst(k);
+                SymbolTable.Entry t = temps.computeIfAbsent(v, x -> new LinkedHashMap<>())
+                        .computeIfAbsent(c, x -> symbols.declareTemporary(v, Type.INTEIRO));
+                code.set(pc, new TacInstruction(Opcode.LOAD, t.id, a[0], t.name));
+                multiplications++;
+                break;
+            }
+        }
+        if (temps.isEmpty()) return;
+
+        // t = t + delta * c depois de cada atribuição a v (de trás para frente)
+        List<int[]> points = new ArrayList<>(); // {storePc, delta, índice da variável}
+        List<String> vars = new ArrayList<>(temps.keySet());
+        for (int i = 0; i < vars.size(); i++) {
+            for (Update u : ivs.get(vars.get(i))) points.add(new int[] {u.storePc(), u.delta(), i});
+        }
+        points.sort((x, y) -> Integer.compare(y[0], x[0]));
+        for (int[] p : points) {
+            List<TacInstruction> step = new ArrayList<>();
+            for (Map.Entry<Integer, SymbolTable.Entry> e : temps.get(vars.get(p[2])).entrySet()) {
+                int inc = p[1] * e.getKey();
+                if (inc == 0) continue;
+                SymbolTable.Entry t = e.getValue();
+                String r = newReg();
+                step.add(new TacInstruction(Opcode.LOAD, t.id, r, t.name));
+                step.add(new TacInstruction(Opcode.ADDI, ConstantPool.Constant.of(inc), r, Integer.toString(inc)));
+                step.add(new TacInstruction(Opcode.STORE, t.id, t.name, r));
+            }
+            code.addAll(p[0] + 1, step);
+            back += step.size();
+        }
+        back -= removeDeadDefs(header, back);
+
+        ivs = inductionVariables(header, back); // os pcs das atribuições andaram
+        for (String v : vars) {
+            if (replaceExitTest(v, ivs.get(v), temps.get(v), header, back)) {
+                back--;
+                back -= removeDeadDefs(header, back);
+                break; // o cabeçalho tem um teste só
+            }
+        }
+
+        // pré-cabeçalho: t = v * c
+        List<TacInstruction> pre = new ArrayList<>();
+        temps.forEach((v, byFactor) -> byFactor.forEach((c, t) -> {
+            SymbolTable.Entry ve = symbols.lookup(v);
+            String rv = newReg();
+            String rc = newReg();
+            String rt = newReg();
+            pre.add(new TacInstruction(Opcode.LOAD, ve.id, rv, v));
+            pre.add(new TacInstruction(Opcode.LOADI, ConstantPool.Constant.of(c), rc, Integer.toString(c)));
+            pre.add(new TacInstruction(mul, rt, rv, rc));
+            pre.add(new TacInstruction(Opcode.STORE, t.id, t.name, rt));
+        }));
+        code.addAll(header, pre);
+    }
+
+    /**
+     * Variáveis de indução básicas da região, com as atribuições de cada
+     * uma. Fica de fora qualquer variável com alguma atribuição de outra
+     * forma na região.
+     */
+    private Map<String, List<Update>> inductionVariables(int header, int back) {
+        Map<String, List<Update>> ivs = new LinkedHashMap<>();
+        Set<String> other = new HashSet<>();
+        for (int pc = header; pc <= back; pc++) {
+            TacInstruction ti = code.get(pc);
+            if (ti.getOpcode() != Opcode.STORE) continue;
+            String v = ti.getArgs()[0];
+            Integer delta = Loops.increment(code, v, pc);
+            SymbolTable.Entry e = symbols.lookup(v);
+            if (delta == null || e == null || e.type != Type.INTEIRO) {
+                other.add(v);
+            } else {
+                ivs.computeIfAbsent(v, x -> new ArrayList<>()).add(new Update(pc, delta));
+            }
+        }
+        ivs.keySet().removeAll(other);
+        return ivs;
+    }
+
+    /* ------------ Teste de saída ------------ */
+
+    /**
+     * Troca o teste v op K do cabeçalho por t op' K * c e tira a atualização
+     * de v, quando v fica sem outro uso.
+     */
+    private boolean replaceExitTest(String v, List<Update> updates, Map<Integer, SymbolTable.Entry> byFactor,
+                                    int header, int back) {
+        if (updates.size() != 1 || (observed == null || observed.contains(v))) return false;
+        // cabeçalho: LABEL; LOAD R, v; JxxI R, K, saída
+        if (header + 2 > back) return false;
+        TacInstruction load = code.get(header + 1);
+        TacInstruction jump = code.get(header + 2);
+        if (!Loops.isLoadOf(load, v) || !isImmediateJump(jump.getOpcode())
+                || !jump.getArgs()[0].equals(load.getArgs()[0]) || Loops.immediate(jump) == null) {
+            return false;
+        }
+        String exit = jump.getArgs()[2];
+        if (back + 1 >= code.size() || code.get(back + 1).getOpcode() != Opcode.LABEL
+                || !code.get(back + 1).getArgs()[0].equals(exit)) {
+            return false;
+        }
+
+        // v só pode ser lida pelo teste e pela própria atualização
+        Update u = updates.get(0);
+        TacInstruction updateLoad = updateLoad(u.storePc());
+        for (int pc = 0; pc < code.size(); pc++) {
+            TacInstruction ti = code.get(pc);
+            if (Loops.isLoadOf(ti, v) && ti != load && ti != updateLoad) return false;
+        }
+        Long init = Loops.initialValue(code, v, header);
+        if (init == null) return false;
+
+        long k = u.delta();
+        long limit = Loops.immediate(jump);
+        long lo;
+        long hi;
+        switch (jump.getOpcode()) {
+            case JGEI -> { lo = init; hi = Math.max(init, limit - 1 + k); }
+            case JGTI -> { lo = init; hi = Math.max(init, limit + k); }
+            case JLEI -> { lo = Math.min(init, limit + 1 + k); hi = init; }
+            case JLTI -> { lo = Math.min(init, limit + k); hi = init; }
+            default -> { return false; }
+        }
+        boolean increasing = jump.getOpcode() == Opcode.JGEI || jump.getOpcode() == Opcode.JGTI;
+        if (increasing ? k <= 0 : k >= 0) return false;
+
+        for (Map.Entry<Integer, SymbolTable.Entry> e : byFactor.entrySet()) {
+            long c = e.getKey();
+            if (c == 0 || !Loops.fits(lo) || !Loops.fits(hi)
+                    || !Loops.fits(lo * c) || !Loops.fits(hi * c) || !Loops.fits(limit * c)) {
+                continue;
+            }
+            SymbolTable.Entry t = e.getValue();
+            Opcode op = c > 0 ? jump.getOpcode() : Loops.mirror(jump.getOpcode());
+            String r = load.getArgs()[0];
+            code.set(header + 1, new TacInstruction(Opcode.LOAD, t.id, r, t.name));
+            ConstantPool.Constant bound = ConstantPool.Constant.of((int) (limit * c));
+            code.set(header + 2, new TacInstruction(op, bound, r, bound.text, exit));
+            // sai a atribuição a v; LOADI/LOAD/ADD que a alimentavam ficam sem uso
+            code.remove(u.storePc());
+            tests++;
+            return true;
+        }
+        return false;
+    }
+
+    /** LOAD v que alimenta a atualização v = v + k em storePc. */
+    private TacInstruction updateLoad(int storePc) {
+        TacInstruction op = Loops.def(code, storePc, code.get(storePc).getArgs()[1]);
+        int opPc = code.indexOf(op);
+        TacInstruction left = Loops.def(code, opPc, op.getArgs()[1]);
+        return left.getOpcode() == Opcode.LOAD ? left : Loops.def(code, opPc, op.getArgs()[2]);
+    }
+
+    private static boolean isImmediateJump(Opcode op) {
+        return op == Opcode.JGEI || op == Opcode.JGTI || op == Opcode.JLEI || op == Opcode.JLTI;
+    }
+
+    /* ------------ Região ------------ */
+
+    /**
+     * Remove da região as definições de registrador que ficaram sem uso
+     * (LOAD, LOADI, ADD, SUB, MUL); devolve quantas saíram.
+     */
+    private int removeDeadDefs(int from, int to) {
+        int removed = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Map<String, Integer> occurrences = new HashMap<>();
+            for (TacInstruction ti : code) {
+                for (String arg : ti.getArgs()) {
+                    if (Loops.reg(arg) >= 0) occurrences.merge(arg, 1, Integer::sum);
+                }
+            }
+            for (int pc = to - removed; pc >= from; pc--) {
+                TacInstruction ti = code.get(pc);
+                switch (ti.getOpcode()) {
+                    case LOAD, LOADI, ADD, SUB, MUL, IADD, ISUB, IMUL -> {
+                        if (occurrences.get(ti.getArgs()[0]) == 1) {
+                            code.remove(pc);
+                            removed++;
+                            changed = true;
+                        }
+                    }
+                    default -> { }
+                }
+            }
+        }
+        return removed;
+    }
+
+    private String newReg() {
+        return "R" + nextReg++;
+    }
+}
@@ -0,0 +1,314 @@
+package br.com.mlp.compiler.semantics;
+
+import java.util.Arrays;
+import java.util.List;
+
+import br.com.mlp.compiler.ast.*;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacBuilder;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.TokenInfo;
+
+/**
+ * Análise semântica e geração de TAC num único percurso da AST.
+ *
+ * Cada comando, condição e expressão é visitado uma vez: as verificações do
+ * {@link SemanticAnalyzer} e a emissão do {@link br.com.mlp.compiler.codegen.CodeGenerator}
+ * acontecem no mesmo nó, na mesma ordem das duas passagens separadas. Os
+ * diagnósticos e sua ordem são os mesmos, e a numeração de registradores e
+ * rótulos também.
+ *
+ * O TAC é gerado de forma especulativa: vai para um buffer e é descartado
+ * no primeiro diagnóstico semântico (daí em diante só se verifica). Se a
+ * análise terminar limpa, o buffer é o TAC final.
+ *
+ * Também aceita o programa aos pedaços ({@link #begin}, {@link #declare},
+ * {@link #command}, {@link #finish}), na ordem do fonte: é assim que o front
+ * end em pipeline entrega cada comando de topo assim que ele é reconhecido.
+ *
+ * Não reaproveita subexpressões ({@code --reusar-subexpr}).
+ */
+public class FusedPass {
+
+    /** Resultado imutável: tabela de símbolos e TAC (null se houve diagnóstico). */
+    public record Result(SymbolTable symbols, List<TacInstruction> tac) {
+        public boolean hasTac() {
+            return tac != null;
+        }
+    }
+
+    private final SemanticAnalyzer sema;
+    private final TacBuilder tac = new TacBuilder();
+
+    // estados da pilha de expressões (valores >= 0: filhos já empilhados com
+    // verificação, guardando a contagem de diagnósticos antes deles)
+    private static final int CHECK = -1;     // verificar e emitir
+    private static final int EMIT = -2;      // só emitir (tipo já memorizado)
+    private static final int EMIT_DONE = -3; // filhos emitidos, combinar
+
+    private final NodeStack<ExpressionNode> exprStack = new NodeStack<>();
+    private Type[] types = new Type[16];
+    private String[] regs = new String[16];
+
+    public FusedPass(ErrorReporter reporter, List<TokenInfo> tokens) {
+        this.sema = new SemanticAnalyzer(reporter, tokens);
+    }
+
+    public Result run(ProgramNode program) {
+        begin(program.getIdents());
+        for (DeclNode d : program.getDeclarations()) {
+            if (sema.stopped()) break;
+            declare(d);
+        }
+        for (CommandNode cmd : program.getCommands()) {
+            if (sema.stopped()) break;
+            command(cmd);
+        }
+        return finish();
+    }
+
+    public void begin(IdentTable idents) {
+        sema.begin(idents);
+    }
+
+    public void declare(DeclNode d) {
+        sema.declare(d);
+        tac.declare(d);
+    }
+
+    /** Verifica e gera um comando de topo. */
+    public void command(CommandNode cmd) {
+        tasks.push(CMD, cmd, null, false, 1);
+        runTasks();
+    }
+
+    /** Verificações de fim de programa (COD.208) e o resultado. */
+    public Result finish() {
+        sema.reportUnused();
+
+        List<TacInstruction> code = emitting() ? List.copyOf(tac.instructions()) : null;
+        tac.clear();
+        return new Result(sema.symbols, code);
+    }
+
+    // o buffer só vale enquanto nenhum diagnóstico foi emitido
+    private boolean emitting() {
+        if (sema.reported == 0) return true;
+        if (!tac.instructions().isEmpty()) tac.clear();
+        return false;
+    }
+
+    /* ------------ Comandos e condições ------------ */
+
+    private static final byte CMD = 0;
+    private static final byte BRANCH = 1;
+    private static final byte JUMP = 2;
+    private static final byte LABEL = 3;
+
+    /** Tarefas pendentes, como no CodeGenerator, mais a profundidade do comando. */
+    private static final class Tasks {
+        byte[] kind = new byte[16];
+        AstNode[] node = new AstNode[16];
+        String[] label = new String[16];
+        boolean[] flag = new boolean[16];
+        int[] depth = new int[16];
+        int size;
+
+        void push(byte k, AstNode n, String l, boolean f, int d) {
+            if (size == kind.length) {
+                kind = Arrays.copyOf(kind, size * 2);
+                node = Arrays.copyOf(node, size * 2);
+                label = Arrays.copyOf(label, size * 2);
+                flag = Arrays.copyOf(flag, size * 2);
+                depth = Arrays.copyOf(depth, size * 2);
+            }
+            kind[size] = k;
+            node[size] = n;
+            label[size] = l;
+            flag[size] = f;
+            depth[size] = d;
+            size++;
+        }
+    }
+
+    private final Tasks tasks = new Tasks();
+
+    private void runTasks() {
+        Tasks t = tasks;
+        while (t.size > 0) {
+            int top = --t.size;
+            byte kind = t.kind[top];
+            AstNode node = t.node[top];
+            String label = t.label[top];
+            boolean flag = t.flag[top];
+            int depth = t.depth[top];
+            t.node[top] = null;
+
+            switch (kind) {
+                case CMD -> visitCommand((CommandNode) node, depth);
+                case BRANCH -> branch((BoolExprNode) node, label, flag);
+                case JUMP -> {
+                    if (emitting()) tac.emit(Opcode.JMP, label);
+                }
+                default -> {
+                    if (emitting()) tac.emit(Opcode.LABEL, label);
+                }
+            }
+        }
+    }
+
+    private void visitCommand(CommandNode cmd, int depth) {
+        if (!sema.checkDepth(depth)) return;
+
+        if (cmd instanceof AssignNode a) {
+            ExpressionNode expr = a.getExpression();
+            boolean self = expr instanceof VarRefNode v && v.getId() == a.getVarId();
+            String[] value = new String[1];
+            sema.checkAssign(a.getVarName(), a.getVarId(), self, () -> {
+                Type t = expr(expr, true);
+                value[0] = regs[0];
+                return t;
+            });
+            if (emitting()) tac.store(a.getVarId(), a.getVarName(), value[0]);
+        } else if (cmd instanceof IfNode i) {
+            String labelElse = tac.newLabel();
+            String labelEnd = tac.newLabel();
+            tasks.push(LABEL, null, labelEnd, false, depth);
+            if (i.getElseCommand() != null) {
+                tasks.push(CMD, i.getElseCommand(), null, false, depth + 1);
+            }
+            tasks.push(LABEL, null, labelElse, false, depth);
+            tasks.push(JUMP, null, labelEnd, false, depth);
+            tasks.push(CMD, i.getThenCommand(), null, false, depth + 1);
+            tasks.push(BRANCH, i.getCondition(), labelElse, false, depth);
+        } else if (cmd instanceof WhileNode w) {
+            String labelStart = tac.newLabel();
+            String labelEnd = tac.newLabel();
+            if (emitting()) tac.emit(Opcode.LABEL, labelStart);
+            tasks.push(LABEL, null, labelEnd, false, depth);
+            tasks.push(JUMP, null, labelStart, false, depth);
+            tasks.push(CMD, w.getBody(), null, false, depth + 1);
+            tasks.push(BRANCH, w.getCondition(), labelEnd, false, depth);
+        }
+    }
+
+    // curto-circuito igual ao CodeGenerator; as comparações saem da esquerda
+    // para a direita, que é também a ordem de verificação
+    private void branch(BoolExprNode cond, String target, boolean jumpIf) {
+        if (cond instanceof NotNode not) {
+            tasks.push(BRANCH, not.getOperand(), target, !jumpIf, 0);
+        } else if (cond instanceof LogicalExprNode logic) {
+            if (logic.isAnd() != jumpIf) {
+                tasks.push(BRANCH, logic.getRight(), target, jumpIf, 0);
+                tasks.push(BRANCH, logic.getLeft(), target, jumpIf, 0);
+            } else {
+                String labelSkip = tac.newLabel();
+                tasks.push(LABEL, null, labelSkip, false, 0);
+                tasks.push(BRANCH, logic.getRight(), target, jumpIf, 0);
+                tasks.push(BRANCH, logic.getLeft(), labelSkip, !jumpIf, 0);
+            }
+        } else if (cond instanceof ConditionNode cmp) {
+            compare(cmp, target, jumpIf);
+        }
+    }
+
+    private void compare(ConditionNode cond, String target, boolean jumpIf) {
+        ExpressionNode right = cond.getRight();
+        // literal à direita vira salto imediato: é verificado, mas não carregado
+        boolean immediate = right instanceof NumLiteralNode;
+
+        Type l = expr(cond.getLeft(), true);
+        String r1 = regs[0];
+        Type r = expr(right, !immediate);
+        String r2 = regs[0];
+        sema.checkComparison(l, r, cond.getLeft() instanceof VarRefNode v ? v.getName() : null);
+
+        if (!emitting()) return;
+        if (immediate) {
+            tac.branchImmediateIf(jumpIf, cond.getOp(), r1, ((NumLiteralNode) right).getConstant(), target);
+        } else {
+            tac.branchIf(jumpIf, cond.getOp(), r1, r2, target);
+        }
+    }
+
+    /* ------------ Expressões ------------ */
+
+    /**
+     * Tipo da expressão (como o evalExpr do analisador), emitindo o código
+     * dela no mesmo pós-ordem; o registrador do resultado fica em regs[0].
+     * Uma subexpressão cujo tipo já foi memorizado não é verificada de novo,
+     * mas ainda precisa ser emitida.
+     */
+    private Type expr(ExpressionNode root, boolean emit) {
+        NodeStack<ExpressionNode> stack = exprStack;
+        int n = 0;
+
+        stack.push(root, CHECK);
+        while (!stack.isEmpty()) {
+            int state = stack.topValue();
+            ExpressionNode e = stack.pop();
+            boolean out = emit && emitting();
+            Type t;
+            String r = null;
+
+            if (e == null) {
+                t = null;
+                if (out) r = tac.loadConst("0");
+            } else if (state == CHECK || state == EMIT) {
+                Type cached = sema.cachedType(e);
+                boolean check = state == CHECK && cached == null;
+                if (e instanceof BinaryExprNode b && (check || out)) {
+                    int children = check ? CHECK : EMIT;
+                    stack.push(b, check ? sema.reported : EMIT_DONE);
+                    stack.push(b.getRight(), children);
+                    stack.push(b.getLeft(), children);
+                    continue;
+                }
+                if (check) {
+                    int before = sema.reported;
+                    t = sema.checkLeaf(e);
+                    sema.cacheIfClean(e, t, before);
+                    out = emit && emitting();
+                } else {
+                    t = cached;
+                }
+                if (out) r = leaf(e);
+            } else {
+                Type rt = types[--n];
+                Type lt = types[--n];
+                String rr = regs[n + 1];
+                String rl = regs[n];
+                if (state == EMIT_DONE) {
+                    // dentro de uma subexpressão já verificada
+                    t = sema.cachedType(e);
+                } else {
+                    BinaryExprNode b = (BinaryExprNode) e;
+                    t = sema.checkBinary(b, lt, rt);
+                    sema.cacheIfClean(e, t, state);
+                }
+                if (emit && emitting()) r = tac.arith(((BinaryExprNode) e).getOp(), rl, rr);
+            }
+
+            if (n == types.length) {
+                types = Arrays.copyOf(types, n * 2);
+                regs = Arrays.copyOf(regs, n * 2);
+            }
+            types[n] = t;
+            regs[n] = r;
+            n++;
+        }
+        return types[0];
+    }
+
+    private String leaf(ExpressionNode e) {
+        if (e instanceof NumLiteralNode num) {
+            return tac.loadConst(num.getConstant());
+        }
+        if (e instanceof VarRefNode var) {
+            return tac.load(var.getId(), var.getName());
+        }
+        return tac.loadConst("0");
+    }
+}
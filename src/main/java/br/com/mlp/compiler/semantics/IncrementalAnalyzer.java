@@ -0,0 +1,148 @@
+package br.com.mlp.compiler.semantics;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import br.com.mlp.compiler.ast.*;
+import br.com.mlp.diagnostics.DiagnosticSink;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.TokenInfo;
+
+/**
+ * Análise semântica por unidade de topo (uma declaração ou um comando), para
+ * quem só reanalisa o que mudou, como o servidor de linguagem. As
+ * verificações são as do {@link SemanticAnalyzer}; o que ele acumula ao
+ * percorrer o programa inteiro vem de fora:
+ *
+ *   inicialização: se a variável recebeu valor em algum comando anterior
+ *                  (a mesma regra, sem fluxo, da análise completa);
+ *   uso (COD.208): se algum comando a referencia.
+ *
+ * As posições são procuradas só nos tokens da própria unidade, então
+ * apontam para o uso dentro dela, e os diagnósticos vão direto para o
+ * {@link DiagnosticSink} de quem chamou.
+ */
+public final class IncrementalAnalyzer {
+
+    /** Variáveis lidas e atribuídas por um comando, sem repetição. */
+    public record References(int[] reads, int[] writes) { }
+
+    private final IdentTable idents;
+    private SymbolTable symbols;
+
+    public IncrementalAnalyzer(IdentTable idents) {
+        this.idents = idents;
+        this.symbols = new SymbolTable(idents);
+    }
+
+    /** Nova tabela de símbolos; as declarações vêm em seguida, na ordem do programa. */
+    public void beginDeclarations() {
+        symbols = new SymbolTable(idents);
+    }
+
+    public void declare(DeclNode d, List<TokenInfo> tokens, DiagnosticSink out) {
+        analyzer(tokens, out).declare(d);
+    }
+
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * Verifica um comando de topo. {@code initializedBefore} diz se a
+     * variável já recebeu valor antes dele; dentro do comando, a análise
+     * acompanha as próprias atribuições.
+     */
+    public void check(CommandNode c, References refs, List<TokenInfo> tokens, IntPredicate initializedBefore,
+                      DiagnosticSink out) {
+        for (int id : refs.reads()) initialize(id, initializedBefore);
+        for (int id : refs.writes()) initialize(id, initializedBefore);
+        analyzer(tokens, out).checkCommand(c);
+    }
+
+    private void initialize(int id, IntPredicate initializedBefore) {
+        SymbolTable.Entry e = symbols.lookup(id);
+        if (e != null) e.inicializada = initializedBefore.test(id);
+    }
+
+    /** COD.208 das variáveis que nenhum comando referencia. */
+    public void reportUnused(IntPredicate used, DiagnosticSink out) {
+        for (SymbolTable.Entry e : symbols.all()) {
+            e.usada = used.test(e.id);
+        }
+        analyzer(List.of(), out).reportUnused();
+    }
+
+    // um SemanticAnalyzer por unidade: os tipos memorizados na AST valem só
+    // para ele, já que initialize() pode desmarcar variáveis entre unidades
+    private SemanticAnalyzer analyzer(List<TokenInfo> tokens, DiagnosticSink out) {
+        SemanticAnalyzer sema = new SemanticAnalyzer(new ErrorReporter(ErrorReporter.UNLIMITED, false, out), tokens);
+        sema.symbols = symbols;
+        return sema;
+    }
+
+    /* ------------ Referências ------------ */
+
+    /**
+     * Variáveis que o comando lê e as que ele atribui, até a profundidade
+     * máxima (o que fica além dela não é verificado nem marca a variável).
+     */
+    public static References references(CommandNode c) {
+        IntStream.Builder reads = IntStream.builder();
+        IntStream.Builder writes = IntStream.builder();
+        NodeStack<CommandNode> stack = new NodeStack<>();
+        stack.push(c, 1);
+        while (!stack.isEmpty()) {
+            int depth = stack.topValue();
+            CommandNode cmd = stack.pop();
+            if (cmd == null || depth > 10) continue;
+            if (cmd instanceof AssignNode a) {
+                uses(a.getExpression(), reads);
+                writes.add(a.getVarId());
+            } else if (cmd instanceof IfNode i) {
+                uses(i.getCondition(), reads);
+                stack.push(i.getElseCommand(), depth + 1);
+                stack.push(i.getThenCommand(), depth + 1);
+            } else if (cmd instanceof WhileNode w) {
+                uses(w.getCondition(), reads);
+                stack.push(w.getBody(), depth + 1);
+            }
+        }
+        return new References(reads.build().distinct().toArray(), writes.build().distinct().toArray());
+    }
+
+    private static void uses(BoolExprNode cond, IntStream.Builder out) {
+        if (cond == null) return;
+        NodeStack<BoolExprNode> stack = new NodeStack<>();
+        stack.push(cond, 0);
+        while (!stack.isEmpty()) {
+            BoolExprNode b = stack.pop();
+            if (b instanceof LogicalExprNode l) {
+                stack.push(l.getRight(), 0);
+                stack.push(l.getLeft(), 0);
+            } else if (b instanceof NotNode n) {
+                stack.push(n.getOperand(), 0);
+            } else if (b instanceof ConditionNode c) {
+                uses(c.getLeft(), out);
+                uses(c.getRight(), out);
+            }
+        }
+    }
+
+    private static void uses(ExpressionNode root, IntStream.Builder out) {
+        if (root == null) return;
+        NodeStack<ExpressionNode> stack = new NodeStack<>();
+        stack.push(root, 0);
+        while (!stack.isEmpty()) {
+            ExpressionNode e = stack.pop();
+            if (e instanceof BinaryExprNode b) {
+                stack.push(b.getRight(), 0);
+                stack.push(b.getLeft(), 0);
+            } else if (e instanceof VarRefNode v) {
+                out.add(v.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package br.com.mlp.compiler.semantics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import br.com.mlp.compiler.ast.*;
+import br.com.mlp.compiler.dataflow.BitSets;
+import br.com.mlp.compiler.dataflow.DataflowProblem;
+import br.com.mlp.compiler.dataflow.FlowGraph;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.lex.TokenInfo;
+
+/**
+ * COD.207 sensível ao fluxo: uma variável só conta como inicializada num
+ * uso se foi atribuída em todos os caminhos da entrada até ali. Atribuir
+ * só no "entao" de um se, ou só no corpo de um enquanto (que pode não
+ * executar), não inicializa a variável depois dele.
+ *
+ * A AST vira um {@link FlowGraph} de blocos básicos; cada bloco guarda a
+ * sequência de usos e atribuições de variáveis. A inicialização definida
+ * é uma análise para frente com interseção (bit = variável) resolvida pelo
+ * {@link DataflowProblem}; depois cada bloco é repassado a partir do seu
+ * in para achar os usos sem inicialização.
+ *
+ * Os blocos e eventos são criados na mesma ordem em que o
+ * {@link SemanticAnalyzer} percorre o programa (condição, entao, senao;
+ * expressões da esquerda para a direita), então os usos saem nessa ordem.
+ * Comandos além da profundidade máxima e atribuições a variáveis não
+ * declaradas são ignorados, como na análise principal.
+ *
+ * Os nós de expressão são compartilhados (hash-consing) e não guardam
+ * posição, então cada uso é casado com o seu token: a AST é percorrida na
+ * ordem do fonte e cada referência a variável (alvo de atribuição, folha
+ * de expressão, identificador antes do NOT) consome o próximo IDENT dos
+ * comandos. Se o token não bate com o nome, o uso sai sem token.
+ */
+final class InitializationAnalysis {
+
+    /** Uso possivelmente não inicializado; {@code token} é null se não foi achado. */
+    record Use(SymbolTable.Entry var, TokenInfo token) { }
+
+    private final SymbolTable symbols;
+    private final List<SymbolTable.Entry> vars;
+    private final int[] bitOf; // ID do identificador -> bit (ou -1)
+
+    private final FlowGraph graph = new FlowGraph();
+    private int[] events = new int[64];     // 2 * bit (uso) ou 2 * bit + 1 (atribuição)
+    private int[] sites = new int[64];      // índice do token de cada uso (ou -1)
+    private int eventCount;
+    private int[] blockStart = new int[16]; // primeiro evento de cada bloco
+    private int current;
+
+    private final List<TokenInfo> tokens;
+    private int cursor; // próximo token a examinar
+
+    private InitializationAnalysis(SymbolTable symbols, List<TokenInfo> tokens) {
+        this.symbols = symbols;
+        this.tokens = tokens;
+        this.vars = new ArrayList<>(symbols.all());
+        this.bitOf = new int[symbols.getIdents().size()];
+        Arrays.fill(bitOf, -1);
+        for (int i = 0; i < vars.size(); i++) {
+            bitOf[vars.get(i).id] = i;
+        }
+    }
+
+    /**
+     * Usos possivelmente não inicializados, um por ocorrência, na ordem do
+     * programa, cada um com o seu token em {@code tokens} (os do mesmo fonte).
+     */
+    static List<Use> uninitializedUses(ProgramNode program, SymbolTable symbols, List<TokenInfo> tokens) {
+        InitializationAnalysis a = new InitializationAnalysis(symbols, tokens);
+        a.skipDeclarations(program.getDeclarations().size());
+        a.current = a.block();
+        for (CommandNode c : program.getCommands()) {
+            a.command(c, 1);
+        }
+        return a.solve();
+    }
+
+    private List<Use> solve() {
+        int n = graph.size();
+        DataflowProblem init = new DataflowProblem(graph, vars.size(),
+                DataflowProblem.Direction.FORWARD, DataflowProblem.Meet.INTERSECTION);
+        for (int b = 0; b < n; b++) {
+            long[] gen = init.gen(b);
+            for (int e = blockStart[b]; e < end(b); e++) {
+                if ((events[e] & 1) != 0) BitSets.set(gen, events[e] >>> 1);
+            }
+        }
+        DataflowProblem.Solution s = init.solve();
+
+        List<Use> out = new ArrayList<>();
+        for (int b = 0; b < n; b++) {
+            long[] state = s.in()[b].clone();
+            for (int e = blockStart[b]; e < end(b); e++) {
+                int bit = events[e] >>> 1;
+                if ((events[e] & 1) != 0) {
+                    BitSets.set(state, bit);
+                } else if (!BitSets.get(state, bit)) {
+                    out.add(new Use(vars.get(bit), sites[e] >= 0 ? tokens.get(sites[e]) : null));
+                }
+            }
+        }
+        return out;
+    }
+
+    private int end(int block) {
+        return block + 1 < graph.size() ? blockStart[block + 1] : eventCount;
+    }
+
+    /* ------------ Construção do grafo ------------ */
+
+    // a recursão é limitada pela profundidade máxima de comandos (10)
+    private void command(CommandNode c, int depth) {
+        if (c == null) return;
+        if (depth > 10) {
+            skip(c);
+            return;
+        }
+        if (c instanceof AssignNode a) {
+            int target = bit(a.getVarId());
+            if (target < 0) {
+                skip(c);
+                return;
+            }
+            nextIdent();
+            uses(a.getExpression(), true);
+            event(2 * target + 1, -1);
+        } else if (c instanceof IfNode i) {
+            uses(i.getCondition(), true);
+            int cond = current;
+
+            current = block();
+            graph.edge(cond, current);
+            command(i.getThenCommand(), depth + 1);
+            int thenEnd = current;
+
+            int elseEnd = cond;
+            if (i.getElseCommand() != null) {
+                current = block();
+                graph.edge(cond, current);
+                command(i.getElseCommand(), depth + 1);
+                elseEnd = current;
+            }
+
+            current = block();
+            graph.edge(thenEnd, current);
+            graph.edge(elseEnd, current);
+        } else if (c instanceof WhileNode w) {
+            int before = current;
+            int header = block();
+            graph.edge(before, header);
+            current = header;
+            uses(w.getCondition(), true);
+
+            current = block();
+            graph.edge(header, current);
+            command(w.getBody(), depth + 1);
+            graph.edge(current, header);
+
+            current = block();
+            graph.edge(header, current);
+        }
+    }
+
+    // comando ignorado: só consome os seus IDENTs, com pilha explícita
+    private void skip(CommandNode root) {
+        NodeStack<CommandNode> stack = new NodeStack<>();
+        stack.push(root, 0);
+        while (!stack.isEmpty()) {
+            CommandNode c = stack.pop();
+            if (c instanceof AssignNode a) {
+                nextIdent();
+                uses(a.getExpression(), false);
+            } else if (c instanceof IfNode i) {
+                uses(i.getCondition(), false);
+                if (i.getElseCommand() != null) stack.push(i.getElseCommand(), 0);
+                if (i.getThenCommand() != null) stack.push(i.getThenCommand(), 0);
+            } else if (c instanceof WhileNode w) {
+                uses(w.getCondition(), false);
+                if (w.getBody() != null) stack.push(w.getBody(), 0);
+            }
+        }
+    }
+
+    private void uses(BoolExprNode cond, boolean record) {
+        if (cond == null) return;
+        NodeStack<BoolExprNode> stack = new NodeStack<>();
+        stack.push(cond, 0);
+        while (!stack.isEmpty()) {
+            BoolExprNode b = stack.pop();
+            if (b instanceof LogicalExprNode l) {
+                stack.push(l.getRight(), 0);
+                stack.push(l.getLeft(), 0);
+            } else if (b instanceof NotNode n) {
+                nextIdent(); // o identificador de "(x NOT (...))"
+                stack.push(n.getOperand(), 0);
+            } else if (b instanceof ConditionNode c) {
+                uses(c.getLeft(), record);
+                uses(c.getRight(), record);
+            }
+        }
+    }
+
+    // folhas da esquerda para a direita, com pilha explícita; sem record só
+    // consome os tokens
+    private void uses(ExpressionNode root, boolean record) {
+        if (root == null) return;
+        NodeStack<ExpressionNode> stack = new NodeStack<>();
+        stack.push(root, 0);
+        while (!stack.isEmpty()) {
+            ExpressionNode e = stack.pop();
+            if (e instanceof BinaryExprNode b) {
+                stack.push(b.getRight(), 0);
+                stack.push(b.getLeft(), 0);
+            } else if (e instanceof VarRefNode v) {
+                int site = nextIdent();
+                if (site >= 0 && !v.getName().equals(tokens.get(site).text)) site = -1;
+                int bit = bit(v.getId());
+                if (record && bit >= 0) event(2 * bit, site);
+            }
+        }
+    }
+
+    private int bit(int id) {
+        SymbolTable.Entry e = symbols.lookup(id);
+        return e != null && id < bitOf.length ? bitOf[id] : -1;
+    }
+
+    private int block() {
+        int b = graph.newBlock();
+        if (b == blockStart.length) blockStart = Arrays.copyOf(blockStart, b * 2);
+        blockStart[b] = eventCount;
+        return b;
+    }
+
+    private void event(int e, int site) {
+        if (eventCount == events.length) {
+            events = Arrays.copyOf(events, eventCount * 2);
+            sites = Arrays.copyOf(sites, eventCount * 2);
+        }
+        sites[eventCount] = site;
+        events[eventCount++] = e;
+    }
+
+    /* ------------ Tokens ------------ */
+
+    // cada declaração termina em ';': os comandos começam depois do n-ésimo
+    private void skipDeclarations(int declarations) {
+        while (declarations > 0 && cursor < tokens.size()) {
+            if (tokens.get(cursor++).type == MlpLexer.SEMI) declarations--;
+        }
+    }
+
+    // índice do próximo IDENT (consumido), ou -1 se os tokens acabaram
+    private int nextIdent() {
+        while (cursor < tokens.size()) {
+            int i = cursor++;
+            if (tokens.get(i).type == MlpLexer.IDENT) return i;
+        }
+        return -1;
+    }
+}
@@ -3,91 +3,213 @@ package br.com.mlp.compiler.semantics;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 import br.com.mlp.compiler.ast.*;
 import br.com.mlp.diagnostics.*;
+import br.com.mlp.lex.IdentTable;
 import br.com.mlp.lex.TokenInfo;
 import br.com.mlp.compiler.parser.MlpLexer;
 
 public class SemanticAnalyzer {
 
     private final ErrorReporter reporter;
-    private final SymbolTable symbols = new SymbolTable();
+    SymbolTable symbols;
     private final List<TokenInfo> tokens;
+    int reported; // diagnósticos emitidos até agora
+    // dono dos tipos memorizados nos nós: um por percurso, em que a
+    // inicialização só cresce (ver evalExpr)
+    private Object pass = new Object();
+    private final boolean exactInitialization;
+    private boolean flowSensitive; // COD.207 vem da InitializationAnalysis, não do percurso
+
+    private static final int NOT_EXPANDED = -1;
 
     public SemanticAnalyzer(ErrorReporter reporter, List<TokenInfo> tokens) {
+        this(reporter, tokens, false);
+    }
+
+    /**
+     * @param exactInitialization COD.207 sensível ao fluxo (ver
+     *        {@link InitializationAnalysis}); só na AST em objetos. Os
+     *        COD.207 saem depois dos demais erros dos comandos
+     */
+    public SemanticAnalyzer(ErrorReporter reporter, List<TokenInfo> tokens, boolean exactInitialization) {
         this.reporter = reporter;
         this.tokens = tokens != null ? tokens : new ArrayList<>();
+        this.exactInitialization = exactInitialization;
     }
 
     public SymbolTable analyze(ProgramNode program) {
+        flowSensitive = exactInitialization;
+
         // 1) Declarações
-        for (DeclNode d : program.getDeclarations()) {
-            for (String name : d.getVarNames()) {
-                var pos = findFirstToken(name);
-                
-                // Premissa 1: tamanho do identificador
-                if (name.length() > 10) {
-                    reportSem(ErrorCode.SEMANTICO_IDENT_TAMANHO_EXCEDIDO, pos[0], pos[1],
-                            "identificador '" + name + "' tem " + name.length() + " caracteres");
-                }
-                
-                // COD.204: Verificar redeclaração
-                if (!symbols.declare(name, d.getType(), pos[0], pos[1])) {
-                    // Usar última ocorrência para reportar na linha da redeclaração
-                    var redeclPos = findLastToken(name);
-                    reportSem(ErrorCode.SEMANTICO_VARIAVEL_REDECLARADA, redeclPos[0], redeclPos[1],
-                            "COD.204 - Variável '" + name + "' redeclarada");
-                }
-            }
-        }
+        declareAll(program.getDeclarations(), program.getIdents());
 
         // 2) Comandos (com verificação de profundidade)
         checkCommands(program.getCommands(), 1);
 
-        // 3) COD.208: Verificar variáveis declaradas mas não utilizadas
-        for (SymbolTable.Entry entry : symbols.all()) {
-            if (!entry.usada) {
-                reportSem(ErrorCode.SEMANTICO_VARIAVEL_NAO_UTILIZADA, entry.line, entry.column,
-                        "COD.208 - Variável declarada mas não utilizada [variável '" + entry.name + "']");
+        if (stopped()) return symbols;
+
+        // 3) COD.207 pelo fluxo de controle
+        if (flowSensitive) {
+            for (InitializationAnalysis.Use u : InitializationAnalysis.uninitializedUses(program, symbols, tokens)) {
+                TokenInfo t = u.token();
+                reportUninitialized(u.var().name, t != null ? new int[]{t.line, t.column + 1}
+                                                            : findTokenUsage(u.var().name, u.var().line));
             }
         }
 
+        // 4) COD.208
+        reportUnused();
+
         return symbols;
     }
 
+    /**
+     * Mesma análise sobre a AST plana: as verificações e mensagens são as
+     * mesmas, só a forma de percorrer os nós muda. Sem COD.207 exato.
+     *
+     * @throws IllegalStateException se criado com exactInitialization
+     */
+    public SymbolTable analyze(FlatAst ast) {
+        if (exactInitialization) {
+            throw new IllegalStateException("inicialização exata só na AST em objetos");
+        }
+        flowSensitive = false;
+        declareAll(ast.getDeclarations(), ast.getIdents());
+        for (int cmd : ast.getCommands()) {
+            if (stopped()) return symbols;
+            checkCommand(ast, cmd, 1);
+        }
+        reportUnused();
+        return symbols;
+    }
+
+    private void declareAll(List<DeclNode> declarations, IdentTable idents) {
+        begin(idents);
+        for (DeclNode d : declarations) {
+            if (stopped()) return;
+            declare(d);
+        }
+    }
+
+    // nova Tabela de Símbolos; as declarações vêm em seguida, uma a uma
+    void begin(IdentTable idents) {
+        symbols = new SymbolTable(idents);
+        pass = new Object();
+    }
+
+    void declare(DeclNode d) {
+        int[] ids = d.getVarIds();
+        for (int k = 0; k < ids.length; k++) {
+            String name = d.getVarNames().get(k);
+            var pos = findFirstToken(name);
+
+            // Premissa 1: tamanho do identificador
+            if (name.length() > 10) {
+                reportSem(ErrorCode.SEMANTICO_IDENT_TAMANHO_EXCEDIDO, pos[0], pos[1], name,
+                        () -> "identificador '" + name + "' tem " + name.length() + " caracteres");
+            }
+
+            // COD.204: Verificar redeclaração
+            if (!symbols.declare(ids[k], d.getType(), pos[0], pos[1])) {
+                // Usar última ocorrência para reportar na linha da redeclaração
+                var redeclPos = findLastToken(name);
+                reportSem(ErrorCode.SEMANTICO_VARIAVEL_REDECLARADA, redeclPos[0], redeclPos[1], name,
+                        () -> "COD.204 - Variável '" + name + "' redeclarada");
+            }
+        }
+    }
+
+    // COD.208: Verificar variáveis declaradas mas não utilizadas
+    void reportUnused() {
+        for (SymbolTable.Entry entry : symbols.all()) {
+            if (!entry.usada) {
+                reportSem(ErrorCode.SEMANTICO_VARIAVEL_NAO_UTILIZADA, entry.line, entry.column, entry.name,
+                        () -> "COD.208 - Variável declarada mas não utilizada [variável '" + entry.name + "']");
+            }
+        }
+    }
+
     // ----- Profundidade e checagem de comandos -----
 
+    /**
+     * Percorre os comandos com uma pilha explícita (comando, profundidade), na
+     * mesma ordem da versão recursiva: condição, then, else. Nada é alocado
+     * por nó e a pilha Java não cresce com o aninhamento.
+     */
     private void checkCommands(List<CommandNode> cmds, int depth) {
         if (cmds == null) return;
+        NodeStack<CommandNode> stack = new NodeStack<>();
+
+        for (CommandNode top : cmds) {
+            if (stopped()) return;
+            stack.push(top, depth);
+            while (!stack.isEmpty()) {
+                int d = stack.topValue();
+                CommandNode c = stack.pop();
+
+                if (!checkDepth(d)) continue;
+                if (c instanceof AssignNode a) {
+                    checkAssign(a);
+                } else if (c instanceof IfNode i) {
+                    checkCondition(i.getCondition());
+                    // then / else incrementam profundidade (empilhados ao contrário)
+                    if (i.getElseCommand() != null) stack.push(i.getElseCommand(), d + 1);
+                    stack.push(i.getThenCommand(), d + 1);
+                } else if (c instanceof WhileNode w) {
+                    checkCondition(w.getCondition());
+                    stack.push(w.getBody(), d + 1);
+                }
+            }
+        }
+    }
+
+    // um comando de topo isolado (análise incremental)
+    void checkCommand(CommandNode c) {
+        checkCommands(List.of(c), 1);
+    }
+
+    // Premissa 2: profundidade > 10 (o comando e seus filhos não são verificados)
+    boolean checkDepth(int depth) {
         if (depth > 10) {
-            // Premissa 2: profundidade > 10
-            reportSem(ErrorCode.SEMANTICO_PROFUNDIDADE_COMANDOS, 1, 1,
-                    "profundidade de comandos excede 10 (=" + depth + ")");
-            return;
+            reportSem(ErrorCode.SEMANTICO_PROFUNDIDADE_COMANDOS, 1, 1, "",
+                    () -> "profundidade de comandos excede 10 (=" + depth + ")");
+            return false;
         }
-        for (CommandNode c : cmds) {
-            if (c instanceof AssignNode a) {
-                checkAssign(a);
-            } else if (c instanceof IfNode i) {
-                checkCondition(i.getCondition());
-                // then / else incrementam profundidade
-                List<CommandNode> thenList = new ArrayList<>();
-                if (i.getThenCommand() != null) thenList.add(i.getThenCommand());
-                checkCommands(thenList, depth + 1);
-
-                if (i.getElseCommand() != null) {
-                    List<CommandNode> elseList = new ArrayList<>();
-                    elseList.add(i.getElseCommand());
-                    checkCommands(elseList, depth + 1);
+        return true;
+    }
+
+    // como checkCommands, com os índices da AST plana
+    private void checkCommand(FlatAst ast, int top, int depth) {
+        IndexStack stack = new IndexStack();
+        stack.push(top, depth);
+        while (!stack.isEmpty()) {
+            int d = stack.topValue();
+            int c = stack.pop();
+
+            if (c == FlatAst.NONE || !checkDepth(d)) continue;
+            switch (ast.kind(c)) {
+                case FlatAst.ASSIGN -> {
+                    int expr = ast.child1(c);
+                    boolean self = expr != FlatAst.NONE && ast.kind(expr) == FlatAst.VAR
+                            && ast.identId(expr) == ast.identId(c);
+                    checkAssign(ast.name(c), ast.identId(c), self, () -> evalExpr(ast, expr));
                 }
-            } else if (c instanceof WhileNode w) {
-                checkCondition(w.getCondition());
-                List<CommandNode> body = new ArrayList<>();
-                if (w.getBody() != null) body.add(w.getBody());
-                checkCommands(body, depth + 1);
+                case FlatAst.IF -> {
+                    checkCondition(ast, ast.child1(c));
+                    stack.push(ast.elseOf(c), d + 1);
+                    stack.push(ast.child2(c), d + 1);
+                }
+                case FlatAst.WHILE -> {
+                    checkCondition(ast, ast.child1(c));
+                    stack.push(ast.child2(c), d + 1);
+                }
+                default -> { }
             }
         }
     }
@@ -95,43 +217,49 @@ public class SemanticAnalyzer {
     // ----- Atribuição -----
 
     private void checkAssign(AssignNode a) {
-        String var = a.getVarName();
-        var varEntry = symbols.lookup(var);
-        var varPos = findFirstToken(var);
+        ExpressionNode expr = a.getExpression();
+        boolean self = expr instanceof VarRefNode varRef && varRef.getId() == a.getVarId();
+        checkAssign(a.getVarName(), a.getVarId(), self, () -> evalExpr(expr));
+    }
+
+    void checkAssign(String var, int varId, boolean selfAssign, Supplier<Type> rhsType) {
+        var varEntry = symbols.lookup(varId);
 
         // 4a) variável deve estar declarada
         if (varEntry == null) {
-            reportSem(ErrorCode.SEMANTICO_VARIAVEL_NAO_DECLARADA, varPos[0], varPos[1],
-                    "uso de variável '" + var + "' sem declaração");
+            int[] varPos = findFirstToken(var);
+            reportSem(ErrorCode.SEMANTICO_VARIAVEL_NAO_DECLARADA, varPos[0], varPos[1], var,
+                    () -> "uso de variável '" + var + "' sem declaração");
             return;
         }
 
         // 1) tamanho do ident no uso
         if (var.length() > 10) {
-            reportSem(ErrorCode.SEMANTICO_IDENT_TAMANHO_EXCEDIDO, varPos[0], varPos[1],
-                    "identificador '" + var + "' tem " + var.length() + " caracteres (uso)");
+            int[] varPos = findFirstToken(var);
+            reportSem(ErrorCode.SEMANTICO_IDENT_TAMANHO_EXCEDIDO, varPos[0], varPos[1], var,
+                    () -> "identificador '" + var + "' tem " + var.length() + " caracteres (uso)");
         }
 
         // COD.209: Verificar auto-atribuição desnecessária (x = x)
-        ExpressionNode expr = a.getExpression();
-        if (expr instanceof VarRefNode varRef && varRef.getName().equals(var)) {
+        if (selfAssign) {
             // Encontrar posição da variável no RHS (uso após declaração)
             int[] exprPos = findTokenUsage(var, varEntry.line);
             // Se não encontrar uso após declaração, usar posição do LHS como fallback
             if (exprPos[0] == varEntry.line && exprPos[1] == varEntry.column) {
-                exprPos = varPos;
+                exprPos = findFirstToken(var);
             }
-            reportSem(ErrorCode.SEMANTICO_AUTO_ATRIBUICAO, exprPos[0], exprPos[1],
-                    "COD.209 - Auto-atribuição desnecessária [variável '" + var + "']");
+            reportSem(ErrorCode.SEMANTICO_AUTO_ATRIBUICAO, exprPos[0], exprPos[1], var,
+                    () -> "COD.209 - Auto-atribuição desnecessária [variável '" + var + "']");
         }
 
         // Avaliar expressão (isso vai marcar variáveis usadas e verificar inicialização)
-        Type rhs = evalExpr(a.getExpression());
+        Type rhs = rhsType.get();
 
         // 4b/4c) compatibilidade
         if (!isAssignable(varEntry.type, rhs)) {
-            reportSem(ErrorCode.SEMANTICO_TIPO_INCOMPATIVEL, varPos[0], varPos[1],
-                    "atribuição incompatível: " + varEntry.type + " <- " + rhs);
+            int[] varPos = findFirstToken(var);
+            reportSem(ErrorCode.SEMANTICO_TIPO_INCOMPATIVEL, varPos[0], varPos[1], "",
+                    () -> "atribuição incompatível: " + varEntry.type + " <- " + rhs);
         }
 
         // Marcar variável como inicializada após atribuição
@@ -142,103 +270,292 @@ public class SemanticAnalyzer {
 
     // ----- Condição -----
 
-    private void checkCondition(ConditionNode cond) {
+    // comparações da esquerda para a direita, com pilha explícita (cadeias E/OR longas)
+    private void checkCondition(BoolExprNode cond) {
         if (cond == null) return;
+        NodeStack<BoolExprNode> stack = new NodeStack<>();
+        stack.push(cond, 0);
+        while (!stack.isEmpty()) {
+            BoolExprNode b = stack.pop();
+            if (b instanceof LogicalExprNode l) {
+                stack.push(l.getRight(), 0);
+                stack.push(l.getLeft(), 0);
+            } else if (b instanceof NotNode n) {
+                stack.push(n.getOperand(), 0);
+            } else if (b instanceof ConditionNode c) {
+                checkComparison(c);
+            }
+        }
+    }
+
+    private void checkComparison(ConditionNode cond) {
         Type left = evalExpr(cond.getLeft());
         Type right = evalExpr(cond.getRight());
+        checkComparison(left, right, cond.getLeft() instanceof VarRefNode v ? v.getName() : null);
+    }
 
+    private void checkCondition(FlatAst ast, int root) {
+        IndexStack stack = new IndexStack();
+        stack.push(root, 0);
+        while (!stack.isEmpty()) {
+            int cond = stack.pop();
+            if (cond == FlatAst.NONE) continue;
+            switch (ast.kind(cond)) {
+                case FlatAst.AND, FlatAst.OR -> {
+                    stack.push(ast.child2(cond), 0);
+                    stack.push(ast.child1(cond), 0);
+                }
+                case FlatAst.NOT -> stack.push(ast.child1(cond), 0);
+                case FlatAst.COMPARE -> {
+                    int l = ast.child1(cond);
+                    Type left = evalExpr(ast, l);
+                    Type right = evalExpr(ast, ast.child2(cond));
+                    checkComparison(left, right, ast.kind(l) == FlatAst.VAR ? ast.name(l) : null);
+                }
+                default -> { }
+            }
+        }
+    }
+
+    void checkComparison(Type left, Type right, String leftVar) {
         if (!(isNumeric(left) && isNumeric(right)) && !(left == Type.CARACTER && right == Type.CARACTER)) {
             int[] pos = {1,1};
-            if (cond.getLeft() instanceof VarRefNode v) pos = findFirstToken(v.getName());
-            reportSem(ErrorCode.SEMANTICO_TIPO_INCOMPATIVEL, pos[0], pos[1],
-                    "comparação inválida: " + left + " vs " + right);
+            if (leftVar != null) pos = findFirstToken(leftVar);
+            reportSem(ErrorCode.SEMANTICO_TIPO_INCOMPATIVEL, pos[0], pos[1], "",
+                    () -> "comparação inválida: " + left + " vs " + right);
         }
     }
 
     // ----- Expressões -----
 
-    private Type evalExpr(ExpressionNode e) {
-        if (e == null) return null;
-
-        if (e instanceof NumLiteralNode n) {
-            String value = n.getValue();
-            boolean isReal = value.contains(".");
-            int[] pos = findFirstToken(value);
-            
-            // COD.206: Verificar overflow numérico
-            if (isReal) {
-                checkRealOverflow(value, pos[0], pos[1]);
+    /**
+     * Tipo da expressão, verificando-a. Expressões compartilhadas (hash-consing)
+     * reaproveitam o tipo já calculado neste percurso quando a primeira avaliação
+     * não gerou diagnóstico: dentro de um percurso as variáveis só passam de
+     * não inicializadas para inicializadas, então reavaliar daria o mesmo tipo,
+     * nenhum erro novo, e as variáveis já estão marcadas como usadas. Quem
+     * volta a desmarcar {@code inicializada} (a análise incremental) usa outro
+     * SemanticAnalyzer, e com ele outro percurso.
+     *
+     * Percorre em pós-ordem com pilha explícita: cada BinaryExprNode é visto
+     * duas vezes (a primeira empilha os filhos, a segunda combina os tipos
+     * deles). Uma cadeia "a = b + c + d + ..." de qualquer tamanho usa
+     * pilha Java constante.
+     */
+    private Type evalExpr(ExpressionNode root) {
+        if (root == null) return null;
+
+        // valor na pilha: NOT_EXPANDED, ou a contagem de diagnósticos quando
+        // os filhos do BinaryExprNode foram empilhados
+        NodeStack<ExpressionNode> stack = new NodeStack<>();
+        Type[] results = new Type[8];
+        int nResults = 0;
+
+        stack.push(root, NOT_EXPANDED);
+        while (!stack.isEmpty()) {
+            int state = stack.topValue();
+            ExpressionNode e = stack.pop();
+            Type t;
+
+            if (e == null) {
+                t = null;
+            } else if (state == NOT_EXPANDED) {
+                Type cached = cachedType(e);
+                if (cached != null) {
+                    t = cached;
+                } else if (e instanceof BinaryExprNode b) {
+                    stack.push(b, reported);
+                    stack.push(b.getRight(), NOT_EXPANDED);
+                    stack.push(b.getLeft(), NOT_EXPANDED);
+                    continue;
+                } else {
+                    int before = reported;
+                    t = checkLeaf(e);
+                    cacheIfClean(e, t, before);
+                }
             } else {
-                checkIntegerOverflow(value, pos[0], pos[1]);
+                Type r = results[--nResults];
+                Type l = results[--nResults];
+                t = checkBinary((BinaryExprNode) e, l, r);
+                cacheIfClean(e, t, state);
             }
-            
-            return isReal ? Type.REAL : Type.INTEIRO;
+
+            if (nResults == results.length) results = Arrays.copyOf(results, nResults * 2);
+            results[nResults++] = t;
+        }
+        return results[0];
+    }
+
+    Type cachedType(ExpressionNode e) {
+        return e.cachedType(pass);
+    }
+
+    void cacheIfClean(ExpressionNode e, Type t, int reportedBefore) {
+        if (t != null && reported == reportedBefore) {
+            e.cacheType(pass, t);
+        }
+    }
+
+    Type checkLeaf(ExpressionNode e) {
+        if (e instanceof NumLiteralNode n) {
+            return checkLiteral(n.getConstant());
         }
         if (e instanceof VarRefNode v) {
-            String name = v.getName();
-            var entry = symbols.lookup(name);
-            // Encontrar posição do uso atual (após a declaração)
-            int[] pos = entry != null ? findTokenUsage(name, entry.line) : findFirstToken(name);
-
-            if (entry == null) {
-                reportSem(ErrorCode.SEMANTICO_VARIAVEL_NAO_DECLARADA, pos[0], pos[1],
-                        "uso de variável '" + name + "' sem declaração");
-                return null;
-            }
+            return checkVarUse(v.getName(), v.getId());
+        }
+        return null;
+    }
 
-            if (name.length() > 10) {
-                reportSem(ErrorCode.SEMANTICO_IDENT_TAMANHO_EXCEDIDO, pos[0], pos[1],
-                        "identificador '" + name + "' tem " + name.length() + " caracteres (uso)");
+    Type checkBinary(BinaryExprNode b, Type l, Type r) {
+        String op = b.getOp();
+        boolean divides = op.equals("/") || op.equals("RESTO");
+
+        return checkBinary(l, r, op,
+                b.getLeft() instanceof VarRefNode v ? v.getName() : null,
+                divides ? evalConstantValue(b.getRight()) : null,
+                evalConstantValue(b),
+                () -> findOperatorPosition(op, findExpressionPosition(b.getLeft()),
+                        findExpressionPosition(b.getRight())),
+                () -> findExpressionPosition(b));
+    }
+
+    /**
+     * Pós-ordem com pilha explícita, como {@link #evalExpr(ExpressionNode)}.
+     * Sem nós compartilhados não há tipo a memorizar; o valor constante de
+     * cada nó sai junto com o tipo, dos valores dos filhos.
+     */
+    private Type evalExpr(FlatAst ast, int root) {
+        IndexStack stack = new IndexStack();
+        Type[] types = new Type[8];
+        Double[] values = new Double[8];
+        int n = 0;
+
+        stack.push(root, 0);
+        while (!stack.isEmpty()) {
+            boolean expanded = stack.topValue() != 0;
+            int e = stack.pop();
+            Type t;
+            Double value = null;
+
+            switch (e == FlatAst.NONE ? -1 : ast.kind(e)) {
+                case FlatAst.NUM -> {
+                    t = checkLiteral(ast.constant(e));
+                    value = ast.constant(e).realValue;
+                }
+                case FlatAst.VAR -> t = checkVarUse(ast.name(e), ast.identId(e));
+                case FlatAst.BINARY -> {
+                    if (!expanded) {
+                        stack.push(e, 1);
+                        stack.push(ast.child2(e), 0);
+                        stack.push(ast.child1(e), 0);
+                        continue;
+                    }
+                    n -= 2;
+                    int left = ast.child1(e);
+                    int right = ast.child2(e);
+                    String op = ast.op(e);
+                    boolean divides = op.equals("/") || op.equals("RESTO");
+                    value = fold(op, values[n], values[n + 1]);
+
+                    t = checkBinary(types[n], types[n + 1], op,
+                            left != FlatAst.NONE && ast.kind(left) == FlatAst.VAR ? ast.name(left) : null,
+                            divides ? values[n + 1] : null,
+                            value,
+                            () -> findOperatorPosition(op, findExpressionPosition(ast, left),
+                                    findExpressionPosition(ast, right)),
+                            () -> findExpressionPosition(ast, e));
+                }
+                default -> t = null;
             }
 
-            // COD.207: Verificar se variável foi inicializada antes de usar
-            if (!entry.inicializada) {
-                reportSem(ErrorCode.SEMANTICO_VARIAVEL_NAO_INICIALIZADA, pos[0], pos[1],
-                        "COD.207 - Uso de variável não inicializada [variável '" + name + "']");
+            if (n == types.length) {
+                types = Arrays.copyOf(types, n * 2);
+                values = Arrays.copyOf(values, n * 2);
             }
+            types[n] = t;
+            values[n] = value;
+            n++;
+        }
+        return types[0];
+    }
+
+    private Type checkLiteral(ConstantPool.Constant c) {
+        // COD.206: o estouro já foi decidido na conversão do literal (ConstantPool)
+        if (c.overflow) {
+            int[] pos = findFirstToken(c.text);
+            reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, pos[0], pos[1], "",
+                    () -> "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
+        }
+        return c.real ? Type.REAL : Type.INTEIRO;
+    }
 
-            // Marcar variável como usada
-            entry.usada = true;
+    // a posição do uso só é buscada nos tokens quando há o que reportar
+    private Type checkVarUse(String name, int id) {
+        var entry = symbols.lookup(id);
 
-            return entry.type;
+        if (entry == null) {
+            int[] pos = findFirstToken(name);
+            reportSem(ErrorCode.SEMANTICO_VARIAVEL_NAO_DECLARADA, pos[0], pos[1], name,
+                    () -> "uso de variável '" + name + "' sem declaração");
+            return null;
         }
-        if (e instanceof BinaryExprNode b) {
-            Type l = evalExpr(b.getLeft());
-            Type r = evalExpr(b.getRight());
-            String op = b.getOp();
-
-            if (!isNumeric(l) || !isNumeric(r)) {
-                int[] pos = {1,1};
-                if (b.getLeft() instanceof VarRefNode v) pos = findFirstToken(v.getName());
-                reportSem(ErrorCode.SEMANTICO_TIPO_INCOMPATIVEL, pos[0], pos[1],
-                        "operação '" + op + "' inválida para tipos: " + l + " e " + r);
-                return null;
-            }
 
-            // COD.205: Verificar divisão por zero (apenas para constantes)
-            if (op.equals("/") || op.equals("RESTO")) {
-                Double rightValue = evalConstantValue(b.getRight());
-                if (rightValue != null && rightValue == 0.0) {
-                    // Encontrar posição do operador "/" ou "RESTO"
-                    int[] opPos = findOperatorPosition(op, b);
-                    reportSem(ErrorCode.SEMANTICO_DIVISAO_POR_ZERO, opPos[0], opPos[1],
-                            "COD.205 – Divisão por zero");
-                }
-            }
+        if (name.length() > 10) {
+            int[] pos = findTokenUsage(name, entry.line);
+            reportSem(ErrorCode.SEMANTICO_IDENT_TAMANHO_EXCEDIDO, pos[0], pos[1], name,
+                    () -> "identificador '" + name + "' tem " + name.length() + " caracteres (uso)");
+        }
+
+        // COD.207: Verificar se variável foi inicializada antes de usar
+        if (!entry.inicializada && !flowSensitive) {
+            reportUninitialized(name, findTokenUsage(name, entry.line));
+        }
 
-            // COD.206: Verificar overflow em expressões constantes
-            Double constValue = evalConstantValue(b);
-            if (constValue != null) {
-                Type resultType = (l == Type.REAL || r == Type.REAL) ? Type.REAL : Type.INTEIRO;
-                int[] exprPos = findExpressionPosition(b);
-                checkConstantOverflow(constValue, resultType, exprPos[0], exprPos[1]);
+        // Marcar variável como usada
+        entry.usada = true;
+
+        return entry.type;
+    }
+
+    private void reportUninitialized(String name, int[] pos) {
+        reportSem(ErrorCode.SEMANTICO_VARIAVEL_NAO_INICIALIZADA, pos[0], pos[1], name,
+                () -> "COD.207 - Uso de variável não inicializada [variável '" + name + "']");
+    }
+
+    /**
+     * Regras de uma operação binária, dados os tipos dos operandos. Valores
+     * constantes vêm já avaliados (null se não constantes) e as posições só
+     * são buscadas nos tokens se algum erro for reportado.
+     */
+    private Type checkBinary(Type l, Type r, String op, String leftVar, Double rightValue, Double constValue,
+                             Supplier<int[]> opPosition, Supplier<int[]> exprPosition) {
+        if (!isNumeric(l) || !isNumeric(r)) {
+            int[] pos = {1,1};
+            if (leftVar != null) pos = findFirstToken(leftVar);
+            reportSem(ErrorCode.SEMANTICO_TIPO_INCOMPATIVEL, pos[0], pos[1], "",
+                    () -> "operação '" + op + "' inválida para tipos: " + l + " e " + r);
+            return null;
+        }
+
+        // COD.205: Verificar divisão por zero (apenas para constantes)
+        if (op.equals("/") || op.equals("RESTO")) {
+            if (rightValue != null && rightValue == 0.0) {
+                // Encontrar posição do operador "/" ou "RESTO"
+                int[] opPos = opPosition.get();
+                reportSem(ErrorCode.SEMANTICO_DIVISAO_POR_ZERO, opPos[0], opPos[1], "",
+                        () -> "COD.205 – Divisão por zero");
             }
+        }
 
-            if (l == Type.REAL || r == Type.REAL) return Type.REAL;
-            return Type.INTEIRO;
+        // COD.206: Verificar overflow em expressões constantes
+        if (constValue != null) {
+            Type resultType = (l == Type.REAL || r == Type.REAL) ? Type.REAL : Type.INTEIRO;
+            int[] exprPos = exprPosition.get();
+            checkConstantOverflow(constValue, resultType, exprPos[0], exprPos[1]);
         }
 
-        return null;
+        if (l == Type.REAL || r == Type.REAL) return Type.REAL;
+        return Type.INTEIRO;
     }
 
     private boolean isNumeric(Type t) {
@@ -261,12 +578,16 @@ public class SemanticAnalyzer {
     private Double evalConstantValue(ExpressionNode e) {
         if (e == null) return null;
 
+        // só depende da estrutura: memorizado no nó
+        if (e.hasCachedConstant()) return e.cachedConstant();
+        Double value = constantValueOf(e);
+        e.cacheConstant(value);
+        return value;
+    }
+
+    private Double constantValueOf(ExpressionNode e) {
         if (e instanceof NumLiteralNode n) {
-            try {
-                return Double.parseDouble(n.getValue());
-            } catch (NumberFormatException ex) {
-                return null;
-            }
+            return n.getConstant().realValue;
         }
 
         if (e instanceof VarRefNode) {
@@ -278,35 +599,33 @@ public class SemanticAnalyzer {
             Double leftVal = evalConstantValue(b.getLeft());
             Double rightVal = evalConstantValue(b.getRight());
 
-            // Se qualquer operando não for constante, a expressão não é constante
-            if (leftVal == null || rightVal == null) {
-                return null;
-            }
-
-            String op = b.getOp();
-            return switch (op) {
-                case "+" -> leftVal + rightVal;
-                case "-" -> leftVal - rightVal;
-                case "*" -> leftVal * rightVal;
-                case "/" -> leftVal / rightVal; // Pode ser Infinity se rightVal == 0, mas já detectamos antes
-                case "RESTO" -> leftVal % rightVal;
-                default -> null;
-            };
+            return fold(b.getOp(), leftVal, rightVal);
         }
 
         return null;
     }
 
-    // Encontra a posição do operador nos tokens
-    private int[] findOperatorPosition(String operator, BinaryExprNode expr) {
+    // Valor de "left op right"; null se algum operando não for constante
+    private static Double fold(String op, Double leftVal, Double rightVal) {
+        if (leftVal == null || rightVal == null) {
+            return null;
+        }
+        return switch (op) {
+            case "+" -> leftVal + rightVal;
+            case "-" -> leftVal - rightVal;
+            case "*" -> leftVal * rightVal;
+            case "/" -> leftVal / rightVal; // Pode ser Infinity se rightVal == 0, mas já detectamos antes
+            case "RESTO" -> leftVal % rightVal;
+            default -> null;
+        };
+    }
+
+    // Encontra a posição do operador nos tokens, entre as posições dos operandos
+    private int[] findOperatorPosition(String operator, int[] leftPos, int[] rightPos) {
         // Buscar pelo operador nos tokens
         // O texto do operador pode ser: "+", "-", "*", "/", "RESTO"
         String opText = operator;
         
-        // Encontrar posições dos operandos
-        int[] leftPos = findExpressionPosition(expr.getLeft());
-        int[] rightPos = findExpressionPosition(expr.getRight());
-        
         // Procurar o operador entre os operandos esquerdo e direito
         for (TokenInfo t : tokens) {
             if (Objects.equals(t.text, opText)) {
@@ -341,19 +660,42 @@ public class SemanticAnalyzer {
         return new int[]{1, 1};
     }
 
+    private int[] findExpressionPosition(FlatAst ast, int e) {
+        // binária: operando direito como aproximação (descendo até a folha)
+        while (e != FlatAst.NONE && ast.kind(e) == FlatAst.BINARY) {
+            e = ast.child2(e);
+        }
+        if (e == FlatAst.NONE) return new int[]{1, 1};
+        return switch (ast.kind(e)) {
+            case FlatAst.NUM -> findFirstToken(ast.literal(e));
+            case FlatAst.VAR -> findFirstToken(ast.name(e));
+            default -> new int[]{1, 1};
+        };
+    }
+
     // ----- Report & localização aproximada -----
 
-    private void reportSem(ErrorCode code, int line, int col, String msg) {
+    /**
+     * @param symbol variável envolvida (chave da deduplicação), ou ""
+     * @param msg    montada só se o diagnóstico for lido
+     */
+    private void reportSem(ErrorCode code, int line, int col, String symbol, Supplier<String> msg) {
+        reported++;
         reporter.add(new Diagnostic(
                 ErrorType.SEMANTICO,
                 code,
                 Math.max(line, 1),
                 Math.max(col, 1),
                 msg,
-                ""
+                symbol
         ));
     }
 
+    // limite de erros do ErrorReporter atingido: a análise para
+    boolean stopped() {
+        return reporter.limitReached();
+    }
+
     // busca primeira ocorrência do lexema nos tokens para estimar linha/coluna
     private int[] findFirstToken(String text) {
         if (text == null) return new int[]{1,1};
@@ -404,51 +746,6 @@ public class SemanticAnalyzer {
     private static final BigDecimal MAX_REAL_POSITIVE = BigDecimal.valueOf(Double.MAX_VALUE);
     private static final BigDecimal MIN_REAL_NEGATIVE = BigDecimal.valueOf(-Double.MAX_VALUE);
 
-    /**
-     * Verifica se um literal inteiro causa overflow.
-     */
-    private void checkIntegerOverflow(String value, int line, int col) {
-        try {
-            BigInteger bigInt = new BigInteger(value);
-            if (bigInt.compareTo(MIN_INTEGER) < 0 || bigInt.compareTo(MAX_INTEGER) > 0) {
-                reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col,
-                        "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
-            }
-        } catch (NumberFormatException e) {
-            // Se não conseguir fazer parse, já é um problema, mas não é overflow
-            // O lexer já deveria ter validado o formato
-        }
-    }
-
-    /**
-     * Verifica se um literal real causa overflow.
-     */
-    private void checkRealOverflow(String value, int line, int col) {
-        try {
-            BigDecimal bigDec = new BigDecimal(value);
-            
-            // Verificar se está dentro dos limites do double
-            if (bigDec.compareTo(MIN_REAL_NEGATIVE) < 0 || bigDec.compareTo(MAX_REAL_POSITIVE) > 0) {
-                reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col,
-                        "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
-                return;
-            }
-            
-            // Verificar também se é infinito ou NaN (casos especiais)
-            double doubleValue = bigDec.doubleValue();
-            if (Double.isInfinite(doubleValue) || Double.isNaN(doubleValue)) {
-                reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col,
-                        "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
-            }
-        } catch (NumberFormatException e) {
-            // Se não conseguir fazer parse, já é um problema
-        } catch (ArithmeticException e) {
-            // Overflow ao converter para double
-            reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col,
-                    "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
-        }
-    }
-
     /**
      * Verifica se uma expressão constante causa overflow.
      */
@@ -459,20 +756,20 @@ public class SemanticAnalyzer {
             // Verificar se cabe em 32 bits
             BigInteger bigInt = BigDecimal.valueOf(value).toBigInteger();
             if (bigInt.compareTo(MIN_INTEGER) < 0 || bigInt.compareTo(MAX_INTEGER) > 0) {
-                reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col,
-                        "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
+                reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col, "",
+                        () -> "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
             }
         } else if (targetType == Type.REAL) {
             // Verificar se é infinito ou NaN
             if (Double.isInfinite(value) || Double.isNaN(value)) {
-                reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col,
-                        "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
+                reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col, "",
+                        () -> "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
             } else {
                 // Verificar se está dentro dos limites do double
                 BigDecimal bigDec = BigDecimal.valueOf(value);
                 if (bigDec.compareTo(MIN_REAL_NEGATIVE) < 0 || bigDec.compareTo(MAX_REAL_POSITIVE) > 0) {
-                    reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col,
-                            "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
+                    reportSem(ErrorCode.SEMANTICO_OVERFLOW_NUMERICO, line, col, "",
+                            () -> "COD.206 - Overflow Numérico — literal fora do intervalo permitido");
                 }
             }
         }
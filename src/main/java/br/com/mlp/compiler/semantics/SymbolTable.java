@@ -1,26 +1,46 @@
 package br.com.mlp.compiler.semantics;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.lex.IdentTable;
 
+/**
+ * Tabela de Símbolos indexada pelo ID do identificador (ver {@link IdentTable}):
+ * a busca é um acesso a vetor, sem hash de String.
+ *
+ * Escopos formam uma pilha. Declarar um nome já visível em escopo externo o
+ * sombreia até o {@link #exitScope()} correspondente; redeclarar no mesmo
+ * escopo é recusado. O programa MLP hoje tem um único escopo (o global).
+ */
 public class SymbolTable {
 
     public static class Entry {
         public final String name;
+        public final int id;
         public final Type type;
         public final int line;
         public final int column;
         public boolean inicializada = false;
         public boolean usada = false;
+        /** Variável criada por uma otimização (nome com '_', que não é identificador MLP). */
+        public boolean temporaria = false;
 
-        public Entry(String name, Type type, int line, int column) {
+        final int depth;
+        final Entry shadowed; // entrada do mesmo nome em escopo externo
+
+        Entry(String name, int id, Type type, int line, int column, int depth, Entry shadowed) {
             this.name = name;
+            this.id = id;
             this.type = type;
             this.line = line;
             this.column = column;
+            this.depth = depth;
+            this.shadowed = shadowed;
         }
 
         @Override
@@ -29,19 +49,98 @@ public class SymbolTable {
         }
     }
 
-    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final IdentTable idents;
+    private Entry[] byId;
 
-    public boolean declare(String name, Type type, int line, int column) {
-        if (entries.containsKey(name)) return false;
-        entries.put(name, new Entry(name, type, line, column));
+    // todas as entradas já declaradas, em ordem (inclusive de escopos encerrados)
+    private final List<Entry> declared = new ArrayList<>();
+
+    // entradas dos escopos abertos; scopeStart[d] é onde o escopo d começa
+    private final List<Entry> open = new ArrayList<>();
+    private int[] scopeStart = new int[4];
+    private int depth = 0;
+
+    public SymbolTable() {
+        this(new IdentTable());
+    }
+
+    public SymbolTable(IdentTable idents) {
+        this.idents = idents;
+        this.byId = new Entry[Math.max(idents.size(), 16)];
+    }
+
+    public IdentTable getIdents() {
+        return idents;
+    }
+
+    /* ------------ Escopos ------------ */
+
+    public void enterScope() {
+        depth++;
+        if (depth == scopeStart.length) {
+            scopeStart = Arrays.copyOf(scopeStart, depth * 2);
+        }
+        scopeStart[depth] = open.size();
+    }
+
+    public void exitScope() {
+        if (depth == 0) {
+            throw new IllegalStateException("escopo global não pode ser encerrado");
+        }
+        for (int k = open.size() - 1; k >= scopeStart[depth]; k--) {
+            Entry e = open.remove(k);
+            byId[e.id] = e.shadowed;
+        }
+        depth--;
+    }
+
+    /* ------------ Declaração e busca ------------ */
+
+    public boolean declare(int id, Type type, int line, int column) {
+        if (id >= byId.length) {
+            byId = Arrays.copyOf(byId, Math.max(id + 1, byId.length * 2));
+        }
+        Entry visible = byId[id];
+        if (visible != null && visible.depth == depth) return false;
+
+        Entry e = new Entry(idents.name(id), id, type, line, column, depth, visible);
+        byId[id] = e;
+        open.add(e);
+        declared.add(e);
         return true;
     }
 
+    public boolean declare(String name, Type type, int line, int column) {
+        return declare(idents.intern(name), type, line, column);
+    }
+
+    /**
+     * Declara uma variável auxiliar das otimizações, com nome base_N (o '_'
+     * garante que não colide com nenhum identificador do programa).
+     */
+    public Entry declareTemporary(String base, Type type) {
+        int n = 1;
+        while (lookup(base + "_" + n) != null) n++;
+        int id = idents.intern(base + "_" + n);
+        declare(id, type, 0, 0);
+        Entry e = lookup(id);
+        e.temporaria = true;
+        e.inicializada = true;
+        e.usada = true;
+        return e;
+    }
+
+    /** Entrada visível para o ID no escopo atual, ou null. */
+    public Entry lookup(int id) {
+        return id >= 0 && id < byId.length ? byId[id] : null;
+    }
+
     public Entry lookup(String name) {
-        return entries.get(name);
+        return lookup(idents.find(name));
     }
 
+    /** Todas as variáveis declaradas, na ordem de declaração. */
     public Collection<Entry> all() {
-        return entries.values();
+        return Collections.unmodifiableList(declared);
     }
 }
@@ -1,19 +1,37 @@
 package br.com.mlp.diagnostics;
 
+import java.util.function.Supplier;
+
 public class Diagnostic {
     private final ErrorType type;
     private final ErrorCode code;
     private final int line;
     private final int column;
     private final String message;
+    private final Supplier<String> lazyMessage;
     private final String offendingSymbol;
 
     public Diagnostic(ErrorType type, ErrorCode code, int line, int column, String message, String offendingSymbol) {
+        this(type, code, line, column, message, null, offendingSymbol);
+    }
+
+    /**
+     * Mensagem montada só quando for lida: um diagnóstico descartado (repetido,
+     * além do limite) ou só contado não chega a formatar o texto.
+     */
+    public Diagnostic(ErrorType type, ErrorCode code, int line, int column, Supplier<String> message,
+                      String offendingSymbol) {
+        this(type, code, line, column, null, message, offendingSymbol);
+    }
+
+    private Diagnostic(ErrorType type, ErrorCode code, int line, int column, String message,
+                       Supplier<String> lazyMessage, String offendingSymbol) {
         this.type = type;
         this.code = code;
         this.line = line;
         this.column = column;
         this.message = message;
+        this.lazyMessage = lazyMessage;
         this.offendingSymbol = offendingSymbol;
     }
 
@@ -21,12 +39,12 @@ public class Diagnostic {
     public ErrorCode getCode() { return code; }
     public int getLine() { return line; }
     public int getColumn() { return column; }
-    public String getMessage() { return message; }
+    public String getMessage() { return lazyMessage != null ? lazyMessage.get() : message; }
     public String getOffendingSymbol() { return offendingSymbol; }
 
     @Override
     public String toString() {
         return String.format("COD.%03d: erro %s (linha %d, coluna %d): %s [%s]",
-                code.getCode(), type.name().toLowerCase(), line, column, code.getDescription(), message);
+                code.getCode(), type.name().toLowerCase(), line, column, code.getDescription(), getMessage());
     }
 }
@@ -0,0 +1,10 @@
+package br.com.mlp.diagnostics;
+
+/**
+ * Destino dos diagnósticos à medida que são reportados. Com um destino, o
+ * {@link ErrorReporter} só conta: nada fica guardado na lista.
+ */
+public interface DiagnosticSink {
+
+    void accept(Diagnostic d);
+}
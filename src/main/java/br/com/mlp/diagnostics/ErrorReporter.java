@@ -1,21 +1,108 @@
 package br.com.mlp.diagnostics;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Coleta os diagnósticos de todas as fases. Sincronizado: pode receber
+ * diagnósticos de várias threads, e {@link #all()} devolve uma cópia.
+ *
+ * As contagens por tipo ficam num {@link EnumMap}, então
+ * {@link #hasErrorsOfType} e {@link #hasAnyError} não percorrem a lista.
+ * Opcionalmente:
+ *
+ *   limite:        ao chegar a {@code limit} erros, {@link #limitReached()}
+ *                  fica verdadeiro e os seguintes são só contados como
+ *                  omitidos; o léxico, o parser e a semântica consultam o
+ *                  limite e param;
+ *   deduplicação:  o mesmo código para o mesmo símbolo sai uma vez só
+ *                  (os sintáticos e os sem símbolo ficam todos);
+ *   destino:       cada diagnóstico vai para o {@link DiagnosticSink} em vez
+ *                  de ficar na lista ({@link #all()} fica vazia).
+ */
 public class ErrorReporter {
+
+    /** Sem limite de erros. */
+    public static final int UNLIMITED = 0;
+
+    private record Key(ErrorCode code, String symbol) { }
+
     private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private final EnumMap<ErrorType, Integer> counts = new EnumMap<>(ErrorType.class);
+    private final int limit;
+    private final Set<Key> seen;               // null: sem deduplicação
+    private final DiagnosticSink sink;         // null: lista
+    private int total;
+    private long suppressed;
+
+    public ErrorReporter() {
+        this(UNLIMITED, false, null);
+    }
+
+    /**
+     * @param limit       número de erros que interrompe a compilação, ou
+     *                    {@link #UNLIMITED}
+     * @param deduplicate mesmo código e mesmo símbolo reportados uma vez só
+     * @param sink        destino dos diagnósticos, ou null para guardá-los
+     */
+    public ErrorReporter(int limit, boolean deduplicate, DiagnosticSink sink) {
+        if (limit < 0) throw new IllegalArgumentException("limite de erros negativo: " + limit);
+        this.limit = limit;
+        this.seen = deduplicate ? new HashSet<>() : null;
+        this.sink = sink;
+    }
+
+    public synchronized void add(Diagnostic d) {
+        if (limitReached() || isRepeated(d)) {
+            suppressed++;
+            return;
+        }
+        counts.merge(d.getType(), 1, Integer::sum);
+        total++;
+        if (sink != null) sink.accept(d);
+        else diagnostics.add(d);
+    }
+
+    private boolean isRepeated(Diagnostic d) {
+        String symbol = d.getOffendingSymbol();
+        if (seen == null || d.getType() == ErrorType.SINTATICO || symbol == null || symbol.isEmpty()) {
+            return false;
+        }
+        return !seen.add(new Key(d.getCode(), symbol));
+    }
+
+    public synchronized List<Diagnostic> all() { return List.copyOf(diagnostics); }
+
+    public synchronized boolean hasErrorsOfType(ErrorType t) {
+        return counts.containsKey(t);
+    }
+
+    public synchronized boolean hasAnyError() {
+        return total > 0;
+    }
 
-    public void add(Diagnostic d) { diagnostics.add(d); }
+    /** Erros aceitos (sem os omitidos), inclusive os que foram para o destino. */
+    public synchronized int count(ErrorType t) {
+        return counts.getOrDefault(t, 0);
+    }
 
-    public List<Diagnostic> all() { return Collections.unmodifiableList(diagnostics); }
+    public synchronized int total() {
+        return total;
+    }
+
+    /** Diagnósticos descartados por repetição ou por chegarem depois do limite. */
+    public synchronized long suppressed() {
+        return suppressed;
+    }
 
-    public boolean hasErrorsOfType(ErrorType t) {
-        return diagnostics.stream().anyMatch(d -> d.getType() == t);
+    public synchronized boolean limitReached() {
+        return limit != UNLIMITED && total >= limit;
     }
 
-    public boolean hasAnyError() {
-        return !diagnostics.isEmpty();
+    public int limit() {
+        return limit;
     }
 }
@@ -1,7 +1,13 @@
 package br.com.mlp.diagnostics;
 
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
+/**
+ * Repassa os erros do parser ao {@link ErrorReporter}; quando o limite de
+ * erros é atingido, interrompe a análise com
+ * {@link ParseCancellationException}.
+ */
 public class MlpSyntaxErrorListener extends BaseErrorListener {
     private final ErrorReporter reporter;
 
@@ -31,5 +37,8 @@ public class MlpSyntaxErrorListener extends BaseErrorListener {
                 msg,
                 offending
         ));
+        if (reporter.limitReached()) {
+            throw new ParseCancellationException("limite de " + reporter.limit() + " erro(s) atingido");
+        }
     }
 }
@@ -0,0 +1,60 @@
+package br.com.mlp.lex;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Internação de identificadores: cada nome distinto recebe um ID inteiro
+ * denso (0, 1, 2, ...) na primeira vez em que aparece. O hash da String é
+ * calculado só aqui; daí em diante AST, Tabela de Símbolos e TAC usam o ID
+ * como índice de vetor.
+ *
+ * Pode ser compartilhada entre threads (front end em pipeline: o lexer e o
+ * construtor da AST internam, a semântica lê): a criação de um ID é feita
+ * sob lock, as leituras não bloqueiam.
+ */
+public final class IdentTable {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private volatile int size;
+
+    /** ID do nome, criando um novo se ainda não existir. */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) return id;
+            int next = size;
+            String[] n = names;
+            if (next == n.length) {
+                n = Arrays.copyOf(n, next * 2);
+            }
+            n[next] = name;
+            names = n;
+            size = next + 1;     // publica o nome antes do ID
+            ids.put(name, next);
+            return next;
+        }
+    }
+
+    /** ID do nome, ou -1 se ele nunca foi internado. */
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    public String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("ID " + id + " fora da tabela (" + size + " nomes)");
+        }
+        return names[id];
+    }
+
+    /** Quantidade de nomes distintos (todo ID é menor que isso). */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.mlp.lex;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+import br.com.mlp.compiler.parser.MlpLexer;
+
+/**
+ * Token IDENT que já sai do lexer com o ID da {@link IdentTable}: o nome é
+ * internado uma vez, ao ser lido, e {@link TokenInfo} e a AST usam o mesmo
+ * ID (ver {@link #idOf}).
+ */
+public final class IdentToken extends CommonToken {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int identId;
+
+    private IdentToken(Pair<TokenSource, CharStream> source, int type, int channel, int start, int stop,
+                       int identId) {
+        super(source, type, channel, start, stop);
+        this.identId = identId;
+    }
+
+    public int getIdentId() {
+        return identId;
+    }
+
+    /** Fábrica para {@code lexer.setTokenFactory}: IDENTs internados em {@code idents}. */
+    public static TokenFactory<CommonToken> factory(IdentTable idents) {
+        return new Factory(idents);
+    }
+
+    /**
+     * ID do identificador do token. Tokens que não vieram de um lexer com
+     * {@link #factory} (ex: AST montada direto do MlpLexer nos testes) são
+     * internados aqui.
+     */
+    public static int idOf(Token t, IdentTable idents) {
+        return t instanceof IdentToken it ? it.identId : idents.intern(t.getText());
+    }
+
+    private static final class Factory implements TokenFactory<CommonToken> {
+
+        private final IdentTable idents;
+
+        Factory(IdentTable idents) {
+            this.idents = idents;
+        }
+
+        @Override
+        public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel,
+                                  int start, int stop, int line, int charPositionInLine) {
+            CommonToken t;
+            if (type == MlpLexer.IDENT) {
+                String name = text != null ? text : source.b.getText(Interval.of(start, stop));
+                t = new IdentToken(source, type, channel, start, stop, idents.intern(name));
+            } else {
+                t = new CommonToken(source, type, channel, start, stop);
+            }
+            t.setLine(line);
+            t.setCharPositionInLine(charPositionInLine);
+            if (text != null) t.setText(text);
+            return t;
+        }
+
+        @Override
+        public CommonToken create(int type, String text) {
+            return new CommonToken(type, text);
+        }
+    }
+}
@@ -8,13 +8,20 @@ public class TokenInfo {
     public final int column;
 
     public final boolean isReserved;
+    /** ID do identificador na {@link IdentTable}; -1 se o token não é IDENT. */
+    public final int identId;
 
     public TokenInfo(String text, String typeName, int type, int line, int column, boolean isReserved) {
+        this(text, typeName, type, line, column, isReserved, -1);
+    }
+
+    public TokenInfo(String text, String typeName, int type, int line, int column, boolean isReserved, int identId) {
         this.text = text;
         this.typeName = typeName;
         this.type = type;
         this.line = line;
         this.column = column;
         this.isReserved = isReserved;
+        this.identId = identId;
     }
 }
@@ -10,44 +10,67 @@ import br.com.mlp.diagnostics.*;
 public class TokenScanner {
 
     private final ErrorReporter reporter;
+    private final IdentTable idents;
 
     public TokenScanner(ErrorReporter reporter) {
+        this(reporter, new IdentTable());
+    }
+
+    /** Identificadores são internados em {@code idents} à medida que são lidos. */
+    public TokenScanner(ErrorReporter reporter, IdentTable idents) {
         this.reporter = reporter;
+        this.idents = idents;
+    }
+
+    public IdentTable getIdents() {
+        return idents;
     }
 
     public List<TokenInfo> scan(CharStream input) {
         MlpLexer lexer = new MlpLexer(input);
+        lexer.setTokenFactory(IdentToken.factory(idents));
         List<TokenInfo> tokens = new ArrayList<>();
 
         while (true) {
             Token t = lexer.nextToken();
             if (t.getType() == Token.EOF) break;
+            tokens.add(record(t));
+            if (reporter.limitReached()) break; // o resto não seria mostrado
+        }
 
-            String symbolic = MlpLexer.VOCABULARY.getSymbolicName(t.getType());
-            boolean isReserved = isReservedToken(t.getType());
+        return tokens;
+    }
 
-            if (t.getType() == MlpLexer.ERROR_CHAR) {
-                reporter.add(new Diagnostic(
-                        ErrorType.LEXICO,
-                        ErrorCode.LEXICO_TOKEN_DESCONHECIDO,
-                        t.getLine(),
-                        t.getCharPositionInLine() + 1,
-                        "símbolo '" + t.getText() + "'",
-                        t.getText()
-                ));
-            }
+    /**
+     * Converte um token do lexer em {@link TokenInfo}, reportando o erro
+     * léxico se for um símbolo desconhecido. Usado também pelo front end em
+     * pipeline, que roda o lexer direto.
+     */
+    public TokenInfo record(Token t) {
+        String symbolic = MlpLexer.VOCABULARY.getSymbolicName(t.getType());
+        boolean isReserved = isReservedToken(t.getType());
 
-            tokens.add(new TokenInfo(
-                    t.getText(),
-                    symbolic,
-                    t.getType(),
+        if (t.getType() == MlpLexer.ERROR_CHAR) {
+            String text = t.getText();
+            reporter.add(new Diagnostic(
+                    ErrorType.LEXICO,
+                    ErrorCode.LEXICO_TOKEN_DESCONHECIDO,
                     t.getLine(),
-                    t.getCharPositionInLine(),
-                    isReserved
+                    t.getCharPositionInLine() + 1,
+                    () -> "símbolo '" + text + "'",
+                    text
             ));
         }
 
-        return tokens;
+        return new TokenInfo(
+                t.getText(),
+                symbolic,
+                t.getType(),
+                t.getLine(),
+                t.getCharPositionInLine(),
+                isReserved,
+                t.getType() == MlpLexer.IDENT ? IdentToken.idOf(t, idents) : -1
+        );
     }
 
     // Palavra reservada = tokens definidos como palavras-chave no lexer
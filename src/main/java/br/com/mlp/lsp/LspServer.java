@@ -0,0 +1,232 @@
+package br.com.mlp.lsp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.com.mlp.diagnostics.Diagnostic;
+
+/**
+ * Servidor LSP pela entrada e saída padrão (JSON-RPC com cabeçalho
+ * Content-Length). Sincronização incremental: cada didChange com intervalo
+ * vai para {@link MlpDocument#replace}, e os diagnósticos do documento são
+ * publicados logo em seguida.
+ *
+ * Mensagens tratadas: initialize, initialized, shutdown, exit e
+ * textDocument/didOpen, didChange e didClose. Pedidos desconhecidos
+ * recebem o erro -32601 (método não encontrado); notificações
+ * desconhecidas são ignoradas.
+ */
+public final class LspServer {
+
+    /** Diagnósticos publicados por documento; o resto é descartado. */
+    static final int MAX_PUBLISHED = 1000;
+
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INVALID_PARAMS = -32602;
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final Map<String, MlpDocument> documents = new HashMap<>();
+    private boolean shutdown;
+
+    public LspServer(InputStream in, OutputStream out) {
+        this.in = new BufferedInputStream(in);
+        this.out = new BufferedOutputStream(out);
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.exit(new LspServer(System.in, System.out).run());
+    }
+
+    /** Atende até "exit" ou o fim da entrada; devolve o código de saída. */
+    public int run() throws IOException {
+        String message;
+        while ((message = read()) != null) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> msg = (Map<String, Object>) Json.parse(message);
+            String method = (String) msg.get("method");
+            if ("exit".equals(method)) return shutdown ? 0 : 1;
+            if (method == null) continue; // resposta do cliente a um pedido nosso: não fazemos pedidos
+            try {
+                handle(method, msg);
+            } catch (RuntimeException e) {
+                if (msg.containsKey("id")) error(msg.get("id"), INVALID_PARAMS, String.valueOf(e.getMessage()));
+            }
+        }
+        return shutdown ? 0 : 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handle(String method, Map<String, Object> msg) throws IOException {
+        Object id = msg.get("id");
+        Map<String, Object> params = (Map<String, Object>) msg.get("params");
+        switch (method) {
+            case "initialize" -> respond(id, capabilities());
+            case "initialized" -> { }
+            case "shutdown" -> {
+                shutdown = true;
+                respond(id, null);
+            }
+            case "textDocument/didOpen" -> {
+                Map<String, Object> doc = (Map<String, Object>) params.get("textDocument");
+                String uri = (String) doc.get("uri");
+                MlpDocument d = new MlpDocument((String) doc.get("text"));
+                documents.put(uri, d);
+                publish(uri, d.diagnostics());
+            }
+            case "textDocument/didChange" -> {
+                String uri = (String) ((Map<String, Object>) params.get("textDocument")).get("uri");
+                MlpDocument d = documents.get(uri);
+                if (d == null) return;
+                for (Object o : (List<Object>) params.get("contentChanges")) {
+                    Map<String, Object> change = (Map<String, Object>) o;
+                    String text = (String) change.get("text");
+                    Map<String, Object> range = (Map<String, Object>) change.get("range");
+                    if (range == null) {
+                        d.setText(text);
+                    } else {
+                        Map<String, Object> start = (Map<String, Object>) range.get("start");
+                        Map<String, Object> end = (Map<String, Object>) range.get("end");
+                        d.replace(number(start, "line"), number(start, "character"),
+                                number(end, "line"), number(end, "character"), text);
+                    }
+                }
+                publish(uri, d.diagnostics());
+            }
+            case "textDocument/didClose" -> {
+                String uri = (String) ((Map<String, Object>) params.get("textDocument")).get("uri");
+                documents.remove(uri);
+                publish(uri, List.of());
+            }
+            default -> {
+                if (id != null) error(id, METHOD_NOT_FOUND, "método não suportado: " + method);
+            }
+        }
+    }
+
+    private static Map<String, Object> capabilities() {
+        Map<String, Object> sync = new LinkedHashMap<>();
+        sync.put("openClose", true);
+        sync.put("change", 2); // incremental
+        Map<String, Object> caps = new LinkedHashMap<>();
+        caps.put("textDocumentSync", sync);
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("name", "mlp");
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("capabilities", caps);
+        result.put("serverInfo", info);
+        return result;
+    }
+
+    private static int number(Map<String, Object> obj, String key) {
+        return ((Number) obj.get(key)).intValue();
+    }
+
+    /* ------------ Diagnósticos ------------ */
+
+    private void publish(String uri, List<Diagnostic> diagnostics) throws IOException {
+        List<Object> list = new ArrayList<>();
+        for (Diagnostic d : diagnostics) {
+            if (list.size() == MAX_PUBLISHED) break;
+            list.add(toLsp(d));
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("uri", uri);
+        params.put("diagnostics", list);
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("jsonrpc", "2.0");
+        msg.put("method", "textDocument/publishDiagnostics");
+        msg.put("params", params);
+        write(msg);
+    }
+
+    // linhas e colunas do compilador começam em 1, as do LSP em 0
+    static Map<String, Object> toLsp(Diagnostic d) {
+        int line = Math.max(d.getLine() - 1, 0);
+        int col = Math.max(d.getColumn() - 1, 0);
+        String symbol = d.getOffendingSymbol();
+        int length = symbol == null || symbol.isEmpty() ? 1 : symbol.length();
+
+        Map<String, Object> range = new LinkedHashMap<>();
+        range.put("start", position(line, col));
+        range.put("end", position(line, col + length));
+        Map<String, Object> lsp = new LinkedHashMap<>();
+        lsp.put("range", range);
+        lsp.put("severity", 1); // erro
+        lsp.put("code", "COD." + d.getCode().getCode());
+        lsp.put("source", "mlp");
+        lsp.put("message", d.getCode().getDescription() + ": " + d.getMessage());
+        return lsp;
+    }
+
+    private static Map<String, Object> position(int line, int character) {
+        Map<String, Object> p = new LinkedHashMap<>();
+        p.put("line", line);
+        p.put("character", character);
+        return p;
+    }
+
+    /* ------------ Transporte ------------ */
+
+    private void respond(Object id, Object result) throws IOException {
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("jsonrpc", "2.0");
+        msg.put("id", id);
+        msg.put("result", result);
+        write(msg);
+    }
+
+    private void error(Object id, int code, String message) throws IOException {
+        Map<String, Object> err = new LinkedHashMap<>();
+        err.put("code", code);
+        err.put("message", message);
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("jsonrpc", "2.0");
+        msg.put("id", id);
+        msg.put("error", err);
+        write(msg);
+    }
+
+    private void write(Map<String, Object> msg) throws IOException {
+        byte[] body = Json.write(msg).getBytes(StandardCharsets.UTF_8);
+        out.write(("Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+    }
+
+    // null no fim da entrada
+    private String read() throws IOException {
+        int length = -1;
+        String header;
+        while (!(header = readLine()).isEmpty()) {
+            int colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                length = Integer.parseInt(header.substring(colon + 1).trim());
+            }
+        }
+        if (length < 0) return null;
+        byte[] body = in.readNBytes(length);
+        if (body.length < length) return null;
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    // linha do cabeçalho sem o "\r\n"; vazia também no fim da entrada
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') line.write(b);
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+}
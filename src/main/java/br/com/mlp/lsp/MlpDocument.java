@@ -0,0 +1,549 @@
+package br.com.mlp.lsp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.CommandNode;
+import br.com.mlp.compiler.ast.DeclNode;
+import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.IncrementalAnalyzer;
+import br.com.mlp.compiler.semantics.SymbolTable;
+import br.com.mlp.diagnostics.Diagnostic;
+import br.com.mlp.diagnostics.ErrorCode;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.diagnostics.ErrorType;
+import br.com.mlp.diagnostics.MlpSyntaxErrorListener;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.IdentToken;
+import br.com.mlp.lex.TokenInfo;
+import br.com.mlp.lex.TokenScanner;
+
+/**
+ * Um documento aberto no editor, com o estado necessário para refazer só o
+ * que uma alteração atinge.
+ *
+ *   léxico:     nenhum token atravessa linhas, então cada linha é lida
+ *               sozinha e só as linhas alteradas são lidas de novo;
+ *   sintático:  todo ';' fecha uma unidade de topo (declaração "tipo" ou
+ *               "comando": dentro de se/enquanto não há ';'), então o
+ *               programa é uma sequência de unidades analisadas
+ *               separadamente pelas regras tipo/comando. Refazem-se as
+ *               unidades que tocam as linhas alteradas, até a divisão
+ *               voltar a coincidir com a antiga;
+ *   semântica:  as declarações são refeitas quando alguma muda; um comando
+ *               é reverificado se é novo, se referencia uma variável cujo
+ *               tipo ou declaração mudou, ou se lê uma variável cuja
+ *               primeira atribuição passou para antes ou depois dele
+ *               (COD.207). COD.208 sai da contagem de referências.
+ *
+ * As linhas e colunas dos diagnósticos guardados valem para o momento em
+ * que foram gerados; as unidades deslocadas por linhas inseridas ou
+ * removidas acima acumulam o deslocamento, aplicado em
+ * {@link #diagnostics()}.
+ *
+ * Diferente da compilação completa, uma unidade com erro sintático não
+ * impede a análise semântica das outras, e as posições são procuradas nos
+ * tokens da própria unidade (apontam para o uso, não para a primeira
+ * ocorrência no arquivo). Não é thread-safe.
+ */
+public final class MlpDocument {
+
+    /** O que a última alteração refez. */
+    public record EditStats(int relexedLines, int reparsedUnits, int reanalyzedUnits) { }
+
+    private static final class Line {
+        final String text;
+        final Token[] tokens;  // lidos na linha 1; a linha real é a posição na lista
+        final boolean lexicalErrors;
+
+        Line(String text, Token[] tokens, boolean lexicalErrors) {
+            this.text = text;
+            this.tokens = tokens;
+            this.lexicalErrors = lexicalErrors;
+        }
+    }
+
+    private static final class Unit {
+        long start, end;           // posição (linha, token) do primeiro e do último token
+        int order;                 // índice na lista de unidades
+        boolean declaration;
+        boolean terminated;        // fecha com ';'
+        ParserRuleContext tree;    // null se houve erro sintático
+        DeclNode decl;
+        CommandNode command;       // AST do comando, reanalisada a cada mudança de inicialização
+        IncrementalAnalyzer.References refs;
+        List<Diagnostic> syntax = List.of();
+        List<Diagnostic> semantic = List.of();
+        int syntaxShift;
+        int semanticShift;
+
+        int startLine() { return line(start); }
+        int endLine() { return line(end); }
+    }
+
+    private record Declared(Type type, int line) { }
+
+    private static final Comparator<Unit> BY_ORDER = Comparator.comparingInt(u -> u.order);
+
+    private final IdentTable idents = new IdentTable();
+    private final MlpLexer lexer = new MlpLexer(CharStreams.fromString(""));
+    private final MlpParser parser = new MlpParser(null);
+    private final TokenScanner scanner = new TokenScanner(new ErrorReporter(ErrorReporter.UNLIMITED, false, d -> { }),
+            idents);
+    private final IncrementalAnalyzer analyzer = new IncrementalAnalyzer(idents);
+
+    private final List<Line> lines = new ArrayList<>();
+    private final List<Unit> units = new ArrayList<>();
+    private final TreeSet<Unit> declarations = new TreeSet<>(BY_ORDER);
+    // ID da variável -> comandos que a leem, atribuem ou referenciam, na ordem do programa
+    private final Map<Integer, TreeSet<Unit>> readers = new HashMap<>();
+    private final Map<Integer, TreeSet<Unit>> writers = new HashMap<>();
+    private final Map<Integer, TreeSet<Unit>> referrers = new HashMap<>();
+    // tipo e linha de cada declaração: a linha decide onde os usos são apontados
+    private Map<Integer, Declared> declared = Map.of();
+
+    public MlpDocument(String text) {
+        lexer.removeErrorListeners();
+        lexer.setTokenFactory(IdentToken.factory(idents));
+        parser.removeErrorListeners();
+        update(0, -1, split(text));
+    }
+
+    /** Troca o texto entre as duas posições (linha e caractere, a partir de 0). */
+    public EditStats replace(int startLine, int startChar, int endLine, int endChar, String text) {
+        if (startLine > endLine || (startLine == endLine && startChar > endChar)) {
+            throw new IllegalArgumentException("intervalo invertido");
+        }
+        int last = lines.size() - 1;
+        startLine = Math.min(startLine, last);
+        endLine = Math.min(endLine, last);
+        String first = lines.get(startLine).text;
+        String end = lines.get(endLine).text;
+        String merged = first.substring(0, Math.min(startChar, first.length())) + text
+                + end.substring(Math.min(endChar, end.length()));
+        return update(startLine, endLine, split(merged));
+    }
+
+    /** Troca o documento inteiro. */
+    public EditStats setText(String text) {
+        return update(0, lines.size() - 1, split(text));
+    }
+
+    public String text() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            if (i > 0) sb.append('\n');
+            sb.append(lines.get(i).text);
+        }
+        return sb.toString();
+    }
+
+    public int lineCount() {
+        return lines.size();
+    }
+
+    private static List<String> split(String text) {
+        return List.of(text.split("\n", -1));
+    }
+
+    /* ------------ Alteração ------------ */
+
+    // as linhas first..lastOld (inclusive) passam a ser "texts"
+    private EditStats update(int first, int lastOld, List<String> texts) {
+        // unidades que tocam as linhas alteradas; a que ficou sem ';' no fim absorve o que vier
+        int i = firstEndingAtOrAfter(first);
+        if (i > 0 && !units.get(i - 1).terminated) i--;
+        int j = Math.max(lastStartingAtOrBefore(lastOld), i - 1);
+        long restart = i == 0 ? 0 : units.get(i - 1).end + 1;
+        int lastDeclarationLine = lastDeclarationLine();
+
+        List<Line> relexed = new ArrayList<>(texts.size());
+        for (String t : texts) relexed.add(lex(t));
+        lines.subList(first, lastOld + 1).clear();
+        lines.addAll(first, relexed);
+        int delta = texts.size() - (lastOld - first + 1);
+        boolean declarationsShifted = delta != 0 && !declarations.isEmpty() && declarations.last().order > j;
+
+        for (int k = j + 1; k < units.size(); k++) shift(units.get(k), delta);
+
+        // nova divisão a partir de "restart", até coincidir com uma unidade antiga
+        List<Unit> added = new ArrayList<>();
+        int next = j + 1;
+        long[] epilogue = epilogue();
+        long p = firstTokenAtOrAfter(restart);
+        if (i == 0 && p >= 0 && token(p).getType() == MlpLexer.DOLLAR) {
+            p = firstTokenAtOrAfter(p + 1); // '$' do início
+        }
+        while (p >= 0 && (epilogue == null || p != epilogue[0])) {
+            if (next < units.size() && units.get(next).start == p) break;
+            Unit u = new Unit();
+            u.start = p;
+            long q = p;
+            while (true) {
+                u.end = q;
+                if (token(q).getType() == MlpLexer.SEMI) {
+                    u.terminated = true;
+                    break;
+                }
+                q = firstTokenAtOrAfter(q + 1);
+                if (q < 0 || (epilogue != null && q == epilogue[0])) break;
+            }
+            added.add(u);
+            while (next < units.size() && units.get(next).start <= u.end) next++; // engolidas
+            p = u.terminated ? firstTokenAtOrAfter(u.end + 1) : -1;
+        }
+        if (p < 0 || (epilogue != null && p == epilogue[0])) next = units.size();
+
+        for (Unit u : added) parse(u);
+
+        List<Unit> removed = new ArrayList<>(units.subList(i, next));
+        Set<Integer> assigned = new HashSet<>();
+        for (Unit u : removed) if (u.refs != null) for (int id : u.refs.writes()) assigned.add(id);
+        for (Unit u : added) if (u.refs != null) for (int id : u.refs.writes()) assigned.add(id);
+        Map<Integer, Unit> firstBefore = new HashMap<>();
+        for (int id : assigned) firstBefore.put(id, firstOf(writers, id));
+
+        for (Unit u : removed) unregister(u);
+        units.subList(i, next).clear();
+        units.addAll(i, added);
+        for (int k = i; k < units.size(); k++) units.get(k).order = k;
+        for (Unit u : added) register(u);
+
+        // semântica
+        TreeSet<Unit> recheck = new TreeSet<>(BY_ORDER);
+        for (Unit u : added) if (!u.declaration && u.tree != null) recheck.add(u);
+        // a posição de um uso depende de ele estar abaixo da linha da declaração; só os
+        // comandos deslocados até a altura das declarações podem ter mudado de lado
+        if (delta != 0) {
+            int bound = Math.max(lastDeclarationLine, lastDeclarationLine()) + Math.abs(delta);
+            for (int k = i + added.size(); k < units.size() && units.get(k).startLine() <= bound; k++) {
+                Unit u = units.get(k);
+                if (!u.declaration && u.tree != null) recheck.add(u);
+            }
+        }
+
+        boolean declarationsChanged = declarationsShifted
+                || removed.stream().anyMatch(u -> u.declaration) || added.stream().anyMatch(u -> u.declaration);
+        int redeclared = 0;
+        if (declarationsChanged) {
+            redeclared = redeclare();
+            Map<Integer, Declared> before = declared;
+            declared = new HashMap<>();
+            for (SymbolTable.Entry e : analyzer.symbols().all()) declared.put(e.id, new Declared(e.type, e.line));
+            Set<Integer> ids = new HashSet<>(before.keySet());
+            ids.addAll(declared.keySet());
+            for (int id : ids) {
+                if (!Objects.equals(before.get(id), declared.get(id))) addAll(recheck, referrers.get(id));
+            }
+        }
+
+        // COD.207: quem lê entre a primeira atribuição antiga e a nova
+        Set<Unit> gone = new HashSet<>(removed);
+        for (int id : assigned) {
+            Unit before = firstBefore.get(id);
+            Unit after = firstOf(writers, id);
+            if (before == after) continue;
+            int from = before == null ? Integer.MAX_VALUE : gone.contains(before) ? i : before.order;
+            int to = after == null ? Integer.MAX_VALUE : after.order;
+            TreeSet<Unit> r = readers.get(id);
+            if (r == null) continue;
+            for (Unit u : r) {
+                if (u.order >= Math.min(from, to) && u.order <= Math.max(from, to)) recheck.add(u);
+            }
+        }
+
+        for (Unit u : recheck) check(u);
+        return new EditStats(texts.size(), added.size(), recheck.size() + redeclared);
+    }
+
+    private int lastDeclarationLine() {
+        return declarations.isEmpty() ? -1 : declarations.last().endLine();
+    }
+
+    private void shift(Unit u, int delta) {
+        if (delta == 0) return;
+        u.start = pos(line(u.start) + delta, tok(u.start));
+        u.end = pos(line(u.end) + delta, tok(u.end));
+        u.syntaxShift += delta;
+        u.semanticShift += delta;
+    }
+
+    private static void addAll(TreeSet<Unit> into, TreeSet<Unit> from) {
+        if (from == null) return;
+        for (Unit u : from) if (u.tree != null) into.add(u);
+    }
+
+    /* ------------ Léxico ------------ */
+
+    private Line lex(String text) {
+        lexer.setInputStream(CharStreams.fromString(text));
+        List<Token> tokens = new ArrayList<>();
+        boolean errors = false;
+        for (Token t = lexer.nextToken(); t.getType() != Token.EOF; t = lexer.nextToken()) {
+            tokens.add(t);
+            errors |= t.getType() == MlpLexer.ERROR_CHAR;
+        }
+        return new Line(text, tokens.toArray(new Token[0]), errors);
+    }
+
+    // posições de token: linha nos 32 bits altos, índice na linha nos baixos
+    private static long pos(int line, int tok) {
+        return ((long) line << 32) | tok;
+    }
+
+    private static int line(long pos) {
+        return (int) (pos >>> 32);
+    }
+
+    private static int tok(long pos) {
+        return (int) pos;
+    }
+
+    private Token token(long pos) {
+        return lines.get(line(pos)).tokens[tok(pos)];
+    }
+
+    // primeiro token em "pos" ou depois (pos pode passar do fim da linha), ou -1
+    private long firstTokenAtOrAfter(long pos) {
+        int line = line(pos);
+        int tok = tok(pos);
+        for (; line < lines.size(); line++, tok = 0) {
+            if (tok < lines.get(line).tokens.length) return pos(line, tok);
+        }
+        return -1;
+    }
+
+    // "$ ." dos dois últimos tokens, ou null
+    private long[] epilogue() {
+        long last = -1;
+        long prev = -1;
+        for (int line = lines.size() - 1; line >= 0 && prev < 0; line--) {
+            for (int t = lines.get(line).tokens.length - 1; t >= 0 && prev < 0; t--) {
+                if (last < 0) last = pos(line, t);
+                else prev = pos(line, t);
+            }
+        }
+        if (prev < 0 || token(prev).getType() != MlpLexer.DOLLAR || token(last).getType() != MlpLexer.DOT) {
+            return null;
+        }
+        return new long[] {prev, last};
+    }
+
+    /* ------------ Sintático ------------ */
+
+    private void parse(Unit u) {
+        List<Token> tokens = new ArrayList<>();
+        for (long p = u.start; p >= 0 && p <= u.end; p = firstTokenAtOrAfter(p + 1)) {
+            CommonToken t = new CommonToken(token(p));
+            t.setLine(line(p) + 1);
+            tokens.add(t);
+        }
+        int type = tokens.get(0).getType();
+        u.declaration = type == MlpLexer.INTEIRO || type == MlpLexer.REAL || type == MlpLexer.CARACTER;
+
+        List<Diagnostic> errors = new ArrayList<>();
+        ErrorReporter reporter = new ErrorReporter(ErrorReporter.UNLIMITED, false, errors::add);
+        MlpSyntaxErrorListener listener = new MlpSyntaxErrorListener(reporter);
+        parser.setTokenStream(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.addErrorListener(listener);
+        ParserRuleContext tree;
+        try {
+            tree = u.declaration ? parser.tipo() : parser.comando();
+            Token extra = parser.getCurrentToken();
+            if (extra.getType() != Token.EOF) {
+                reporter.add(new Diagnostic(ErrorType.SINTATICO, ErrorCode.SINTAXE_ESTRUTURA_INVALIDA,
+                        extra.getLine(), extra.getCharPositionInLine() + 1,
+                        "entrada extra '" + extra.getText() + "' depois do " + (u.declaration ? "tipo" : "comando"),
+                        extra.getText()));
+            }
+        } finally {
+            parser.removeErrorListener(listener);
+            parser.setTokenStream(null);
+        }
+
+        u.syntax = errors;
+        u.syntaxShift = 0;
+        if (!errors.isEmpty()) return;
+        u.tree = tree;
+        if (u.declaration) {
+            u.decl = (DeclNode) new AstBuilder(idents).visit(tree);
+        } else {
+            u.command = (CommandNode) new AstBuilder(idents).visit(tree);
+            u.refs = IncrementalAnalyzer.references(u.command);
+        }
+    }
+
+    /* ------------ Semântica ------------ */
+
+    private void register(Unit u) {
+        if (u.declaration) {
+            declarations.add(u);
+            return;
+        }
+        if (u.refs == null) return;
+        for (int id : u.refs.reads()) index(readers, id).add(u);
+        for (int id : u.refs.writes()) index(writers, id).add(u);
+        for (int id : u.refs.reads()) index(referrers, id).add(u);
+        for (int id : u.refs.writes()) index(referrers, id).add(u);
+    }
+
+    private void unregister(Unit u) {
+        if (u.declaration) {
+            declarations.remove(u);
+            return;
+        }
+        if (u.refs == null) return;
+        for (int id : u.refs.reads()) unindex(readers, id, u);
+        for (int id : u.refs.writes()) unindex(writers, id, u);
+        for (int id : u.refs.reads()) unindex(referrers, id, u);
+        for (int id : u.refs.writes()) unindex(referrers, id, u);
+    }
+
+    private static TreeSet<Unit> index(Map<Integer, TreeSet<Unit>> map, int id) {
+        return map.computeIfAbsent(id, k -> new TreeSet<>(BY_ORDER));
+    }
+
+    private static void unindex(Map<Integer, TreeSet<Unit>> map, int id, Unit u) {
+        TreeSet<Unit> set = map.get(id);
+        if (set == null) return;
+        set.remove(u);
+        if (set.isEmpty()) map.remove(id);
+    }
+
+    private static Unit firstOf(Map<Integer, TreeSet<Unit>> map, int id) {
+        TreeSet<Unit> set = map.get(id);
+        return set == null ? null : set.first();
+    }
+
+    // refaz a tabela de símbolos com todas as declarações, na ordem
+    private int redeclare() {
+        analyzer.beginDeclarations();
+        for (Unit u : declarations) {
+            List<Diagnostic> out = new ArrayList<>();
+            if (u.decl != null) analyzer.declare(u.decl, tokenInfos(u), out::add);
+            u.semantic = out;
+            u.semanticShift = 0;
+        }
+        return declarations.size();
+    }
+
+    private void check(Unit u) {
+        List<Diagnostic> out = new ArrayList<>();
+        analyzer.check(u.command, u.refs, tokenInfos(u), id -> {
+            Unit first = firstOf(writers, id);
+            return first != null && first.order < u.order;
+        }, out::add);
+        u.semantic = out;
+        u.semanticShift = 0;
+    }
+
+    private List<TokenInfo> tokenInfos(Unit u) {
+        List<TokenInfo> infos = new ArrayList<>();
+        for (long p = u.start; p >= 0 && p <= u.end; p = firstTokenAtOrAfter(p + 1)) {
+            CommonToken t = new CommonToken(token(p));
+            t.setLine(line(p) + 1);
+            infos.add(scanner.record(t));
+        }
+        return infos;
+    }
+
+    /* ------------ Diagnósticos ------------ */
+
+    /** Léxicos, sintáticos e semânticos, nessa ordem, com as posições atuais. */
+    public List<Diagnostic> diagnostics() {
+        List<Diagnostic> out = new ArrayList<>();
+        for (int line = 0; line < lines.size(); line++) {
+            Line l = lines.get(line);
+            if (!l.lexicalErrors) continue;
+            for (Token t : l.tokens) {
+                if (t.getType() == MlpLexer.ERROR_CHAR) {
+                    String text = t.getText();
+                    out.add(new Diagnostic(ErrorType.LEXICO, ErrorCode.LEXICO_TOKEN_DESCONHECIDO, line + 1,
+                            t.getCharPositionInLine() + 1, () -> "símbolo '" + text + "'", text));
+                }
+            }
+        }
+
+        long first = firstTokenAtOrAfter(0);
+        if (first < 0 || token(first).getType() != MlpLexer.DOLLAR) {
+            out.add(structural(first, "o programa deve começar com '$'"));
+        }
+        boolean commands = false;
+        boolean broken = false;
+        for (Unit u : units) {
+            if (u.declaration && commands) {
+                out.add(structural(u.start, "declaração depois dos comandos"));
+            }
+            commands |= !u.declaration;
+            broken |= !u.syntax.isEmpty();
+            for (Diagnostic d : u.syntax) out.add(shifted(d, u.syntaxShift));
+        }
+        if (epilogue() == null) {
+            out.add(structural(-1, "o programa deve terminar com '$.'"));
+        }
+
+        for (Unit u : units) {
+            for (Diagnostic d : u.semantic) out.add(shifted(d, u.semanticShift));
+        }
+        // com comando ilegível, não se sabe quais variáveis ele usa
+        if (!broken) analyzer.reportUnused(referrers::containsKey, out::add);
+        return out;
+    }
+
+    // erro sintático na estrutura do programa; sem posição, no fim do texto
+    private Diagnostic structural(long pos, String message) {
+        int line = pos >= 0 ? line(pos) + 1 : lines.size();
+        int column = pos >= 0 ? token(pos).getCharPositionInLine() + 1 : 1;
+        String symbol = pos >= 0 ? token(pos).getText() : "";
+        return new Diagnostic(ErrorType.SINTATICO, ErrorCode.SINTAXE_ESTRUTURA_INVALIDA, line, column, message, symbol);
+    }
+
+    private static Diagnostic shifted(Diagnostic d, int shift) {
+        if (shift == 0) return d;
+        return new Diagnostic(d.getType(), d.getCode(), d.getLine() + shift, d.getColumn(), d::getMessage,
+                d.getOffendingSymbol());
+    }
+
+    /* ------------ Busca nas unidades ------------ */
+
+    // primeira unidade que termina na linha ou depois
+    private int firstEndingAtOrAfter(int line) {
+        int lo = 0;
+        int hi = units.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (units.get(mid).endLine() < line) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // última unidade que começa na linha ou antes (-1 se nenhuma)
+    private int lastStartingAtOrBefore(int line) {
+        int lo = 0;
+        int hi = units.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (units.get(mid).startLine() <= line) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo - 1;
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.mlp.pipeline;
+
+/** Falha numa das threads do pipeline, repassada à thread que consome dela. */
+public class PipelineException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PipelineException(Throwable cause) {
+        super("falha no pipeline: " + cause, cause);
+    }
+}
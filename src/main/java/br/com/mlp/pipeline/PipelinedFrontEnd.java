@@ -0,0 +1,237 @@
+package br.com.mlp.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.AstNode;
+import br.com.mlp.compiler.ast.CommandNode;
+import br.com.mlp.compiler.ast.DeclNode;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.parser.MlpBaseListener;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.FusedPass;
+import br.com.mlp.diagnostics.Diagnostic;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.diagnostics.MlpSyntaxErrorListener;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.IdentToken;
+import br.com.mlp.lex.TokenInfo;
+import br.com.mlp.lex.TokenScanner;
+
+/**
+ * Front end em pipeline, com três threads:
+ *
+ *  1. lexer: roda o {@link MlpLexer} uma única vez; cada token vira um
+ *     {@link TokenInfo} (lista de tokens e erros léxicos) e vai, em lotes,
+ *     para um {@link RingBuffer} limitado;
+ *  2. parser (thread chamadora): o {@link MlpParser} lê os lotes por um
+ *     {@link RingTokenSource}. Cada declaração e cada comando de topo vira
+ *     AST assim que o parser sai da regra, é retirado da parse tree (a
+ *     memória não cresce com o programa) e é entregue à thread seguinte;
+ *  3. semântica + TAC: o {@link FusedPass} verifica e gera cada comando
+ *     enquanto o parser continua.
+ *
+ * Os diagnósticos são determinísticos: cada fase reporta no seu próprio
+ * {@link ErrorReporter} e o resultado junta léxico, sintático e semântico
+ * nessa ordem, como no fluxo sequencial. As posições dos erros semânticos
+ * são buscadas numa {@link TokenLog}, que espera o lexer quando preciso.
+ * Se houver erro sintático, a AST e a semântica são descartadas (o fluxo
+ * sequencial nem chega a construí-las).
+ */
+public final class PipelinedFrontEnd {
+
+    /** AST e semântica são null quando houve erro sintático. */
+    public record Result(List<TokenInfo> tokens, ProgramNode program, FusedPass.Result semantics) {
+    }
+
+    private static final int BATCH = 1024;     // tokens por lote
+    private static final int TOKEN_SLOTS = 64; // lotes no buffer
+    private static final int NODE_SLOTS = 1024;
+
+    private final ErrorReporter reporter;
+    private final IdentTable idents;
+
+    public PipelinedFrontEnd(ErrorReporter reporter, IdentTable idents) {
+        this.reporter = reporter;
+        this.idents = idents;
+    }
+
+    public Result compile(CharStream input) throws InterruptedException {
+        ErrorReporter lexical = new ErrorReporter();
+        ErrorReporter syntax = new ErrorReporter();
+        ErrorReporter semantic = new ErrorReporter();
+
+        MlpLexer lexer = new MlpLexer(input);
+        lexer.setTokenFactory(IdentToken.factory(idents));
+        TokenLog log = new TokenLog();
+        RingBuffer<Token[]> tokens = new RingBuffer<>(TOKEN_SLOTS);
+        RingBuffer<AstNode> nodes = new RingBuffer<>(NODE_SLOTS);
+        // a semântica à espera de tokens à frente (ex: última ocorrência de
+        // um nome, no COD.204) deixa o parser seguir até o fim da entrada
+        log.beforeWait(nodes::unbound);
+
+        Throwable[] failure = new Throwable[2];
+        FusedPass.Result[] semantics = new FusedPass.Result[1];
+
+        Thread lexerThread = new Thread(() -> {
+            try {
+                lex(lexer, new TokenScanner(lexical, idents), log, tokens);
+            } catch (Throwable t) {
+                failure[0] = t;
+                tokens.fail(t);
+            } finally {
+                log.close();
+            }
+        }, "mlp-lexer");
+
+        Thread semanticThread = new Thread(() -> {
+            try {
+                semantics[0] = analyze(new FusedPass(semantic, log), nodes);
+            } catch (Throwable t) {
+                failure[1] = t;
+                nodes.fail(t);
+            }
+        }, "mlp-semantica");
+
+        lexerThread.setDaemon(true);
+        semanticThread.setDaemon(true);
+        lexerThread.start();
+        semanticThread.start();
+
+        List<DeclNode> decls = new ArrayList<>();
+        List<CommandNode> cmds = new ArrayList<>();
+        MlpParser parser = new MlpParser(new CommonTokenStream(new RingTokenSource(tokens, lexer)));
+        try {
+            parser.removeErrorListeners();
+            parser.addErrorListener(new MlpSyntaxErrorListener(syntax));
+            parser.addParseListener(new HandOff(parser, new AstBuilder(idents), nodes, decls, cmds));
+            parser.programa();
+        } finally {
+            tokens.close(); // o lexer para se o parser parou antes do fim
+            nodes.close();
+            lexerThread.join();
+            semanticThread.join();
+        }
+
+        if (failure[0] != null) throw new PipelineException(failure[0]);
+        boolean syntaxOk = !syntax.hasAnyError();
+        if (syntaxOk && failure[1] != null) throw new PipelineException(failure[1]);
+
+        addAll(lexical);
+        addAll(syntax);
+        if (!syntaxOk) {
+            return new Result(log, null, null);
+        }
+        addAll(semantic);
+        return new Result(log, new ProgramNode(decls, cmds, idents), semantics[0]);
+    }
+
+    private void addAll(ErrorReporter from) {
+        for (Diagnostic d : from.all()) {
+            reporter.add(d);
+        }
+    }
+
+    /* ------------ Thread do lexer ------------ */
+
+    private static void lex(MlpLexer lexer, TokenScanner scanner, TokenLog log, RingBuffer<Token[]> out)
+            throws InterruptedException {
+        Token[] batch = new Token[BATCH];
+        int n = 0;
+        while (true) {
+            Token t = lexer.nextToken();
+            if (t.getType() != Token.EOF) {
+                log.append(scanner.record(t));
+            }
+            batch[n++] = t;
+            if (t.getType() == Token.EOF) {
+                out.put(Arrays.copyOf(batch, n));
+                return;
+            }
+            if (n == BATCH) {
+                if (!out.put(batch)) return; // parser encerrou
+                batch = new Token[BATCH];
+                n = 0;
+            }
+        }
+    }
+
+    /* ------------ Thread da semântica ------------ */
+
+    private FusedPass.Result analyze(FusedPass pass, RingBuffer<AstNode> in) throws InterruptedException {
+        pass.begin(idents);
+        AstNode node;
+        while ((node = in.take()) != null) {
+            if (node instanceof DeclNode d) {
+                pass.declare(d);
+            } else if (node instanceof CommandNode c) {
+                pass.command(c);
+            }
+        }
+        return pass.finish();
+    }
+
+    /* ------------ Entrega das subárvores de topo ------------ */
+
+    /**
+     * Ouve as saídas de regra do parser: uma declaração ou comando de topo
+     * completo vira AST e segue para a semântica. Depois do primeiro erro
+     * sintático nada mais é construído (o resultado será descartado).
+     */
+    private static final class HandOff extends MlpBaseListener {
+        private final MlpParser parser;
+        private final AstBuilder builder;
+        private final RingBuffer<AstNode> out;
+        private final List<DeclNode> decls;
+        private final List<CommandNode> cmds;
+
+        HandOff(MlpParser parser, AstBuilder builder, RingBuffer<AstNode> out,
+                List<DeclNode> decls, List<CommandNode> cmds) {
+            this.parser = parser;
+            this.builder = builder;
+            this.out = out;
+            this.decls = decls;
+            this.cmds = cmds;
+        }
+
+        @Override
+        public void exitTipo(MlpParser.TipoContext ctx) {
+            if (!(ctx.getParent() instanceof MlpParser.ProgramaContext top) || failed()) return;
+            DeclNode d = (DeclNode) builder.visit(ctx);
+            top.removeLastChild();
+            decls.add(d);
+            send(d);
+        }
+
+        @Override
+        public void exitComando(MlpParser.ComandoContext ctx) {
+            if (!(ctx.getParent() instanceof MlpParser.ProgramaContext top) || failed()) return;
+            CommandNode c = (CommandNode) builder.visit(ctx);
+            top.removeLastChild();
+            if (c != null) {
+                cmds.add(c);
+                send(c);
+            }
+        }
+
+        private boolean failed() {
+            return parser.getNumberOfSyntaxErrors() > 0;
+        }
+
+        private void send(AstNode node) {
+            try {
+                out.put(node);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PipelineException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.mlp.pipeline;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer circular limitado entre duas threads do pipeline (um produtor, um
+ * consumidor). {@link #put} bloqueia com o buffer cheio e {@link #take} com
+ * ele vazio; o produtor encerra com {@link #close()} (ou {@link #fail} se
+ * deu erro) e o consumidor então recebe null, ou a exceção.
+ *
+ * Os itens costumam ser lotes (ex: 1024 tokens), então o lock é tomado uma
+ * vez por lote e não por token.
+ *
+ * Depois de {@link #unbound()} o buffer cresce em vez de bloquear o
+ * produtor: é a saída quando o consumidor precisa esperar algo que só vem
+ * depois de o produtor avançar (ver {@link TokenLog}).
+ */
+public final class RingBuffer<T> {
+
+    private Object[] slots;
+    private boolean unbounded;
+    private int head;   // próximo a ler
+    private int count;
+    private boolean closed;
+    private Throwable failure;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacidade deve ser positiva");
+        this.slots = new Object[capacity];
+    }
+
+    /** Enfileira o item; false se o buffer já foi encerrado (o item é descartado). */
+    public boolean put(T item) throws InterruptedException {
+        lock.lock();
+        try {
+            while (count == slots.length && !closed && !unbounded) {
+                notFull.await();
+            }
+            if (closed) return false; // consumidor desistiu (ou já houve falha)
+            if (count == slots.length) grow();
+            slots[(head + count) % slots.length] = item;
+            count++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Próximo item, ou null depois do {@link #close()} com o buffer vazio. */
+    @SuppressWarnings("unchecked")
+    public T take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (count == 0 && !closed) {
+                notEmpty.await();
+            }
+            if (failure != null) {
+                throw new PipelineException(failure);
+            }
+            if (count == 0) return null;
+            T item = (T) slots[head];
+            slots[head] = null;
+            head = (head + 1) % slots.length;
+            count--;
+            notFull.signal();
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Daqui em diante {@link #put} não bloqueia mais; libera quem já espera. */
+    public void unbound() {
+        lock.lock();
+        try {
+            if (unbounded) return;
+            unbounded = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // desenrola o círculo num vetor com o dobro do tamanho
+    private void grow() {
+        Object[] bigger = new Object[slots.length * 2];
+        for (int i = 0; i < count; i++) {
+            bigger[i] = slots[(head + i) % slots.length];
+        }
+        slots = bigger;
+        head = 0;
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Encerra com erro: o consumidor recebe a falha no próximo {@link #take}. */
+    public void fail(Throwable t) {
+        lock.lock();
+        try {
+            failure = t;
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
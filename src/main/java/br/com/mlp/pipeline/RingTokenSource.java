@@ -0,0 +1,80 @@
+package br.com.mlp.pipeline;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+
+/**
+ * {@link TokenSource} do parser que lê os lotes de tokens produzidos pelo
+ * lexer em outra thread. O último lote termina com o token EOF do lexer;
+ * depois dele, EOF é repetido como qualquer TokenSource.
+ */
+public final class RingTokenSource implements TokenSource {
+
+    private final RingBuffer<Token[]> ring;
+    private final TokenSource lexer; // só para fábrica, fonte e nome
+
+    private Token[] batch = new Token[0];
+    private int pos;
+    private Token last;
+
+    public RingTokenSource(RingBuffer<Token[]> ring, TokenSource lexer) {
+        this.ring = ring;
+        this.lexer = lexer;
+    }
+
+    @Override
+    public Token nextToken() {
+        if (last != null && last.getType() == Token.EOF) {
+            return last;
+        }
+        while (pos == batch.length) {
+            Token[] next;
+            try {
+                next = ring.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PipelineException(e);
+            }
+            if (next == null) {
+                throw new PipelineException(new IllegalStateException("tokens terminaram sem EOF"));
+            }
+            batch = next;
+            pos = 0;
+        }
+        last = batch[pos];
+        batch[pos++] = null;
+        return last;
+    }
+
+    @Override
+    public int getLine() {
+        return last != null ? last.getLine() : 1;
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return last != null ? last.getCharPositionInLine() : 0;
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return lexer.getInputStream();
+    }
+
+    @Override
+    public String getSourceName() {
+        return lexer.getSourceName();
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory<?> factory) {
+        throw new UnsupportedOperationException("os tokens são criados na thread do lexer");
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        return lexer.getTokenFactory();
+    }
+}
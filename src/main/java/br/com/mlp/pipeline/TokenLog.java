@@ -0,0 +1,123 @@
+package br.com.mlp.pipeline;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import br.com.mlp.lex.TokenInfo;
+
+/**
+ * Lista de tokens preenchida pelo lexer enquanto outras threads já leem.
+ *
+ * Do ponto de vista de quem lê é a lista completa: {@link #get(int)} e o
+ * iterador esperam o lexer chegar à posição pedida, e {@link #size()} espera
+ * o fim da entrada. Uma busca que para no primeiro acerto (a maioria das
+ * buscas de posição do analisador semântico) só espera até ali; uma que
+ * precisa da última ocorrência espera o lexer terminar. O resultado é o mesmo
+ * da execução sequencial, e os diagnósticos também.
+ *
+ * Esperar o lexer só termina se o lexer puder avançar, e ele para quando o
+ * parser, logo a própria thread que espera, deixa de consumir. Quem lê
+ * registra em {@link #beforeWait} o que destrava esse ciclo (no pipeline,
+ * tirar o limite do buffer de nós).
+ *
+ * Escrita por uma única thread; os tokens são publicados em lotes.
+ */
+public final class TokenLog extends AbstractList<TokenInfo> {
+
+    private static final int PUBLISH_EVERY = 1024;
+
+    private volatile TokenInfo[] items = new TokenInfo[4096];
+    private volatile int published;
+    private volatile boolean closed;
+    private volatile Runnable beforeWait;
+    private int size; // só a thread do lexer
+
+    /* ------------ Escrita (thread do lexer) ------------ */
+
+    public void append(TokenInfo t) {
+        TokenInfo[] a = items;
+        if (size == a.length) {
+            a = Arrays.copyOf(a, size * 2);
+            items = a;
+        }
+        a[size++] = t;
+        if (size - published >= PUBLISH_EVERY) {
+            publish();
+        }
+    }
+
+    /** Fim da entrada: publica o que falta e libera quem espera. */
+    public void close() {
+        published = size;
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void publish() {
+        published = size;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /* ------------ Leitura ------------ */
+
+    /** Chamado antes de a leitura bloquear à espera do lexer. */
+    public void beforeWait(Runnable action) {
+        beforeWait = action;
+    }
+
+    // espera até o índice existir ou a entrada acabar; true se existe
+    private boolean await(int index) {
+        if (index < published) return true;
+        Runnable action = beforeWait;
+        if (action != null && !closed) action.run();
+        synchronized (this) {
+            while (index >= published && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new PipelineException(e);
+                }
+            }
+        }
+        return index < published;
+    }
+
+    @Override
+    public TokenInfo get(int index) {
+        if (index < 0 || !await(index)) {
+            throw new IndexOutOfBoundsException("token " + index);
+        }
+        return items[index];
+    }
+
+    @Override
+    public int size() {
+        await(Integer.MAX_VALUE);
+        return published;
+    }
+
+    @Override
+    public Iterator<TokenInfo> iterator() {
+        return new Iterator<>() {
+            int next;
+
+            @Override
+            public boolean hasNext() {
+                return await(next);
+            }
+
+            @Override
+            public TokenInfo next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return items[next++];
+            }
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.mlp.runtime;
+
+/**
+ * Semântica aritmética compartilhada pelos executores:
+ *  - inteiro: 32 bits em complemento de dois (overflow dá a volta),
+ *    divisão truncada em direção a zero e RESTO com o sinal do dividendo;
+ *  - real: double IEEE 754.
+ */
+final class Arith {
+
+    private Arith() {
+    }
+
+    static int intOp(String op, int l, int r) {
+        return switch (op) {
+            case "+" -> l + r;
+            case "-" -> l - r;
+            case "*" -> l * r;
+            case "/" -> intDiv(l, r);
+            case "RESTO" -> intMod(l, r);
+            default -> l + r;
+        };
+    }
+
+    static double realOp(String op, double l, double r) {
+        return switch (op) {
+            case "+" -> l + r;
+            case "-" -> l - r;
+            case "*" -> l * r;
+            case "/" -> l / r;
+            case "RESTO" -> l % r;
+            default -> l + r;
+        };
+    }
+
+    static int intDiv(int l, int r) {
+        if (r == 0) throw new MlpRuntimeException("divisão inteira por zero");
+        return l / r;
+    }
+
+    static int intMod(int l, int r) {
+        if (r == 0) throw new MlpRuntimeException("divisão inteira por zero (RESTO)");
+        return l % r;
+    }
+
+    /** 32 bits altos do produto de 64 bits (MULH). */
+    static int mulHigh(int l, int r) {
+        return (int) (((long) l * r) >> 32);
+    }
+
+    static boolean compare(String op, double l, double r) {
+        return switch (op) {
+            case ">" -> l > r;
+            case "<" -> l < r;
+            case ">=" -> l >= r;
+            case "<=" -> l <= r;
+            case "!=" -> l != r;
+            default -> l == r;
+        };
+    }
+
+    static boolean compare(String op, int l, int r) {
+        return switch (op) {
+            case ">" -> l > r;
+            case "<" -> l < r;
+            case ">=" -> l >= r;
+            case "<=" -> l <= r;
+            case "!=" -> l != r;
+            default -> l == r;
+        };
+    }
+}
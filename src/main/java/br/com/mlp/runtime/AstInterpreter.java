@@ -0,0 +1,95 @@
+package br.com.mlp.runtime;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import br.com.mlp.compiler.ast.*;
+
+/**
+ * Interpretador direto da AST: percorre a árvore a cada execução,
+ * guardando os valores em um mapa nome -> valor (Integer ou Double).
+ *
+ * É a referência simples de semântica de execução (e a base de comparação
+ * do {@link ClosureCompiler}); supõe um programa sem erros semânticos.
+ */
+public class AstInterpreter {
+
+    private final Map<String, Type> types = new HashMap<>();
+    private final Map<String, Number> values = new LinkedHashMap<>();
+
+    /**
+     * Executa o programa a partir de todas as variáveis zeradas e devolve
+     * os valores finais na ordem de declaração.
+     */
+    public Map<String, Number> run(ProgramNode program) {
+        types.clear();
+        values.clear();
+        for (DeclNode d : program.getDeclarations()) {
+            for (String name : d.getVarNames()) {
+                types.put(name, d.getType());
+                values.put(name, d.getType() == Type.REAL ? (Number) 0.0 : (Number) 0);
+            }
+        }
+
+        for (CommandNode cmd : program.getCommands()) {
+            exec(cmd);
+        }
+
+        return new LinkedHashMap<>(values);
+    }
+
+    private void exec(CommandNode cmd) {
+        if (cmd instanceof AssignNode a) {
+            Number v = eval(a.getExpression());
+            if (types.get(a.getVarName()) == Type.REAL) {
+                v = v.doubleValue();
+            }
+            values.put(a.getVarName(), v);
+        } else if (cmd instanceof IfNode i) {
+            if (test(i.getCondition())) {
+                exec(i.getThenCommand());
+            } else if (i.getElseCommand() != null) {
+                exec(i.getElseCommand());
+            }
+        } else if (cmd instanceof WhileNode w) {
+            while (test(w.getCondition())) {
+                exec(w.getBody());
+            }
+        }
+    }
+
+    private boolean test(BoolExprNode cond) {
+        if (cond instanceof NotNode n) {
+            return !test(n.getOperand());
+        }
+        if (cond instanceof LogicalExprNode l) {
+            return l.isAnd()
+                    ? test(l.getLeft()) && test(l.getRight())
+                    : test(l.getLeft()) || test(l.getRight());
+        }
+        ConditionNode c = (ConditionNode) cond;
+        Number l = eval(c.getLeft());
+        Number r = eval(c.getRight());
+        if (l instanceof Integer li && r instanceof Integer ri) {
+            return Arith.compare(c.getOp(), li.intValue(), ri.intValue());
+        }
+        return Arith.compare(c.getOp(), l.doubleValue(), r.doubleValue());
+    }
+
+    private Number eval(ExpressionNode e) {
+        if (e instanceof NumLiteralNode n) {
+            return n.getConstant().value();
+        }
+        if (e instanceof VarRefNode v) {
+            return values.get(v.getName());
+        }
+        BinaryExprNode b = (BinaryExprNode) e;
+        Number l = eval(b.getLeft());
+        Number r = eval(b.getRight());
+        if (l instanceof Integer li && r instanceof Integer ri) {
+            return Arith.intOp(b.getOp(), li, ri);
+        }
+        return Arith.realOp(b.getOp(), l.doubleValue(), r.doubleValue());
+    }
+}
@@ -0,0 +1,526 @@
+package br.com.mlp.runtime;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import br.com.mlp.compiler.codegen.Opcode;
+
+/**
+ * Execução em lote: o mesmo {@link TacProgram} roda para todas as pistas de
+ * um {@link ColumnBatch} (uma pista = uma execução com suas próprias
+ * entradas), instrução por instrução sobre blocos de pistas.
+ *
+ *  - estado em colunas: cada registrador é um vetor com um valor por pista
+ *    do bloco, e cada operação é um laço simples sobre vetores primitivos
+ *    (que o C2 vetoriza quando todas as pistas do bloco estão juntas);
+ *  - divergência: cada pista tem o seu pc. A cada passo roda a instrução do
+ *    menor pc, só para as pistas que estão nele (a máscara); as que saltaram
+ *    para frente esperam e se reencontram no ponto de junção, as que
+ *    voltaram para o cabeçalho de um laço continuam até sair dele. Enquanto
+ *    nenhum desvio separa as pistas, o bloco anda junto sem reagrupar;
+ *  - paralelismo: os blocos são divididos entre os núcleos com fork/join.
+ *
+ * Os registradores são alocados por intervalo de vida (um registrador só
+ * aparece entre o primeiro e o último pc em que é usado, ver
+ * {@link TacProgram}), então a memória por bloco é proporcional aos
+ * registradores vivos ao mesmo tempo, não ao tamanho do programa.
+ *
+ * A semântica é a mesma do {@link TieredRuntime}. Uma divisão inteira por
+ * zero encerra só a pista em que ocorreu (ver {@link ColumnBatch#error}).
+ * Uma instância não guarda estado de execução e pode ser compartilhada.
+ */
+public final class BatchExecutor {
+
+    public static final int DEFAULT_BLOCK = 256;
+    private static final int BLOCKS_PER_TASK = 4;
+
+    private static final int GT = 0;
+    private static final int LT = 1;
+    private static final int GE = 2;
+    private static final int LE = 3;
+    private static final int NE = 4;
+    private static final int EQ = 5;
+
+    private final int blockSize;
+    private final long maxSteps;
+    private final ForkJoinPool pool;
+
+    public BatchExecutor() {
+        this(DEFAULT_BLOCK, 0);
+    }
+
+    /**
+     * @param blockSize pistas executadas juntas em cada bloco
+     * @param maxSteps  máximo de instruções por bloco antes de abortar com
+     *                  {@link ExecutionLimitException} (0 = sem limite); é
+     *                  pelo menos o número de instruções de qualquer pista
+     */
+    public BatchExecutor(int blockSize, long maxSteps) {
+        this(blockSize, maxSteps, ForkJoinPool.commonPool());
+    }
+
+    public BatchExecutor(int blockSize, long maxSteps, ForkJoinPool pool) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("tamanho de bloco deve ser positivo: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.maxSteps = maxSteps;
+        this.pool = pool;
+    }
+
+    /** Executa todas as pistas; os valores finais ficam nas colunas do lote. */
+    public void execute(TacProgram program, ColumnBatch batch) {
+        if (batch.ints.length != program.layout.intCount || batch.reals.length != program.layout.realCount) {
+            throw new IllegalArgumentException("lote criado para outro programa");
+        }
+        if (batch.lanes == 0) return;
+        int[] rowOf = new int[program.regCount + 1];
+        int rows = allocateRows(program, rowOf);
+        pool.invoke(new Span(program, batch, rowOf, rows, 0, batch.lanes));
+    }
+
+    /**
+     * Linhas de registrador por intervalo de vida: um registrador reaproveita
+     * a linha de outro cujo último uso veio antes do seu primeiro uso.
+     */
+    private static int allocateRows(TacProgram program, int[] rowOf) {
+        Integer[] regs = new Integer[program.regCount];
+        int count = 0;
+        for (int r = 1; r <= program.regCount; r++) {
+            if (program.regFirstPc[r] >= 0) regs[count++] = r;
+        }
+        Arrays.sort(regs, 0, count, (x, y) -> Integer.compare(program.regFirstPc[x], program.regFirstPc[y]));
+
+        PriorityQueue<int[]> busy = new PriorityQueue<>((x, y) -> Integer.compare(x[0], y[0])); // {último pc, linha}
+        int[] free = new int[count + 1];
+        int freeCount = 0;
+        int rows = 0;
+        for (int i = 0; i < count; i++) {
+            int r = regs[i];
+            while (!busy.isEmpty() && busy.peek()[0] < program.regFirstPc[r]) {
+                free[freeCount++] = busy.poll()[1];
+            }
+            int row = freeCount > 0 ? free[--freeCount] : rows++;
+            rowOf[r] = row;
+            busy.add(new int[] {program.regLastPc[r], row});
+        }
+        return Math.max(rows, 1);
+    }
+
+    /* ------------ Divisão entre núcleos ------------ */
+
+    @SuppressWarnings("serial") // tarefa do ForkJoinPool, nunca serializada
+    private final class Span extends RecursiveAction {
+        private final TacProgram program;
+        private final ColumnBatch batch;
+        private final int[] rowOf;
+        private final int rows;
+        private final int from;
+        private final int to;
+
+        Span(TacProgram program, ColumnBatch batch, int[] rowOf, int rows, int from, int to) {
+            this.program = program;
+            this.batch = batch;
+            this.rowOf = rowOf;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int blocks = (to - from + blockSize - 1) / blockSize;
+            if (blocks <= BLOCKS_PER_TASK) {
+                Block block = new Block(program, batch, rowOf, rows, Math.min(blockSize, to - from), maxSteps);
+                for (int base = from; base < to; base += blockSize) {
+                    block.run(base, Math.min(blockSize, to - base));
+                }
+                return;
+            }
+            int mid = from + (blocks / 2) * blockSize;
+            invokeAll(new Span(program, batch, rowOf, rows, from, mid),
+                      new Span(program, batch, rowOf, rows, mid, to));
+        }
+    }
+
+    /* ------------ Execução de um bloco de pistas ------------ */
+
+    private static final class Block {
+        private final TacProgram.Insn[] code;
+        private final ColumnBatch batch;
+        private final int[] rowOf;
+        private final long maxSteps;
+
+        private final int[][] ri;
+        private final double[][] rd;
+        private final int[] pcs;
+        private final int[] idx;       // pistas ativas (a máscara) quando o bloco está dividido
+        private final boolean[] cond;  // resultado de desvio por pista
+        private final double[] left;   // operandos inteiros convertidos para real
+        private final double[] right;
+
+        private int base;
+        private int n;
+        private int failed;            // pistas encerradas por erro na instrução atual
+
+        Block(TacProgram program, ColumnBatch batch, int[] rowOf, int rows, int size, long maxSteps) {
+            this.code = program.code;
+            this.batch = batch;
+            this.rowOf = rowOf;
+            this.maxSteps = maxSteps;
+            this.ri = new int[rows][size];
+            this.rd = new double[rows][size];
+            this.pcs = new int[size];
+            this.idx = new int[size];
+            this.cond = new boolean[size];
+            this.left = new double[size];
+            this.right = new double[size];
+        }
+
+        void run(int base, int n) {
+            this.base = base;
+            this.n = n;
+            Arrays.fill(batch.errors, base, base + n, null);
+            int end = code.length;
+            long steps = 0;
+            int uniform = 0; // pc comum a todas as pistas, ou -1 se divergiram
+
+            while (true) {
+                int pc = uniform;
+                int g = n;
+                if (pc < 0) {
+                    pc = end;
+                    g = 0;
+                    for (int l = 0; l < n; l++) {
+                        int p = pcs[l];
+                        if (p < pc) {
+                            pc = p;
+                            g = 0;
+                        }
+                        if (p == pc) idx[g++] = l;
+                    }
+                }
+                if (pc >= end) return;
+                if (++steps > maxSteps && maxSteps > 0) {
+                    throw new ExecutionLimitException(maxSteps);
+                }
+                uniform = step(code[pc], pc, g);
+            }
+        }
+
+        /**
+         * Executa uma instrução para as g pistas ativas (todas se g == n).
+         * Devolve o próximo pc se o bloco inteiro continua junto; senão
+         * grava o pc de cada pista e devolve -1.
+         */
+        private int step(TacProgram.Insn in, int pc, int g) {
+            boolean full = g == n;
+            failed = 0;
+            switch (in.op) {
+                case LABEL -> {
+                }
+                case LOAD -> {
+                    if (in.realA) load(batch.reals[in.b], rd[rowOf[in.a]], g, full);
+                    else load(batch.ints[in.b], ri[rowOf[in.a]], g, full);
+                }
+                case LOADI -> {
+                    if (in.realA) fill(rd[rowOf[in.a]], in.dk, g, full);
+                    else fill(ri[rowOf[in.a]], in.ik, g, full);
+                }
+                case STORE -> store(in, g, full);
+                case ADD, SUB, MUL, DIV -> {
+                    if (in.realA) {
+                        double[] b = real(in.realB, in.b, left, g, full);
+                        double[] c = real(in.realC, in.c, right, g, full);
+                        realOp(in.op, rd[rowOf[in.a]], b, c, g, full);
+                    } else {
+                        intOp(in.op, ri[rowOf[in.a]], ri[rowOf[in.b]], ri[rowOf[in.c]], g, full);
+                    }
+                }
+                case ADDI, SUBI -> {
+                    if (in.realA) {
+                        double k = in.op == Opcode.ADDI ? in.dk : -in.dk;
+                        double[] a = rd[rowOf[in.a]];
+                        double[] b = real(in.realB, in.b, left, g, full);
+                        for (int i = 0; i < g; i++) {
+                            int l = full ? i : idx[i];
+                            a[l] = b[l] + k;
+                        }
+                    } else {
+                        int k = in.op == Opcode.ADDI ? in.ik : -in.ik;
+                        int[] a = ri[rowOf[in.a]];
+                        int[] b = ri[rowOf[in.b]];
+                        if (full) {
+                            for (int l = 0; l < n; l++) a[l] = b[l] + k;
+                        } else {
+                            for (int i = 0; i < g; i++) a[idx[i]] = b[idx[i]] + k;
+                        }
+                    }
+                }
+                case CMPGT, CMPLT, CMPGE, CMPLE, CMPEQ, CMPNE -> {
+                    compare(in, false, g, full);
+                    int[] a = ri[rowOf[in.a]];
+                    for (int i = 0; i < g; i++) {
+                        int l = full ? i : idx[i];
+                        a[l] = cond[l] ? 1 : 0;
+                    }
+                }
+                case JMP -> {
+                    return branch(pc, in.a, g, full, true);
+                }
+                case JMPFALSE, JMPTRUE -> {
+                    boolean onTrue = in.op == Opcode.JMPTRUE;
+                    for (int i = 0; i < g; i++) {
+                        int l = full ? i : idx[i];
+                        boolean isTrue = in.realB ? rd[rowOf[in.b]][l] != 0.0 : ri[rowOf[in.b]][l] != 0;
+                        cond[l] = isTrue == onTrue;
+                    }
+                    return branch(pc, in.a, g, full, false);
+                }
+                case JGT, JLT, JGE, JLE, JEQ, JNE -> {
+                    compare(in, false, g, full);
+                    return branch(pc, in.a, g, full, false);
+                }
+                case JGTI, JLTI, JGEI, JLEI, JEQI, JNEI -> {
+                    compare(in, true, g, full);
+                    return branch(pc, in.a, g, full, false);
+                }
+                case IADD, ISUB, IMUL, IDIV, IMOD, SHL, SHR, AND, MULH ->
+                        intOp(in.op, ri[rowOf[in.a]], ri[rowOf[in.b]], ri[rowOf[in.c]], g, full);
+                case RADD, RSUB, RMUL, RDIV, RMOD ->
+                        realOp(in.op, rd[rowOf[in.a]], rd[rowOf[in.b]], rd[rowOf[in.c]], g, full);
+                case I2R -> {
+                    double[] a = rd[rowOf[in.a]];
+                    int[] b = ri[rowOf[in.b]];
+                    for (int i = 0; i < g; i++) {
+                        int l = full ? i : idx[i];
+                        a[l] = b[l];
+                    }
+                }
+                case IJGT, IJLT, IJGE, IJLE, IJEQ, IJNE, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> {
+                    compare(in, false, g, full);
+                    return branch(pc, in.a, g, full, false);
+                }
+                default -> throw new IllegalStateException("opcode não suportado: " + in.op);
+            }
+
+            if (full && failed == 0) return pc + 1;
+            for (int i = 0; i < g; i++) {
+                int l = full ? i : idx[i];
+                pcs[l] = batch.errors[base + l] != null ? code.length : pc + 1;
+            }
+            return -1;
+        }
+
+        /** Segue o desvio nas pistas em que cond é verdadeiro (ou em todas). */
+        private int branch(int pc, int target, int g, boolean full, boolean always) {
+            if (always && full) return target;
+            int taken = 0;
+            for (int i = 0; i < g; i++) {
+                int l = full ? i : idx[i];
+                boolean t = always || cond[l];
+                if (t) taken++;
+                pcs[l] = t ? target : pc + 1;
+            }
+            if (full && taken == 0) return pc + 1;
+            if (full && taken == n) return target;
+            return -1;
+        }
+
+        private void load(int[] col, int[] a, int g, boolean full) {
+            if (full) {
+                System.arraycopy(col, base, a, 0, n);
+            } else {
+                for (int i = 0; i < g; i++) a[idx[i]] = col[base + idx[i]];
+            }
+        }
+
+        private void load(double[] col, double[] a, int g, boolean full) {
+            if (full) {
+                System.arraycopy(col, base, a, 0, n);
+            } else {
+                for (int i = 0; i < g; i++) a[idx[i]] = col[base + idx[i]];
+            }
+        }
+
+        private void fill(int[] a, int k, int g, boolean full) {
+            if (full) {
+                Arrays.fill(a, 0, n, k);
+            } else {
+                for (int i = 0; i < g; i++) a[idx[i]] = k;
+            }
+        }
+
+        private void fill(double[] a, double k, int g, boolean full) {
+            if (full) {
+                Arrays.fill(a, 0, n, k);
+            } else {
+                for (int i = 0; i < g; i++) a[idx[i]] = k;
+            }
+        }
+
+        private void store(TacProgram.Insn in, int g, boolean full) {
+            if (in.realA) {
+                double[] col = batch.reals[in.a];
+                double[] b = real(in.realB, in.b, left, g, full);
+                for (int i = 0; i < g; i++) {
+                    int l = full ? i : idx[i];
+                    col[base + l] = b[l];
+                }
+            } else if (in.realB) {
+                int[] col = batch.ints[in.a];
+                double[] b = rd[rowOf[in.b]];
+                for (int i = 0; i < g; i++) {
+                    int l = full ? i : idx[i];
+                    col[base + l] = (int) b[l];
+                }
+            } else {
+                int[] col = batch.ints[in.a];
+                int[] b = ri[rowOf[in.b]];
+                if (full) {
+                    System.arraycopy(b, 0, col, base, n);
+                } else {
+                    for (int i = 0; i < g; i++) col[base + idx[i]] = b[idx[i]];
+                }
+            }
+        }
+
+        /** Linha real do registrador; se ele for inteiro, converte em tmp. */
+        private double[] real(boolean isReal, int reg, double[] tmp, int g, boolean full) {
+            if (isReal) return rd[rowOf[reg]];
+            int[] src = ri[rowOf[reg]];
+            for (int i = 0; i < g; i++) {
+                int l = full ? i : idx[i];
+                tmp[l] = src[l];
+            }
+            return tmp;
+        }
+
+        private void intOp(Opcode op, int[] a, int[] b, int[] c, int g, boolean full) {
+            if (full) {
+                switch (op) {
+                    case ADD, IADD -> { for (int l = 0; l < n; l++) a[l] = b[l] + c[l]; }
+                    case SUB, ISUB -> { for (int l = 0; l < n; l++) a[l] = b[l] - c[l]; }
+                    case MUL, IMUL -> { for (int l = 0; l < n; l++) a[l] = b[l] * c[l]; }
+                    case IMOD -> { for (int l = 0; l < n; l++) a[l] = modulo(b[l], c[l], l); }
+                    case SHL -> { for (int l = 0; l < n; l++) a[l] = b[l] << c[l]; }
+                    case SHR -> { for (int l = 0; l < n; l++) a[l] = b[l] >> c[l]; }
+                    case AND -> { for (int l = 0; l < n; l++) a[l] = b[l] & c[l]; }
+                    case MULH -> { for (int l = 0; l < n; l++) a[l] = Arith.mulHigh(b[l], c[l]); }
+                    default -> { for (int l = 0; l < n; l++) a[l] = divide(b[l], c[l], l); }
+                }
+            } else {
+                for (int i = 0; i < g; i++) {
+                    int l = idx[i];
+                    a[l] = switch (op) {
+                        case ADD, IADD -> b[l] + c[l];
+                        case SUB, ISUB -> b[l] - c[l];
+                        case MUL, IMUL -> b[l] * c[l];
+                        case IMOD -> modulo(b[l], c[l], l);
+                        case SHL -> b[l] << c[l];
+                        case SHR -> b[l] >> c[l];
+                        case AND -> b[l] & c[l];
+                        case MULH -> Arith.mulHigh(b[l], c[l]);
+                        default -> divide(b[l], c[l], l);
+                    };
+                }
+            }
+        }
+
+        private void realOp(Opcode op, double[] a, double[] b, double[] c, int g, boolean full) {
+            if (full) {
+                switch (op) {
+                    case ADD, RADD -> { for (int l = 0; l < n; l++) a[l] = b[l] + c[l]; }
+                    case SUB, RSUB -> { for (int l = 0; l < n; l++) a[l] = b[l] - c[l]; }
+                    case MUL, RMUL -> { for (int l = 0; l < n; l++) a[l] = b[l] * c[l]; }
+                    case RMOD -> { for (int l = 0; l < n; l++) a[l] = b[l] % c[l]; }
+                    default -> { for (int l = 0; l < n; l++) a[l] = b[l] / c[l]; }
+                }
+            } else {
+                for (int i = 0; i < g; i++) {
+                    int l = idx[i];
+                    a[l] = switch (op) {
+                        case ADD, RADD -> b[l] + c[l];
+                        case SUB, RSUB -> b[l] - c[l];
+                        case MUL, RMUL -> b[l] * c[l];
+                        case RMOD -> b[l] % c[l];
+                        default -> b[l] / c[l];
+                    };
+                }
+            }
+        }
+
+        private int divide(int l, int r, int lane) {
+            try {
+                return Arith.intDiv(l, r);
+            } catch (MlpRuntimeException e) {
+                batch.errors[base + lane] = e.getMessage();
+                failed++;
+                return 0;
+            }
+        }
+
+        private int modulo(int l, int r, int lane) {
+            try {
+                return Arith.intMod(l, r);
+            } catch (MlpRuntimeException e) {
+                batch.errors[base + lane] = e.getMessage();
+                failed++;
+                return 0;
+            }
+        }
+
+        /** cond[l] = comparação da instrução na pista l. */
+        private void compare(TacProgram.Insn in, boolean immediate, int g, boolean full) {
+            int rel = switch (in.op) {
+                case CMPGT, JGT, JGTI, IJGT, RJGT -> GT;
+                case CMPLT, JLT, JLTI, IJLT, RJLT -> LT;
+                case CMPGE, JGE, JGEI, IJGE, RJGE -> GE;
+                case CMPLE, JLE, JLEI, IJLE, RJLE -> LE;
+                case CMPNE, JNE, JNEI, IJNE, RJNE -> NE;
+                default -> EQ;
+            };
+            boolean realRight = immediate ? in.realK : in.realC;
+            if (!in.realB && !realRight) {
+                int[] b = ri[rowOf[in.b]];
+                int[] c = immediate ? null : ri[rowOf[in.c]];
+                for (int i = 0; i < g; i++) {
+                    int l = full ? i : idx[i];
+                    cond[l] = test(rel, b[l], immediate ? in.ik : c[l]);
+                }
+            } else {
+                double[] b = real(in.realB, in.b, left, g, full);
+                double[] c = immediate ? null : real(in.realC, in.c, right, g, full);
+                for (int i = 0; i < g; i++) {
+                    int l = full ? i : idx[i];
+                    cond[l] = test(rel, b[l], immediate ? in.dk : c[l]);
+                }
+            }
+        }
+
+        // mesma tabela de Arith.compare, sem o switch de String por pista
+        private static boolean test(int rel, int l, int r) {
+            return switch (rel) {
+                case GT -> l > r;
+                case LT -> l < r;
+                case GE -> l >= r;
+                case LE -> l <= r;
+                case NE -> l != r;
+                default -> l == r;
+            };
+        }
+
+        private static boolean test(int rel, double l, double r) {
+            return switch (rel) {
+                case GT -> l > r;
+                case LT -> l < r;
+                case GE -> l >= r;
+                case LE -> l <= r;
+                case NE -> l != r;
+                default -> l == r;
+            };
+        }
+    }
+}
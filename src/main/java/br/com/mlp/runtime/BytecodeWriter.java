@@ -0,0 +1,288 @@
+package br.com.mlp.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Montador mínimo de class files: uma classe com um único método estático,
+ * só com as instruções de que o {@link LoopCompiler} precisa.
+ *
+ * Gera a versão 49 do formato (Java 5), que não exige StackMapTable; a JVM
+ * verifica o método por inferência de tipos.
+ */
+final class BytecodeWriter {
+
+    // Opcodes da JVM usados pelo compilador de laços
+    static final int ICONST_0 = 0x03;
+    static final int DCONST_0 = 0x0e;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int IALOAD = 0x2e;
+    static final int DALOAD = 0x31;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int IASTORE = 0x4f;
+    static final int DASTORE = 0x52;
+    static final int IADD = 0x60;
+    static final int DADD = 0x63;
+    static final int ISUB = 0x64;
+    static final int DSUB = 0x67;
+    static final int IMUL = 0x68;
+    static final int DMUL = 0x6b;
+    static final int IDIV = 0x6c;
+    static final int DDIV = 0x6f;
+    static final int IREM = 0x70;
+    static final int DREM = 0x73;
+    static final int LMUL = 0x69;
+    static final int ISHL = 0x78;
+    static final int ISHR = 0x7a;
+    static final int LSHR = 0x7b;
+    static final int IAND = 0x7e;
+    static final int I2L = 0x85;
+    static final int L2I = 0x88;
+    static final int I2D = 0x87;
+    static final int D2I = 0x8e;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGE = 0xa2;
+    static final int IF_ICMPGT = 0xa3;
+    static final int IF_ICMPLE = 0xa4;
+    static final int GOTO = 0xa7;
+    static final int IRETURN = 0xac;
+    static final int WIDE = 0xc4;
+
+    /** Alvo de salto; o deslocamento é resolvido quando o rótulo é marcado. */
+    static final class Label {
+        private int offset = -1;
+        private final List<Integer> branches = new ArrayList<>();
+    }
+
+    /** Salto que não cabe no deslocamento de 16 bits da instrução. */
+    static final class TooLargeException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private int poolCount = 1;
+    private final Map<Object, Integer> poolIndex = new HashMap<>();
+
+    private byte[] code = new byte[256];
+    private int length;
+    private final List<Label> labels = new ArrayList<>();
+
+    /* ------------ Constant pool ------------ */
+
+    private int utf8(String s) throws IOException {
+        Integer idx = poolIndex.get("U:" + s);
+        if (idx != null) return idx;
+        pool.writeByte(1);
+        pool.writeUTF(s);
+        poolIndex.put("U:" + s, poolCount);
+        return poolCount++;
+    }
+
+    private int classRef(String internalName) throws IOException {
+        int name = utf8(internalName);
+        pool.writeByte(7);
+        pool.writeShort(name);
+        return poolCount++;
+    }
+
+    private int intConst(int v) {
+        return poolIndex.computeIfAbsent(v, k -> {
+            try {
+                pool.writeByte(3);
+                pool.writeInt(v);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return poolCount++;
+        });
+    }
+
+    private int doubleConst(double v) {
+        return poolIndex.computeIfAbsent(Double.doubleToRawLongBits(v) + "D", k -> {
+            try {
+                pool.writeByte(6);
+                pool.writeDouble(v);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            int idx = poolCount;
+            poolCount += 2; // double ocupa duas entradas
+            return idx;
+        });
+    }
+
+    /* ------------ Código ------------ */
+
+    int length() {
+        return length;
+    }
+
+    void op(int opcode) {
+        u1(opcode);
+    }
+
+    private void u1(int b) {
+        if (length == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[length++] = (byte) b;
+    }
+
+    private void u2(int v) {
+        u1(v >>> 8);
+        u1(v);
+    }
+
+    void pushInt(int v) {
+        if (v >= -1 && v <= 5) {
+            op(ICONST_0 + v);
+        } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+            op(BIPUSH);
+            u1(v);
+        } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+            op(SIPUSH);
+            u2(v);
+        } else {
+            op(LDC_W);
+            u2(intConst(v));
+        }
+    }
+
+    void pushDouble(double v) {
+        if (Double.doubleToRawLongBits(v) == 0L) {
+            op(DCONST_0);
+        } else if (v == 1.0) {
+            op(DCONST_0 + 1);
+        } else {
+            op(LDC2_W);
+            u2(doubleConst(v));
+        }
+    }
+
+    /** iload/dload/aload/istore/dstore com o índice de variável local. */
+    void local(int opcode, int index) {
+        if (index <= 255) {
+            op(opcode);
+            u1(index);
+        } else {
+            op(WIDE);
+            op(opcode);
+            u2(index);
+        }
+    }
+
+    Label newLabel() {
+        Label l = new Label();
+        labels.add(l);
+        return l;
+    }
+
+    void mark(Label l) {
+        l.offset = length;
+    }
+
+    void branch(int opcode, Label target) {
+        target.branches.add(length);
+        op(opcode);
+        u2(0);
+    }
+
+    private void resolveBranches() throws TooLargeException {
+        for (Label l : labels) {
+            for (int at : l.branches) {
+                if (l.offset < 0) {
+                    throw new IllegalStateException("rótulo de bytecode não marcado");
+                }
+                int delta = l.offset - at;
+                if (delta < Short.MIN_VALUE || delta > Short.MAX_VALUE) {
+                    throw new TooLargeException("salto de " + delta + " bytes");
+                }
+                code[at + 1] = (byte) (delta >>> 8);
+                code[at + 2] = (byte) delta;
+            }
+        }
+    }
+
+    /* ------------ Class file ------------ */
+
+    /**
+     * Monta o class file com o código acumulado como corpo de
+     * {@code public static <methodName><descriptor>}.
+     */
+    byte[] toClassFile(String className, String methodName, String descriptor,
+                       int maxStack, int maxLocals) throws TooLargeException {
+        resolveBranches();
+        if (length > 65535) {
+            throw new TooLargeException("método com " + length + " bytes");
+        }
+        try {
+            int thisClass = classRef(className);
+            int superClass = classRef("java/lang/Object");
+            int name = utf8(methodName);
+            int desc = utf8(descriptor);
+            int codeAttr = utf8("Code");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DataOutputStream cf = new DataOutputStream(out);
+            cf.writeInt(0xCAFEBABE);
+            cf.writeShort(0);
+            cf.writeShort(49);
+            cf.writeShort(poolCount);
+            pool.flush();
+            cf.write(poolBytes.toByteArray());
+            cf.writeShort(0x0031); // public final super
+            cf.writeShort(thisClass);
+            cf.writeShort(superClass);
+            cf.writeShort(0); // interfaces
+            cf.writeShort(0); // campos
+
+            cf.writeShort(1); // métodos
+            cf.writeShort(0x0009); // public static
+            cf.writeShort(name);
+            cf.writeShort(desc);
+            cf.writeShort(1);
+            cf.writeShort(codeAttr);
+            cf.writeInt(12 + length);
+            cf.writeShort(maxStack);
+            cf.writeShort(maxLocals);
+            cf.writeInt(length);
+            cf.write(code, 0, length);
+            cf.writeShort(0); // tabela de exceções
+            cf.writeShort(0); // atributos do Code
+
+            cf.writeShort(0); // atributos da classe
+            cf.flush();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
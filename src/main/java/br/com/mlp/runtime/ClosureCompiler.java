@@ -0,0 +1,241 @@
+package br.com.mlp.runtime;
+
+import java.util.List;
+
+import br.com.mlp.compiler.ast.*;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Compila a AST uma única vez em uma árvore de closures especializadas,
+ * sem passar por TAC nem gerar bytecode:
+ *  - cada variável vira um índice fixo no vetor de inteiros ou de reais
+ *    do {@link Frame} (nada de mapa por nome durante a execução);
+ *  - cada BinaryExprNode vira uma closure inteira ou real conforme os tipos
+ *    da Tabela de Símbolos, com conversão inteiro -> real explícita;
+ *  - operações com constante à direita (ex: i + 1) têm closure própria.
+ *
+ * Supõe um programa sem erros semânticos (a mesma premissa do TAC).
+ */
+public class ClosureCompiler {
+
+    interface IntExpr {
+        int eval(Frame f);
+    }
+
+    interface RealExpr {
+        double eval(Frame f);
+    }
+
+    interface Cond {
+        boolean test(Frame f);
+    }
+
+    interface Stmt {
+        void exec(Frame f);
+    }
+
+    /** Expressão compilada: exatamente um dos dois lados é não nulo. */
+    private static final class Typed {
+        final IntExpr i;
+        final RealExpr r;
+        final Integer constant; // valor quando é literal inteiro
+
+        Typed(IntExpr i, Integer constant) {
+            this.i = i;
+            this.r = null;
+            this.constant = constant;
+        }
+
+        Typed(RealExpr r) {
+            this.i = null;
+            this.r = r;
+            this.constant = null;
+        }
+
+        boolean isReal() {
+            return r != null;
+        }
+
+        RealExpr asReal() {
+            if (r != null) return r;
+            IntExpr e = i;
+            return f -> e.eval(f);
+        }
+    }
+
+    private SlotLayout layout;
+
+    public CompiledProgram compile(ProgramNode program, SymbolTable symbols) {
+        layout = SlotLayout.of(symbols);
+
+        List<CommandNode> cmds = program.getCommands();
+        Stmt[] body = new Stmt[cmds.size()];
+        for (int k = 0; k < body.length; k++) {
+            body[k] = compileCommand(cmds.get(k));
+        }
+
+        return new CompiledProgram(layout, body);
+    }
+
+    /* ------------ Comandos ------------ */
+
+    private Stmt compileCommand(CommandNode cmd) {
+        if (cmd instanceof AssignNode a) {
+            return compileAssign(a);
+        }
+        if (cmd instanceof IfNode i) {
+            Cond c = compileCond(i.getCondition());
+            Stmt then = compileCommand(i.getThenCommand());
+            if (i.getElseCommand() == null) {
+                return f -> {
+                    if (c.test(f)) then.exec(f);
+                };
+            }
+            Stmt other = compileCommand(i.getElseCommand());
+            return f -> {
+                if (c.test(f)) then.exec(f);
+                else other.exec(f);
+            };
+        }
+        if (cmd instanceof WhileNode w) {
+            Cond c = compileCond(w.getCondition());
+            Stmt body = compileCommand(w.getBody());
+            return f -> {
+                while (c.test(f)) body.exec(f);
+            };
+        }
+        return f -> { };
+    }
+
+    private Stmt compileAssign(AssignNode a) {
+        SlotLayout.Slot slot = layout.get(a.getVarId());
+        int idx = slot.index;
+        Typed value = compileExpr(a.getExpression());
+
+        if (slot.type == Type.REAL) {
+            RealExpr e = value.asReal();
+            return f -> f.reals[idx] = e.eval(f);
+        }
+        IntExpr e = value.i;
+        return f -> f.ints[idx] = e.eval(f);
+    }
+
+    /* ------------ Condições ------------ */
+
+    private Cond compileCond(BoolExprNode cond) {
+        if (cond instanceof NotNode n) {
+            Cond c = compileCond(n.getOperand());
+            return f -> !c.test(f);
+        }
+        if (cond instanceof LogicalExprNode l) {
+            Cond left = compileCond(l.getLeft());
+            Cond right = compileCond(l.getRight());
+            if (l.isAnd()) {
+                return f -> left.test(f) && right.test(f);
+            }
+            return f -> left.test(f) || right.test(f);
+        }
+        ConditionNode c = (ConditionNode) cond;
+        Typed left = compileExpr(c.getLeft());
+        Typed right = compileExpr(c.getRight());
+
+        if (left.isReal() || right.isReal()) {
+            RealExpr l = left.asReal();
+            RealExpr r = right.asReal();
+            return switch (c.getOp()) {
+                case ">" -> f -> l.eval(f) > r.eval(f);
+                case "<" -> f -> l.eval(f) < r.eval(f);
+                case ">=" -> f -> l.eval(f) >= r.eval(f);
+                case "<=" -> f -> l.eval(f) <= r.eval(f);
+                case "!=" -> f -> l.eval(f) != r.eval(f);
+                default -> f -> l.eval(f) == r.eval(f);
+            };
+        }
+
+        IntExpr l = left.i;
+        if (right.constant != null) {
+            int k = right.constant;
+            return switch (c.getOp()) {
+                case ">" -> f -> l.eval(f) > k;
+                case "<" -> f -> l.eval(f) < k;
+                case ">=" -> f -> l.eval(f) >= k;
+                case "<=" -> f -> l.eval(f) <= k;
+                case "!=" -> f -> l.eval(f) != k;
+                default -> f -> l.eval(f) == k;
+            };
+        }
+        IntExpr r = right.i;
+        return switch (c.getOp()) {
+            case ">" -> f -> l.eval(f) > r.eval(f);
+            case "<" -> f -> l.eval(f) < r.eval(f);
+            case ">=" -> f -> l.eval(f) >= r.eval(f);
+            case "<=" -> f -> l.eval(f) <= r.eval(f);
+            case "!=" -> f -> l.eval(f) != r.eval(f);
+            default -> f -> l.eval(f) == r.eval(f);
+        };
+    }
+
+    /* ------------ Expressões ------------ */
+
+    private Typed compileExpr(ExpressionNode e) {
+        if (e instanceof NumLiteralNode n) {
+            ConstantPool.Constant c = n.getConstant();
+            if (c.real) {
+                double d = c.realValue;
+                return new Typed(f -> d);
+            }
+            int k = c.intValue;
+            return new Typed(f -> k, k);
+        }
+        if (e instanceof VarRefNode v) {
+            SlotLayout.Slot slot = layout.get(v.getId());
+            int idx = slot.index;
+            if (slot.type == Type.REAL) {
+                return new Typed(f -> f.reals[idx]);
+            }
+            return new Typed(f -> f.ints[idx], null);
+        }
+
+        BinaryExprNode b = (BinaryExprNode) e;
+        Typed left = compileExpr(b.getLeft());
+        Typed right = compileExpr(b.getRight());
+
+        if (left.isReal() || right.isReal()) {
+            return new Typed(realOp(b.getOp(), left.asReal(), right.asReal()));
+        }
+        if (right.constant != null) {
+            return new Typed(intOpConst(b.getOp(), left.i, right.constant), null);
+        }
+        return new Typed(intOp(b.getOp(), left.i, right.i), null);
+    }
+
+    private static IntExpr intOp(String op, IntExpr l, IntExpr r) {
+        return switch (op) {
+            case "-" -> f -> l.eval(f) - r.eval(f);
+            case "*" -> f -> l.eval(f) * r.eval(f);
+            case "/" -> f -> Arith.intDiv(l.eval(f), r.eval(f));
+            case "RESTO" -> f -> Arith.intMod(l.eval(f), r.eval(f));
+            default -> f -> l.eval(f) + r.eval(f);
+        };
+    }
+
+    private static IntExpr intOpConst(String op, IntExpr l, int k) {
+        return switch (op) {
+            case "-" -> f -> l.eval(f) - k;
+            case "*" -> f -> l.eval(f) * k;
+            case "/" -> f -> Arith.intDiv(l.eval(f), k);
+            case "RESTO" -> f -> Arith.intMod(l.eval(f), k);
+            default -> f -> l.eval(f) + k;
+        };
+    }
+
+    private static RealExpr realOp(String op, RealExpr l, RealExpr r) {
+        return switch (op) {
+            case "-" -> f -> l.eval(f) - r.eval(f);
+            case "*" -> f -> l.eval(f) * r.eval(f);
+            case "/" -> f -> l.eval(f) / r.eval(f);
+            case "RESTO" -> f -> l.eval(f) % r.eval(f);
+            default -> f -> l.eval(f) + r.eval(f);
+        };
+    }
+}
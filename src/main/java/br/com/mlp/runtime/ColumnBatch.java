@@ -0,0 +1,125 @@
+package br.com.mlp.runtime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estado de N execuções independentes do mesmo programa (varredura de
+ * parâmetros), em colunas: cada variável declarada tem um vetor primitivo
+ * com um valor por execução ("pista"). Inteiro/caracter usam int[], real
+ * usa double[], como no {@link Frame}.
+ *
+ * O {@link BatchExecutor} lê as entradas e grava os valores finais nas
+ * mesmas colunas. Uma pista que falhou (ex: divisão inteira por zero) fica
+ * com os valores do momento da falha e a mensagem em {@link #error(int)}.
+ */
+public final class ColumnBatch {
+
+    final int lanes;
+    final int[][] ints;     // [slot][pista]
+    final double[][] reals;
+    final String[] errors;
+    private final SlotLayout layout;
+
+    private ColumnBatch(SlotLayout layout, int lanes) {
+        if (lanes < 0) {
+            throw new IllegalArgumentException("quantidade de pistas negativa: " + lanes);
+        }
+        this.layout = layout;
+        this.lanes = lanes;
+        this.ints = new int[layout.intCount][lanes];
+        this.reals = new double[layout.realCount][lanes];
+        this.errors = new String[lanes];
+    }
+
+    /** Lote com todas as variáveis zeradas em todas as pistas. */
+    public static ColumnBatch of(TacProgram program, int lanes) {
+        return new ColumnBatch(program.layout, lanes);
+    }
+
+    public int lanes() {
+        return lanes;
+    }
+
+    /** Copia os valores iniciais de uma variável inteira (ou caracter). */
+    public void set(String name, int[] values) {
+        SlotLayout.Slot s = slot(name);
+        checkLength(name, values.length);
+        if (s.isReal()) {
+            double[] col = reals[s.index];
+            for (int i = 0; i < lanes; i++) col[i] = values[i];
+        } else {
+            System.arraycopy(values, 0, ints[s.index], 0, lanes);
+        }
+    }
+
+    /** Copia os valores iniciais de uma variável real (truncados se for inteira). */
+    public void set(String name, double[] values) {
+        SlotLayout.Slot s = slot(name);
+        checkLength(name, values.length);
+        if (s.isReal()) {
+            System.arraycopy(values, 0, reals[s.index], 0, lanes);
+        } else {
+            int[] col = ints[s.index];
+            for (int i = 0; i < lanes; i++) col[i] = (int) values[i];
+        }
+    }
+
+    /** Coluna de uma variável inteira; é o próprio vetor do lote, não uma cópia. */
+    public int[] ints(String name) {
+        SlotLayout.Slot s = slot(name);
+        if (s.isReal()) {
+            throw new IllegalArgumentException("variável real: " + name);
+        }
+        return ints[s.index];
+    }
+
+    /** Coluna de uma variável real; é o próprio vetor do lote, não uma cópia. */
+    public double[] reals(String name) {
+        SlotLayout.Slot s = slot(name);
+        if (!s.isReal()) {
+            throw new IllegalArgumentException("variável não real: " + name);
+        }
+        return reals[s.index];
+    }
+
+    /** Todas as colunas (int[] ou double[]), na ordem de declaração. */
+    public Map<String, Object> columns() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<String, SlotLayout.Slot> e : layout.slots.entrySet()) {
+            SlotLayout.Slot s = e.getValue();
+            out.put(e.getKey(), s.isReal() ? reals[s.index] : ints[s.index]);
+        }
+        return out;
+    }
+
+    /** Valores de uma pista, no formato de {@link Frame#values()}. */
+    public Map<String, Number> values(int lane) {
+        Map<String, Number> out = new LinkedHashMap<>();
+        for (Map.Entry<String, SlotLayout.Slot> e : layout.slots.entrySet()) {
+            SlotLayout.Slot s = e.getValue();
+            out.put(e.getKey(), s.isReal() ? (Number) reals[s.index][lane] : (Number) ints[s.index][lane]);
+        }
+        return out;
+    }
+
+    /** Mensagem de erro da pista, ou null se ela terminou normalmente. */
+    public String error(int lane) {
+        return errors[lane];
+    }
+
+    private SlotLayout.Slot slot(String name) {
+        SlotLayout.Slot s = layout.get(name);
+        if (s == null) {
+            throw new IllegalArgumentException("variável não declarada: " + name);
+        }
+        return s;
+    }
+
+    private void checkLength(String name, int length) {
+        if (length != lanes) {
+            throw new IllegalArgumentException("coluna " + name + " com " + length
+                    + " valores, esperado " + lanes);
+        }
+    }
+}
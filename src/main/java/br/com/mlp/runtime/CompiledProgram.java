@@ -0,0 +1,38 @@
+package br.com.mlp.runtime;
+
+import java.util.Map;
+
+/**
+ * Programa MLP já compilado pelo {@link ClosureCompiler} em uma árvore de
+ * closures especializadas. É imutável e pode ser executado muitas vezes
+ * (inclusive por várias threads), cada execução com o seu {@link Frame}.
+ */
+public final class CompiledProgram {
+
+    private final SlotLayout layout;
+    private final ClosureCompiler.Stmt[] body;
+
+    CompiledProgram(SlotLayout layout, ClosureCompiler.Stmt[] body) {
+        this.layout = layout;
+        this.body = body;
+    }
+
+    /** Cria um Frame novo, com todas as variáveis zeradas. */
+    public Frame newFrame() {
+        return layout.newFrame();
+    }
+
+    /** Executa o programa sobre o Frame informado (que guarda o resultado). */
+    public void execute(Frame frame) {
+        for (ClosureCompiler.Stmt s : body) {
+            s.exec(frame);
+        }
+    }
+
+    /** Executa a partir de variáveis zeradas e devolve os valores finais. */
+    public Map<String, Number> run() {
+        Frame frame = newFrame();
+        execute(frame);
+        return frame.values();
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.mlp.runtime;
+
+/**
+ * A execução passou do número máximo de instruções configurado
+ * (ex: um enquanto que nunca termina).
+ */
+public class ExecutionLimitException extends MlpRuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long limit;
+
+    public ExecutionLimitException(long limit) {
+        super("limite de " + limit + " instruções excedido");
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.mlp.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Contadores de uma execução do {@link TieredRuntime}: instruções
+ * interpretadas, back-edges seguidos e os eventos de tier-up (laços
+ * promovidos para código compilado, ou que não puderam ser).
+ */
+public final class ExecutionStats {
+
+    /** Um laço que atingiu o limite de back-edges. */
+    public static final class TierUpEvent {
+        private final String label;
+        private final int headerPc;
+        private final long backEdges;
+        private final int bytecodeSize;
+        private final long compileNanos;
+        private final String failure;
+
+        TierUpEvent(String label, int headerPc, long backEdges, int bytecodeSize, long compileNanos, String failure) {
+            this.label = label;
+            this.headerPc = headerPc;
+            this.backEdges = backEdges;
+            this.bytecodeSize = bytecodeSize;
+            this.compileNanos = compileNanos;
+            this.failure = failure;
+        }
+
+        public String getLabel() { return label; }
+        public int getHeaderPc() { return headerPc; }
+        public long getBackEdges() { return backEdges; }
+        public int getBytecodeSize() { return bytecodeSize; }
+        public long getCompileNanos() { return compileNanos; }
+        public boolean isCompiled() { return failure == null; }
+        public String getFailure() { return failure; }
+
+        @Override
+        public String toString() {
+            if (failure != null) {
+                return String.format("laço %s (pc %d): mantido no interpretador após %d back-edges (%s)",
+                        label, headerPc, backEdges, failure);
+            }
+            return String.format("laço %s (pc %d): compilado após %d back-edges (%d bytes de bytecode, %.2f ms)",
+                    label, headerPc, backEdges, bytecodeSize, compileNanos / 1e6);
+        }
+    }
+
+    long interpretedInstructions;
+    long backEdges;
+    long compiledEntries;
+    private final List<TierUpEvent> tierUps = new ArrayList<>();
+
+    void addTierUp(TierUpEvent e) {
+        tierUps.add(e);
+    }
+
+    public long getInterpretedInstructions() { return interpretedInstructions; }
+    public long getBackEdges() { return backEdges; }
+    public long getCompiledEntries() { return compiledEntries; }
+    public List<TierUpEvent> getTierUps() { return Collections.unmodifiableList(tierUps); }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Instruções interpretadas: ").append(interpretedInstructions).append("\n");
+        sb.append("Back-edges no interpretador: ").append(backEdges).append("\n");
+        sb.append("Entradas em laços compilados: ").append(compiledEntries).append("\n");
+        sb.append("Tier-ups: ").append(tierUps.size());
+        for (TierUpEvent e : tierUps) {
+            sb.append("\n  - ").append(e);
+        }
+        return sb.toString();
+    }
+}
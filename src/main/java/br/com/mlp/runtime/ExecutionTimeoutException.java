@@ -0,0 +1,20 @@
+package br.com.mlp.runtime;
+
+/**
+ * A execução passou do tempo máximo configurado.
+ */
+public class ExecutionTimeoutException extends MlpRuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long millis;
+
+    public ExecutionTimeoutException(long millis) {
+        super("limite de " + millis + " ms excedido");
+        this.millis = millis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+}
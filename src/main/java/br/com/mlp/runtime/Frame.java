@@ -0,0 +1,53 @@
+package br.com.mlp.runtime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estado das variáveis de uma execução: um vetor de inteiros e um de reais,
+ * indexados pelos slots resolvidos em tempo de compilação.
+ * Cada execução usa o seu próprio Frame; o programa compilado é compartilhado.
+ */
+public final class Frame {
+
+    final int[] ints;
+    final double[] reals;
+    private final SlotLayout layout;
+
+    Frame(SlotLayout layout) {
+        this.layout = layout;
+        this.ints = new int[layout.intCount];
+        this.reals = new double[layout.realCount];
+    }
+
+    public Number get(String name) {
+        SlotLayout.Slot s = slot(name);
+        return s.isReal() ? (Number) reals[s.index] : (Number) ints[s.index];
+    }
+
+    public void set(String name, Number value) {
+        SlotLayout.Slot s = slot(name);
+        if (s.isReal()) {
+            reals[s.index] = value.doubleValue();
+        } else {
+            ints[s.index] = value.intValue();
+        }
+    }
+
+    /** Valores de todas as variáveis, na ordem de declaração. */
+    public Map<String, Number> values() {
+        Map<String, Number> out = new LinkedHashMap<>();
+        for (String name : layout.slots.keySet()) {
+            out.put(name, get(name));
+        }
+        return out;
+    }
+
+    private SlotLayout.Slot slot(String name) {
+        SlotLayout.Slot s = layout.get(name);
+        if (s == null) {
+            throw new IllegalArgumentException("variável não declarada: " + name);
+        }
+        return s;
+    }
+}
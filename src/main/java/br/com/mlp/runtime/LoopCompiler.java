@@ -0,0 +1,373 @@
+package br.com.mlp.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import br.com.mlp.compiler.codegen.Opcode;
+
+/**
+ * Compila um laço do TAC (do rótulo de cabeçalho até o back-edge) para
+ * bytecode de uma classe oculta, definida com
+ * {@link MethodHandles.Lookup#defineHiddenClass}. O método gerado é
+ *
+ *   static int run(int[] ints, double[] reals)
+ *
+ * e recebe os próprios vetores do {@link Frame}, de modo que o estado das
+ * variáveis passa direto do interpretador para o código compilado (OSR no
+ * cabeçalho do laço). Ele devolve o pc da instrução em que o interpretador
+ * deve continuar quando o laço sai.
+ *
+ * Os registradores do TAC viram variáveis locais da JVM; por isso só laços
+ * cujos registradores não são usados fora da região podem ser compilados.
+ */
+final class LoopCompiler {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType RUN_TYPE = MethodType.methodType(int.class, int[].class, double[].class);
+
+    /** Resultado da compilação de um laço (ou o motivo de não ter compilado). */
+    static final class CompiledLoop {
+        final MethodHandle handle;
+        final int bytecodeSize;
+        final String failure;
+
+        private CompiledLoop(MethodHandle handle, int bytecodeSize, String failure) {
+            this.handle = handle;
+            this.bytecodeSize = bytecodeSize;
+            this.failure = failure;
+        }
+
+        static CompiledLoop failed(String reason) {
+            return new CompiledLoop(null, 0, reason);
+        }
+
+        boolean isCompiled() {
+            return handle != null;
+        }
+
+        /** Executa o laço a partir do cabeçalho e devolve o pc de saída. */
+        int run(Frame frame) {
+            try {
+                return (int) handle.invokeExact(frame.ints, frame.reals);
+            } catch (ArithmeticException e) {
+                throw new MlpRuntimeException("divisão inteira por zero");
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    /** O laço usa algo que este compilador não trata; fica no interpretador. */
+    private static final class Bailout extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        Bailout(String message) {
+            super(message);
+        }
+    }
+
+    private final TacProgram program;
+    private final int start;
+    private final int end;
+    private final BytecodeWriter w = new BytecodeWriter();
+    private final int[] intLocal;
+    private final int[] realLocal;
+    private int nextLocal = 2; // 0 = int[] ints, 1 = double[] reals
+    private final BytecodeWriter.Label[] insnLabels;
+    private final Map<Integer, BytecodeWriter.Label> exits = new HashMap<>();
+
+    private LoopCompiler(TacProgram program, int start, int end) {
+        this.program = program;
+        this.start = start;
+        this.end = end;
+        this.intLocal = new int[program.regCount + 1];
+        this.realLocal = new int[program.regCount + 1];
+        Arrays.fill(intLocal, -1);
+        Arrays.fill(realLocal, -1);
+        this.insnLabels = new BytecodeWriter.Label[end - start + 1];
+    }
+
+    /** Compila as instruções [start, end] (end é o salto de volta ao cabeçalho). */
+    static CompiledLoop compile(TacProgram program, int start, int end) {
+        try {
+            return new LoopCompiler(program, start, end).compile();
+        } catch (Bailout | BytecodeWriter.TooLargeException e) {
+            return CompiledLoop.failed(e.getMessage());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return CompiledLoop.failed("bytecode rejeitado: " + e);
+        }
+    }
+
+    private CompiledLoop compile() throws Bailout, BytecodeWriter.TooLargeException, ReflectiveOperationException {
+        allocateLocals();
+
+        // Zera os locais para que todo caminho os encontre inicializados
+        for (int r = 0; r <= program.regCount; r++) {
+            if (intLocal[r] >= 0) {
+                w.pushInt(0);
+                w.local(BytecodeWriter.ISTORE, intLocal[r]);
+            }
+            if (realLocal[r] >= 0) {
+                w.pushDouble(0.0);
+                w.local(BytecodeWriter.DSTORE, realLocal[r]);
+            }
+        }
+
+        for (int i = 0; i < insnLabels.length; i++) {
+            insnLabels[i] = w.newLabel();
+        }
+        for (int pc = start; pc <= end; pc++) {
+            w.mark(insnLabels[pc - start]);
+            emit(program.code[pc]);
+        }
+
+        // Fim da região sem salto incondicional: sai para a instrução seguinte
+        if (program.code[end].op != Opcode.JMP) {
+            w.pushInt(end + 1);
+            w.op(BytecodeWriter.IRETURN);
+        }
+        for (Map.Entry<Integer, BytecodeWriter.Label> exit : exits.entrySet()) {
+            w.mark(exit.getValue());
+            w.pushInt(exit.getKey());
+            w.op(BytecodeWriter.IRETURN);
+        }
+
+        int size = w.length();
+        byte[] bytes = w.toClassFile("br/com/mlp/runtime/TacLoop", "run", "([I[D)I", 8, nextLocal);
+        MethodHandles.Lookup hidden = LOOKUP.defineHiddenClass(bytes, true);
+        MethodHandle handle = hidden.findStatic(hidden.lookupClass(), "run", RUN_TYPE);
+        return new CompiledLoop(handle, size, null);
+    }
+
+    private void allocateLocals() throws Bailout {
+        for (int pc = start; pc <= end; pc++) {
+            TacProgram.Insn in = program.code[pc];
+            switch (in.op) {
+                case LOAD, LOADI -> use(in.a, in.realA);
+                case STORE -> use(in.b, in.realB);
+                case ADD, SUB, MUL, DIV, CMPGT, CMPLT, CMPGE, CMPLE, CMPEQ, CMPNE,
+                     IADD, ISUB, IMUL, IDIV, IMOD, RADD, RSUB, RMUL, RDIV, RMOD, SHL, SHR, AND, MULH -> {
+                    use(in.a, in.realA);
+                    use(in.b, in.realB);
+                    use(in.c, in.realC);
+                }
+                case ADDI, SUBI, I2R -> {
+                    use(in.a, in.realA);
+                    use(in.b, in.realB);
+                }
+                case JMPFALSE, JMPTRUE, JGTI, JLTI, JGEI, JLEI, JEQI, JNEI -> use(in.b, in.realB);
+                case JGT, JLT, JGE, JLE, JEQ, JNE,
+                     IJGT, IJLT, IJGE, IJLE, IJEQ, IJNE, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> {
+                    use(in.b, in.realB);
+                    use(in.c, in.realC);
+                }
+                default -> { }
+            }
+        }
+    }
+
+    private void use(int reg, boolean real) throws Bailout {
+        if (program.regFirstPc[reg] < start || program.regLastPc[reg] > end) {
+            throw new Bailout("registrador R" + reg + " vivo fora do laço");
+        }
+        if (real && realLocal[reg] < 0) {
+            realLocal[reg] = nextLocal;
+            nextLocal += 2;
+        } else if (!real && intLocal[reg] < 0) {
+            intLocal[reg] = nextLocal++;
+        }
+    }
+
+    /* ------------ Emissão ------------ */
+
+    private void emit(TacProgram.Insn in) throws Bailout {
+        switch (in.op) {
+            case LABEL -> { }
+            case LOAD -> {
+                w.local(BytecodeWriter.ALOAD, in.realB ? 1 : 0);
+                w.pushInt(in.b);
+                w.op(in.realB ? BytecodeWriter.DALOAD : BytecodeWriter.IALOAD);
+                storeReg(in.a, in.realA);
+            }
+            case LOADI -> {
+                pushConst(in, in.realA);
+                storeReg(in.a, in.realA);
+            }
+            case STORE -> {
+                w.local(BytecodeWriter.ALOAD, in.realA ? 1 : 0);
+                w.pushInt(in.a);
+                loadReg(in.b, in.realB, in.realA);
+                w.op(in.realA ? BytecodeWriter.DASTORE : BytecodeWriter.IASTORE);
+            }
+            case ADD, SUB, MUL, DIV -> {
+                loadReg(in.b, in.realB, in.realA);
+                loadReg(in.c, in.realC, in.realA);
+                w.op(arith(in.op, in.realA));
+                storeReg(in.a, in.realA);
+            }
+            case ADDI, SUBI -> {
+                loadReg(in.b, in.realB, in.realA);
+                pushConst(in, in.realA);
+                w.op(arith(in.op == Opcode.ADDI ? Opcode.ADD : Opcode.SUB, in.realA));
+                storeReg(in.a, in.realA);
+            }
+            case CMPGT, CMPLT, CMPGE, CMPLE, CMPEQ, CMPNE -> {
+                boolean real = in.realB || in.realC;
+                BytecodeWriter.Label isTrue = w.newLabel();
+                BytecodeWriter.Label done = w.newLabel();
+                loadReg(in.b, in.realB, real);
+                loadReg(in.c, in.realC, real);
+                compareAndBranch(relation(in.op), real, isTrue);
+                w.pushInt(0);
+                w.branch(BytecodeWriter.GOTO, done);
+                w.mark(isTrue);
+                w.pushInt(1);
+                w.mark(done);
+                storeReg(in.a, false);
+            }
+            case JMP -> w.branch(BytecodeWriter.GOTO, target(in.a));
+            case JMPFALSE, JMPTRUE -> {
+                int jump = in.op == Opcode.JMPTRUE ? BytecodeWriter.IFNE : BytecodeWriter.IFEQ;
+                if (in.realB) {
+                    loadReg(in.b, true, true);
+                    w.pushDouble(0.0);
+                    w.op(BytecodeWriter.DCMPL);
+                } else {
+                    loadReg(in.b, false, false);
+                }
+                w.branch(jump, target(in.a));
+            }
+            case JGT, JLT, JGE, JLE, JEQ, JNE -> {
+                boolean real = in.realB || in.realC;
+                loadReg(in.b, in.realB, real);
+                loadReg(in.c, in.realC, real);
+                compareAndBranch(relation(in.op), real, target(in.a));
+            }
+            case JGTI, JLTI, JGEI, JLEI, JEQI, JNEI -> {
+                boolean real = in.realB || in.realK;
+                loadReg(in.b, in.realB, real);
+                pushConst(in, real);
+                compareAndBranch(relation(in.op), real, target(in.a));
+            }
+            // TAC tipado: operandos já no tipo do opcode
+            case IADD, ISUB, IMUL, IDIV, IMOD, RADD, RSUB, RMUL, RDIV, RMOD, SHL, SHR, AND -> {
+                loadReg(in.b, in.realB, in.realA);
+                loadReg(in.c, in.realC, in.realA);
+                w.op(arith(in.op, in.realA));
+                storeReg(in.a, in.realA);
+            }
+            case MULH -> {
+                // (int) (((long) b * c) >> 32)
+                loadReg(in.b, false, false);
+                w.op(BytecodeWriter.I2L);
+                loadReg(in.c, false, false);
+                w.op(BytecodeWriter.I2L);
+                w.op(BytecodeWriter.LMUL);
+                w.pushInt(32);
+                w.op(BytecodeWriter.LSHR);
+                w.op(BytecodeWriter.L2I);
+                storeReg(in.a, false);
+            }
+            case I2R -> {
+                loadReg(in.b, false, true);
+                storeReg(in.a, true);
+            }
+            case IJGT, IJLT, IJGE, IJLE, IJEQ, IJNE, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> {
+                loadReg(in.b, in.realB, in.realB);
+                loadReg(in.c, in.realC, in.realC);
+                compareAndBranch(relation(in.op), in.realB, target(in.a));
+            }
+            default -> throw new Bailout("opcode " + in.op + " não suportado pelo compilador de laços");
+        }
+    }
+
+    private BytecodeWriter.Label target(int pc) {
+        if (pc >= start && pc <= end) {
+            return insnLabels[pc - start];
+        }
+        return exits.computeIfAbsent(pc, k -> w.newLabel());
+    }
+
+    private void loadReg(int reg, boolean real, boolean wantReal) {
+        if (real) {
+            w.local(BytecodeWriter.DLOAD, realLocal[reg]);
+            if (!wantReal) w.op(BytecodeWriter.D2I);
+        } else {
+            w.local(BytecodeWriter.ILOAD, intLocal[reg]);
+            if (wantReal) w.op(BytecodeWriter.I2D);
+        }
+    }
+
+    private void storeReg(int reg, boolean real) {
+        if (real) {
+            w.local(BytecodeWriter.DSTORE, realLocal[reg]);
+        } else {
+            w.local(BytecodeWriter.ISTORE, intLocal[reg]);
+        }
+    }
+
+    private void pushConst(TacProgram.Insn in, boolean real) {
+        if (real) {
+            w.pushDouble(in.dk);
+        } else {
+            w.pushInt(in.ik);
+        }
+    }
+
+    private static int arith(Opcode op, boolean real) {
+        return switch (op) {
+            case SUB, ISUB, RSUB -> real ? BytecodeWriter.DSUB : BytecodeWriter.ISUB;
+            case MUL, IMUL, RMUL -> real ? BytecodeWriter.DMUL : BytecodeWriter.IMUL;
+            case DIV, IDIV, RDIV -> real ? BytecodeWriter.DDIV : BytecodeWriter.IDIV;
+            case IMOD, RMOD -> real ? BytecodeWriter.DREM : BytecodeWriter.IREM;
+            case SHL -> BytecodeWriter.ISHL;
+            case SHR -> BytecodeWriter.ISHR;
+            case AND -> BytecodeWriter.IAND;
+            default -> real ? BytecodeWriter.DADD : BytecodeWriter.IADD;
+        };
+    }
+
+    private static String relation(Opcode op) {
+        return switch (op) {
+            case CMPGT, JGT, JGTI, IJGT, RJGT -> ">";
+            case CMPLT, JLT, JLTI, IJLT, RJLT -> "<";
+            case CMPGE, JGE, JGEI, IJGE, RJGE -> ">=";
+            case CMPLE, JLE, JLEI, IJLE, RJLE -> "<=";
+            case CMPNE, JNE, JNEI, IJNE, RJNE -> "!=";
+            default -> "==";
+        };
+    }
+
+    /**
+     * Com os dois operandos na pilha, salta para {@code target} se a relação
+     * for verdadeira. Para reais, dcmpl/dcmpg são escolhidos de modo que NaN
+     * torne a comparação falsa, como em Java.
+     */
+    private void compareAndBranch(String rel, boolean real, BytecodeWriter.Label target) {
+        if (!real) {
+            w.branch(switch (rel) {
+                case ">" -> BytecodeWriter.IF_ICMPGT;
+                case "<" -> BytecodeWriter.IF_ICMPLT;
+                case ">=" -> BytecodeWriter.IF_ICMPGE;
+                case "<=" -> BytecodeWriter.IF_ICMPLE;
+                case "!=" -> BytecodeWriter.IF_ICMPNE;
+                default -> BytecodeWriter.IF_ICMPEQ;
+            }, target);
+            return;
+        }
+        switch (rel) {
+            case ">" -> { w.op(BytecodeWriter.DCMPL); w.branch(BytecodeWriter.IFGT, target); }
+            case "<" -> { w.op(BytecodeWriter.DCMPG); w.branch(BytecodeWriter.IFLT, target); }
+            case ">=" -> { w.op(BytecodeWriter.DCMPL); w.branch(BytecodeWriter.IFGE, target); }
+            case "<=" -> { w.op(BytecodeWriter.DCMPG); w.branch(BytecodeWriter.IFLE, target); }
+            case "!=" -> { w.op(BytecodeWriter.DCMPL); w.branch(BytecodeWriter.IFNE, target); }
+            default -> { w.op(BytecodeWriter.DCMPL); w.branch(BytecodeWriter.IFEQ, target); }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.mlp.runtime;
+
+/**
+ * Erro detectado durante a execução de um programa MLP
+ * (ex: divisão inteira por zero com operandos não constantes).
+ */
+public class MlpRuntimeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MlpRuntimeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,82 @@
+package br.com.mlp.runtime;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import br.com.mlp.compiler.ast.ConstantPool;
+import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacBuilder;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Avaliação parcial em tempo de compilação. MLP não tem comando de
+ * entrada, então o resultado de um programa válido depende só do próprio
+ * programa: ele é executado aqui, no interpretador e com orçamento de
+ * instruções e de tempo. Se terminar dentro do orçamento, o TAC vira só
+ * a sequência LOADI/STORE dos valores finais das variáveis atribuídas.
+ *
+ * Se o orçamento acabar, a execução falhar (ex: divisão inteira por zero,
+ * que precisa continuar acontecendo em tempo de execução) ou algum valor
+ * não tiver literal no TAC (NaN, infinito), o TAC original é mantido e o
+ * resultado diz o motivo.
+ */
+public final class PartialEvaluator {
+
+    public static final long DEFAULT_MAX_STEPS = 10_000_000;
+    public static final long DEFAULT_MAX_MILLIS = 1000;
+
+    /** reason é null quando o programa foi avaliado; steps são as instruções executadas. */
+    public record Result(List<TacInstruction> tac, long steps, String reason) {
+        public boolean folded() {
+            return reason == null;
+        }
+    }
+
+    private final long maxSteps;
+    private final long maxMillis;
+
+    public PartialEvaluator() {
+        this(DEFAULT_MAX_STEPS, DEFAULT_MAX_MILLIS);
+    }
+
+    public PartialEvaluator(long maxSteps, long maxMillis) {
+        if (maxSteps < 1 || maxMillis < 1) {
+            throw new IllegalArgumentException("orçamento da avaliação parcial deve ser positivo");
+        }
+        this.maxSteps = maxSteps;
+        this.maxMillis = maxMillis;
+    }
+
+    public Result evaluate(List<TacInstruction> tac, SymbolTable symbols) {
+        TacProgram program = TacProgram.decode(tac, symbols);
+        Frame frame = program.newFrame();
+        // sem JIT: laços compilados não contam instruções nem olham o relógio
+        TieredRuntime runtime = new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false, maxSteps, maxMillis);
+        ExecutionStats stats;
+        try {
+            stats = runtime.execute(program, frame);
+        } catch (MlpRuntimeException e) {
+            return new Result(tac, 0, e.getMessage());
+        }
+
+        Set<String> assigned = new HashSet<>();
+        for (TacInstruction ti : tac) {
+            if (ti.getOpcode() == Opcode.STORE) assigned.add(ti.getArgs()[0]);
+        }
+
+        TacBuilder out = new TacBuilder();
+        for (SymbolTable.Entry e : symbols.all()) {
+            if (!assigned.contains(e.name)) continue;
+            Number value = frame.get(e.name);
+            if (e.type == Type.REAL && !Double.isFinite(value.doubleValue())) {
+                return new Result(tac, stats.interpretedInstructions,
+                        "valor final de '" + e.name + "' (" + value + ") não tem literal no TAC");
+            }
+            out.store(e.id, e.name, out.loadConst(ConstantPool.Constant.of(value)));
+        }
+        return new Result(List.copyOf(out.instructions()), stats.interpretedInstructions, null);
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.mlp.runtime;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Distribuição das variáveis declaradas nos vetores de um {@link Frame}:
+ * reais ocupam o vetor de doubles, inteiro/caracter o vetor de ints.
+ * Os índices seguem a ordem de declaração da Tabela de Símbolos.
+ */
+final class SlotLayout {
+
+    /** Posição de uma variável no Frame: vetor (pelo tipo) e índice. */
+    static final class Slot {
+        final Type type;
+        final int index;
+
+        Slot(Type type, int index) {
+            this.type = type;
+            this.index = index;
+        }
+
+        boolean isReal() {
+            return type == Type.REAL;
+        }
+    }
+
+    final Map<String, Slot> slots;
+    final Slot[] byId; // indexado pelo ID do identificador
+    final int intCount;
+    final int realCount;
+
+    private SlotLayout(Map<String, Slot> slots, Slot[] byId, int intCount, int realCount) {
+        this.slots = Collections.unmodifiableMap(slots);
+        this.byId = byId;
+        this.intCount = intCount;
+        this.realCount = realCount;
+    }
+
+    static SlotLayout of(SymbolTable symbols) {
+        Map<String, Slot> slots = new LinkedHashMap<>();
+        Slot[] byId = new Slot[symbols.getIdents().size()];
+        int ints = 0;
+        int reals = 0;
+        for (SymbolTable.Entry e : symbols.all()) {
+            Slot s = e.type == Type.REAL ? new Slot(Type.REAL, reals++) : new Slot(Type.INTEIRO, ints++);
+            slots.put(e.name, s);
+            byId[e.id] = s;
+        }
+        return new SlotLayout(slots, byId, ints, reals);
+    }
+
+    Slot get(String name) {
+        return slots.get(name);
+    }
+
+    Slot get(int id) {
+        return id >= 0 && id < byId.length ? byId[id] : null;
+    }
+
+    Frame newFrame() {
+        return new Frame(this);
+    }
+}
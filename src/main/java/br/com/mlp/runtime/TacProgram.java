@@ -0,0 +1,270 @@
+package br.com.mlp.runtime;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import br.com.mlp.compiler.ast.ConstantPool;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * TAC já decodificado para execução: rótulos viram índices de instrução,
+ * registradores "Rn" viram o número n, variáveis viram slots do
+ * {@link Frame} e constantes já vêm convertidas para int/double.
+ *
+ * O TAC não tem tipos, então o tipo (inteiro ou real) de cada registrador é
+ * deduzido aqui, percorrendo as instruções em ordem: LOAD herda o tipo da
+ * variável, LOADI o do literal e as operações são reais se algum operando
+ * for real. Isso vale porque o CodeGenerator sempre define um registrador
+ * antes de usá-lo dentro do mesmo comando. No TAC tipado (IADD, RJLT, ...)
+ * e nas operações só de inteiros (SHL, SHR, AND, MULH) o tipo vem do opcode
+ * e só é conferido com o dos operandos.
+ *
+ * É imutável do ponto de vista de quem executa; os laços compilados pelo
+ * {@link TieredRuntime} ficam guardados aqui para serem reaproveitados.
+ */
+public final class TacProgram {
+
+    /** Instrução decodificada. O significado de a/b/c depende do opcode. */
+    static final class Insn {
+        final Opcode op;
+        int a;
+        int b;
+        int c;
+        int ik;
+        double dk;
+        boolean realA;
+        boolean realB;
+        boolean realC;
+        boolean realK;
+
+        Insn(Opcode op) {
+            this.op = op;
+        }
+    }
+
+    final Insn[] code;
+    final SlotLayout layout;
+    final int regCount;
+    /** Nome do rótulo definido em cada pc (ou null), para estatísticas. */
+    final String[] labelAt;
+    /** Primeiro e último pc em que cada registrador aparece. */
+    final int[] regFirstPc;
+    final int[] regLastPc;
+
+    final Map<Integer, LoopCompiler.CompiledLoop> compiledLoops = new ConcurrentHashMap<>();
+
+    private TacProgram(Insn[] code, SlotLayout layout, int regCount, String[] labelAt,
+                       int[] regFirstPc, int[] regLastPc) {
+        this.code = code;
+        this.layout = layout;
+        this.regCount = regCount;
+        this.labelAt = labelAt;
+        this.regFirstPc = regFirstPc;
+        this.regLastPc = regLastPc;
+    }
+
+    public static TacProgram decode(List<TacInstruction> tac, SymbolTable symbols) {
+        SlotLayout layout = SlotLayout.of(symbols);
+
+        Map<String, Integer> labels = new HashMap<>();
+        String[] labelAt = new String[tac.size()];
+        int maxReg = 0;
+        for (int pc = 0; pc < tac.size(); pc++) {
+            TacInstruction ti = tac.get(pc);
+            if (ti.getOpcode() == Opcode.LABEL) {
+                labels.put(ti.getArgs()[0], pc);
+                labelAt[pc] = ti.getArgs()[0];
+            }
+            for (String arg : ti.getArgs()) {
+                if (isRegister(arg)) {
+                    maxReg = Math.max(maxReg, Integer.parseInt(arg.substring(1)));
+                }
+            }
+        }
+
+        boolean[] regReal = new boolean[maxReg + 1];
+        int[] first = new int[maxReg + 1];
+        int[] last = new int[maxReg + 1];
+        Arrays.fill(first, -1);
+
+        Insn[] code = new Insn[tac.size()];
+        for (int pc = 0; pc < tac.size(); pc++) {
+            TacInstruction ti = tac.get(pc);
+            String[] args = ti.getArgs();
+            Insn in = new Insn(ti.getOpcode());
+
+            for (String arg : args) {
+                if (isRegister(arg)) {
+                    int r = Integer.parseInt(arg.substring(1));
+                    if (first[r] < 0) first[r] = pc;
+                    last[r] = pc;
+                }
+            }
+
+            switch (in.op) {
+                case LOAD -> {
+                    SlotLayout.Slot s = slot(layout, ti.getVarId(), args[1]);
+                    in.a = reg(args[0]);
+                    in.b = s.index;
+                    in.realB = s.isReal();
+                    in.realA = in.realB;
+                    regReal[in.a] = in.realA;
+                }
+                case LOADI -> {
+                    in.a = reg(args[0]);
+                    constant(in, ti.getConstant());
+                    in.realA = in.realK;
+                    regReal[in.a] = in.realA;
+                }
+                case STORE -> {
+                    SlotLayout.Slot s = slot(layout, ti.getVarId(), args[0]);
+                    in.a = s.index;
+                    in.realA = s.isReal();
+                    in.b = reg(args[1]);
+                    in.realB = regReal[in.b];
+                }
+                case ADD, SUB, MUL, DIV -> {
+                    in.a = reg(args[0]);
+                    in.b = reg(args[1]);
+                    in.c = reg(args[2]);
+                    in.realB = regReal[in.b];
+                    in.realC = regReal[in.c];
+                    in.realA = in.realB || in.realC;
+                    regReal[in.a] = in.realA;
+                }
+                case ADDI, SUBI -> {
+                    in.a = reg(args[0]);
+                    in.b = in.a;
+                    in.realB = regReal[in.a];
+                    constant(in, ti.getConstant());
+                    in.realA = in.realB || in.realK;
+                    regReal[in.a] = in.realA;
+                }
+                case CMPGT, CMPLT, CMPGE, CMPLE, CMPEQ, CMPNE -> {
+                    in.a = reg(args[0]);
+                    in.b = in.a;
+                    in.c = reg(args[1]);
+                    in.realB = regReal[in.b];
+                    in.realC = regReal[in.c];
+                    in.realA = false;
+                    regReal[in.a] = false;
+                }
+                case JMP -> in.a = target(labels, args[0]);
+                case JMPFALSE, JMPTRUE -> {
+                    in.b = reg(args[0]);
+                    in.realB = regReal[in.b];
+                    in.a = target(labels, args[1]);
+                }
+                case JGT, JLT, JGE, JLE, JEQ, JNE -> {
+                    in.b = reg(args[0]);
+                    in.c = reg(args[1]);
+                    in.realB = regReal[in.b];
+                    in.realC = regReal[in.c];
+                    in.a = target(labels, args[2]);
+                }
+                case JGTI, JLTI, JGEI, JLEI, JEQI, JNEI -> {
+                    in.b = reg(args[0]);
+                    in.realB = regReal[in.b];
+                    constant(in, ti.getConstant());
+                    in.a = target(labels, args[2]);
+                }
+                case IADD, ISUB, IMUL, IDIV, IMOD, RADD, RSUB, RMUL, RDIV, RMOD, SHL, SHR, AND, MULH -> {
+                    boolean real = isRealOp(in.op);
+                    in.a = reg(args[0]);
+                    in.b = operand(regReal, args[1], real, in.op);
+                    in.c = operand(regReal, args[2], real, in.op);
+                    in.realA = in.realB = in.realC = real;
+                    regReal[in.a] = real;
+                }
+                case I2R -> {
+                    in.a = reg(args[0]);
+                    in.b = operand(regReal, args[1], false, in.op);
+                    in.realA = true;
+                    regReal[in.a] = true;
+                }
+                case IJGT, IJLT, IJGE, IJLE, IJEQ, IJNE, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> {
+                    boolean real = isRealOp(in.op);
+                    in.b = operand(regReal, args[0], real, in.op);
+                    in.c = operand(regReal, args[1], real, in.op);
+                    in.realB = in.realC = real;
+                    in.a = target(labels, args[2]);
+                }
+                case LABEL -> in.a = pc;
+                default -> throw new IllegalArgumentException("opcode não suportado na execução: " + in.op);
+            }
+            code[pc] = in;
+        }
+
+        return new TacProgram(code, layout, maxReg, labelAt, first, last);
+    }
+
+    /** Cria um Frame novo, com todas as variáveis zeradas. */
+    public Frame newFrame() {
+        return layout.newFrame();
+    }
+
+    public int size() {
+        return code.length;
+    }
+
+    /* ------------ Decodificação de operandos ------------ */
+
+    private static boolean isRegister(String arg) {
+        if (arg.length() < 2 || arg.charAt(0) != 'R') return false;
+        for (int i = 1; i < arg.length(); i++) {
+            if (!Character.isDigit(arg.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static int reg(String arg) {
+        if (!isRegister(arg)) {
+            throw new IllegalArgumentException("registrador esperado: " + arg);
+        }
+        return Integer.parseInt(arg.substring(1));
+    }
+
+    /** Operando de instrução tipada: o registrador tem de ter o tipo do opcode. */
+    private static int operand(boolean[] regReal, String arg, boolean real, Opcode op) {
+        int r = reg(arg);
+        if (regReal[r] != real) {
+            throw new IllegalArgumentException(op + " espera operando " + (real ? "real" : "inteiro") + ": " + arg);
+        }
+        return r;
+    }
+
+    static boolean isRealOp(Opcode op) {
+        return switch (op) {
+            case RADD, RSUB, RMUL, RDIV, RMOD, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> true;
+            default -> false;
+        };
+    }
+
+    // TAC vindo do CodeGenerator já traz o ID; TAC montado à mão só tem o nome
+    private static SlotLayout.Slot slot(SlotLayout layout, int id, String name) {
+        SlotLayout.Slot s = id >= 0 ? layout.get(id) : layout.get(name);
+        if (s == null) {
+            throw new IllegalArgumentException("variável não declarada no TAC: " + name);
+        }
+        return s;
+    }
+
+    private static int target(Map<String, Integer> labels, String name) {
+        Integer pc = labels.get(name);
+        if (pc == null) {
+            throw new IllegalArgumentException("rótulo inexistente: " + name);
+        }
+        return pc;
+    }
+
+    private static void constant(Insn in, ConstantPool.Constant c) {
+        in.realK = c.real;
+        in.ik = c.intValue;
+        in.dk = c.realValue;
+    }
+}
@@ -0,0 +1,274 @@
+package br.com.mlp.runtime;
+
+import java.util.List;
+import java.util.Map;
+
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.semantics.SymbolTable;
+
+/**
+ * Execução em camadas do TAC:
+ *  1) tudo começa no interpretador, que conta quantas vezes cada back-edge
+ *     (salto para trás, até o rótulo de cabeçalho de um laço) é seguido;
+ *  2) quando um cabeçalho passa do limite configurado, o laço é compilado
+ *     pelo {@link LoopCompiler} e a execução continua no código compilado a
+ *     partir do cabeçalho, com o mesmo Frame (OSR);
+ *  3) entradas futuras no mesmo cabeçalho vão direto para o código compilado.
+ *
+ * Laços compilados ficam no {@link TacProgram} e são reaproveitados entre
+ * execuções. Uma instância não guarda estado de execução e pode ser usada
+ * por várias threads.
+ */
+public class TieredRuntime {
+
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    private final int threshold;
+    private final boolean jitEnabled;
+    private final long maxSteps;
+    private final long maxMillis;
+
+    public TieredRuntime() {
+        this(DEFAULT_THRESHOLD, true);
+    }
+
+    /**
+     * @param threshold  back-edges no mesmo cabeçalho antes de compilar o laço
+     * @param jitEnabled false para ficar sempre no interpretador
+     */
+    public TieredRuntime(int threshold, boolean jitEnabled) {
+        this(threshold, jitEnabled, 0);
+    }
+
+    /**
+     * @param maxSteps máximo de instruções interpretadas antes de abortar com
+     *                 {@link ExecutionLimitException} (0 = sem limite). Laços
+     *                 compilados não são contados, então para um limite exato
+     *                 use jitEnabled = false.
+     */
+    public TieredRuntime(int threshold, boolean jitEnabled, long maxSteps) {
+        this(threshold, jitEnabled, maxSteps, 0);
+    }
+
+    /**
+     * @param maxMillis tempo máximo da execução antes de abortar com
+     *                  {@link ExecutionTimeoutException} (0 = sem limite).
+     *                  O relógio é consultado pelo interpretador, então,
+     *                  como em maxSteps, use jitEnabled = false para que
+     *                  valha também dentro de laços
+     */
+    public TieredRuntime(int threshold, boolean jitEnabled, long maxSteps, long maxMillis) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("limite de tier-up deve ser positivo: " + threshold);
+        }
+        this.threshold = threshold;
+        this.jitEnabled = jitEnabled;
+        this.maxSteps = maxSteps;
+        this.maxMillis = maxMillis;
+    }
+
+    /** Decodifica e executa o TAC a partir de variáveis zeradas. */
+    public Map<String, Number> run(List<TacInstruction> tac, SymbolTable symbols) {
+        TacProgram program = TacProgram.decode(tac, symbols);
+        Frame frame = program.newFrame();
+        execute(program, frame);
+        return frame.values();
+    }
+
+    /** Executa o programa sobre o Frame informado (que guarda o resultado). */
+    public ExecutionStats execute(TacProgram program, Frame frame) {
+        ExecutionStats stats = new ExecutionStats();
+        TacProgram.Insn[] code = program.code;
+        int[] vi = frame.ints;
+        double[] vd = frame.reals;
+        int[] ri = new int[program.regCount + 1];
+        double[] rd = new double[program.regCount + 1];
+        long[] backEdgeCounts = new long[code.length];
+        long deadline = maxMillis > 0 ? System.nanoTime() + maxMillis * 1_000_000 : 0;
+
+        long executed = 0;
+        int pc = 0;
+        try {
+            while (pc < code.length) {
+                TacProgram.Insn in = code[pc];
+                if (++executed > maxSteps && maxSteps > 0) {
+                    throw new ExecutionLimitException(maxSteps);
+                }
+                if ((executed & 0xFFFF) == 0 && deadline != 0 && System.nanoTime() > deadline) {
+                    throw new ExecutionTimeoutException(maxMillis);
+                }
+                switch (in.op) {
+                    case LABEL -> {
+                        LoopCompiler.CompiledLoop loop = jitEnabled ? program.compiledLoops.get(pc) : null;
+                        if (loop != null && loop.isCompiled()) {
+                            stats.compiledEntries++;
+                            pc = loop.run(frame);
+                            continue;
+                        }
+                    }
+                    case LOAD -> {
+                        if (in.realA) rd[in.a] = vd[in.b];
+                        else ri[in.a] = vi[in.b];
+                    }
+                    case LOADI -> {
+                        if (in.realA) rd[in.a] = in.dk;
+                        else ri[in.a] = in.ik;
+                    }
+                    case STORE -> {
+                        if (in.realA) vd[in.a] = in.realB ? rd[in.b] : ri[in.b];
+                        else vi[in.a] = in.realB ? (int) rd[in.b] : ri[in.b];
+                    }
+                    case ADD -> {
+                        if (in.realA) rd[in.a] = (in.realB ? rd[in.b] : ri[in.b]) + (in.realC ? rd[in.c] : ri[in.c]);
+                        else ri[in.a] = ri[in.b] + ri[in.c];
+                    }
+                    case SUB -> {
+                        if (in.realA) rd[in.a] = (in.realB ? rd[in.b] : ri[in.b]) - (in.realC ? rd[in.c] : ri[in.c]);
+                        else ri[in.a] = ri[in.b] - ri[in.c];
+                    }
+                    case MUL -> {
+                        if (in.realA) rd[in.a] = (in.realB ? rd[in.b] : ri[in.b]) * (in.realC ? rd[in.c] : ri[in.c]);
+                        else ri[in.a] = ri[in.b] * ri[in.c];
+                    }
+                    case DIV -> {
+                        if (in.realA) rd[in.a] = (in.realB ? rd[in.b] : ri[in.b]) / (in.realC ? rd[in.c] : ri[in.c]);
+                        else ri[in.a] = Arith.intDiv(ri[in.b], ri[in.c]);
+                    }
+                    case ADDI -> {
+                        if (in.realA) rd[in.a] = (in.realB ? rd[in.b] : ri[in.b]) + in.dk;
+                        else ri[in.a] = ri[in.b] + in.ik;
+                    }
+                    case SUBI -> {
+                        if (in.realA) rd[in.a] = (in.realB ? rd[in.b] : ri[in.b]) - in.dk;
+                        else ri[in.a] = ri[in.b] - in.ik;
+                    }
+                    case CMPGT, CMPLT, CMPGE, CMPLE, CMPEQ, CMPNE -> {
+                        ri[in.a] = compare(in, ri, rd, false) ? 1 : 0;
+                    }
+                    case JMP -> {
+                        pc = jump(program, frame, stats, backEdgeCounts, pc, in.a);
+                        continue;
+                    }
+                    case JMPFALSE, JMPTRUE -> {
+                        boolean isTrue = in.realB ? rd[in.b] != 0.0 : ri[in.b] != 0;
+                        if (isTrue == (in.op == Opcode.JMPTRUE)) {
+                            pc = jump(program, frame, stats, backEdgeCounts, pc, in.a);
+                            continue;
+                        }
+                    }
+                    case JGT, JLT, JGE, JLE, JEQ, JNE -> {
+                        if (compare(in, ri, rd, false)) {
+                            pc = jump(program, frame, stats, backEdgeCounts, pc, in.a);
+                            continue;
+                        }
+                    }
+                    case JGTI, JLTI, JGEI, JLEI, JEQI, JNEI -> {
+                        if (compare(in, ri, rd, true)) {
+                            pc = jump(program, frame, stats, backEdgeCounts, pc, in.a);
+                            continue;
+                        }
+                    }
+                    // TAC tipado: sem teste de tipo por instrução
+                    case IADD -> ri[in.a] = ri[in.b] + ri[in.c];
+                    case ISUB -> ri[in.a] = ri[in.b] - ri[in.c];
+                    case IMUL -> ri[in.a] = ri[in.b] * ri[in.c];
+                    case IDIV -> ri[in.a] = Arith.intDiv(ri[in.b], ri[in.c]);
+                    case IMOD -> ri[in.a] = Arith.intMod(ri[in.b], ri[in.c]);
+                    case RADD -> rd[in.a] = rd[in.b] + rd[in.c];
+                    case RSUB -> rd[in.a] = rd[in.b] - rd[in.c];
+                    case RMUL -> rd[in.a] = rd[in.b] * rd[in.c];
+                    case RDIV -> rd[in.a] = rd[in.b] / rd[in.c];
+                    case RMOD -> rd[in.a] = rd[in.b] % rd[in.c];
+                    case I2R -> rd[in.a] = ri[in.b];
+                    case SHL -> ri[in.a] = ri[in.b] << ri[in.c];
+                    case SHR -> ri[in.a] = ri[in.b] >> ri[in.c];
+                    case AND -> ri[in.a] = ri[in.b] & ri[in.c];
+                    case MULH -> ri[in.a] = Arith.mulHigh(ri[in.b], ri[in.c]);
+                    case IJGT, IJLT, IJGE, IJLE, IJEQ, IJNE, RJGT, RJLT, RJGE, RJLE, RJEQ, RJNE -> {
+                        boolean taken = switch (in.op) {
+                            case IJGT -> ri[in.b] > ri[in.c];
+                            case IJLT -> ri[in.b] < ri[in.c];
+                            case IJGE -> ri[in.b] >= ri[in.c];
+                            case IJLE -> ri[in.b] <= ri[in.c];
+                            case IJEQ -> ri[in.b] == ri[in.c];
+                            case IJNE -> ri[in.b] != ri[in.c];
+                            case RJGT -> rd[in.b] > rd[in.c];
+                            case RJLT -> rd[in.b] < rd[in.c];
+                            case RJGE -> rd[in.b] >= rd[in.c];
+                            case RJLE -> rd[in.b] <= rd[in.c];
+                            case RJEQ -> rd[in.b] == rd[in.c];
+                            default -> rd[in.b] != rd[in.c];
+                        };
+                        if (taken) {
+                            pc = jump(program, frame, stats, backEdgeCounts, pc, in.a);
+                            continue;
+                        }
+                    }
+                    default -> throw new IllegalStateException("opcode não suportado: " + in.op);
+                }
+                pc++;
+            }
+        } finally {
+            stats.interpretedInstructions = executed;
+        }
+        return stats;
+    }
+
+    /**
+     * Segue um salto. Saltos para trás contam como back-edge do cabeçalho de
+     * destino; ao atingir o limite, o laço é compilado e executado (OSR).
+     */
+    private int jump(TacProgram program, Frame frame, ExecutionStats stats,
+                     long[] backEdgeCounts, int pc, int target) {
+        if (target > pc || !jitEnabled) {
+            if (target <= pc) stats.backEdges++;
+            return target;
+        }
+
+        stats.backEdges++;
+        long count = ++backEdgeCounts[target];
+
+        LoopCompiler.CompiledLoop loop = program.compiledLoops.get(target);
+        if (loop == null && count >= threshold) {
+            long t0 = System.nanoTime();
+            loop = program.compiledLoops.computeIfAbsent(target, h -> LoopCompiler.compile(program, h, pc));
+            stats.addTierUp(new ExecutionStats.TierUpEvent(
+                    program.labelAt[target] != null ? program.labelAt[target] : "pc" + target,
+                    target, count, loop.bytecodeSize, System.nanoTime() - t0, loop.failure));
+        }
+
+        if (loop != null && loop.isCompiled()) {
+            stats.compiledEntries++;
+            return loop.run(frame);
+        }
+        return target;
+    }
+
+    // o opcode escolhe a relação direto, sem passar por texto
+    private static boolean compare(TacProgram.Insn in, int[] ri, double[] rd, boolean immediate) {
+        boolean realRight = immediate ? in.realK : in.realC;
+        if (!in.realB && !realRight) {
+            int l = ri[in.b];
+            int r = immediate ? in.ik : ri[in.c];
+            return switch (in.op) {
+                case CMPGT, JGT, JGTI -> l > r;
+                case CMPLT, JLT, JLTI -> l < r;
+                case CMPGE, JGE, JGEI -> l >= r;
+                case CMPLE, JLE, JLEI -> l <= r;
+                case CMPNE, JNE, JNEI -> l != r;
+                default -> l == r;
+            };
+        }
+        double l = in.realB ? rd[in.b] : ri[in.b];
+        double r = immediate ? in.dk : (in.realC ? rd[in.c] : ri[in.c]);
+        return switch (in.op) {
+            case CMPGT, JGT, JGTI -> l > r;
+            case CMPLT, JLT, JLTI -> l < r;
+            case CMPGE, JGE, JGEI -> l >= r;
+            case CMPLE, JLE, JLEI -> l <= r;
+            case CMPNE, JNE, JNEI -> l != r;
+            default -> l == r;
+        };
+    }
+}
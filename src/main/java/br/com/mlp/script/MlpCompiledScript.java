@@ -0,0 +1,78 @@
+package br.com.mlp.script;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import br.com.mlp.runtime.Frame;
+import br.com.mlp.runtime.MlpRuntimeException;
+import br.com.mlp.runtime.TacProgram;
+import br.com.mlp.runtime.TieredRuntime;
+
+/**
+ * Programa MLP compilado uma vez (TAC já decodificado) e executável muitas
+ * vezes. A cada eval as variáveis declaradas recebem os valores de mesmo
+ * nome do contexto (as ausentes começam em zero) e, no fim, os valores
+ * finais são gravados no escopo do motor. O eval devolve esses valores.
+ *
+ * Imutável: várias threads podem executar o mesmo script ao mesmo tempo,
+ * cada execução com o seu Frame.
+ */
+public final class MlpCompiledScript extends CompiledScript {
+
+    private static final TieredRuntime RUNTIME = new TieredRuntime();
+
+    private final ScriptEngine engine;
+    private final TacProgram program;
+    private final List<String> variables;
+
+    MlpCompiledScript(ScriptEngine engine, TacProgram program, List<String> variables) {
+        this.engine = engine;
+        this.program = program;
+        this.variables = List.copyOf(variables);
+    }
+
+    /** Variáveis declaradas no programa, na ordem de declaração. */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    @Override
+    public Object eval(ScriptContext context) throws ScriptException {
+        Frame frame = program.newFrame();
+        for (String name : variables) {
+            Object value = context.getAttribute(name);
+            if (value == null) continue;
+            if (!(value instanceof Number n)) {
+                throw new ScriptException("variável '" + name + "' espera um número, recebeu "
+                        + value.getClass().getSimpleName());
+            }
+            frame.set(name, n);
+        }
+
+        try {
+            RUNTIME.execute(program, frame);
+        } catch (MlpRuntimeException e) {
+            ScriptException se = new ScriptException(e.getMessage());
+            se.initCause(e);
+            throw se;
+        }
+
+        Map<String, Number> values = frame.values();
+        Bindings out = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        if (out != null) {
+            out.putAll(values);
+        }
+        return values;
+    }
+
+    @Override
+    public ScriptEngine getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,125 @@
+package br.com.mlp.script;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.semantics.SymbolTable;
+import br.com.mlp.diagnostics.Diagnostic;
+import br.com.mlp.diagnostics.ErrorCode;
+import br.com.mlp.runtime.TacProgram;
+
+/**
+ * Motor JSR-223 da MLP. {@link #compile(String)} roda léxico, AST, semântica
+ * e geração de TAC uma vez; o {@link MlpCompiledScript} resultante executa
+ * quantas vezes for preciso. {@code eval(String)} passa pelo cache da
+ * fábrica, então o mesmo fonte não é recompilado.
+ *
+ * Em script as variáveis vêm do contexto (Bindings), então COD.207 (uso
+ * sem inicialização) e COD.208 (declarada e não usada) não impedem a
+ * compilação; qualquer outro diagnóstico vira {@link ScriptException}.
+ */
+public class MlpScriptEngine extends AbstractScriptEngine implements Compilable {
+
+    // um compilador para todos os motores: é thread-safe e guarda sessões
+    private static final MlpCompiler COMPILER = MlpCompiler.pooled(Runtime.getRuntime().availableProcessors());
+
+    private final ScriptEngineFactory factory;
+    private final ScriptCache cache;
+
+    MlpScriptEngine(ScriptEngineFactory factory, ScriptCache cache) {
+        this.factory = factory;
+        this.cache = cache;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return compile(script).eval(context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return eval(read(reader), context);
+    }
+
+    @Override
+    public MlpCompiledScript compile(String script) throws ScriptException {
+        MlpCompiledScript compiled = cache.get(script);
+        if (compiled == null) {
+            compiled = compileUncached(script);
+            cache.put(script, compiled);
+        }
+        return compiled;
+    }
+
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException {
+        return compile(read(script));
+    }
+
+    private MlpCompiledScript compileUncached(String source) throws ScriptException {
+        CompilationResult result = COMPILER.compile(source);
+
+        List<Diagnostic> errors = new ArrayList<>();
+        for (Diagnostic d : result.diagnostics()) {
+            if (d.getCode() != ErrorCode.SEMANTICO_VARIAVEL_NAO_INICIALIZADA
+                    && d.getCode() != ErrorCode.SEMANTICO_VARIAVEL_NAO_UTILIZADA) {
+                errors.add(d);
+            }
+        }
+        if (!errors.isEmpty()) {
+            StringBuilder msg = new StringBuilder();
+            for (Diagnostic d : errors) {
+                if (msg.length() > 0) msg.append('\n');
+                msg.append(d);
+            }
+            Diagnostic first = errors.get(0);
+            throw new ScriptException(msg.toString(), null, first.getLine(), first.getColumn());
+        }
+
+        // só avisos de script: o TAC não veio no resultado, gera aqui
+        List<TacInstruction> tac = result.tac() != null ? result.tac() : new CodeGenerator().generate(result.program());
+        SymbolTable symbols = result.symbols();
+
+        List<String> variables = new ArrayList<>();
+        for (SymbolTable.Entry e : symbols.all()) {
+            variables.add(e.name);
+        }
+        return new MlpCompiledScript(this, TacProgram.decode(tac, symbols), variables);
+    }
+
+    private static String read(Reader reader) throws ScriptException {
+        StringWriter out = new StringWriter();
+        try {
+            reader.transferTo(out);
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+        return out.toString();
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return factory;
+    }
+}
@@ -0,0 +1,110 @@
+package br.com.mlp.script;
+
+import java.util.List;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+/**
+ * Fábrica JSR-223 da linguagem MLP, registrada em
+ * META-INF/services/javax.script.ScriptEngineFactory:
+ *
+ * <pre>
+ *   ScriptEngine mlp = new ScriptEngineManager().getEngineByName("mlp");
+ *   Bindings b = mlp.createBindings();
+ *   b.put("a", 20);
+ *   mlp.eval("$ inteiro a, b; b = a * 2; $.", b);   // b.get("b") == 40
+ * </pre>
+ *
+ * Os motores criados pela mesma fábrica compartilham o cache de programas
+ * compilados (limitado, chaveado pelo fonte).
+ */
+public class MlpScriptEngineFactory implements ScriptEngineFactory {
+
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final ScriptCache cache;
+
+    public MlpScriptEngineFactory() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /** @param cacheSize quantos programas compilados ficam guardados (LRU) */
+    public MlpScriptEngineFactory(int cacheSize) {
+        this.cache = new ScriptCache(cacheSize);
+    }
+
+    @Override
+    public String getEngineName() {
+        return "MLP";
+    }
+
+    @Override
+    public String getEngineVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return List.of("mlp");
+    }
+
+    @Override
+    public List<String> getMimeTypes() {
+        return List.of("text/x-mlp", "application/x-mlp");
+    }
+
+    @Override
+    public List<String> getNames() {
+        return List.of("mlp", "MLP");
+    }
+
+    @Override
+    public String getLanguageName() {
+        return "MLP";
+    }
+
+    @Override
+    public String getLanguageVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public Object getParameter(String key) {
+        return switch (key) {
+            case ScriptEngine.ENGINE -> getEngineName();
+            case ScriptEngine.ENGINE_VERSION -> getEngineVersion();
+            case ScriptEngine.NAME -> getNames().get(0);
+            case ScriptEngine.LANGUAGE -> getLanguageName();
+            case ScriptEngine.LANGUAGE_VERSION -> getLanguageVersion();
+            // o motor não guarda estado de execução; cada eval usa o seu Frame
+            case "THREADING" -> "MULTITHREADED";
+            default -> null;
+        };
+    }
+
+    @Override
+    public String getMethodCallSyntax(String obj, String m, String... args) {
+        throw new UnsupportedOperationException("MLP não tem chamadas de método");
+    }
+
+    @Override
+    public String getOutputStatement(String toDisplay) {
+        throw new UnsupportedOperationException("MLP não tem comando de saída");
+    }
+
+    /** Programa com os comandos dados; as declarações fazem parte deles. */
+    @Override
+    public String getProgram(String... statements) {
+        StringBuilder sb = new StringBuilder("$\n");
+        for (String s : statements) {
+            sb.append(' ').append(s).append(";\n");
+        }
+        return sb.append(" $.").toString();
+    }
+
+    @Override
+    public ScriptEngine getScriptEngine() {
+        return new MlpScriptEngine(this, cache);
+    }
+}
@@ -0,0 +1,35 @@
+package br.com.mlp.script;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU limitado de programas compilados, chaveado pelo texto do fonte.
+ * Sincronizado: é compartilhado pelos motores de uma mesma fábrica.
+ */
+final class ScriptCache {
+
+    private final Map<String, MlpCompiledScript> entries;
+
+    ScriptCache(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacidade negativa: " + capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MlpCompiledScript> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized MlpCompiledScript get(String source) {
+        return entries.get(source);
+    }
+
+    synchronized void put(String source, MlpCompiledScript script) {
+        entries.put(source, script);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
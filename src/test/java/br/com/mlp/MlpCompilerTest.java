@@ -0,0 +1,103 @@
+package br.com.mlp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.CharStreams;
+
+import br.com.mlp.diagnostics.ErrorType;
+import junit.framework.TestCase;
+
+/**
+ * API embutível: resultados iguais entre entradas (String, Path, ByteBuffer),
+ * entre compilações repetidas na mesma sessão e entre muitas threads.
+ */
+public class MlpCompilerTest extends TestCase {
+
+    public void testSessionStartsFreshOnEveryCompile() {
+        CompilerSession session = new CompilerSession();
+        String src = "$ inteiro a, b;\n a = 1; b = 2;\n enquanto (a < 10) a = a + b;\n $.";
+
+        CompilationResult first = session.compile(CharStreams.fromString(src));
+        session.compile(CharStreams.fromString("$ inteiro x; x = ; $."));
+        CompilationResult again = session.compile(CharStreams.fromString(src));
+
+        assertFalse(first.diagnostics().toString(), first.hasErrors());
+        assertEquals(first.tac().toString(), again.tac().toString());
+        assertTrue(first.tac().get(0).toString().contains("R1"));
+        assertEquals(first.symbols().all().toString(), again.symbols().all().toString());
+    }
+
+    public void testSourceKindsGiveSameResult() throws Exception {
+        Path file = Path.of("programas/validos/teste_ok_1.mlp");
+        String src = Files.readString(file);
+        MlpCompiler compiler = new MlpCompiler();
+
+        CompilationResult fromString = compiler.compile(src);
+        CompilationResult fromPath = compiler.compile(file);
+        ByteBuffer bytes = ByteBuffer.wrap(src.getBytes(StandardCharsets.UTF_8));
+        CompilationResult fromBytes = compiler.compile(bytes);
+
+        assertEquals(fromString.tac().toString(), fromPath.tac().toString());
+        assertEquals(fromString.tac().toString(), fromBytes.tac().toString());
+        assertEquals(0, bytes.position());
+    }
+
+    public void testErrorsStopAtTheRightPhase() {
+        MlpCompiler compiler = new MlpCompiler();
+
+        CompilationResult syntax = compiler.compile("$ inteiro a; a = ; $.");
+        assertTrue(syntax.hasErrorsOfType(ErrorType.SINTATICO));
+        assertNull(syntax.program());
+        assertNull(syntax.tac());
+
+        CompilationResult semantic = compiler.compile("$ inteiro a; a = b; $.");
+        assertTrue(semantic.hasErrorsOfType(ErrorType.SEMANTICO));
+        assertNotNull(semantic.program());
+        assertNotNull(semantic.symbols());
+        assertNull(semantic.tac());
+    }
+
+    public void testConcurrentPooledCompilesMatchSequential() throws Exception {
+        List<String> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".mlp")).sorted().toList()) {
+                sources.add(Files.readString(p));
+            }
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (String s : sources) {
+            expected.add(summary(new CompilerSession().compile(CharStreams.fromString(s))));
+        }
+
+        MlpCompiler compiler = MlpCompiler.pooled(4);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < sources.size(); i++) {
+                    int k = i;
+                    results.add(threads.submit(() -> expected.get(k).equals(summary(compiler.compile(sources.get(k))))));
+                }
+            }
+            for (Future<Boolean> f : results) {
+                assertTrue(f.get());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static String summary(CompilationResult r) {
+        return r.tokens().size() + "|" + r.diagnostics() + "|" + r.program() + "|" + r.tac();
+    }
+}
@@ -0,0 +1,98 @@
+package br.com.mlp.compiler;
+
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.FlatAst;
+import br.com.mlp.compiler.ast.FlatAstBuilder;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.SemanticAnalyzer;
+import br.com.mlp.diagnostics.ErrorReporter;
+import junit.framework.TestCase;
+
+/**
+ * Programas gerados com cadeias enormes: AST, análise semântica, TAC e
+ * impressão da AST precisam funcionar sem StackOverflowError, já que as
+ * travessias usam pilha explícita. Cada programa passa também pela AST
+ * plana, que deve dar o mesmo TAC.
+ */
+public class DeepProgramTest extends TestCase {
+
+    private static final int OPERANDS = 1_000_000;
+
+    public void testMillionOperandAssignment() {
+        StringBuilder src = new StringBuilder("$ inteiro a, b;\n b = 1;\n a = b");
+        for (int i = 1; i < OPERANDS; i++) {
+            src.append(i % 2 == 0 ? " + b" : " - " + (i % 7));
+        }
+        src.append(";\n $.");
+
+        List<TacInstruction> tac = compile(src.toString());
+
+        // b = 1: LOADI + STORE; a = ...: um LOAD/LOADI por operando, uma operação
+        // entre cada par e o STORE final
+        assertEquals(2 + OPERANDS + (OPERANDS - 1) + 1, tac.size());
+        assertEquals(Opcode.STORE, tac.get(tac.size() - 1).getOpcode());
+    }
+
+    public void testMillionTermCondition() {
+        StringBuilder src = new StringBuilder("$ inteiro a, b;\n b = 1; a = 0;\n se (b > 0)");
+        for (int i = 1; i < OPERANDS; i++) {
+            src.append(i % 3 == 0 ? " OR " : " E ").append("(b != ").append(i % 5 + 2).append(')');
+        }
+        src.append(" entao a = b;\n $.");
+
+        List<TacInstruction> tac = compile(src.toString());
+
+        long compares = tac.stream().filter(t -> t.getOpcode().name().startsWith("J")
+                && t.getOpcode() != Opcode.JMP).count();
+        assertEquals(OPERANDS, compares);
+    }
+
+    public void testDeeplyParenthesizedExpression() {
+        // profundidade limitada pela recursão do próprio parser ANTLR
+        int depth = 500;
+        StringBuilder src = new StringBuilder("$ inteiro a, b;\n b = 1;\n a = ");
+        src.append("(".repeat(depth)).append('b');
+        for (int i = 0; i < depth; i++) {
+            src.append(" * ").append(i % 3 + 1).append(')');
+        }
+        src.append(";\n $.");
+
+        List<TacInstruction> tac = compile(src.toString());
+        assertEquals(2 + 1 + 2 * depth + 1, tac.size());
+    }
+
+    private static List<TacInstruction> compile(String source) {
+        ErrorReporter reporter = new ErrorReporter();
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        MlpParser.ProgramaContext tree = parser.programa();
+        ProgramNode ast = (ProgramNode) new AstBuilder().visit(tree);
+
+        assertTrue(ast.toString().startsWith("Program("));
+
+        new SemanticAnalyzer(reporter, null).analyze(ast);
+        assertFalse(reporter.all().toString(), reporter.hasAnyError());
+
+        List<TacInstruction> tac = new CodeGenerator().generate(ast);
+
+        FlatAst flat = new FlatAstBuilder().build(tree);
+        new SemanticAnalyzer(reporter, null).analyze(flat);
+        assertFalse("AST plana: " + reporter.all(), reporter.hasAnyError());
+        List<TacInstruction> flatTac = new CodeGenerator().generate(flat);
+        assertEquals(tac.size(), flatTac.size());
+        for (int i = 0; i < tac.size(); i++) {
+            assertEquals(tac.get(i).toString(), flatTac.get(i).toString());
+        }
+
+        return tac;
+    }
+}
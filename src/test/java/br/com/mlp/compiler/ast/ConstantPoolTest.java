@@ -0,0 +1,59 @@
+package br.com.mlp.compiler.ast;
+
+import junit.framework.TestCase;
+
+/**
+ * Pool de constantes: um literal é convertido uma vez, com tipo e estouro
+ * decididos na internação, inclusive nos casos que precisam de BigDecimal.
+ */
+public class ConstantPoolTest extends TestCase {
+
+    public void testInternSharesConstant() {
+        ConstantPool pool = new ConstantPool();
+        ConstantPool.Constant a = pool.intern("42");
+        ConstantPool.Constant b = pool.intern("4.5");
+        assertSame(a, pool.intern("42"));
+        assertEquals(0, a.index);
+        assertEquals(1, b.index);
+        assertEquals(2, pool.size());
+        assertSame(b, pool.get(1));
+
+        assertFalse(a.real);
+        assertEquals(42, a.intValue);
+        assertEquals(Integer.valueOf(42), a.value());
+        assertTrue(b.real);
+        assertEquals(4.5, b.realValue);
+        assertEquals(Double.valueOf(4.5), b.value());
+    }
+
+    public void testIntegerOverflow() {
+        ConstantPool pool = new ConstantPool();
+        assertFalse(pool.intern("2147483647").overflow);
+        assertTrue(pool.intern("2147483648").overflow);
+        // mais de 18 dígitos: vai pelo BigInteger
+        ConstantPool.Constant big = pool.intern("1234567890123456789012345");
+        assertTrue(big.overflow);
+        assertEquals(1.2345678901234568e24, big.realValue, 1e10);
+    }
+
+    public void testRealOverflowNearMaxValue() {
+        ConstantPool pool = new ConstantPool();
+        String max = java.math.BigDecimal.valueOf(Double.MAX_VALUE).toPlainString() + ".0";
+        assertFalse(pool.intern(max).overflow);
+        // arredonda para Double.MAX_VALUE, mas passa do limite
+        String above = java.math.BigDecimal.valueOf(Double.MAX_VALUE).add(java.math.BigDecimal.ONE).toPlainString() + ".0";
+        assertEquals(Double.MAX_VALUE, pool.intern(above).realValue);
+        assertTrue(pool.intern(above).overflow);
+        assertTrue(pool.intern("9" + max).overflow);
+    }
+
+    public void testConstantOutsidePool() {
+        ConstantPool.Constant i = ConstantPool.Constant.of(7);
+        assertEquals(-1, i.index);
+        assertEquals("7", i.text);
+        ConstantPool.Constant d = ConstantPool.Constant.of(2.5);
+        assertTrue(d.real);
+        assertEquals("2.5", d.text);
+        assertEquals(ConstantPool.Constant.parse("10").intValue, 10);
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.mlp.compiler.ast;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.SemanticAnalyzer;
+import br.com.mlp.compiler.semantics.SymbolTable;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.IdentToken;
+import br.com.mlp.lex.TokenInfo;
+import br.com.mlp.lex.TokenScanner;
+import junit.framework.TestCase;
+
+/**
+ * Com {@code --ast-plana} a semântica e o gerador percorrem a
+ * {@link FlatAst}: os diagnósticos (na mesma ordem e posição), a Tabela de
+ * Símbolos e o TAC (comum e tipado) devem ser os da AST em objetos.
+ */
+public class FlatAstTest extends TestCase {
+
+    private static final String[] EXTRA = {
+        // E/OR/NOT, se/senão aninhados, RESTO e conversão para real
+        "$ inteiro a, b, c; real r;\n a = 1; b = 2; c = 3; r = 0.5;\n"
+            + " se (a > 0) E (b < c) OR (a == b) entao se (a NOT (b > 1 OR c != 3)) entao a = b senao b = a;\n"
+            + " enquanto (a < 10) a = (a + 1) RESTO 7;\n r = (r * a) + (b / 2.0);\n $.",
+        // não declarada, tipos, divisão por zero, overflow, auto-atribuição
+        "$ inteiro a, b; real r; caracter k;\n a = 1; r = 2.0;\n b = a + x;\n a = r;\n b = (a / 0);\n"
+            + " a = a;\n b = 2147483647 + 1;\n se (k > a) entao a = 1;\n $.",
+        // redeclaração, nome longo, não inicializada e não utilizada
+        "$ inteiro a, b, a; real nomemuitolongo, z;\n nomemuitolongo = b + 1;\n a = b;\n $.",
+        // profundidade acima de 10
+        "$ inteiro a;\n a = 0;\n se (a > 0) entao se (a > 1) entao se (a > 2) entao se (a > 3) entao"
+            + " se (a > 4) entao se (a > 5) entao se (a > 6) entao se (a > 7) entao se (a > 8) entao"
+            + " se (a > 9) entao se (a > 10) entao a = 1;\n $."
+    };
+
+    public void testSameResultsAsObjectAst() throws Exception {
+        List<String> sources = new ArrayList<>(List.of(EXTRA));
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".mlp")).sorted().toList()) {
+                sources.add(Files.readString(p));
+            }
+        }
+
+        int compared = 0;
+        for (String source : sources) {
+            IdentTable idents = new IdentTable();
+            MlpParser.ProgramaContext tree = parse(source, idents);
+            if (tree == null) continue; // erro léxico/sintático: não chega à semântica
+            List<TokenInfo> tokens = new TokenScanner(new ErrorReporter(), idents)
+                    .scan(CharStreams.fromString(source));
+
+            ErrorReporter objects = new ErrorReporter();
+            ProgramNode ast = (ProgramNode) new AstBuilder(idents).visit(tree);
+            SymbolTable expected = new SemanticAnalyzer(objects, tokens).analyze(ast);
+
+            ErrorReporter flat = new ErrorReporter();
+            FlatAst flatAst = new FlatAstBuilder(idents).build(tree);
+            SymbolTable actual = new SemanticAnalyzer(flat, tokens).analyze(flatAst);
+
+            assertEquals(source, objects.all().toString(), flat.all().toString());
+            assertEquals(source, expected.all().toString(), actual.all().toString());
+            if (objects.hasAnyError()) continue;
+
+            assertEquals(source, new CodeGenerator().generate(ast).toString(),
+                    new CodeGenerator().generate(flatAst).toString());
+            assertEquals(source, new CodeGenerator().generateTyped(ast, expected).toString(),
+                    new CodeGenerator().generateTyped(flatAst, actual).toString());
+            compared++;
+        }
+        assertTrue(compared > 1);
+    }
+
+    private static MlpParser.ProgramaContext parse(String source, IdentTable idents) {
+        MlpLexer lexer = new MlpLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+        lexer.setTokenFactory(IdentToken.factory(idents));
+        MlpParser parser = new MlpParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        MlpParser.ProgramaContext tree = parser.programa();
+        return parser.getNumberOfSyntaxErrors() > 0 ? null : tree;
+    }
+}
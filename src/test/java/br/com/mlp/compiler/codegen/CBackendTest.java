@@ -0,0 +1,205 @@
+package br.com.mlp.compiler.codegen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.ConstantPool;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.SemanticAnalyzer;
+import br.com.mlp.compiler.semantics.SymbolTable;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.runtime.AstInterpreter;
+import br.com.mlp.runtime.ExecutionLimitException;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Teste diferencial do {@link CBackend}: o executável gerado pelo cc deve
+ * terminar com os mesmos valores que o {@link AstInterpreter}, que não
+ * passa pelo TAC traduzido para C.
+ *
+ * Programas que não terminam dentro do limite de instruções do runtime
+ * (ex: laços infinitos do corpus) só têm a compilação do C verificada.
+ * Sem cc no PATH a classe sai da execução com um aviso (ver {@link #suite}).
+ */
+public class CBackendTest extends TestCase {
+
+    private static final long MAX_STEPS = 5_000_000;
+
+    private static final String[] EXTRA = {
+        // reais, conversão inteiro -> real e divisão inteira
+        "$ inteiro a, b; real r, s;\n a = 7; b = 2; r = a / b; s = (r * 1.5) + (a / 2.0);\n $.",
+        // RESTO, curto-circuito e NOT
+        "$ inteiro x, y, z;\n x = 17; y = 5; z = 0;\n"
+            + " se (x > 10) E (y != 0) entao z = x RESTO y;\n"
+            + " se (x NOT (x < 3 OR y > 9)) entao y = y * 3;\n $.",
+        // overflow inteiro dá a volta em 32 bits
+        "$ inteiro v, n;\n v = 2147483000; n = 0;\n enquanto (n < 1000) n = n + 1;\n v = v + n; v = v * 3;\n $.",
+        // RESTO real (fmod) e com operando inteiro
+        "$ inteiro a; real x, y, w, v;\n a = 7; x = 7.5;\n y = x RESTO 2.0; w = a RESTO 2.5; v = (0 - x) RESTO a;\n $.",
+        // NaN: toda comparação é falsa, inclusive no salto do caso falso
+        "$ real x, z, c, d, k;\n z = 0; x = z / z; k = 0;\n"
+            + " se (x > 1.0) entao c = 1.0 senao c = 2.0;\n"
+            + " se (x >= z) OR (x == x) entao d = 1 senao d = 2;\n"
+            + " enquanto (x < k) k = k + 1;\n $."
+    };
+
+    private Path dir;
+
+    public static Test suite() {
+        if (hasCompiler()) return new TestSuite(CBackendTest.class);
+        System.err.println("[AVISO] CBackendTest ignorado: nenhum compilador C ($CC ou cc) no PATH");
+        return new TestSuite(CBackendTest.class.getName() + " (ignorado: sem cc)");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        if (dir == null) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    public void testValidProgramsMatchAstInterpreter() throws Exception {
+        dir = Files.createTempDirectory("mlp-c");
+        List<Path> corpus;
+        try (Stream<Path> files = Files.list(Path.of("programas/validos"))) {
+            corpus = files.filter(p -> p.toString().endsWith(".mlp")).sorted().toList();
+        }
+        assertFalse("corpus vazio", corpus.isEmpty());
+
+        for (Path p : corpus) {
+            check(p.getFileName().toString(), Files.readString(p));
+        }
+        for (int i = 0; i < EXTRA.length; i++) {
+            check("extra" + i, EXTRA[i]);
+        }
+    }
+
+    /**
+     * Real lido como inteiro (TAC montado à mão: a análise semântica não
+     * deixa atribuir real a inteiro) satura como o (int) de Java; NaN vira 0.
+     */
+    public void testRealToIntegerSaturates() throws Exception {
+        dir = Files.createTempDirectory("mlp-c");
+        SymbolTable symbols = analyze("$ inteiro i, j, k; real z;\n i = 0; j = 0; k = 0; z = 0;\n $.");
+        List<TacInstruction> tac = List.of(
+                new TacInstruction(Opcode.LOADI, ConstantPool.Constant.parse("10000000000.0"), "R1", "10000000000.0"),
+                store(symbols, "i", "R1"),
+                new TacInstruction(Opcode.LOADI, ConstantPool.Constant.parse("0.0"), "R2", "0.0"),
+                new TacInstruction(Opcode.DIV, "R3", "R2", "R2"),
+                store(symbols, "j", "R3"),
+                new TacInstruction(Opcode.LOADI, ConstantPool.Constant.parse("0"), "R4", "0"),
+                new TacInstruction(Opcode.LOADI, ConstantPool.Constant.parse("3000000000.5"), "R5", "3000000000.5"),
+                new TacInstruction(Opcode.SUB, "R6", "R4", "R5"),
+                store(symbols, "k", "R6"),
+                store(symbols, "z", "R3"));
+        Map<String, Number> expected = new TieredRuntime().run(tac, symbols);
+        assertEquals(Integer.MAX_VALUE, expected.get("i"));
+        assertEquals(0, expected.get("j"));
+        assertEquals(Integer.MIN_VALUE, expected.get("k"));
+
+        Path cFile = dir.resolve("saturar.c");
+        Files.writeString(cFile, new CBackend().generate(tac, symbols));
+        assertValues("saturar", expected, run(CBackend.compile(cFile, dir.resolve("saturar"))));
+    }
+
+    private static TacInstruction store(SymbolTable symbols, String var, String reg) {
+        return new TacInstruction(Opcode.STORE, symbols.lookup(var).id, var, reg);
+    }
+
+    private static SymbolTable analyze(String source) {
+        ErrorReporter reporter = new ErrorReporter();
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        ProgramNode ast = (ProgramNode) new AstBuilder().visit(parser.programa());
+        SymbolTable symbols = new SemanticAnalyzer(reporter, null).analyze(ast);
+        assertFalse(reporter.all().toString(), reporter.hasAnyError());
+        return symbols;
+    }
+
+    private void check(String name, String source) throws Exception {
+        ErrorReporter reporter = new ErrorReporter();
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        ProgramNode ast = (ProgramNode) new AstBuilder().visit(parser.programa());
+        SymbolTable symbols = new SemanticAnalyzer(reporter, null).analyze(ast);
+        assertFalse(name + ": " + reporter.all(), reporter.hasAnyError());
+
+        List<TacInstruction> tac = new CodeGenerator().generate(ast);
+
+        String base = name.replace(".mlp", "");
+        Path cFile = dir.resolve(base + ".c");
+        Files.writeString(cFile, new CBackend().generate(tac, symbols));
+        Path exe = CBackend.compile(cFile, dir.resolve(base));
+
+        // o runtime só decide se o programa termina; a referência é a AST
+        try {
+            new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false, MAX_STEPS).run(tac, symbols);
+        } catch (ExecutionLimitException e) {
+            return; // não termina no limite: só a compilação do C é verificada
+        }
+        Map<String, Number> expected = new AstInterpreter().run(ast);
+
+        assertValues(name, expected, run(exe));
+    }
+
+    private static void assertValues(String name, Map<String, Number> expected, Map<String, String> actual) {
+        assertEquals(name + ": variáveis", expected.keySet(), actual.keySet());
+        for (Map.Entry<String, Number> e : expected.entrySet()) {
+            String got = actual.get(e.getKey());
+            if (e.getValue() instanceof Double d) {
+                // o printf do C escreve NaN como "nan" ou "-nan"
+                Double value = got.matches("-?nan") ? Double.NaN : Double.parseDouble(got);
+                assertEquals(name + ": " + e.getKey(), d, value);
+            } else {
+                assertEquals(name + ": " + e.getKey(), e.getValue().intValue(), Integer.parseInt(got));
+            }
+        }
+    }
+
+    private static Map<String, String> run(Path exe) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder(exe.toString()).redirectErrorStream(true).start();
+        String out = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (!p.waitFor(30, TimeUnit.SECONDS)) {
+            p.destroyForcibly();
+            fail(exe + " não terminou");
+        }
+        assertEquals(exe + " saiu com erro: " + out, 0, p.exitValue());
+
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String line : out.split("\n")) {
+            int eq = line.indexOf(" = ");
+            if (eq > 0) values.put(line.substring(0, eq), line.substring(eq + 3).trim());
+        }
+        return values;
+    }
+
+    private static boolean hasCompiler() {
+        String cc = System.getenv().getOrDefault("CC", "cc");
+        if (cc.contains(File.separator)) return Files.isExecutable(Path.of(cc));
+        String path = System.getenv("PATH");
+        if (path == null) return false;
+        for (String d : path.split(File.pathSeparator)) {
+            if (Files.isExecutable(Path.of(d, cc))) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,146 @@
+package br.com.mlp.compiler.codegen;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.runtime.AstInterpreter;
+import br.com.mlp.runtime.ExecutionLimitException;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.TestCase;
+
+/**
+ * Comparação fundida com o salto: uma instrução por comparação, variante
+ * imediata com literal à direita, registradores intactos até o salto e o
+ * mesmo resultado de execução que o interpretador da AST.
+ */
+public class CompareBranchTest extends TestCase {
+
+    private static final long MAX_STEPS = 2_000_000;
+
+    private static CompilationResult compile(MlpCompiler compiler, String source) {
+        CompilationResult r = compiler.compile(source);
+        assertNotNull(r.diagnostics().toString(), r.tac());
+        return r;
+    }
+
+    private static boolean isBranch(Opcode op) {
+        return op.name().startsWith("J") && op != Opcode.JMP || op.name().matches("[IR]J..");
+    }
+
+    public void testOneFusedBranchPerCondition() {
+        CompilationResult r = compile(new MlpCompiler(), "$ inteiro a, b, i;\n a = 1; b = 2; i = 0;\n"
+                + " se (a > b) entao a = b senao b = a;\n"
+                + " enquanto (i < b) i = i + 1;\n $.");
+        int branches = 0;
+        for (TacInstruction ti : r.tac()) {
+            Opcode op = ti.getOpcode();
+            assertFalse(ti.toString(), op.name().startsWith("CMP") || op == Opcode.JMPFALSE || op == Opcode.JMPTRUE);
+            if (isBranch(op)) branches++;
+        }
+        assertEquals(2, branches);
+        // o salto é no caso falso, então a relação vem invertida
+        String tac = r.tac().toString();
+        assertTrue(tac, tac.contains("JLE R4, R5, L1"));
+        assertTrue(tac, tac.contains("JGE R8, R9, L4"));
+    }
+
+    public void testImmediateVariants() {
+        Map<String, Opcode> negated = Map.of(">", Opcode.JLEI, "<", Opcode.JGEI, ">=", Opcode.JLTI,
+                "<=", Opcode.JGTI, "==", Opcode.JNEI, "!=", Opcode.JEQI);
+        for (Map.Entry<String, Opcode> e : negated.entrySet()) {
+            for (String command : new String[] {"se (a " + e.getKey() + " 3) entao a = 1",
+                                                "enquanto (a " + e.getKey() + " 3) a = (a + 1) RESTO 7"}) {
+                CompilationResult r = compile(new MlpCompiler(), "$ inteiro a;\n a = 0;\n " + command + ";\n $.");
+                List<TacInstruction> branches = r.tac().stream().filter(ti -> isBranch(ti.getOpcode())).toList();
+                assertEquals(command, 1, branches.size());
+                assertEquals(command, e.getValue(), branches.get(0).getOpcode());
+                // nenhum LOADI da constante antes do salto
+                assertEquals(command, "3", branches.get(0).getArgs()[1]);
+            }
+        }
+    }
+
+    /**
+     * Cada registrador é escrito uma única vez, antes de ser lido: o
+     * registrador da esquerda chega ao salto com o valor carregado, mesmo
+     * com subexpressões reaproveitadas ou conversões do TAC tipado.
+     */
+    public void testOperandsNotClobbered() {
+        String source = "$ inteiro a, b; real x;\n a = 1; b = 2; x = 0.5;\n"
+                + " se (a > a) entao a = b;\n"
+                + " se (x < a) OR (a != b) entao b = (a + a) * (a + a);\n"
+                + " enquanto (x <= b) x = x + a;\n $.";
+        for (MlpCompiler compiler : new MlpCompiler[] {new MlpCompiler(), MlpCompiler.reusingSubexpressions(1)}) {
+            CompilationResult r = compile(compiler, source);
+            checkSingleAssignment(r.tac());
+            checkSingleAssignment(new CodeGenerator().generateTyped(r.program(), r.symbols()));
+        }
+    }
+
+    private static void checkSingleAssignment(List<TacInstruction> tac) {
+        Set<String> written = new HashSet<>();
+        for (TacInstruction ti : tac) {
+            Opcode op = ti.getOpcode();
+            String[] args = ti.getArgs();
+            if (isBranch(op)) {
+                assertTrue(ti.toString(), written.contains(args[0]));
+                if (args[1].startsWith("R")) assertTrue(ti.toString(), written.contains(args[1]));
+            } else if (op != Opcode.STORE && op != Opcode.LABEL && op != Opcode.JMP) {
+                assertTrue("reescreve " + ti, written.add(args[0]));
+            }
+        }
+    }
+
+    /**
+     * Com NaN toda comparação é falsa: "x > 1.0" falso não é "x <= 1.0". O
+     * salto no caso falso de uma comparação real não pode ser a relação
+     * invertida, em nenhum dos motores que executam o TAC.
+     */
+    public void testNaNComparisonsRunLikeAstInterpreter() {
+        String source = "$ real x, z, c, d, s, k;\n z = 0; x = z / z; s = 0.5; k = 0;\n"
+                + " se (x > 1.0) entao c = 1.0 senao c = 2.0;\n"
+                + " se (x <= z) OR (x != x) entao d = 1 senao d = 2;\n"
+                + " enquanto (x < k) k = k + 1;\n"
+                + " enquanto (s < 10.0) s = s + 1.5;\n"
+                + " enquanto (s >= z) E (x == x) s = s - 1;\n $.";
+        CompilationResult r = compile(new MlpCompiler(), source);
+        Map<String, Number> expected = new AstInterpreter().run(r.program());
+        assertEquals(2.0, expected.get("c"));
+        assertEquals(1.0, expected.get("d"));
+
+        TieredRuntime interpreter = new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false, MAX_STEPS);
+        assertEquals(expected, interpreter.run(r.tac(), r.symbols()));
+        assertEquals(expected, new TieredRuntime(1, true, MAX_STEPS).run(r.tac(), r.symbols()));
+        List<TacInstruction> typed = new CodeGenerator().generateTyped(r.program(), r.symbols());
+        assertEquals(expected, interpreter.run(typed, r.symbols()));
+        assertEquals(expected, new TieredRuntime(1, true, MAX_STEPS).run(typed, r.symbols()));
+    }
+
+    public void testCorpusRunsLikeAstInterpreter() throws Exception {
+        List<Path> corpus;
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            corpus = files.filter(p -> p.toString().endsWith(".mlp")).sorted().toList();
+        }
+        int compared = 0;
+        for (Path p : corpus) {
+            CompilationResult r = new MlpCompiler().compile(Files.readString(p));
+            if (r.tac() == null) continue;
+            Map<String, Number> tac;
+            try {
+                tac = new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false, MAX_STEPS).run(r.tac(), r.symbols());
+            } catch (ExecutionLimitException e) {
+                continue; // não termina
+            }
+            assertEquals(p.toString(), new AstInterpreter().run(r.program()), tac);
+            compared++;
+        }
+        assertTrue(compared > 0);
+    }
+}
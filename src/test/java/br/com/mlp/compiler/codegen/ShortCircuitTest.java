@@ -0,0 +1,106 @@
+package br.com.mlp.compiler.codegen;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.runtime.ExecutionStats;
+import br.com.mlp.runtime.Frame;
+import br.com.mlp.runtime.TacProgram;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.TestCase;
+
+/**
+ * Condições E/OR/NOT: a árvore dá a E precedência sobre OR, o TAC salta
+ * assim que um lado decide e o resultado é o da lógica booleana.
+ */
+public class ShortCircuitTest extends TestCase {
+
+    private static CompilationResult compile(String source) {
+        CompilationResult r = new MlpCompiler().compile(source);
+        assertNotNull(r.diagnostics().toString(), r.tac());
+        return r;
+    }
+
+    private static String tac(CompilationResult r) {
+        return r.tac().stream().map(TacInstruction::toString).collect(Collectors.joining("\n"));
+    }
+
+    // sem JIT, para a contagem de instruções ser exata
+    private static ExecutionStats run(CompilationResult r, Frame frame) {
+        return new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false)
+                .execute(TacProgram.decode(r.tac(), r.symbols()), frame);
+    }
+
+    // c fica 1 se a condição valeu e 2 caso contrário
+    private static boolean holds(String condition, int x, int y, int z) {
+        CompilationResult r = compile("$ inteiro x, y, z, c;\n x = " + x + "; y = " + y + "; z = " + z + ";\n"
+                + " se " + condition + " entao c = 1 senao c = 2;\n $.");
+        Frame frame = TacProgram.decode(r.tac(), r.symbols()).newFrame();
+        run(r, frame);
+        return frame.get("c").intValue() == 1;
+    }
+
+    public void testAndOrChainTac() {
+        CompilationResult r = compile("$ inteiro a, b, c;\n a = 1; b = 2; c = 0;\n"
+                + " se (a > 0) E (b < 5) OR (a == b) entao c = 1 senao c = 2;\n $.");
+        // (a > 0 E b < 5) OR a == b: o E falso passa para o OR, o E verdadeiro vai direto ao então
+        List<String> cond = List.of(tac(r).split("\n")).subList(6, 16);
+        assertEquals(List.of(
+                "LOAD R4, a", "JLEI R4, 0, L4",
+                "LOAD R5, b", "JLTI R5, 5, L3",
+                "LABEL L4",
+                "LOAD R6, a", "LOAD R7, b", "JNE R6, R7, L1",
+                "LABEL L3",
+                "LOADI R8, 1"), cond);
+    }
+
+    public void testAndBindsTighterThanOr() {
+        for (int x = 0; x < 2; x++) {
+            for (int y = 0; y < 2; y++) {
+                for (int z = 0; z < 2; z++) {
+                    String at = "x=" + x + " y=" + y + " z=" + z;
+                    assertEquals(at, x > 0 || (y > 0 && z > 0), holds("(x > 0) OR (y > 0) E (z > 0)", x, y, z));
+                    assertEquals(at, (x > 0 && y > 0) || z > 0, holds("(x > 0) E (y > 0) OR (z > 0)", x, y, z));
+                    assertEquals(at, x > 0 && y > 0 && z > 0, holds("(x > 0) E (y > 0) E (z > 0)", x, y, z));
+                    assertEquals(at, x > 0 || y > 0 || z > 0, holds("(x > 0) OR (y > 0) OR (z > 0)", x, y, z));
+                }
+            }
+        }
+    }
+
+    public void testNot() {
+        CompilationResult r = compile("$ inteiro a, b, c;\n a = 1; b = 2; c = 0;\n"
+                + " se (a NOT (a > b E b != 3)) entao c = 1;\n $.");
+        // NOT só inverte o sentido dos saltos: nenhuma instrução a mais
+        assertTrue(tac(r), tac(r).contains("JLE R4, R5, L3\nLOAD R6, b\nJNEI R6, 3, L1\nLABEL L3"));
+
+        for (int x = 0; x < 2; x++) {
+            for (int y = 0; y < 2; y++) {
+                for (int z = 0; z < 2; z++) {
+                    String at = "x=" + x + " y=" + y + " z=" + z;
+                    assertEquals(at, !(x > 0 && y > 0 || z > 0), holds("(x NOT (x > 0 E y > 0 OR z > 0))", x, y, z));
+                    assertEquals(at, !(x > 0 || y > 0), holds("(x NOT (x > 0 OR y > 0))", x, y, z));
+                }
+            }
+        }
+    }
+
+    // A gramática só compara variáveis e números, então o lado direito não
+    // tem efeito observável (não há divisão numa condição); a prova de que
+    // ele não roda é a contagem de instruções executadas: nos dois pares
+    // abaixo a execução termina no mesmo ramo, e o lado esquerdo decidido
+    // economiza exatamente o "LOAD y; Jxx" do direito.
+    public void testDecidedSideSkipsTheOther() {
+        String or = "se (x > 0) OR (y > 0) entao c = 1 senao c = 2;";
+        assertEquals(executed(or, 0, 1) - 2, executed(or, 1, 1));
+        String and = "se (x < 1) E (y > 0) entao c = 1 senao c = 2;";
+        assertEquals(executed(and, 0, 0) - 2, executed(and, 1, 0));
+    }
+
+    private static long executed(String command, int x, int y) {
+        CompilationResult r = compile("$ inteiro x, y, c;\n x = " + x + "; y = " + y + ";\n " + command + "\n $.");
+        return run(r, TacProgram.decode(r.tac(), r.symbols()).newFrame()).getInterpretedInstructions();
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.mlp.compiler.codegen;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.TestCase;
+
+/**
+ * Destinos do TAC: o que chega a cada um é exatamente o que a geração em
+ * lista devolve, e o formato binário volta a ser o mesmo programa.
+ */
+public class TacSinkTest extends TestCase {
+
+    private static final String SOURCE = "$ inteiro i, s; real x;\n"
+            + " i = 0; s = 0; x = 2.5;\n"
+            + " enquanto (i < 40) i = i + 1; s = s + (i RESTO 3);\n"
+            + " se (s > 10) entao x = x * s senao x = 0.125;\n $.";
+
+    private final CompilationResult r = new MlpCompiler().compile(SOURCE);
+
+    public void testCountingMatchesList() {
+        List<TacInstruction> tac = new CodeGenerator().generate(r.program());
+        CountingTacSink counter = new CountingTacSink();
+        new CodeGenerator().generate(r.program(), counter);
+
+        assertEquals(tac.size(), counter.total());
+        for (Opcode op : Opcode.values()) {
+            assertEquals(op.name(), tac.stream().filter(ti -> ti.getOpcode() == op).count(), counter.count(op));
+        }
+    }
+
+    public void testPrintingMatchesToString() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TacSink out = new PrintingTacSink(new PrintStream(bytes, false, StandardCharsets.UTF_8));
+        new CodeGenerator().generateTyped(r.program(), r.symbols(), out);
+        out.finish();
+
+        StringBuilder expected = new StringBuilder();
+        for (TacInstruction ti : new CodeGenerator().generateTyped(r.program(), r.symbols())) {
+            expected.append(ti).append(System.lineSeparator());
+        }
+        assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    public void testBinaryRoundTrip() throws IOException {
+        for (boolean typed : new boolean[] {false, true}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            CollectingTacSink collected = new CollectingTacSink();
+            TacSink out = TacSink.tee(new BinaryTacSink(bytes), collected);
+            if (typed) new CodeGenerator().generateTyped(r.program(), r.symbols(), out);
+            else new CodeGenerator().generate(r.program(), out);
+            out.finish();
+
+            List<TacInstruction> read = BinaryTacSink.read(new ByteArrayInputStream(bytes.toByteArray()));
+            assertEquals(collected.instructions().toString(), read.toString());
+            assertEquals(new TieredRuntime().run(collected.instructions(), r.symbols()),
+                    new TieredRuntime().run(read, r.symbols()));
+        }
+    }
+
+    public void testBinaryRejectsOtherFiles() {
+        try {
+            BinaryTacSink.read(new ByteArrayInputStream("LOADI R1, 1\n".getBytes(StandardCharsets.UTF_8)));
+            fail("texto não é TAC binário");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("binário"));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package br.com.mlp.compiler.codegen;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.SemanticAnalyzer;
+import br.com.mlp.compiler.semantics.SymbolTable;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.runtime.AstInterpreter;
+import br.com.mlp.runtime.BatchExecutor;
+import br.com.mlp.runtime.ColumnBatch;
+import br.com.mlp.runtime.ExecutionLimitException;
+import br.com.mlp.runtime.MlpRuntimeException;
+import br.com.mlp.runtime.TacProgram;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.TestCase;
+
+/**
+ * TAC tipado: os executores chegam aos mesmos valores que com o TAC sem
+ * tipos, não sobra operação genérica e RESTO real passa a dar o resto.
+ */
+public class TypedTacTest extends TestCase {
+
+    private static final long MAX_STEPS = 2_000_000;
+
+    private ProgramNode ast;
+    private SymbolTable symbols;
+
+    private void compile(String source) {
+        ErrorReporter reporter = new ErrorReporter();
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        ast = (ProgramNode) new AstBuilder().visit(parser.programa());
+        symbols = new SemanticAnalyzer(reporter, null).analyze(ast);
+        assertFalse(reporter.all().toString(), reporter.hasAnyError());
+    }
+
+    public void testCorpusKeepsValues() throws Exception {
+        List<Path> corpus;
+        try (Stream<Path> files = Files.list(Path.of("programas/validos"))) {
+            corpus = files.filter(p -> p.toString().endsWith(".mlp")).sorted().toList();
+        }
+        for (Path p : corpus) {
+            compile(Files.readString(p));
+            List<TacInstruction> plain = new CodeGenerator().generate(ast);
+            List<TacInstruction> typed = new CodeGenerator().generateTyped(ast, symbols);
+            Map<String, Number> expected;
+            try {
+                expected = new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false, MAX_STEPS).run(plain, symbols);
+            } catch (ExecutionLimitException e) {
+                continue; // não termina
+            }
+            assertEquals(p.toString(), expected,
+                    new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false, MAX_STEPS).run(typed, symbols));
+            assertEquals(p + " (JIT)", expected, new TieredRuntime(1, true).run(typed, symbols));
+        }
+    }
+
+    public void testNoGenericArithmeticLeft() {
+        compile("$ inteiro i, k; real s;\n"
+                + " i = 0; k = 0; s = 0.5;\n"
+                + " enquanto (i < 20) i = i + 1;\n"
+                + " se (s > k) entao s = (s * i) + (k / 3) senao k = i RESTO 7;\n"
+                + " $.");
+        List<TacInstruction> typed = new CodeGenerator().generateTyped(ast, symbols);
+        for (TacInstruction ti : typed) {
+            switch (ti.getOpcode()) {
+                case ADD, SUB, MUL, DIV, JGT, JLT, JGE, JLE, JEQ, JNE -> fail("opcode sem tipo: " + ti);
+                default -> { }
+            }
+        }
+        assertTrue(typed.toString(), typed.stream().anyMatch(ti -> ti.getOpcode() == Opcode.IMOD));
+        assertTrue(typed.toString(), typed.stream().anyMatch(ti -> ti.getOpcode() == Opcode.I2R));
+        // "s > k" falso salta: com reais a relação fica e salta sobre um JMP (NaN)
+        assertTrue(typed.toString(), typed.stream().anyMatch(ti -> ti.getOpcode() == Opcode.RJGT));
+        assertTrue(typed.toString(), typed.stream().noneMatch(ti -> ti.getOpcode() == Opcode.RJLE));
+        // o TAC sem tipos não muda
+        assertTrue(new CodeGenerator().generate(ast).stream().noneMatch(ti -> ti.getOpcode() == Opcode.IMOD));
+    }
+
+    public void testRealRemainder() {
+        compile("$ inteiro a; real r, s;\n a = 7; r = 7.5 RESTO 2.0; s = a RESTO 2.5;\n $.");
+        List<TacInstruction> typed = new CodeGenerator().generateTyped(ast, symbols);
+        Map<String, Number> reference = new AstInterpreter().run(ast);
+        assertEquals(1.5, reference.get("r"));
+        assertEquals(reference, new TieredRuntime().run(typed, symbols));
+
+        TacProgram program = TacProgram.decode(typed, symbols);
+        ColumnBatch batch = ColumnBatch.of(program, 3);
+        new BatchExecutor().execute(program, batch);
+        assertEquals(reference, batch.values(2));
+    }
+
+    public void testIntegerRemainderByZeroFails() {
+        compile("$ inteiro a, b, c;\n a = 7; b = 0; c = a RESTO b;\n $.");
+        List<TacInstruction> typed = new CodeGenerator().generateTyped(ast, symbols);
+        try {
+            new TieredRuntime().run(typed, symbols);
+            fail("RESTO por zero deveria falhar");
+        } catch (MlpRuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("RESTO"));
+        }
+    }
+
+    public void testDecodeRejectsMismatchedOperand() {
+        compile("$ real r;\n r = 1.5;\n $.");
+        List<TacInstruction> tac = List.of(
+                new TacInstruction(Opcode.LOADI, "R1", "1.5"),
+                new TacInstruction(Opcode.LOADI, "R2", "2"),
+                new TacInstruction(Opcode.IADD, "R3", "R1", "R2"));
+        try {
+            TacProgram.decode(tac, symbols);
+            fail("IADD com operando real deveria ser recusado");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("IADD"));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.mlp.compiler.opt;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.runtime.BatchExecutor;
+import br.com.mlp.runtime.ColumnBatch;
+import br.com.mlp.runtime.TacProgram;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.TestCase;
+
+/**
+ * Simplificação algébrica: divisão e RESTO por constante dão o mesmo
+ * resultado que DIV para qualquer dividendo (inclusive negativos e os
+ * extremos de 32 bits), e as identidades somem sem tocar nos reais.
+ */
+public class AlgebraicSimplifierTest extends TestCase {
+
+    private static final int[] DIVISORS = {
+        2, 3, 5, 6, 7, 8, 10, 12, 16, 25, 100, 125, 641, 1000, 1 << 20, 1 << 30, 65537, 2147483647,
+        -2, -3, -7, -8, -10, -1024, -2147483647
+    };
+
+    private final MlpCompiler compiler = new MlpCompiler();
+
+    public void testDivisionByConstantMatchesDiv() {
+        StringBuilder src = new StringBuilder("$ inteiro a");
+        for (int i = 0; i < DIVISORS.length; i++) src.append(", q").append(i).append(", r").append(i);
+        src.append(";\n");
+        for (int i = 0; i < DIVISORS.length; i++) {
+            int k = DIVISORS[i];
+            String divisor = k > 0 ? Integer.toString(k) : "(0 - " + -k + ")";
+            src.append(" q").append(i).append(" = a / ").append(divisor).append(";");
+            src.append(" r").append(i).append(" = a RESTO ").append(divisor).append(";\n");
+        }
+        src.append(" $.");
+        CompilationResult r = compiler.compile(src.toString());
+        CodeGenerator gen = new CodeGenerator();
+
+        for (boolean typed : new boolean[] {false, true}) {
+            List<TacInstruction> tac = typed ? gen.generateTyped(r.program(), r.symbols()) : gen.generate(r.program());
+            AlgebraicSimplifier.Result as = new AlgebraicSimplifier(r.symbols()).run(tac);
+            assertEquals(0, count(as.tac(), Opcode.DIV) + count(as.tac(), Opcode.IDIV) + count(as.tac(), Opcode.IMOD));
+            assertTrue(as.shifts() > 0);
+            assertTrue(as.magicDivisions() > 0);
+
+            int[] inputs = inputs();
+            assertEquals("typed=" + typed, run(tac, r, inputs), run(as.tac(), r, inputs));
+        }
+    }
+
+    public void testMagicNumbers() {
+        // tabela do Hacker's Delight (10-1)
+        assertEquals(new AlgebraicSimplifier.Magic(0x55555556, 0), AlgebraicSimplifier.magic(3));
+        assertEquals(new AlgebraicSimplifier.Magic(0x92492493, 2), AlgebraicSimplifier.magic(7));
+        assertEquals(new AlgebraicSimplifier.Magic(0x66666667, 2), AlgebraicSimplifier.magic(10));
+        assertEquals(new AlgebraicSimplifier.Magic(0x99999999, 1), AlgebraicSimplifier.magic(-5));
+    }
+
+    public void testIdentitiesAndReassociation() {
+        CompilationResult r = compiler.compile("$ inteiro a, b, c, d, e; real x, y;\n"
+                + " a = 19; x = 0.5;\n"
+                + " b = (a * 1) + 0; c = (a - a) * b; d = ((a + 3) + 5) - 8; e = (a * 3) * 4;\n"
+                + " y = (x + 0) * 1;\n $.");
+        AlgebraicSimplifier.Result as = new AlgebraicSimplifier(r.symbols()).run(r.tac());
+
+        assertEquals(r.tac().toString(), new TieredRuntime().run(r.tac(), r.symbols()),
+                new TieredRuntime().run(as.tac(), r.symbols()));
+        assertEquals(3, as.reassociations()); // a + 8, a + 0 e a * 12
+        assertEquals(0, count(as.tac(), Opcode.SUB));
+        // os reais ficam: y continua com ADD e MUL; entre inteiros sobra a * 12
+        assertEquals(1, count(as.tac(), Opcode.ADD));
+        assertEquals(2, count(as.tac(), Opcode.MUL));
+    }
+
+    public void testCompiledLoop() {
+        CompilationResult r = compiler.compile("$ inteiro i, s, t;\n i = 0; s = 0; t = 0;\n"
+                + " enquanto (i < 5000) i = i + 1; s = s + (i / 7) + (i RESTO 8) - (i * 4); t = s / 1000;\n"
+                + " $.");
+        List<TacInstruction> simplified = new AlgebraicSimplifier(r.symbols()).run(r.tac()).tac();
+        assertTrue(count(simplified, Opcode.MULH) > 0);
+        assertEquals(new TieredRuntime(1, false).run(r.tac(), r.symbols()),
+                new TieredRuntime(1, true).run(simplified, r.symbols()));
+    }
+
+    /** Extremos, vizinhança de múltiplos e valores aleatórios. */
+    private static int[] inputs() {
+        int[] v = new int[4096];
+        int n = 0;
+        for (int x : new int[] {0, 1, -1, 2, -2, 7, -7, 8, -8, 9, -9,
+                Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1}) {
+            v[n++] = x;
+        }
+        for (int k : DIVISORS) {
+            for (int m = -3; m <= 3; m++) {
+                for (int delta = -1; delta <= 1; delta++) v[n++] = k * m + delta;
+            }
+        }
+        Random random = new Random(47);
+        while (n < v.length) v[n++] = random.nextInt();
+        return v;
+    }
+
+    private static List<String> run(List<TacInstruction> tac, CompilationResult r, int[] inputs) {
+        TacProgram program = TacProgram.decode(tac, r.symbols());
+        ColumnBatch batch = ColumnBatch.of(program, inputs.length);
+        batch.set("a", inputs);
+        new BatchExecutor().execute(program, batch);
+        return IntStream.range(0, inputs.length).mapToObj(l -> batch.values(l).toString()).toList();
+    }
+
+    private static int count(List<TacInstruction> tac, Opcode op) {
+        int n = 0;
+        for (TacInstruction ti : tac) if (ti.getOpcode() == op) n++;
+        return n;
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.mlp.compiler.opt;
+
+import java.util.List;
+import java.util.Map;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.compiler.codegen.CBackend;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.TestCase;
+
+/**
+ * Eliminação de atribuições mortas: as variáveis observadas terminam com os
+ * mesmos valores, e só as atribuições que ninguém lê saem do TAC.
+ */
+public class DeadStoreEliminationTest extends TestCase {
+
+    private static final String PROGRAM = "$ inteiro a, b, c, t, i;\n"
+            + " a = 1; b = a + 2; t = (a * b); b = 5; t = b;\n"
+            + " i = 0;\n"
+            + " enquanto (i < 10) i = i + b;\n"
+            + " se (a > 0) entao c = t senao c = 2;\n"
+            + " a = 7;\n $.";
+
+    private final MlpCompiler compiler = new MlpCompiler();
+    private final TieredRuntime runtime = new TieredRuntime();
+
+    public void testOverwrittenStoresAreRemoved() {
+        CompilationResult r = compiler.compile(PROGRAM);
+        DeadStoreElimination.Result dse = new DeadStoreElimination(r.symbols(), null).run(r.tac());
+
+        assertEquals(2, dse.removedStores()); // b = a + 2 e t = (a * b)
+        assertEquals(runtime.run(r.tac(), r.symbols()), runtime.run(dse.tac(), r.symbols()));
+    }
+
+    public void testOnlyObservedVariablesSurvive() {
+        CompilationResult r = compiler.compile(PROGRAM);
+        DeadStoreElimination.Result dse = new DeadStoreElimination(r.symbols(), List.of("c")).run(r.tac());
+
+        Map<String, Number> before = runtime.run(r.tac(), r.symbols());
+        Map<String, Number> after = runtime.run(dse.tac(), r.symbols());
+        assertEquals(before.get("c"), after.get("c"));
+        // i decide o laço e a decide o se: os dois ficam, menos a = 7
+        assertEquals(10, after.get("i").intValue());
+        assertEquals(1, after.get("a").intValue());
+        for (TacInstruction ti : dse.tac()) {
+            assertFalse(ti.toString(), ti.getOpcode() == Opcode.LOADI && ti.getArgs()[1].equals("7"));
+        }
+
+        // o C só imprime a observada: a terminaria com 1, não com 7
+        String c = new CBackend().generate(dse.tac(), r.symbols(), List.of("c"));
+        assertTrue(c, c.contains("printf(\"c = "));
+        assertFalse(c, c.contains("printf(\"a = "));
+    }
+
+    public void testDivisionIsKept() {
+        CompilationResult r = compiler.compile("$ inteiro a, b, c; a = 0; b = (5 / a); c = 1; $.");
+        DeadStoreElimination.Result dse = new DeadStoreElimination(r.symbols(), List.of("c")).run(r.tac());
+        boolean div = false;
+        for (TacInstruction ti : dse.tac()) div |= ti.getOpcode() == Opcode.DIV;
+        assertTrue(div);
+
+        try {
+            new DeadStoreElimination(r.symbols(), List.of("x"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("x"));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package br.com.mlp.compiler.opt;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.TestCase;
+
+/**
+ * Desenrolamento: os valores finais não mudam, laços curtos somem, longos
+ * ganham cópias do corpo, e a decisão de cada laço vem com o motivo.
+ */
+public class LoopUnrollerTest extends TestCase {
+
+    private final MlpCompiler compiler = new MlpCompiler();
+    private final TieredRuntime runtime = new TieredRuntime();
+
+    public void testFullAndPartialUnrollKeepValues() {
+        CompilationResult r = compiler.compile("$ inteiro i, j, n, lim;\n"
+                + " lim = 10; i = 0;\n"
+                + " enquanto (i < 5) i = i + 2;\n"
+                + " j = 0;\n"
+                + " enquanto (lim > j) j = j + 1;\n"
+                + " n = 0;\n"
+                + " enquanto (n <= 1001) n = n + 3;\n"
+                + " i = 20;\n"
+                + " enquanto (i > 0) i = i - 1;\n $.");
+        LoopUnroller.Result ur = new LoopUnroller(r.symbols(), 4).run(r.tac());
+
+        assertEquals(2, ur.fullyUnrolled());
+        assertEquals(2, ur.partiallyUnrolled());
+        assertEquals(List.of("laço L1: desenrolado por completo (3 volta(s))",
+                "laço L3: desenrolado por completo (10 volta(s))",
+                "laço L5: desenrolado por 4 (334 voltas, 2 antes do laço)",
+                "laço L7: desenrolado por 4 (20 voltas, 0 antes do laço)"), ur.decisions());
+        assertEquals(runtime.run(r.tac(), r.symbols()), runtime.run(ur.tac(), r.symbols()));
+        int jumps = 0;
+        for (TacInstruction ti : ur.tac()) if (ti.getOpcode() == Opcode.JMP) jumps++;
+        assertEquals(2, jumps);
+    }
+
+    public void testUnknownTripCountsAreReported() throws Exception {
+        CompilationResult r = compiler.compile(Files.readString(Path.of("programas/validos/teste_loop_complexo.mlp")));
+        LoopUnroller.Result ur = new LoopUnroller(r.symbols(), 4).run(r.tac());
+
+        assertEquals(r.tac().toString(), ur.tac().toString());
+        assertEquals(List.of("laço L1: mantido (condição composta)",
+                "laço L4: mantido (valor inicial de j desconhecido)"), ur.decisions());
+    }
+
+    public void testTripCounts() {
+        assertEquals(Long.valueOf(3), LoopUnroller.trips(Opcode.JLTI, 0, 5, 2));
+        assertEquals(Long.valueOf(0), LoopUnroller.trips(Opcode.JLTI, 7, 5, 2));
+        assertEquals(Long.valueOf(6), LoopUnroller.trips(Opcode.JGEI, 10, 0, -2));
+        assertEquals(Long.valueOf(4), LoopUnroller.trips(Opcode.JNEI, 0, 12, 3));
+        assertNull(LoopUnroller.trips(Opcode.JNEI, 0, 10, 3));          // passa do limite
+        assertNull(LoopUnroller.trips(Opcode.JLTI, 0, 5, -1));          // não termina sem estouro
+        assertNull(LoopUnroller.trips(Opcode.JLEI, 0, Integer.MAX_VALUE, 1));
+    }
+}
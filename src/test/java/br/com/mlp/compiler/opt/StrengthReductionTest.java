@@ -0,0 +1,77 @@
+package br.com.mlp.compiler.opt;
+
+import java.util.List;
+import java.util.Map;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.TestCase;
+
+/**
+ * Redução de força: as multiplicações pela variável de indução saem dos
+ * laços sem mudar os valores finais, e o teste de
+ * saída só é reescrito quando o contador morre e não há estouro.
+ */
+public class StrengthReductionTest extends TestCase {
+
+    private final MlpCompiler compiler = new MlpCompiler();
+    private final TieredRuntime runtime = new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false);
+
+    private static String program(int factor) {
+        return "$ inteiro i, s, m, q;\n"
+                + " i = 0; s = 0;\n"
+                + " enquanto (i < 1000) se (s > i) entao i = i + 1 senao s = s + (i * 8) + 3;\n"
+                + " m = 0; q = 0;\n"
+                + " enquanto (m < 50) se (q > 40) entao m = m + 2 senao q = q + (m * " + factor + ") + 1;\n $.";
+    }
+
+    public void testMultiplicationsLeaveLoops() {
+        CompilationResult r = compiler.compile(program(3));
+        StrengthReduction.Result sr = new StrengthReduction(r.symbols(), null).run(r.tac());
+
+        assertEquals(2, sr.reducedMultiplications());
+        assertEquals(0, sr.replacedTests()); // i e m são observadas
+        assertEquals(2, count(sr.tac(), Opcode.MUL)); // só nos pré-cabeçalhos
+        assertEquals(run(r.tac(), r), run(sr.tac(), r));
+    }
+
+    public void testExitTestUsesTemporaryWhenCounterDies() {
+        CompilationResult r = compiler.compile(program(3));
+        StrengthReduction.Result sr = new StrengthReduction(r.symbols(), List.of("s", "q")).run(r.tac());
+
+        assertEquals(1, sr.replacedTests()); // m; i ainda é lida em (s > i)
+        int stores = 0;
+        for (TacInstruction ti : sr.tac()) {
+            if (ti.getOpcode() == Opcode.STORE && ti.getArgs()[0].equals("m")) stores++;
+        }
+        assertEquals(1, stores); // só m = 0, antes do laço
+        Map<String, Number> before = run(r.tac(), r);
+        Map<String, Number> after = run(sr.tac(), r);
+        assertEquals(before.get("s"), after.get("s"));
+        assertEquals(before.get("q"), after.get("q"));
+    }
+
+    public void testExitTestNeedsNoOverflow() {
+        CompilationResult r = compiler.compile(program(300000000));
+        StrengthReduction.Result sr = new StrengthReduction(r.symbols(), List.of("s", "q")).run(r.tac());
+
+        assertEquals(2, sr.reducedMultiplications());
+        assertEquals(0, sr.replacedTests()); // 50 * 300000000 não cabe em 32 bits
+        assertEquals(run(r.tac(), r).get("q"), run(sr.tac(), r).get("q"));
+    }
+
+    private Map<String, Number> run(List<TacInstruction> tac, CompilationResult r) {
+        Map<String, Number> values = runtime.run(tac, r.symbols());
+        values.keySet().removeIf(name -> r.symbols().lookup(name).temporaria);
+        return values;
+    }
+
+    private static int count(List<TacInstruction> tac, Opcode op) {
+        int n = 0;
+        for (TacInstruction ti : tac) if (ti.getOpcode() == op) n++;
+        return n;
+    }
+}
@@ -0,0 +1,212 @@
+package br.com.mlp.compiler.semantics;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.compiler.ast.*;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.diagnostics.Diagnostic;
+import br.com.mlp.diagnostics.ErrorCode;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.TokenInfo;
+import br.com.mlp.lex.TokenScanner;
+import br.com.mlp.runtime.ExecutionLimitException;
+import br.com.mlp.runtime.TieredRuntime;
+import junit.framework.TestCase;
+
+/**
+ * Expressões iguais são um só nó ({@link ExpressionFactory}); o tipo
+ * memorizado nele não pode esconder diagnósticos, nem na análise completa
+ * nem na incremental, e {@code --reusar-subexpr} não muda o resultado.
+ */
+public class ExpressionSharingTest extends TestCase {
+
+    private static final long MAX_STEPS = 2_000_000;
+
+    private static final String[] EXTRA = {
+        // b * c sujo (COD.207) na primeira vez, limpo depois; o pai ainda é verificado
+        "$ inteiro a, b, c; caracter k, m; real r;\n a = b * c;\n b = 1; c = 2;\n a = b * c;\n"
+            + " r = (b * c) / 0;\n k = b * c;\n m = k;\n se (b > k) entao a = (b * c) + (b * c);\n"
+            + " r = ((b * c) + (b * c)) * ((b * c) + (b * c));\n $.",
+        // literal grande compartilhado: COD.206 em cada expressão que o usa
+        "$ inteiro a, b;\n b = 3;\n a = 2147483647 + b;\n a = (2147483647 + 1) - b;\n"
+            + " a = (2147483647 + 1) - b;\n $.",
+        // enquanto: a mesma subexpressão na condição do laço e no corpo
+        "$ inteiro i, n, s;\n i = 0; n = 10; s = 0;\n"
+            + " enquanto (i < n) s = (s + (i * i)) + (i * i);\n i = (i * i) RESTO 3;\n $."
+    };
+
+    private static ProgramNode parse(String source, IdentTable idents) {
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        parser.removeErrorListeners();
+        MlpParser.ProgramaContext tree = parser.programa();
+        if (parser.getNumberOfSyntaxErrors() > 0) return null;
+        return (ProgramNode) new AstBuilder(idents).visit(tree);
+    }
+
+    private static List<String> sources() throws Exception {
+        List<String> sources = new ArrayList<>(List.of(EXTRA));
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".mlp")).sorted().toList()) {
+                sources.add(Files.readString(p));
+            }
+        }
+        return sources;
+    }
+
+    public void testEqualExpressionsAreOneNode() {
+        ProgramNode ast = parse("$ inteiro a, b, c;\n b = 1; c = 2;\n"
+                + " a = (b * c) + (b * c);\n a = b * c;\n se (b > c) entao a = b;\n $.", new IdentTable());
+        BinaryExprNode sum = (BinaryExprNode) ((AssignNode) ast.getCommands().get(2)).getExpression();
+        assertSame(sum.getLeft(), sum.getRight());
+        assertSame(sum.getLeft(), ((AssignNode) ast.getCommands().get(3)).getExpression());
+        // variáveis e literais: um nó por ID e por constante
+        BinaryExprNode product = (BinaryExprNode) sum.getLeft();
+        ConditionNode cond = (ConditionNode) ((IfNode) ast.getCommands().get(4)).getCondition();
+        assertSame(product.getLeft(), cond.getLeft());
+        assertSame(product.getLeft(), ((AssignNode) ((IfNode) ast.getCommands().get(4)).getThenCommand()).getExpression());
+
+        ExpressionFactory f = new ExpressionFactory();
+        ExpressionNode x = f.var("x", 0);
+        ExpressionNode one = f.num("1");
+        assertSame(one, f.num("1"));
+        assertSame(f.binary(x, "+", one), f.binary(f.var("x", 0), "+", f.num("1")));
+        assertNotSame(f.binary(x, "+", one), f.binary(one, "+", x));
+        assertNotSame(f.binary(x, "+", one), f.binary(x, "-", one));
+        assertEquals(5, f.distinctNodes());
+    }
+
+    public void testMemoizedTypesKeepDiagnostics() throws Exception {
+        int compared = 0;
+        for (String source : sources()) {
+            IdentTable idents = new IdentTable();
+            ProgramNode shared = parse(source, idents);
+            if (shared == null) continue;
+            List<TokenInfo> tokens = new TokenScanner(new ErrorReporter(), idents)
+                    .scan(CharStreams.fromString(source));
+
+            ErrorReporter withCache = new ErrorReporter();
+            new SemanticAnalyzer(withCache, tokens).analyze(shared);
+            ErrorReporter withoutSharing = new ErrorReporter();
+            new SemanticAnalyzer(withoutSharing, tokens).analyze(unshared(shared));
+
+            assertEquals(source, withoutSharing.all().toString(), withCache.all().toString());
+            compared++;
+        }
+        assertTrue(compared > EXTRA.length);
+    }
+
+    /**
+     * A mesma AST analisada de novo com a mesma Tabela de Símbolos, agora com
+     * a variável desmarcada como inicializada (o que o editor faz quando a
+     * atribuição anterior some): o tipo memorizado na primeira análise não
+     * pode esconder o COD.207.
+     */
+    public void testIncrementalReinitializationIsSeen() {
+        IdentTable idents = new IdentTable();
+        ProgramNode ast = parse("$ inteiro a, b;\n a = (b * 2) + (b * 2);\n $.", idents);
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(idents);
+        analyzer.beginDeclarations();
+        analyzer.declare(ast.getDeclarations().get(0), List.of(), d -> fail(d.toString()));
+
+        CommandNode c = ast.getCommands().get(0);
+        IncrementalAnalyzer.References refs = IncrementalAnalyzer.references(c);
+        List<Diagnostic> first = new ArrayList<>();
+        analyzer.check(c, refs, List.of(), id -> true, first::add);
+        assertEquals(List.of(), first);
+
+        List<Diagnostic> second = new ArrayList<>();
+        analyzer.check(c, refs, List.of(), id -> false, second::add);
+        // um COD.207 por leitura de b, como na AST sem compartilhamento
+        assertEquals(second.toString(), 2, second.size());
+        for (Diagnostic d : second) {
+            assertEquals(ErrorCode.SEMANTICO_VARIAVEL_NAO_INICIALIZADA, d.getCode());
+            assertTrue(d.toString(), d.toString().contains("'b'"));
+        }
+    }
+
+    public void testReuseSubexpressionsSameResults() throws Exception {
+        int compared = 0;
+        for (String source : sources()) {
+            CompilationResult plain = new MlpCompiler().compile(source);
+            CompilationResult reuse = MlpCompiler.reusingSubexpressions(1).compile(source);
+            assertEquals(source, plain.diagnostics().toString(), reuse.diagnostics().toString());
+            if (plain.tac() == null) {
+                assertNull(source, reuse.tac());
+                continue;
+            }
+            assertTrue(source, reuse.tac().size() <= plain.tac().size());
+
+            Map<String, Number> expected;
+            try {
+                expected = run(plain);
+            } catch (ExecutionLimitException e) {
+                continue; // não termina
+            }
+            assertEquals(source, expected, run(reuse));
+            compared++;
+        }
+        assertTrue(compared > 1);
+
+        // (i * i) calculado uma vez no corpo do laço
+        CompilationResult plain = new MlpCompiler().compile(EXTRA[2]);
+        CompilationResult reuse = MlpCompiler.reusingSubexpressions(1).compile(EXTRA[2]);
+        assertTrue(reuse.tac().size() < plain.tac().size());
+    }
+
+    private static Map<String, Number> run(CompilationResult r) {
+        return new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false, MAX_STEPS).run(r.tac(), r.symbols());
+    }
+
+    /* ------------ Cópia sem compartilhamento ------------ */
+
+    private static ProgramNode unshared(ProgramNode p) {
+        List<CommandNode> cmds = new ArrayList<>();
+        for (CommandNode c : p.getCommands()) cmds.add(copy(c));
+        return new ProgramNode(p.getDeclarations(), cmds, p.getIdents());
+    }
+
+    private static CommandNode copy(CommandNode c) {
+        if (c instanceof AssignNode a) {
+            return new AssignNode(a.getVarName(), a.getVarId(), copy(a.getExpression()));
+        }
+        if (c instanceof IfNode i) {
+            return new IfNode(copy(i.getCondition()), copy(i.getThenCommand()),
+                    i.getElseCommand() != null ? copy(i.getElseCommand()) : null);
+        }
+        WhileNode w = (WhileNode) c;
+        return new WhileNode(copy(w.getCondition()), copy(w.getBody()));
+    }
+
+    private static BoolExprNode copy(BoolExprNode b) {
+        if (b instanceof LogicalExprNode l) {
+            return new LogicalExprNode(copy(l.getLeft()), l.isAnd() ? "E" : "OR", copy(l.getRight()));
+        }
+        if (b instanceof NotNode n) {
+            return new NotNode(copy(n.getOperand()));
+        }
+        ConditionNode c = (ConditionNode) b;
+        return new ConditionNode(copy(c.getLeft()), c.getOp(), copy(c.getRight()));
+    }
+
+    private static ExpressionNode copy(ExpressionNode e) {
+        if (e instanceof BinaryExprNode b) {
+            return new BinaryExprNode(copy(b.getLeft()), b.getOp(), copy(b.getRight()));
+        }
+        if (e instanceof VarRefNode v) {
+            return new VarRefNode(v.getName(), v.getId());
+        }
+        return e == null ? null : new NumLiteralNode(((NumLiteralNode) e).getConstant());
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.mlp.compiler.semantics;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.TokenInfo;
+import br.com.mlp.lex.TokenScanner;
+import junit.framework.TestCase;
+
+/**
+ * O passe único deve produzir os mesmos diagnósticos (na mesma ordem) e o
+ * mesmo TAC que o {@link SemanticAnalyzer} seguido do {@link CodeGenerator}.
+ */
+public class FusedPassTest extends TestCase {
+
+    private static final String[] EXTRA = {
+        // subexpressões compartilhadas (tipo memorizado) ainda são emitidas
+        "$ inteiro a, b, c;\n b = 2; c = 3;\n a = ((b * c) + (b * c)) - (b * c);\n"
+            + " se ((b * c) > (b * c)) E (a != 1) OR (c < b) entao a = a + 1 senao b = a;\n $.",
+        // erro no meio: o TAC é descartado, a verificação continua
+        "$ inteiro a, b; real r;\n a = 1; r = 2.0;\n b = a + x;\n a = r;\n b = (a / 0);\n $.",
+        "$ inteiro a, b;\n a = 1;\n enquanto (a < 10) E (b > 2147483648) a = a + 1;\n $."
+    };
+
+    public void testSameDiagnosticsAndTacAsSeparatePasses() throws Exception {
+        List<String> sources = new ArrayList<>(List.of(EXTRA));
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".mlp")).sorted().toList()) {
+                sources.add(Files.readString(p));
+            }
+        }
+
+        for (String source : sources) {
+            ErrorReporter separate = new ErrorReporter();
+            ProgramNode ast = parse(source, separate);
+            if (ast == null) continue; // erro léxico/sintático: não chega à semântica
+            List<TokenInfo> tokens = new TokenScanner(new ErrorReporter(), ast.getIdents())
+                    .scan(CharStreams.fromString(source));
+
+            new SemanticAnalyzer(separate, tokens).analyze(ast);
+            List<TacInstruction> expected = separate.hasAnyError() ? null : new CodeGenerator().generate(ast);
+
+            ErrorReporter fusedReporter = new ErrorReporter();
+            FusedPass.Result fused = new FusedPass(fusedReporter, tokens).run(parse(source, new ErrorReporter()));
+
+            assertEquals(source, separate.all().toString(), fusedReporter.all().toString());
+            if (expected == null) {
+                assertFalse(source, fused.hasTac());
+            } else {
+                assertEquals(source, expected.toString(), fused.tac().toString());
+            }
+        }
+    }
+
+    private static ProgramNode parse(String source, ErrorReporter reporter) {
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        parser.removeErrorListeners();
+        MlpParser.ProgramaContext tree = parser.programa();
+        if (parser.getNumberOfSyntaxErrors() > 0) return null;
+        return (ProgramNode) new AstBuilder(new IdentTable()).visit(tree);
+    }
+}
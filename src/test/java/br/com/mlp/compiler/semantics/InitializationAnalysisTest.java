@@ -0,0 +1,117 @@
+package br.com.mlp.compiler.semantics;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.diagnostics.Diagnostic;
+import br.com.mlp.diagnostics.ErrorCode;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.TokenScanner;
+import junit.framework.TestCase;
+
+/**
+ * COD.207 sensível ao fluxo: variáveis atribuídas só em um dos caminhos
+ * (entao sem senao, corpo de enquanto) não contam como inicializadas.
+ */
+public class InitializationAnalysisTest extends TestCase {
+
+    public void testAssignmentOnOnePathDoesNotInitialize() {
+        String onlyThen = "$ inteiro a, b, c;\n a = 1;\n se (a > 0) entao b = 1;\n c = b;\n $.";
+        assertEquals("[]", uninitialized(onlyThen, false));
+        assertEquals("[b@4:6]", uninitialized(onlyThen, true));
+
+        String bothBranches = "$ inteiro a, b, c;\n a = 1;\n se (a > 0) entao b = 1 senao b = 2;\n c = b;\n $.";
+        assertEquals("[]", uninitialized(bothBranches, true));
+
+        String elseUsesThen = "$ inteiro a, b, c;\n a = 1;\n se (a > 0) entao b = 1 senao c = b;\n c = a;\n $.";
+        assertEquals("[b@3:35]", uninitialized(elseUsesThen, true));
+
+        // o corpo pode não executar; dentro do corpo, a segunda volta não salva a primeira
+        String loop = "$ inteiro a, b, c;\n a = 0;\n enquanto (a < 3) se (a > 1) entao c = b senao b = a;\n"
+                + " a = b + c;\n $.";
+        assertEquals("[b@3:40, b@4:6, c@4:10]", uninitialized(loop, true));
+
+        String nested = "$ inteiro a, b;\n a = 0;\n enquanto (a < 3) a = a + 1;\n"
+                + " se (a > 0) entao se (a > 1) entao b = 1 senao b = 2 senao b = 3;\n a = b;\n $.";
+        assertEquals("[]", uninitialized(nested, true));
+    }
+
+    public void testReportedAtTheRead() {
+        // o token é o da leitura, não a primeira ocorrência depois da declaração
+        String source = "$ inteiro a, b;\n b = 0;\n se (b > 0) entao a = 1;\n b = a;\n $.";
+        assertEquals("[a@4:6]", uninitialized(source, true));
+
+        // "a" aparece como alvo e antes do NOT sem contar como uso
+        String not = "$ inteiro a, b;\n a = 0;\n se (b NOT (a > 0)) entao a = b;\n $.";
+        assertEquals("[b@3:31]", uninitialized(not, true));
+
+        // comandos além da profundidade máxima também consomem os seus tokens
+        StringBuilder deep = new StringBuilder("$ inteiro a, b, c;\n a = 0;\n");
+        for (int i = 0; i < 12; i++) deep.append(" se (a > 0) entao");
+        deep.append(" b = c;\n a = c;\n $.");
+        assertEquals("[c@4:6]", uninitialized(deep.toString(), true));
+    }
+
+    public void testFlowInsensitiveReportsAreKeptOnCorpus() throws Exception {
+        // toda ocorrência do modo antigo também aparece no exato (caminho só com saltos para frente)
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".mlp")).sorted().toList()) {
+                String source = Files.readString(p);
+                if (parse(source) == null) continue;
+                List<String> exact = new ArrayList<>(names(source, true));
+                for (String name : names(source, false)) {
+                    assertTrue(p + ": " + name, exact.remove(name));
+                }
+            }
+        }
+    }
+
+    // "nome@linha:coluna" de cada COD.207
+    private static String uninitialized(String source, boolean exact) {
+        List<String> out = new ArrayList<>();
+        for (Diagnostic d : analyze(source, exact)) {
+            if (d.getCode() == ErrorCode.SEMANTICO_VARIAVEL_NAO_INICIALIZADA) {
+                out.add(d.getOffendingSymbol() + "@" + d.getLine() + ":" + d.getColumn());
+            }
+        }
+        return out.toString();
+    }
+
+    private static List<Diagnostic> analyze(String source, boolean exact) {
+        ProgramNode ast = parse(source);
+        ErrorReporter reporter = new ErrorReporter();
+        var tokens = new TokenScanner(new ErrorReporter(), ast.getIdents()).scan(CharStreams.fromString(source));
+        new SemanticAnalyzer(reporter, tokens, exact).analyze(ast);
+        return reporter.all();
+    }
+
+    private static List<String> names(String source, boolean exact) {
+        List<String> out = new ArrayList<>();
+        for (Diagnostic d : analyze(source, exact)) {
+            if (d.getCode() == ErrorCode.SEMANTICO_VARIAVEL_NAO_INICIALIZADA) {
+                String m = d.getMessage();
+                out.add(m.substring(m.indexOf("variável '") + 10, m.lastIndexOf('\'')));
+            }
+        }
+        return out;
+    }
+
+    private static ProgramNode parse(String source) {
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        parser.removeErrorListeners();
+        MlpParser.ProgramaContext tree = parser.programa();
+        if (parser.getNumberOfSyntaxErrors() > 0) return null;
+        return (ProgramNode) new AstBuilder(new IdentTable()).visit(tree);
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.mlp.compiler.semantics;
+
+import java.util.List;
+
+import br.com.mlp.compiler.ast.Type;
+import br.com.mlp.lex.IdentTable;
+import junit.framework.TestCase;
+
+/**
+ * Pilha de escopos da Tabela de Símbolos indexada por ID: sombreamento,
+ * redeclaração no mesmo escopo e restauração no fim do escopo.
+ */
+public class SymbolTableTest extends TestCase {
+
+    private final IdentTable idents = new IdentTable();
+    private final SymbolTable table = new SymbolTable(idents);
+
+    public void testRedeclarationInSameScopeIsRefused() {
+        int a = idents.intern("a");
+        assertTrue(table.declare(a, Type.INTEIRO, 1, 3));
+        assertFalse(table.declare(a, Type.REAL, 1, 9));
+        // a primeira declaração continua valendo
+        assertEquals(Type.INTEIRO, table.lookup(a).type);
+        assertEquals(3, table.lookup(a).column);
+        assertEquals(1, table.all().size());
+    }
+
+    public void testShadowingUntilExitScope() {
+        int a = idents.intern("a");
+        table.declare(a, Type.INTEIRO, 1, 1);
+        SymbolTable.Entry outer = table.lookup(a);
+        outer.inicializada = true;
+
+        table.enterScope();
+        assertSame(outer, table.lookup(a));
+        assertTrue(table.declare(a, Type.REAL, 2, 1));
+        SymbolTable.Entry inner = table.lookup(a);
+        assertNotSame(outer, inner);
+        assertEquals(Type.REAL, inner.type);
+        assertFalse(inner.inicializada);
+        assertFalse(table.declare(a, Type.CARACTER, 2, 5));
+
+        table.enterScope();
+        assertTrue(table.declare(a, Type.CARACTER, 3, 1));
+        table.exitScope();
+        assertSame(inner, table.lookup(a));
+
+        table.exitScope();
+        assertSame(outer, table.lookup(a));
+        assertSame(outer, table.lookup("a"));
+    }
+
+    public void testExitScopeDropsInnerNames() {
+        int a = idents.intern("a");
+        int b = idents.intern("b");
+        table.declare(a, Type.INTEIRO, 1, 1);
+        table.enterScope();
+        table.declare(b, Type.REAL, 2, 1);
+        assertNotNull(table.lookup(b));
+        table.exitScope();
+        assertNull(table.lookup(b));
+        assertNull(table.lookup("c"));
+        assertNull(table.lookup(-1));
+
+        // all() guarda também as entradas de escopos encerrados, em ordem
+        List<String> names = table.all().stream().map(e -> e.name).toList();
+        assertEquals(List.of("a", "b"), names);
+    }
+
+    public void testGlobalScopeCannotBeClosed() {
+        try {
+            table.exitScope();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testIdsBeyondInitialCapacity() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(table.declare("v" + i, Type.INTEIRO, i, 1));
+        }
+        assertEquals("v99", table.lookup(idents.find("v99")).name);
+        assertEquals(100, table.all().size());
+    }
+
+    public void testTemporariesDoNotCollide() {
+        table.declare("t_1", Type.INTEIRO, 1, 1);
+        SymbolTable.Entry e = table.declareTemporary("t", Type.REAL);
+        assertEquals("t_2", e.name);
+        assertTrue(e.temporaria && e.inicializada && e.usada);
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.mlp.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.SemanticAnalyzer;
+import br.com.mlp.lex.TokenScanner;
+import junit.framework.TestCase;
+
+/**
+ * Limite de erros, deduplicação, mensagens sob demanda e destino: o
+ * reporter padrão continua guardando tudo, na ordem.
+ */
+public class ErrorReporterTest extends TestCase {
+
+    // "x" nunca é declarada: por uso, um COD.200 e os COD.201 da soma e da atribuição
+    private static String undeclaredUses(int n) {
+        StringBuilder src = new StringBuilder("$ inteiro a;\n a = 0;\n");
+        for (int i = 0; i < n; i++) src.append(" a = a + x;\n");
+        return src.append(" $.").toString();
+    }
+
+    private static void analyze(String source, ErrorReporter reporter) {
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        ProgramNode ast = (ProgramNode) new AstBuilder().visit(parser.programa());
+        new SemanticAnalyzer(reporter, null).analyze(ast);
+    }
+
+    private static long count(ErrorReporter reporter, ErrorCode code) {
+        return reporter.all().stream().filter(d -> d.getCode() == code).count();
+    }
+
+    public void testDefaultKeepsEverything() {
+        ErrorReporter reporter = new ErrorReporter();
+        analyze(undeclaredUses(50), reporter);
+        assertEquals(150, reporter.count(ErrorType.SEMANTICO));
+        assertEquals(150, reporter.all().size());
+        assertEquals(50, count(reporter, ErrorCode.SEMANTICO_VARIAVEL_NAO_DECLARADA));
+        assertTrue(reporter.hasErrorsOfType(ErrorType.SEMANTICO));
+        assertFalse(reporter.hasErrorsOfType(ErrorType.SINTATICO));
+        assertFalse(reporter.limitReached());
+        assertEquals(0, reporter.suppressed());
+    }
+
+    public void testLimitStopsSemantics() {
+        ErrorReporter reporter = new ErrorReporter(5, false, null);
+        analyze(undeclaredUses(1000), reporter);
+        assertTrue(reporter.limitReached());
+        assertEquals(5, reporter.all().size());
+        // a análise para no comando seguinte: só o resto do comando é omitido
+        assertTrue("omitidos: " + reporter.suppressed(), reporter.suppressed() <= 2);
+    }
+
+    public void testLimitStopsLexerAndParser() {
+        ErrorReporter lexical = new ErrorReporter(3, false, null);
+        assertEquals(3, new TokenScanner(lexical).scan(CharStreams.fromString("@ # @ # @ # @ #")).size());
+
+        ErrorReporter syntax = new ErrorReporter(2, false, null);
+        MlpParser parser = new MlpParser(new CommonTokenStream(
+                new MlpLexer(CharStreams.fromString("$ inteiro ; a = = 1; b = = 2; c = = 3; d = = 4; $."))));
+        parser.removeErrorListeners();
+        parser.addErrorListener(new MlpSyntaxErrorListener(syntax));
+        try {
+            parser.programa();
+            fail("o parser deveria parar no limite");
+        } catch (ParseCancellationException e) {
+            assertEquals(2, syntax.count(ErrorType.SINTATICO));
+        }
+    }
+
+    public void testDeduplicationBySymbol() {
+        ErrorReporter reporter = new ErrorReporter(ErrorReporter.UNLIMITED, true, null);
+        analyze(undeclaredUses(100), reporter);
+        assertEquals(1, count(reporter, ErrorCode.SEMANTICO_VARIAVEL_NAO_DECLARADA));
+        assertEquals(99, reporter.suppressed());
+        // os COD.201 não têm símbolo: ficam todos
+        assertEquals(200, count(reporter, ErrorCode.SEMANTICO_TIPO_INCOMPATIVEL));
+    }
+
+    public void testSinkAndLazyMessages() {
+        List<Diagnostic> streamed = new ArrayList<>();
+        ErrorReporter reporter = new ErrorReporter(1, false, streamed::add);
+        int[] formatted = {0};
+        for (int i = 0; i < 3; i++) {
+            reporter.add(new Diagnostic(ErrorType.SEMANTICO, ErrorCode.SEMANTICO_VARIAVEL_NAO_DECLARADA, 1, 1,
+                    () -> "mensagem " + ++formatted[0], "x"));
+        }
+        assertEquals(1, streamed.size());
+        assertTrue(reporter.all().isEmpty());
+        assertEquals(2, reporter.suppressed());
+        assertEquals(0, formatted[0]); // ninguém leu a mensagem ainda
+        assertTrue(streamed.get(0).toString().endsWith("[mensagem 1]"));
+    }
+}
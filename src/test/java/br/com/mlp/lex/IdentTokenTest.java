@@ -0,0 +1,61 @@
+package br.com.mlp.lex;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.ast.AssignNode;
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.BinaryExprNode;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.ast.VarRefNode;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.diagnostics.ErrorReporter;
+import junit.framework.TestCase;
+
+/**
+ * O ID atribuído pelo lexer chega à AST sem o nome ser internado de novo.
+ */
+public class IdentTokenTest extends TestCase {
+
+    public void testAstReusesLexerIds() {
+        String source = "$ inteiro beta, alfa;\n alfa = 1; beta = alfa + alfa;\n $.";
+        IdentTable lexed = new IdentTable();
+        MlpLexer lexer = new MlpLexer(CharStreams.fromString(source));
+        lexer.setTokenFactory(IdentToken.factory(lexed));
+        MlpParser parser = new MlpParser(new CommonTokenStream(lexer));
+
+        // tabela vazia no construtor da AST: qualquer intern() apareceria nela
+        IdentTable unused = new IdentTable();
+        ProgramNode ast = (ProgramNode) new AstBuilder(unused).visit(parser.programa());
+        assertEquals(0, unused.size());
+
+        int beta = lexed.find("beta");
+        int alfa = lexed.find("alfa");
+        assertEquals(0, beta);
+        assertEquals(1, alfa);
+        assertEquals(2, lexed.size());
+        assertTrue(Arrays.equals(new int[] {beta, alfa}, ast.getDeclarations().get(0).getVarIds()));
+        AssignNode second = (AssignNode) ast.getCommands().get(1);
+        assertEquals(beta, second.getVarId());
+        BinaryExprNode sum = (BinaryExprNode) second.getExpression();
+        assertEquals(alfa, ((VarRefNode) sum.getLeft()).getId());
+    }
+
+    public void testTokenInfoCarriesTheSameId() {
+        IdentTable idents = new IdentTable();
+        List<TokenInfo> tokens = new TokenScanner(new ErrorReporter(), idents)
+                .scan(CharStreams.fromString("$ inteiro x, y;\n y = x;\n $."));
+        for (TokenInfo t : tokens) {
+            if (t.type == MlpLexer.IDENT) {
+                assertEquals(t.text, idents.find(t.text), t.identId);
+            } else {
+                assertEquals(t.text, -1, t.identId);
+            }
+        }
+        assertEquals(2, idents.size());
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.mlp.lsp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Conversa completa pelo protocolo: abrir, alterar por intervalo, fechar e
+ * sair, lendo de volta as mensagens publicadas.
+ */
+public class LspServerTest extends TestCase {
+
+    private static String frame(String json) {
+        return "Content-Length: " + json.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + json;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> run(String... messages) throws IOException {
+        StringBuilder in = new StringBuilder();
+        for (String m : messages) in.append(frame(m));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int exit = new LspServer(new ByteArrayInputStream(in.toString().getBytes(StandardCharsets.UTF_8)), out).run();
+        assertEquals(0, exit);
+
+        List<Map<String, Object>> replies = new ArrayList<>();
+        String text = out.toString(StandardCharsets.UTF_8);
+        while (!text.isEmpty()) {
+            int header = text.indexOf("\r\n\r\n");
+            int length = Integer.parseInt(text.substring("Content-Length: ".length(), header));
+            byte[] rest = text.substring(header + 4).getBytes(StandardCharsets.UTF_8);
+            String body = new String(rest, 0, length, StandardCharsets.UTF_8);
+            replies.add((Map<String, Object>) Json.parse(body));
+            text = new String(rest, length, rest.length - length, StandardCharsets.UTF_8);
+        }
+        return replies;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> diagnostics(Map<String, Object> publish) {
+        assertEquals("textDocument/publishDiagnostics", publish.get("method"));
+        return (List<Map<String, Object>>) ((Map<String, Object>) publish.get("params")).get("diagnostics");
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testSession() throws IOException {
+        String uri = "file:///tmp/t.mlp";
+        List<Map<String, Object>> replies = run(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{}}",
+                "{\"jsonrpc\":\"2.0\",\"method\":\"initialized\",\"params\":{}}",
+                "{\"jsonrpc\":\"2.0\",\"method\":\"textDocument/didOpen\",\"params\":{\"textDocument\":{\"uri\":\"" + uri
+                        + "\",\"languageId\":\"mlp\",\"version\":1,\"text\":\"$ inteiro a;\\n a = 1;\\n a = a + 1;\\n $.\"}}}",
+                // apaga "a = 1;": o uso da linha 3 passa a ler "a" sem valor
+                "{\"jsonrpc\":\"2.0\",\"method\":\"textDocument/didChange\",\"params\":{\"textDocument\":{\"uri\":\"" + uri
+                        + "\",\"version\":2},\"contentChanges\":[{\"range\":{\"start\":{\"line\":1,\"character\":1},"
+                        + "\"end\":{\"line\":1,\"character\":7}},\"text\":\"\"}]}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"textDocument/hover\",\"params\":{}}",
+                "{\"jsonrpc\":\"2.0\",\"method\":\"textDocument/didClose\",\"params\":{\"textDocument\":{\"uri\":\"" + uri
+                        + "\"}}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"shutdown\"}",
+                "{\"jsonrpc\":\"2.0\",\"method\":\"exit\"}");
+        assertEquals(6, replies.size());
+
+        Map<String, Object> init = (Map<String, Object>) replies.get(0).get("result");
+        Map<String, Object> sync = (Map<String, Object>) ((Map<String, Object>) init.get("capabilities"))
+                .get("textDocumentSync");
+        assertEquals(2L, sync.get("change"));
+
+        assertTrue(diagnostics(replies.get(1)).isEmpty());
+        List<Map<String, Object>> after = diagnostics(replies.get(2));
+        assertEquals(1, after.size());
+        Map<String, Object> d = after.get(0);
+        assertEquals("COD.207", d.get("code"));
+        Map<String, Object> start = (Map<String, Object>) ((Map<String, Object>) d.get("range")).get("start");
+        assertEquals(2L, start.get("line"));
+
+        assertEquals(-32601L, ((Map<String, Object>) replies.get(3).get("error")).get("code"));
+        assertTrue(diagnostics(replies.get(4)).isEmpty());
+        assertEquals(3L, replies.get(5).get("id"));
+        assertTrue(replies.get(5).containsKey("result"));
+    }
+}
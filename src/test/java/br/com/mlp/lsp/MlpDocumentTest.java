@@ -0,0 +1,123 @@
+package br.com.mlp.lsp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.diagnostics.Diagnostic;
+import br.com.mlp.diagnostics.ErrorCode;
+import br.com.mlp.diagnostics.ErrorType;
+import junit.framework.TestCase;
+
+/**
+ * Documento incremental: depois de qualquer sequência de alterações, os
+ * diagnósticos são os de um documento aberto do zero com o mesmo texto, e
+ * uma alteração de uma linha só refaz o que a toca.
+ */
+public class MlpDocumentTest extends TestCase {
+
+    private static final String[] LINES = {
+        " a = a + 1;", " b = a * 2;", " x = 1.5;", " c = a;", " se (a > b) entao b = 1 senao b = 2;",
+        " enquanto (a < 10) a = a + 1;", " d = d;", " b = b;", " a = ;", " c = 'z';", "", " real y;",
+        " x = x / b;", " inteiro a;", " a = a RESTO 2;",
+    };
+
+    private static String codes(List<Diagnostic> diagnostics) {
+        return diagnostics.stream().map(d -> d.getCode().name()).sorted().toList().toString();
+    }
+
+    // o texto do erro sintático ("expecting ...") depende do cache de predição do ANTLR,
+    // que é compartilhado e muda com o que já foi analisado: compara-se só código e posição
+    private static String comparable(List<Diagnostic> diagnostics) {
+        return diagnostics.stream()
+                .map(d -> d.getType() == ErrorType.SINTATICO ? d.getCode() + "@" + d.getLine() + ":" + d.getColumn()
+                        : d.toString())
+                .toList().toString();
+    }
+
+    public void testMatchesBatchCompilation() throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.walk(Path.of("programas"))) {
+            files = s.filter(p -> p.toString().endsWith(".mlp")).sorted().toList();
+        }
+        int compared = 0;
+        for (Path p : files) {
+            String source = Files.readString(p);
+            CompilationResult r = new MlpCompiler().compile(source);
+            // com erro léxico ou sintático a compilação não chega à semântica; o documento chega
+            if (r.diagnostics().stream().anyMatch(d -> d.getType() != ErrorType.SEMANTICO)) continue;
+            assertEquals(p.toString(), codes(r.diagnostics()), codes(new MlpDocument(source).diagnostics()));
+            compared++;
+        }
+        assertTrue(compared > 10);
+    }
+
+    public void testRandomEditsMatchFreshDocument() {
+        Random random = new Random(42);
+        MlpDocument doc = new MlpDocument("$ inteiro a, b;\n real x;\n caracter c;\n a = 1;\n b = a;\n $.");
+        for (int step = 0; step < 400; step++) {
+            int n = doc.lineCount();
+            int line = random.nextInt(n);
+            switch (random.nextInt(4)) {
+                case 0 -> doc.replace(line, 0, line, 0, LINES[random.nextInt(LINES.length)] + "\n");
+                case 1 -> {
+                    if (n > 2 && line < n - 1) doc.replace(line, 0, line + 1, 0, "");
+                }
+                case 2 -> {
+                    // troca um caractere, às vezes juntando ou partindo linhas
+                    String text = doc.text().split("\n", -1)[line];
+                    int col = random.nextInt(text.length() + 1);
+                    String repl = String.valueOf(" ;$.=+a(\n".charAt(random.nextInt(9)));
+                    doc.replace(line, col, line, Math.min(col + 1, text.length()), repl);
+                }
+                default -> {
+                    int end = Math.min(line + random.nextInt(3), n - 1);
+                    doc.replace(line, 1, end, 2, LINES[random.nextInt(LINES.length)]);
+                }
+            }
+            assertEquals("passo " + step + ":\n" + doc.text(),
+                    comparable(new MlpDocument(doc.text()).diagnostics()), comparable(doc.diagnostics()));
+        }
+    }
+
+    public void testOneLineEditOnLargeFile() {
+        StringBuilder src = new StringBuilder("$ inteiro a, b;\n a = 0;\n");
+        for (int i = 0; i < 100_000; i++) src.append(i % 2 == 0 ? " b = a + " : " a = b - ").append(i).append(";\n");
+        src.append(" $.");
+        MlpDocument doc = new MlpDocument(src.toString());
+        assertEquals("[]", doc.diagnostics().toString());
+
+        MlpDocument.EditStats stats = doc.replace(50_000, 0, 50_000, 0, " b = b + 1.5;");
+        assertEquals(1, stats.relexedLines());
+        assertTrue(stats.toString(), stats.reparsedUnits() <= 2);
+        assertTrue(stats.toString(), stats.reanalyzedUnits() <= 2);
+        List<Diagnostic> diagnostics = doc.diagnostics();
+        assertEquals(1, diagnostics.size());
+        assertEquals(ErrorCode.SEMANTICO_TIPO_INCOMPATIVEL, diagnostics.get(0).getCode());
+        assertEquals(50_001, diagnostics.get(0).getLine());
+
+        // inserir uma linha inteira desloca os diagnósticos de baixo sem reanalisá-los
+        stats = doc.replace(10, 0, 10, 0, " a = 1;\n");
+        assertEquals(2, stats.relexedLines());
+        assertEquals(50_002, doc.diagnostics().get(0).getLine());
+    }
+
+    public void testFirstAssignmentDecidesUninitializedReads() {
+        MlpDocument doc = new MlpDocument("$ inteiro a, b;\n a = 1;\n b = a;\n b = a + b;\n $.");
+        assertEquals("[]", doc.diagnostics().toString());
+
+        doc.replace(1, 0, 1, 7, "");
+        assertEquals("[SEMANTICO_VARIAVEL_NAO_INICIALIZADA, SEMANTICO_VARIAVEL_NAO_INICIALIZADA]",
+                codes(doc.diagnostics()));
+
+        // a atribuição volta, mas depois do primeiro uso
+        doc.replace(3, 0, 3, 0, " a = 1;\n");
+        assertEquals("[SEMANTICO_VARIAVEL_NAO_INICIALIZADA]", codes(doc.diagnostics()));
+        assertEquals(3, doc.diagnostics().get(0).getLine());
+    }
+}
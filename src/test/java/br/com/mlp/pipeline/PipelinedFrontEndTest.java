@@ -0,0 +1,119 @@
+package br.com.mlp.pipeline;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.SemanticAnalyzer;
+import br.com.mlp.diagnostics.ErrorReporter;
+import br.com.mlp.diagnostics.ErrorType;
+import br.com.mlp.diagnostics.MlpSyntaxErrorListener;
+import br.com.mlp.lex.IdentTable;
+import br.com.mlp.lex.TokenInfo;
+import br.com.mlp.lex.TokenScanner;
+import junit.framework.TestCase;
+
+/**
+ * O front end em pipeline deve dar os mesmos tokens, diagnósticos (na mesma
+ * ordem), AST e TAC que as fases sequenciais do App.
+ */
+public class PipelinedFrontEndTest extends TestCase {
+
+    public void testSameResultsAsSequentialFrontEnd() throws Exception {
+        List<String> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".mlp")).sorted().toList()) {
+                sources.add(Files.readString(p));
+            }
+        }
+
+        // vários lotes de tokens e de comandos, com erro semântico perto do fim
+        StringBuilder big = new StringBuilder("$ inteiro a, b, c;\n a = 1; b = 2;\n");
+        for (int i = 0; i < 5000; i++) {
+            big.append(" se (a > ").append(i % 7).append(") E (b != c) entao c = (a * b) senao a = a + 1;\n");
+        }
+        sources.add(big.toString().replace("$ inteiro a, b, c;", "$ inteiro a, b, c; real r;") + " b = r;\n $.");
+        sources.add(big + " $.");
+        sources.add(big + " a = ;\n $.");
+
+        for (String source : sources) {
+            check(source);
+        }
+    }
+
+    /**
+     * O COD.204 aponta para a última ocorrência do nome, então a semântica
+     * espera o lexer chegar ao fim enquanto ainda há comandos a receber:
+     * com mais comandos que os dois buffers comportam, isso não pode travar.
+     */
+    public void testRedeclarationDoesNotDeadlock() throws Exception {
+        StringBuilder src = new StringBuilder("$ inteiro a, b, a;\n b = 1;\n");
+        for (int i = 0; i < 20_000; i++) {
+            src.append(" se (b > ").append(i % 9).append(") entao a = b senao b = a;\n");
+        }
+        String source = src.append(" $.").toString();
+
+        Throwable[] failure = new Throwable[1];
+        Thread t = new Thread(() -> {
+            try {
+                new PipelinedFrontEnd(new ErrorReporter(), new IdentTable()).compile(CharStreams.fromString(source));
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "pipeline-teste");
+        t.setDaemon(true);
+        t.start();
+        t.join(60_000);
+        assertFalse("pipeline travou", t.isAlive());
+        assertNull(String.valueOf(failure[0]), failure[0]);
+
+        check(source);
+    }
+
+    private static void check(String source) throws Exception {
+        // sequencial, como no App
+        ErrorReporter expected = new ErrorReporter();
+        IdentTable idents = new IdentTable();
+        List<TokenInfo> tokens = new TokenScanner(expected, idents).scan(CharStreams.fromString(source));
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        parser.removeErrorListeners();
+        parser.addErrorListener(new MlpSyntaxErrorListener(expected));
+        MlpParser.ProgramaContext tree = parser.programa();
+
+        ProgramNode ast = null;
+        String tac = null;
+        if (!expected.hasErrorsOfType(ErrorType.SINTATICO)) {
+            ast = (ProgramNode) new AstBuilder(idents).visit(tree);
+            new SemanticAnalyzer(expected, tokens).analyze(ast);
+            if (!expected.hasAnyError()) tac = new CodeGenerator().generate(ast).toString();
+        }
+
+        ErrorReporter reporter = new ErrorReporter();
+        PipelinedFrontEnd.Result r = new PipelinedFrontEnd(reporter, new IdentTable())
+                .compile(CharStreams.fromString(source));
+
+        String name = source.length() > 60 ? source.substring(0, 60) : source;
+        assertEquals(name, tokens.size(), r.tokens().size());
+        assertEquals(name, expected.all().toString(), reporter.all().toString());
+        if (ast == null) {
+            assertNull(name, r.program());
+            return;
+        }
+        assertEquals(name, ast.toString(), r.program().toString());
+        if (tac == null) {
+            assertFalse(name, r.semantics().hasTac());
+        } else {
+            assertEquals(name, tac, r.semantics().tac().toString());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package br.com.mlp.runtime;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import br.com.mlp.diagnostics.Diagnostic;
+import br.com.mlp.diagnostics.ErrorCode;
+import junit.framework.TestCase;
+
+/**
+ * Cada pista do lote deve terminar com os mesmos valores que uma execução
+ * isolada no {@link TieredRuntime} com as mesmas entradas, inclusive com
+ * pistas divergindo em desvios e laços e pistas que falham.
+ */
+public class BatchExecutorTest extends TestCase {
+
+    private static final long LIMIT = 200_000;
+
+    public void testLanesMatchScalarRuns() throws Exception {
+        List<String> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".mlp")).sorted().toList()) {
+                sources.add(Files.readString(p));
+            }
+        }
+        // laço com número de voltas diferente por pista, desvio aninhado e divisão por zero
+        String sweep = "$ inteiro a, b, c, i, m; real x;\n"
+                + " i = 0; c = 0;\n"
+                + " enquanto (i < a) se (b > 0) entao i = i + b senao i = i + 1;\n"
+                + " m = i RESTO 3;\n"
+                + " se (m == 0) E (b > 1) entao c = c + b senao c = c - 1;\n"
+                + " x = x * 1.5 + i / 2;\n"
+                + " enquanto (c < a) c = c + 2;\n"
+                + " b = c / (a - 5);\n $.";
+        sources.add(sweep);
+
+        MlpCompiler compiler = new MlpCompiler();
+        int checked = 0;
+        for (String source : sources) {
+            CompilationResult r = compiler.compile(source);
+            if (r.program() == null || r.symbols() == null || !onlyInputWarnings(r)) continue;
+            // as entradas vêm das colunas: COD.207/208 não impedem a execução
+            List<TacInstruction> tac = r.tac() != null ? r.tac() : new CodeGenerator().generate(r.program());
+            boolean finished = check(TacProgram.decode(tac, r.symbols()), source);
+            assertTrue(finished || source != sweep);
+            if (finished) checked++;
+        }
+        assertTrue(checked >= 3);
+    }
+
+    private static boolean onlyInputWarnings(CompilationResult r) {
+        for (Diagnostic d : r.diagnostics()) {
+            if (d.getCode() != ErrorCode.SEMANTICO_VARIAVEL_NAO_INICIALIZADA
+                    && d.getCode() != ErrorCode.SEMANTICO_VARIAVEL_NAO_UTILIZADA) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean check(TacProgram program, String name) {
+        int lanes = 1000;
+        Random random = new Random(42);
+        ColumnBatch batch = ColumnBatch.of(program, lanes);
+        Map<String, Object> columns = batch.columns();
+        for (Map.Entry<String, Object> e : columns.entrySet()) {
+            if (e.getValue() instanceof int[]) {
+                int[] col = new int[lanes];
+                for (int i = 0; i < lanes; i++) col[i] = random.nextInt(21) - 5;
+                batch.set(e.getKey(), col);
+            } else {
+                double[] col = new double[lanes];
+                for (int i = 0; i < lanes; i++) col[i] = random.nextInt(200) / 8.0 - 5;
+                batch.set(e.getKey(), col);
+            }
+        }
+
+        List<Map<String, Number>> inputs = new ArrayList<>();
+        for (int i = 0; i < lanes; i++) inputs.add(batch.values(i));
+
+        try {
+            new BatchExecutor(64, LIMIT).execute(program, batch);
+        } catch (ExecutionLimitException e) {
+            return false; // laço sem fim para alguma entrada
+        }
+
+        TieredRuntime scalar = new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, true);
+        for (int lane = 0; lane < lanes; lane++) {
+            Frame frame = program.newFrame();
+            inputs.get(lane).forEach(frame::set);
+            String error = null;
+            try {
+                scalar.execute(program, frame);
+            } catch (MlpRuntimeException e) {
+                error = e.getMessage();
+            }
+            String where = name.substring(0, Math.min(60, name.length())) + " / pista " + lane;
+            assertEquals(where, error, batch.error(lane));
+            if (error == null) {
+                assertEquals(where, frame.values(), batch.values(lane));
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,132 @@
+package br.com.mlp.runtime;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.codegen.CodeGenerator;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.SemanticAnalyzer;
+import br.com.mlp.compiler.semantics.SymbolTable;
+import br.com.mlp.diagnostics.ErrorCode;
+import br.com.mlp.diagnostics.ErrorReporter;
+import junit.framework.TestCase;
+
+/**
+ * Os avaliadores da AST (interpretador e closures) chegam aos mesmos
+ * valores que o TAC executado pelo runtime em camadas.
+ */
+public class ClosureCompilerTest extends TestCase {
+
+    private static final long MAX_STEPS = 2_000_000;
+
+    private ProgramNode ast;
+    private SymbolTable symbols;
+
+    // COD.207/208 não mudam a execução (as variáveis começam zeradas)
+    private void compile(String source) {
+        ErrorReporter reporter = new ErrorReporter();
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        ast = (ProgramNode) new AstBuilder().visit(parser.programa());
+        symbols = new SemanticAnalyzer(reporter, null).analyze(ast);
+        assertTrue(reporter.all().toString(), reporter.all().stream()
+                .allMatch(d -> d.getCode() == ErrorCode.SEMANTICO_VARIAVEL_NAO_INICIALIZADA
+                        || d.getCode() == ErrorCode.SEMANTICO_VARIAVEL_NAO_UTILIZADA));
+    }
+
+    // null se o programa não termina dentro do limite
+    private Map<String, Number> runTac() {
+        try {
+            return new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false, MAX_STEPS)
+                    .run(new CodeGenerator().generate(ast), symbols);
+        } catch (ExecutionLimitException e) {
+            return null;
+        }
+    }
+
+    private void assertSameValues(String what) {
+        Map<String, Number> expected = runTac();
+        assertNotNull(what + " não termina", expected);
+        assertEquals(what + " (AST)", expected, new AstInterpreter().run(ast));
+        assertEquals(what + " (closures)", expected, new ClosureCompiler().compile(ast, symbols).run());
+    }
+
+    public void testCorpus() throws Exception {
+        List<Path> corpus;
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            corpus = files.filter(p -> p.toString().endsWith(".mlp")).sorted().toList();
+        }
+        int compared = 0;
+        for (Path p : corpus) {
+            ErrorReporter reporter = new ErrorReporter();
+            MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromPath(p))));
+            parser.removeErrorListeners();
+            ProgramNode program = (ProgramNode) new AstBuilder().visit(parser.programa());
+            if (parser.getNumberOfSyntaxErrors() > 0) continue;
+            symbols = new SemanticAnalyzer(reporter, null).analyze(program);
+            if (reporter.hasAnyError()) continue;
+            ast = program;
+            if (runTac() == null) continue;
+            assertSameValues(p.toString());
+            compared++;
+        }
+        assertTrue(compared > 0);
+    }
+
+    public void testIntegerSpecialization() {
+        // constante à direita (closures próprias), RESTO e divisão com negativos
+        compile("$ inteiro i, n, k, m;\n i = 0; n = 25; k = 0; m = 0;\n"
+                + " enquanto (i < n) i = (i + 1);\n"
+                + " k = ((i * 3) - 100) / 7;\n"
+                + " m = ((k RESTO 4) + (i / 2)) - (n RESTO 6);\n"
+                + " se (k < 0) E (m != 0) entao n = k * m senao n = 1;\n $.");
+        assertSameValues("inteiros");
+    }
+
+    public void testMixedIntegerAndReal() {
+        // inteiro convertido para real nos operandos e na comparação, real RESTO
+        compile("$ inteiro i, x, y; real s, r;\n i = 0; x = 10; y = 4; s = 0.5; r = 0;\n"
+                + " r = x / y;\n"
+                + " enquanto (s < x) s = (s * 2) + i;\n"
+                + " i = i + 3;\n"
+                + " r = (r + s) RESTO 3.5;\n"
+                + " se (r >= i) OR (s == x) entao r = r / y senao r = i - s;\n $.");
+        assertSameValues("misto");
+    }
+
+    public void testRealRemainder() {
+        // RESTO real (e com operando inteiro) tem o sinal do dividendo, como o % de Java
+        compile("$ inteiro a, i; real x, y, w, v;\n a = 7; i = 0; x = 7.5;\n"
+                + " y = x RESTO 2.0; w = a RESTO 2.5; v = (0 - x) RESTO a;\n"
+                + " enquanto (i < 5) i = i + 1;\n"
+                + " x = (x * i) RESTO (y + 0.25);\n $.");
+        assertSameValues("RESTO real");
+    }
+
+    public void testNaNComparisons() {
+        // com NaN toda comparação é falsa, inclusive a negada pelo salto
+        compile("$ real x, z, c, d, k;\n z = 0; x = z / z; k = 0;\n"
+                + " se (x > 1.0) entao c = 1.0 senao c = 2.0;\n"
+                + " se (x >= z) OR (x == x) entao d = 1 senao d = 2;\n"
+                + " enquanto (x < k) k = k + 1;\n"
+                + " enquanto (k <= 3) E (x != x) k = k + 1;\n $.");
+        assertSameValues("NaN");
+    }
+
+    public void testCaracterSlots() {
+        // caracter ocupa o vetor de inteiros, ao lado dos inteiros e reais
+        compile("$ caracter c, d; inteiro k; real z;\n k = 2; z = 1.5;\n"
+                + " d = c;\n"
+                + " se (c == d) entao k = k + 1;\n"
+                + " z = z * k;\n $.");
+        assertSameValues("caracter");
+    }
+}
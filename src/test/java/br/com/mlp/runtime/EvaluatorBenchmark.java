@@ -0,0 +1,94 @@
+package br.com.mlp.runtime;
+
+import java.util.Map;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import br.com.mlp.compiler.ast.AstBuilder;
+import br.com.mlp.compiler.ast.ProgramNode;
+import br.com.mlp.compiler.parser.MlpLexer;
+import br.com.mlp.compiler.parser.MlpParser;
+import br.com.mlp.compiler.semantics.SemanticAnalyzer;
+import br.com.mlp.compiler.semantics.SymbolTable;
+import br.com.mlp.diagnostics.ErrorReporter;
+
+/**
+ * Compara o {@link AstInterpreter} (percorre a AST a cada execução) com o
+ * {@link ClosureCompiler} (compila uma vez, executa várias) em programas
+ * com laços pesados.
+ *
+ * Rodar com:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=br.com.mlp.runtime.EvaluatorBenchmark
+ */
+public class EvaluatorBenchmark {
+
+    // O corpo de um enquanto é um único comando, então é ele quem avança o contador.
+    private static final String LOOP_INTEIRO =
+            "$\n"
+            + "inteiro i, n, meio;\n"
+            + "i = 0;\n"
+            + "n = 3000000;\n"
+            + "meio = 1500000;\n"
+            + "enquanto (i < n)\n"
+            + "  se (i > meio) entao\n"
+            + "    i = i + ((i * 7) RESTO 3) - ((i * 7) RESTO 3) + 1\n"
+            + "  senao\n"
+            + "    i = ((i + 2) - 1) + ((i / 5) - (i / 5))\n"
+            + ";\n"
+            + "$.\n";
+
+    private static final String LOOP_REAL =
+            "$\n"
+            + "real x, lim;\n"
+            + "x = 0.0;\n"
+            + "lim = 3000000.0;\n"
+            + "enquanto (x < lim) E (x != lim)\n"
+            + "  x = (x + 1.5) - ((x * 0.25) / (x + 1.0)) + ((x * 0.25) / (x + 1.0)) - 0.5\n"
+            + ";\n"
+            + "$.\n";
+
+    public static void main(String[] args) {
+        bench("laço inteiro", LOOP_INTEIRO);
+        bench("laço real", LOOP_REAL);
+    }
+
+    private static void bench(String name, String source) {
+        MlpParser parser = new MlpParser(new CommonTokenStream(new MlpLexer(CharStreams.fromString(source))));
+        ProgramNode ast = (ProgramNode) new AstBuilder().visit(parser.programa());
+        SymbolTable symbols = new SemanticAnalyzer(new ErrorReporter(), null).analyze(ast);
+
+        CompiledProgram compiled = new ClosureCompiler().compile(ast, symbols);
+        AstInterpreter interpreter = new AstInterpreter();
+
+        Map<String, Number> expected = interpreter.run(ast);
+        Map<String, Number> actual = compiled.run();
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("resultados divergentes: " + expected + " vs " + actual);
+        }
+
+        int warmup = 5;
+        int runs = 10;
+        for (int k = 0; k < warmup; k++) {
+            interpreter.run(ast);
+            compiled.run();
+        }
+
+        long t0 = System.nanoTime();
+        for (int k = 0; k < runs; k++) {
+            interpreter.run(ast);
+        }
+        long naive = (System.nanoTime() - t0) / runs;
+
+        t0 = System.nanoTime();
+        for (int k = 0; k < runs; k++) {
+            compiled.run();
+        }
+        long closures = (System.nanoTime() - t0) / runs;
+
+        System.out.printf("%-14s AST direta: %8.2f ms | closures: %8.2f ms | %.1fx%n",
+                name, naive / 1e6, closures / 1e6, (double) naive / closures);
+        System.out.println("  resultado: " + actual);
+    }
+}
@@ -0,0 +1,53 @@
+package br.com.mlp.runtime;
+
+import java.util.List;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import junit.framework.TestCase;
+
+/**
+ * Avaliação parcial: o TAC reduzido deve dar os mesmos valores finais que o
+ * original; quando o orçamento acaba ou a execução falha, o TAC fica igual.
+ */
+public class PartialEvaluatorTest extends TestCase {
+
+    private final MlpCompiler compiler = new MlpCompiler();
+
+    public void testTerminatingProgramBecomesFinalValues() {
+        CompilationResult r = compiler.compile("$ inteiro i, s; real x;\n"
+                + " i = 0; s = 0; x = 1.5;\n"
+                + " enquanto (i < 100) i = i + 1;\n"
+                + " se (i == 100) entao s = (i * 3) senao s = 1;\n"
+                + " x = x * i;\n $.");
+        PartialEvaluator.Result pe = new PartialEvaluator().evaluate(r.tac(), r.symbols());
+
+        assertTrue(pe.reason(), pe.folded());
+        for (TacInstruction ti : pe.tac()) {
+            assertTrue(ti.toString(), ti.getOpcode() == Opcode.LOADI || ti.getOpcode() == Opcode.STORE);
+        }
+        TieredRuntime runtime = new TieredRuntime();
+        assertEquals(runtime.run(r.tac(), r.symbols()), runtime.run(pe.tac(), r.symbols()));
+        assertEquals("[LOADI R1, 100, STORE i, R1, LOADI R2, 300, STORE s, R2, LOADI R3, 150.0, STORE x, R3]",
+                pe.tac().toString());
+    }
+
+    public void testBudgetAndRuntimeErrorsKeepTac() {
+        CompilationResult loop = compiler.compile("$ inteiro a; a = 1; enquanto (a > 0) a = (a * 1); $.");
+        PartialEvaluator.Result steps = new PartialEvaluator(10_000, 60_000).evaluate(loop.tac(), loop.symbols());
+        assertFalse(steps.folded());
+        assertSame(loop.tac(), steps.tac());
+        assertTrue(steps.reason(), steps.reason().contains("10000 instruções"));
+
+        PartialEvaluator.Result time = new PartialEvaluator(Long.MAX_VALUE, 50).evaluate(loop.tac(), loop.symbols());
+        assertTrue(time.reason(), time.reason().contains("50 ms"));
+
+        CompilationResult div = compiler.compile("$ inteiro a, b; a = 0; b = (5 / a); $.");
+        List<TacInstruction> tac = div.tac();
+        PartialEvaluator.Result error = new PartialEvaluator().evaluate(tac, div.symbols());
+        assertFalse(error.folded());
+        assertTrue(error.reason(), error.reason().contains("divisão inteira por zero"));
+    }
+}
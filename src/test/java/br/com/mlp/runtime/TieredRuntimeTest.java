@@ -0,0 +1,147 @@
+package br.com.mlp.runtime;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import br.com.mlp.CompilationResult;
+import br.com.mlp.MlpCompiler;
+import br.com.mlp.compiler.codegen.Opcode;
+import br.com.mlp.compiler.codegen.TacInstruction;
+import junit.framework.TestCase;
+
+/**
+ * Execução em camadas: o laço sobe de camada no limite de back-edges, o
+ * código compilado continua com o estado do interpretador e dá os mesmos
+ * valores que a execução só interpretada (--jit-limite=1 contra --sem-jit).
+ */
+public class TieredRuntimeTest extends TestCase {
+
+    private static final long MAX_STEPS = 2_000_000;
+
+    // inteiro e real no mesmo frame, laços com condição variável x variável
+    private static final String LOOPS = "$ inteiro i, n; real s;\n i = 0; n = 40; s = 0.5;\n"
+            + " enquanto (i < n) i = i + 1;\n"
+            + " enquanto (s < i) s = (s * 2) + 1;\n $.";
+
+    private static CompilationResult compile(String source) {
+        CompilationResult r = new MlpCompiler().compile(source);
+        assertNotNull(r.diagnostics().toString(), r.tac());
+        return r;
+    }
+
+    private static Map<String, Number> interpreted(List<TacInstruction> tac, CompilationResult r) {
+        return new TieredRuntime(TieredRuntime.DEFAULT_THRESHOLD, false, MAX_STEPS).run(tac, r.symbols());
+    }
+
+    public void testTierUpAtThreshold() {
+        CompilationResult r = compile("$ inteiro i, k; real s;\n i = 0; k = 0; s = 0.25;\n"
+                + " enquanto (i < 100) i = i + 1;\n"
+                + " enquanto (k < 3) k = k + 1;\n $.");
+        TacProgram program = TacProgram.decode(r.tac(), r.symbols());
+        Frame frame = program.newFrame();
+        ExecutionStats stats = new TieredRuntime(10, true).execute(program, frame);
+
+        // só o primeiro laço chega a 10 back-edges; o segundo fica no interpretador
+        assertEquals(1, stats.getTierUps().size());
+        ExecutionStats.TierUpEvent e = stats.getTierUps().get(0);
+        assertTrue(e.getFailure(), e.isCompiled());
+        assertEquals(10, e.getBackEdges());
+        assertTrue(e.getBytecodeSize() > 0);
+        assertTrue(e.toString(), e.toString().contains("compilado após 10 back-edges"));
+        assertEquals(1, stats.getCompiledEntries());
+        assertEquals(100, frame.get("i").intValue());
+        assertEquals(3, frame.get("k").intValue());
+    }
+
+    public void testOsrContinuesFromInterpreterState() {
+        // o laço é compilado no meio: i e t já avançaram no interpretador
+        CompilationResult r = compile("$ inteiro i, t; real s;\n i = 0; t = 0; s = 1;\n"
+                + " enquanto (i < 1000) i = i + 1;\n"
+                + " enquanto (t < 500) t = t + (i RESTO 7);\n"
+                + " s = s + t;\n $.");
+        Map<String, Number> expected = interpreted(r.tac(), r);
+        for (int threshold : new int[] {1, 2, 37, 999}) {
+            TacProgram program = TacProgram.decode(r.tac(), r.symbols());
+            Frame frame = program.newFrame();
+            ExecutionStats stats = new TieredRuntime(threshold, true).execute(program, frame);
+            assertEquals("limite " + threshold, expected, frame.values());
+            assertFalse(stats.getTierUps().isEmpty());
+            for (ExecutionStats.TierUpEvent e : stats.getTierUps()) {
+                assertEquals(threshold, e.getBackEdges());
+            }
+        }
+    }
+
+    public void testRegisterLiveOutsideLoopBailsOut() {
+        // TAC montado à mão: R1 (= k) é carregado antes do laço e lido dentro dele
+        CompilationResult r = compile("$ inteiro i, k;\n k = 1; i = 0;\n enquanto (i < 50) i = i + k;\n $.");
+        List<TacInstruction> tac = new ArrayList<>();
+        String kReg = null;
+        for (TacInstruction ti : r.tac()) {
+            String[] args = ti.getArgs();
+            if (ti.getOpcode() == Opcode.LOADI && kReg == null) kReg = args[0];
+            if (ti.getOpcode() == Opcode.LOAD && args[1].equals("k")) continue;
+            if (ti.getOpcode() == Opcode.ADD) ti = ti.withArgs(args[0], args[1], kReg);
+            tac.add(ti);
+        }
+
+        TacProgram program = TacProgram.decode(tac, r.symbols());
+        Frame frame = program.newFrame();
+        ExecutionStats stats = new TieredRuntime(5, true).execute(program, frame);
+        assertEquals(50, frame.get("i").intValue());
+        assertEquals(1, stats.getTierUps().size());
+        ExecutionStats.TierUpEvent e = stats.getTierUps().get(0);
+        assertFalse(e.isCompiled());
+        assertTrue(e.getFailure(), e.getFailure().contains("R1 vivo fora do laço"));
+        assertTrue(e.toString(), e.toString().contains("mantido no interpretador"));
+        assertEquals(0, stats.getCompiledEntries());
+    }
+
+    public void testRealRemainder() {
+        // RESTO real não pode ser DIV/MUL/SUB: 7.5 / 2.0 * 2.0 dá 7.5 e o resto, 0.0
+        CompilationResult r = compile("$ inteiro a, i; real x, y, w, v, s;\n a = 7; i = 0; x = 7.5; s = 0;\n"
+                + " y = x RESTO 2.0; w = a RESTO 2.5; v = (0 - x) RESTO a;\n"
+                + " enquanto (i < 30) i = i + 1;\n"
+                + " enquanto (s < 20) s = (s + x) RESTO 23.5;\n"
+                + " a = a RESTO 4;\n $.");
+        Map<String, Number> expected = new AstInterpreter().run(r.program());
+        assertEquals(1.5, expected.get("y"));
+        assertEquals(2.0, expected.get("w"));
+        assertEquals(-0.5, expected.get("v"));
+        assertTrue(r.tac().toString(), r.tac().stream().anyMatch(ti -> ti.getOpcode() == Opcode.RMOD));
+
+        assertEquals(expected, interpreted(r.tac(), r));
+        assertEquals(expected, new TieredRuntime(1, true).run(r.tac(), r.symbols()));
+        PartialEvaluator.Result pe = new PartialEvaluator().evaluate(r.tac(), r.symbols());
+        assertTrue(pe.reason(), pe.folded());
+        assertEquals(expected, interpreted(pe.tac(), r));
+    }
+
+    public void testJitAtOneMatchesInterpreter() throws Exception {
+        List<String> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(Path.of("programas"))) {
+            for (Path p : files.filter(p -> p.toString().endsWith(".mlp")).sorted().toList()) {
+                sources.add(Files.readString(p));
+            }
+        }
+        sources.add(LOOPS);
+        int compared = 0;
+        for (String source : sources) {
+            CompilationResult r = new MlpCompiler().compile(source);
+            if (r.tac() == null) continue;
+            Map<String, Number> expected;
+            try {
+                expected = interpreted(r.tac(), r);
+            } catch (ExecutionLimitException e) {
+                continue; // não termina
+            }
+            assertEquals(source, expected, new TieredRuntime(1, true).run(r.tac(), r.symbols()));
+            compared++;
+        }
+        assertTrue(compared > 1);
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.mlp.script;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import junit.framework.TestCase;
+
+/**
+ * Motor JSR-223: descoberta pelo ScriptEngineManager, variáveis vindas e
+ * voltando pelos Bindings, scripts compilados reaproveitados e o cache.
+ */
+public class MlpScriptEngineTest extends TestCase {
+
+    public void testDiscoveredByName() {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("mlp");
+        assertNotNull(engine);
+        assertTrue(engine instanceof Compilable);
+        assertEquals("MLP", engine.getFactory().getLanguageName());
+    }
+
+    public void testBindingsInAndOut() throws ScriptException {
+        ScriptEngine engine = new MlpScriptEngineFactory().getScriptEngine();
+        Bindings b = engine.createBindings();
+        b.put("a", 20);
+        b.put("r", 1.5);
+
+        engine.eval("$ inteiro a, b; real r;\n b = a * 2; r = r * 2.0;\n $.", b);
+
+        assertEquals(40, b.get("b"));
+        assertEquals(3.0, b.get("r"));
+        assertEquals(20, b.get("a"));
+    }
+
+    public void testCompiledScriptRunsManyTimes() throws ScriptException {
+        Compilable engine = (Compilable) new MlpScriptEngineFactory().getScriptEngine();
+        CompiledScript script = engine.compile("$ inteiro n, i, soma;\n i = 0; soma = 0;\n"
+                + " enquanto (i < n) i = i + 1;\n soma = i * 2;\n $.");
+
+        for (int n = 0; n < 2000; n++) {
+            Bindings b = script.getEngine().createBindings();
+            b.put("n", n);
+            script.eval(b);
+            assertEquals(2 * n, b.get("soma"));
+        }
+    }
+
+    public void testEvalUsesBoundedCache() throws ScriptException {
+        MlpScriptEngineFactory factory = new MlpScriptEngineFactory(2);
+        MlpScriptEngine engine = (MlpScriptEngine) factory.getScriptEngine();
+
+        String a = "$ inteiro x; x = 1; $.";
+        CompiledScript first = engine.compile(a);
+        assertSame(first, engine.compile(a));
+        assertSame(first, ((MlpScriptEngine) factory.getScriptEngine()).compile(a));
+
+        engine.compile("$ inteiro x; x = 2; $.");
+        engine.compile("$ inteiro x; x = 3; $.");
+        assertNotSame(first, engine.compile(a)); // o mais antigo saiu
+    }
+
+    public void testCompileErrorsBecomeScriptExceptions() {
+        ScriptEngine engine = new MlpScriptEngineFactory().getScriptEngine();
+        try {
+            engine.eval("$ inteiro a; a = b; $.");
+            fail("variável não declarada deveria falhar");
+        } catch (ScriptException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("COD.200"));
+            assertEquals(1, e.getLineNumber());
+        }
+        try {
+            engine.eval("$ inteiro a, b; a = 10; b = a / 0; $.");
+            fail("divisão por zero constante deveria falhar");
+        } catch (ScriptException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("COD.205"));
+        }
+    }
+
+    public void testRuntimeErrorsBecomeScriptExceptions() throws ScriptException {
+        ScriptEngine engine = new MlpScriptEngineFactory().getScriptEngine();
+        Bindings b = engine.createBindings();
+        b.put("d", 0);
+        try {
+            engine.eval("$ inteiro a, d; a = 10 / d; $.", b);
+            fail("divisão por zero em execução deveria falhar");
+        } catch (ScriptException e) {
+            assertNotNull(e.getCause());
+        }
+    }
+}